@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.ahc4;
+
+import java.security.GeneralSecurityException;
+import java.security.SignatureException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.apache.http.HttpMessage;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+import tech.barbero.http.message.signing.ahc4.MessageWrapper.Request;
+import tech.barbero.http.message.signing.ahc4.MessageWrapper.Response;
+
+/**
+ * Signs and verifies messages on an executor, for non-blocking clients and servers such as HttpAsyncClient 4.x and
+ * HttpCore NIO. Their interceptors are run on the I/O reactor threads, where signing and verifying would delay all the
+ * other exchanges of the reactor. Instead, messages are signed before being handed to the client and verified once
+ * received, and the exchange is resumed from the returned future, e.g.
+ *
+ * <pre>
+ * signature.signAsync(request)
+ * 		.thenCompose(signed -&gt; execute(client, signed)) // adapts FutureCallback to CompletableFuture
+ * 		.thenCompose(signature::verifyAsync)
+ * 		.thenAccept(response -&gt; ...);
+ * </pre>
+ *
+ * This class is thread-safe.
+ *
+ * @since 1.1
+ */
+public final class AsyncSignature {
+
+	private final Optional<HttpMessageSigner> messageSigner;
+	private final Optional<SignatureHeaderVerifier> signatureVerifier;
+	private final Executor executor;
+
+	/**
+	 * Creates a new instance signing and verifying messages on the given executor.
+	 *
+	 * @param messageSigner
+	 *          the message signer to be used to create the signature header of messages.
+	 * @param signatureVerifier
+	 *          the signature verifier which will check the signature of messages.
+	 * @param executor
+	 *          the executor to sign and verify messages on.
+	 */
+	public AsyncSignature(HttpMessageSigner messageSigner, SignatureHeaderVerifier signatureVerifier, Executor executor) {
+		this(Optional.of(messageSigner), Optional.of(signatureVerifier), executor);
+	}
+
+	private AsyncSignature(Optional<HttpMessageSigner> messageSigner, Optional<SignatureHeaderVerifier> signatureVerifier, Executor executor) {
+		this.messageSigner = messageSigner;
+		this.signatureVerifier = signatureVerifier;
+		this.executor = Objects.requireNonNull(executor);
+	}
+
+	/**
+	 * Creates a new instance only signing messages on the given executor.
+	 *
+	 * @param messageSigner
+	 *          the message signer to be used to create the signature header of messages.
+	 * @param executor
+	 *          the executor to sign messages on.
+	 * @return a new signing instance.
+	 */
+	public static AsyncSignature signing(HttpMessageSigner messageSigner, Executor executor) {
+		return new AsyncSignature(Optional.of(messageSigner), Optional.empty(), executor);
+	}
+
+	/**
+	 * Creates a new instance only verifying messages on the given executor.
+	 *
+	 * @param signatureVerifier
+	 *          the signature verifier which will check the signature of messages.
+	 * @param executor
+	 *          the executor to verify messages on.
+	 * @return a new verifying instance.
+	 */
+	public static AsyncSignature verifying(SignatureHeaderVerifier signatureVerifier, Executor executor) {
+		return new AsyncSignature(Optional.empty(), Optional.of(signatureVerifier), executor);
+	}
+
+	/**
+	 * Adds the signature header to the given request or response on the executor of this instance. The message is
+	 * modified in place, and must not be used until the returned future is completed.
+	 *
+	 * @param <M>
+	 *          the type of message.
+	 * @param message
+	 *          the message to be signed.
+	 * @return a future completed with the given message once signed, or exceptionally with a
+	 *         {@link GeneralSecurityException} if it cannot be signed.
+	 * @throws IllegalStateException
+	 *           if this instance has no message signer.
+	 */
+	public <M extends HttpMessage> CompletableFuture<M> signAsync(M message) {
+		HttpMessageSigner signer = this.messageSigner.orElseThrow(() -> new IllegalStateException("No message signer configured"));
+		tech.barbero.http.message.signing.HttpMessage wrapped = wrap(message);
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				signer.sign(wrapped);
+				return message;
+			} catch (GeneralSecurityException e) {
+				throw new CompletionException(e);
+			}
+		}, this.executor);
+	}
+
+	/**
+	 * Verifies the signature of the given request or response on the executor of this instance.
+	 *
+	 * @param <M>
+	 *          the type of message.
+	 * @param message
+	 *          the message to be verified.
+	 * @return a future completed with the given message if its signature is verified, or exceptionally with a
+	 *         {@link SignatureException} if it is not, or with another {@link GeneralSecurityException} if it cannot be
+	 *         verified.
+	 * @throws IllegalStateException
+	 *           if this instance has no signature verifier.
+	 */
+	public <M extends HttpMessage> CompletableFuture<M> verifyAsync(M message) {
+		SignatureHeaderVerifier verifier = this.signatureVerifier.orElseThrow(() -> new IllegalStateException("No signature verifier configured"));
+		tech.barbero.http.message.signing.HttpMessage wrapped = wrap(message);
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				if (!verifier.verify(wrapped)) {
+					throw new SignatureException("Unable to verify the signature of HTTP message '" + message + "'");
+				}
+				return message;
+			} catch (GeneralSecurityException e) {
+				throw new CompletionException(e);
+			}
+		}, this.executor);
+	}
+
+	private static tech.barbero.http.message.signing.HttpMessage wrap(HttpMessage message) {
+		if (message instanceof HttpRequest) {
+			return new Request((HttpRequest) message);
+		} else if (message instanceof HttpResponse) {
+			return new Response((HttpResponse) message);
+		}
+		throw new IllegalArgumentException("Unsupported HTTP message type '" + Objects.requireNonNull(message).getClass() + "'");
+	}
+}
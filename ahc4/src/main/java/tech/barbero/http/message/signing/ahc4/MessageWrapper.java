@@ -10,6 +10,7 @@ package tech.barbero.http.message.signing.ahc4;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -44,6 +45,26 @@ abstract class MessageWrapper<M extends org.apache.http.HttpMessage> implements
 			.collect(Collectors.toList());
 	}
 
+	@Override
+	public List<List<String>> headerValues(List<String> names) {
+		List<List<String>> ret = new ArrayList<>(names.size());
+		for (String name : names) {
+			if (name == null || name.isEmpty()) {
+				throw new IllegalArgumentException("Argument 'names' must not contain null or empty names");
+			}
+			ret.add(new ArrayList<>());
+		}
+		// a single pass over the headers, instead of one per name
+		for (Header header : delegate().getAllHeaders()) {
+			for (int i = 0; i < names.size(); i++) {
+				if (names.get(i).equalsIgnoreCase(header.getName())) {
+					ret.get(i).add(header.getValue());
+				}
+			}
+		}
+		return ret;
+	}
+
 	@Override
 	public void addHeader(String name, String value) {
 		delegate().addHeader(name, value);
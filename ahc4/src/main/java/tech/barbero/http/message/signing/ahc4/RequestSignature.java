@@ -10,12 +10,15 @@ package tech.barbero.http.message.signing.ahc4;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.Objects;
+import java.util.Optional;
 
 import org.apache.http.HttpException;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.protocol.HttpContext;
 
+import tech.barbero.http.message.signing.DateHeaderProvider;
 import tech.barbero.http.message.signing.HttpMessageSigner;
 import tech.barbero.http.message.signing.ahc4.MessageWrapper.Request;
 
@@ -28,6 +31,7 @@ import tech.barbero.http.message.signing.ahc4.MessageWrapper.Request;
 public final class RequestSignature implements HttpRequestInterceptor {
 
 	private final HttpMessageSigner messageSigner;
+	private final Optional<DateHeaderProvider> dateHeaderProvider;
 
 	/**
 	 * Creates a new signing request interceptor.
@@ -37,12 +41,32 @@ public final class RequestSignature implements HttpRequestInterceptor {
 	 */
 	public RequestSignature(HttpMessageSigner messageSigner) {
 		this.messageSigner = messageSigner;
+		this.dateHeaderProvider = Optional.empty();
+	}
+
+	/**
+	 * Creates a new signing request interceptor which adds a <code>Date</code> header to the requests which do not have
+	 * one before signing them.
+	 *
+	 * @param messageSigner
+	 *          the message signer to be used to create the signature header.
+	 * @param dateHeaderProvider
+	 *          the provider of the value of the <code>Date</code> header to be added.
+	 * @since 1.1
+	 */
+	public RequestSignature(HttpMessageSigner messageSigner, DateHeaderProvider dateHeaderProvider) {
+		this.messageSigner = messageSigner;
+		this.dateHeaderProvider = Optional.of(Objects.requireNonNull(dateHeaderProvider));
 	}
 
 	@Override
 	public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
+		Request message = new Request(request);
+		if (this.dateHeaderProvider.isPresent()) {
+			this.dateHeaderProvider.get().addDateHeaderIfMissing(message);
+		}
 		try {
-			this.messageSigner.sign(new Request(request));
+			this.messageSigner.sign(message);
 		} catch (GeneralSecurityException e) {
 			throw new HttpException("Can't sign HTTP request '" + request + "'", e);
 		}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.ahc4;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.SignatureException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import tech.barbero.http.message.signing.HashKeyMap;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+
+public class TestAsyncSignature {
+
+	private static final HttpMessageSigner SIGNER = HttpMessageSigner.builder()
+			.algorithm(Algorithm.HMAC_SHA256)
+			.keyMap(HashKeyMap.INSTANCE)
+			.keyId("user1").build();
+
+	private static final SignatureHeaderVerifier VERIFIER = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void createExecutor() {
+		this.executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "signature"));
+	}
+
+	@AfterEach
+	public void shutdownExecutor() throws InterruptedException {
+		this.executor.shutdownNow();
+		this.executor.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void signAndVerifyRequest() throws InterruptedException, ExecutionException {
+		AsyncSignature signature = new AsyncSignature(SIGNER, VERIFIER, this.executor);
+		HttpRequest request = new BasicHttpRequest("GET", "http://www.example.com/web/service?foo=bar");
+		request.addHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+
+		// holds the executor until the whole chain is set up, so that it completes on the executor thread
+		CountDownLatch chained = new CountDownLatch(1);
+		this.executor.execute(() -> awaitUninterruptibly(chained));
+		AtomicReference<Thread> signingThread = new AtomicReference<>();
+		CompletableFuture<HttpRequest> verifiedFuture = signature.signAsync(request)
+				.whenComplete((r, e) -> signingThread.set(Thread.currentThread()))
+				.thenCompose(signature::verifyAsync);
+		chained.countDown();
+		HttpRequest verified = verifiedFuture.get();
+		assertSame(request, verified);
+		assertNotNull(request.getFirstHeader(HttpMessageSigner.HEADER_SIGNATURE));
+		assertEquals("signature", signingThread.get().getName());
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	public void rejectBadlySignedResponse() throws InterruptedException, ExecutionException {
+		HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+		response.addHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		AsyncSignature.signing(SIGNER, this.executor).signAsync(response).get();
+		response.setHeader("Date", "Mon, 06 Jan 2014 21:31:40 GMT");
+
+		AsyncSignature verifying = AsyncSignature.verifying(VERIFIER, this.executor);
+		ExecutionException e = assertThrows(ExecutionException.class, () -> verifying.verifyAsync(response).get());
+		assertTrue(e.getCause() instanceof SignatureException);
+		assertThrows(IllegalStateException.class, () -> verifying.signAsync(response));
+	}
+
+	@Test
+	public void signingFailure() {
+		HttpRequest request = new BasicHttpRequest("GET", "http://www.example.com/web/service?foo=bar");
+		// no Date header to sign
+		ExecutionException e = assertThrows(ExecutionException.class, () -> AsyncSignature.signing(SIGNER, this.executor).signAsync(request).get());
+		assertNotNull(e.getCause());
+	}
+}
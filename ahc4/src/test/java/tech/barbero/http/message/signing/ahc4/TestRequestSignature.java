@@ -8,6 +8,7 @@
  *******************************************************************************/
 package tech.barbero.http.message.signing.ahc4;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
@@ -15,6 +16,9 @@ import java.io.InputStream;
 import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.Base64;
@@ -25,6 +29,7 @@ import org.apache.http.HttpRequest;
 import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.message.BasicHttpRequest;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.BasicHttpProcessor;
 import org.apache.http.protocol.HTTP;
@@ -32,6 +37,7 @@ import org.apache.http.protocol.HttpContext;
 import org.apache.http.protocol.RequestContent;
 import org.junit.jupiter.api.Test;
 
+import tech.barbero.http.message.signing.DateHeaderProvider;
 import tech.barbero.http.message.signing.HashKeyMap;
 import tech.barbero.http.message.signing.HttpMessageSigner;
 import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
@@ -97,4 +103,22 @@ public class TestRequestSignature {
 		assertTrue(signatureVerifier.verify(new Request(request)));
 
 	}
+
+	@Test
+	public void testInterceptorAddsDate() throws GeneralSecurityException, HttpException, IOException {
+		HttpMessageSigner httpSignature = HttpMessageSigner.builder()
+				.algorithm(Algorithm.HMAC_SHA256)
+				.keyMap(HashKeyMap.INSTANCE)
+				.keyId("user1").build();
+		DateHeaderProvider dateHeaderProvider = DateHeaderProvider.of(Clock.fixed(Instant.parse("2014-01-05T21:31:40Z"), ZoneOffset.UTC));
+		HttpRequest request = new BasicHttpRequest("GET", "http://www.example.com/web/service?foo=bar");
+		new RequestSignature(httpSignature, dateHeaderProvider).process(request, new BasicHttpContext());
+
+		assertEquals("Sun, 05 Jan 2014 21:31:40 GMT", request.getFirstHeader(HTTP.DATE_HEADER).getValue());
+		SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE)
+				.maxDateSkew(Duration.ofMinutes(1))
+				.dateHeaderProvider(dateHeaderProvider)
+				.build();
+		assertTrue(signatureVerifier.verify(new Request(request)));
+	}
 }
@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.ahc5;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SignatureException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+import tech.barbero.http.message.signing.ahc5.MessageWrapper.Request;
+import tech.barbero.http.message.signing.ahc5.MessageWrapper.Response;
+
+/**
+ * An execution chain handler of the Apache HttpClient 5.x async client, signing the requests and verifying the
+ * signature of the responses on an executor rather than on the I/O reactor threads. It is meant to be added right
+ * after the protocol handler, so that it signs the requests as they will be sent (i.e., with the headers added by the
+ * request interceptors), once per attempt:
+ *
+ * <pre>
+ * CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+ * 		.addExecInterceptorAfter(ChainElement.PROTOCOL.name(), AsyncSignatureExecHandler.NAME,
+ * 				new AsyncSignatureExecHandler(signer, verifier, executor))
+ * 		.build();
+ * </pre>
+ *
+ * Requests are signed on the executor, and the exchange is then resumed from there. The signature of a response is
+ * verified on the executor while its body is being streamed to the consumer; the end of the stream is only signaled
+ * to the consumer once the signature is verified. A response
+ * whose signature is not verified fails the exchange with a {@link SignatureException}. Note that all responses,
+ * including redirections, are verified.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class AsyncSignatureExecHandler implements AsyncExecChainHandler {
+
+	/**
+	 * The name of this handler in the execution chain.
+	 */
+	public static final String NAME = "http-message-signature";
+
+	private final Optional<HttpMessageSigner> messageSigner;
+	private final Optional<SignatureHeaderVerifier> signatureVerifier;
+	private final Executor executor;
+
+	/**
+	 * Creates a new handler signing requests and verifying responses on the given executor.
+	 *
+	 * @param messageSigner
+	 *          the message signer to be used to create the signature header of requests.
+	 * @param signatureVerifier
+	 *          the signature verifier which will check the signature of responses.
+	 * @param executor
+	 *          the executor to sign and verify messages on.
+	 */
+	public AsyncSignatureExecHandler(HttpMessageSigner messageSigner, SignatureHeaderVerifier signatureVerifier, Executor executor) {
+		this(Optional.of(messageSigner), Optional.of(signatureVerifier), executor);
+	}
+
+	private AsyncSignatureExecHandler(Optional<HttpMessageSigner> messageSigner, Optional<SignatureHeaderVerifier> signatureVerifier, Executor executor) {
+		this.messageSigner = messageSigner;
+		this.signatureVerifier = signatureVerifier;
+		this.executor = Objects.requireNonNull(executor);
+	}
+
+	/**
+	 * Creates a new handler signing requests on the given executor. Responses are not verified.
+	 *
+	 * @param messageSigner
+	 *          the message signer to be used to create the signature header of requests.
+	 * @param executor
+	 *          the executor to sign requests on.
+	 * @return a new signing handler.
+	 */
+	public static AsyncSignatureExecHandler signing(HttpMessageSigner messageSigner, Executor executor) {
+		return new AsyncSignatureExecHandler(Optional.of(messageSigner), Optional.empty(), executor);
+	}
+
+	/**
+	 * Creates a new handler verifying responses on the given executor. Requests are not signed.
+	 *
+	 * @param signatureVerifier
+	 *          the signature verifier which will check the signature of responses.
+	 * @param executor
+	 *          the executor to verify responses on.
+	 * @return a new verifying handler.
+	 */
+	public static AsyncSignatureExecHandler verifying(SignatureHeaderVerifier signatureVerifier, Executor executor) {
+		return new AsyncSignatureExecHandler(Optional.empty(), Optional.of(signatureVerifier), executor);
+	}
+
+	@Override
+	public void execute(HttpRequest request, AsyncEntityProducer entityProducer, AsyncExecChain.Scope scope, AsyncExecChain chain,
+			AsyncExecCallback asyncExecCallback) throws HttpException, IOException {
+		AsyncExecCallback callback = this.signatureVerifier.isPresent() ? new VerifyingCallback(asyncExecCallback) : asyncExecCallback;
+		if (!this.messageSigner.isPresent()) {
+			chain.proceed(request, entityProducer, scope, callback);
+			return;
+		}
+		try {
+			this.executor.execute(() -> {
+				try {
+					this.messageSigner.get().sign(new Request(request));
+					chain.proceed(request, entityProducer, scope, callback);
+				} catch (GeneralSecurityException | HttpException | IOException | RuntimeException e) {
+					asyncExecCallback.failed(e);
+				}
+			});
+		} catch (RuntimeException e) {
+			// e.g. the executor rejected the task
+			asyncExecCallback.failed(e);
+		}
+	}
+
+	private final class VerifyingCallback implements AsyncExecCallback {
+
+		private final AsyncExecCallback delegate;
+		// completed once the response has been verified and handed over to the delegate
+		private volatile CompletableFuture<Void> handover;
+
+		VerifyingCallback(AsyncExecCallback delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public AsyncDataConsumer handleResponse(HttpResponse response, EntityDetails entityDetails) throws HttpException, IOException {
+			// verify a copy of the headers as the next handlers may modify the response
+			BasicHttpResponse copy = new BasicHttpResponse(response.getCode());
+			copy.setHeaders(response.getHeaders());
+			SignatureHeaderVerifier verifier = AsyncSignatureExecHandler.this.signatureVerifier.get();
+			CompletableFuture<Void> verification = CompletableFuture.runAsync(() -> {
+				try {
+					if (!verifier.verify(new Response(copy))) {
+						throw new SignatureException("Unable to verify the signature of the HTTP response");
+					}
+				} catch (GeneralSecurityException e) {
+					throw new CompletionException(e);
+				}
+			}, AsyncSignatureExecHandler.this.executor);
+			if (entityDetails == null) {
+				// the delegate would complete the exchange right away, so only hand the response over once verified
+				this.handover = verification.thenRun(() -> {
+					try {
+						this.delegate.handleResponse(response, null);
+					} catch (HttpException | IOException e) {
+						throw new CompletionException(e);
+					}
+				});
+				return null;
+			}
+			AsyncDataConsumer consumer = this.delegate.handleResponse(response, entityDetails);
+			if (consumer == null) {
+				// the body is discarded (e.g. by the redirect handler), so there is no stream end to wait for
+				this.handover = verification;
+				return null;
+			}
+			this.handover = new CompletableFuture<>();
+			return new VerifyingConsumer(consumer, verification, this.handover);
+		}
+
+		@Override
+		public void handleInformationResponse(HttpResponse response) throws HttpException, IOException {
+			this.delegate.handleInformationResponse(response);
+		}
+
+		@Override
+		@SuppressWarnings("FutureReturnValueIgnored") // the outcome is reported to the delegate callback
+		public void completed() {
+			CompletableFuture<Void> pending = this.handover;
+			if (pending == null) {
+				this.delegate.completed();
+				return;
+			}
+			pending.whenComplete((v, e) -> {
+				if (e != null) {
+					this.delegate.failed(cause(e));
+				} else {
+					this.delegate.completed();
+				}
+			});
+		}
+
+		@Override
+		public void failed(Exception cause) {
+			this.delegate.failed(cause);
+		}
+	}
+
+	/**
+	 * Streams the body of a response to the delegate consumer, but only ends the stream once the signature of the
+	 * response has been verified.
+	 */
+	private static final class VerifyingConsumer implements AsyncDataConsumer {
+
+		private final AsyncDataConsumer delegate;
+		private final CompletableFuture<Void> verification;
+		private final CompletableFuture<Void> handover;
+
+		VerifyingConsumer(AsyncDataConsumer delegate, CompletableFuture<Void> verification, CompletableFuture<Void> handover) {
+			this.delegate = delegate;
+			this.verification = verification;
+			this.handover = handover;
+		}
+
+		@Override
+		public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+			this.delegate.updateCapacity(capacityChannel);
+		}
+
+		@Override
+		public void consume(ByteBuffer src) throws IOException {
+			this.delegate.consume(src);
+		}
+
+		@Override
+		@SuppressWarnings("FutureReturnValueIgnored") // the outcome is reported to the handover future
+		public void streamEnd(List<? extends Header> trailers) {
+			this.verification.whenComplete((v, e) -> {
+				if (e != null) {
+					this.handover.completeExceptionally(e);
+					return;
+				}
+				try {
+					this.delegate.streamEnd(trailers);
+					this.handover.complete(null);
+				} catch (HttpException | IOException | RuntimeException ex) {
+					this.handover.completeExceptionally(ex);
+				}
+			});
+		}
+
+		@Override
+		public void releaseResources() {
+			this.delegate.releaseResources();
+		}
+	}
+
+	private static Exception cause(Throwable e) {
+		Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+		return cause instanceof Exception ? (Exception) cause : new ExecutionException(cause);
+	}
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.ahc5;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.hc.core5.http.Header;
+
+import tech.barbero.http.message.signing.HttpMessage;
+import tech.barbero.http.message.signing.HttpRequest;
+import tech.barbero.http.message.signing.HttpResponse;
+
+abstract class MessageWrapper<M extends org.apache.hc.core5.http.HttpMessage> implements HttpMessage {
+
+	private final M delegate;
+
+	MessageWrapper(M delegate) {
+		this.delegate = delegate;
+	}
+
+	// doesn't need to be more visible than package-private as the
+	// delegate will get modified in place.
+	M delegate() {
+		return this.delegate;
+	}
+
+	@Override
+	public List<String> headerValues(String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Argument 'name' must not be null of empty");
+		}
+		return Arrays.stream(delegate().getHeaders(name))
+			.map(Header::getValue)
+			.collect(Collectors.toList());
+	}
+
+	@Override
+	public List<List<String>> headerValues(List<String> names) {
+		List<List<String>> ret = new ArrayList<>(names.size());
+		for (String name : names) {
+			if (name == null || name.isEmpty()) {
+				throw new IllegalArgumentException("Argument 'names' must not contain null or empty names");
+			}
+			ret.add(new ArrayList<>());
+		}
+		// a single pass over the headers, instead of one per name
+		for (Header header : delegate().getHeaders()) {
+			for (int i = 0; i < names.size(); i++) {
+				if (names.get(i).equalsIgnoreCase(header.getName())) {
+					ret.get(i).add(header.getValue());
+				}
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public void addHeader(String name, String value) {
+		delegate().addHeader(name, value);
+	}
+
+	static class Request extends MessageWrapper<org.apache.hc.core5.http.HttpRequest> implements HttpRequest {
+
+		Request(org.apache.hc.core5.http.HttpRequest request) {
+			super(request);
+		}
+
+		@Override
+		public String method() {
+			return delegate().getMethod();
+		}
+
+		@Override
+		public URI uri() {
+			try {
+				return delegate().getUri();
+			} catch (URISyntaxException e) {
+				throw new IllegalArgumentException(e);
+			}
+		}
+	}
+
+	static class Response extends MessageWrapper<org.apache.hc.core5.http.HttpResponse> implements HttpResponse {
+
+		Response(org.apache.hc.core5.http.HttpResponse delegate) {
+			super(delegate);
+		}
+
+		@Override
+		public int statusCode() {
+			return delegate().getCode();
+		}
+	}
+
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.ahc5;
+
+import java.net.URI;
+
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+
+import tech.barbero.http.message.signing.HttpRequest;
+import tech.barbero.http.message.signing.HttpResponse;
+import tech.barbero.http.message.signing.MessageFactory;
+import tech.barbero.http.message.signing.ahc5.MessageWrapper.Request;
+import tech.barbero.http.message.signing.ahc5.MessageWrapper.Response;
+
+public class Ahc5MessageFactory implements MessageFactory {
+
+	@Override
+	public HttpRequest createRequest(String method, URI uri) {
+		return new Request(new BasicHttpRequest(method.toUpperCase(), uri));
+	}
+
+	@Override
+	public HttpResponse createResponse(int statusCode) {
+		return new Response(new BasicHttpResponse(statusCode));
+	}
+
+}
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.ahc5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.security.SignatureException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequests;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.impl.bootstrap.HttpServer;
+import org.apache.hc.core5.http.impl.bootstrap.ServerBootstrap;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import tech.barbero.http.message.signing.HashKeyMap;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+
+public class TestAsyncSignatureExecHandler {
+
+	private static final String DATE = "Sun, 05 Jan 2014 21:31:40 GMT";
+
+	private static final HttpMessageSigner SIGNER = HttpMessageSigner.builder()
+			.algorithm(Algorithm.HMAC_SHA256)
+			.keyMap(HashKeyMap.INSTANCE)
+			.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+			.addHeaderToSign("Date")
+			.keyId("user1").build();
+
+	private static final HttpMessageSigner RESPONSE_SIGNER = HttpMessageSigner.builder()
+			.algorithm(Algorithm.HMAC_SHA256)
+			.keyMap(HashKeyMap.INSTANCE)
+			.keyId("user1").build();
+
+	private static final SignatureHeaderVerifier VERIFIER = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+
+	private HttpServer server;
+	private ExecutorService pool;
+	private AtomicInteger offloaded;
+	private Executor executor;
+
+	@BeforeEach
+	public void start() throws IOException {
+		this.server = ServerBootstrap.bootstrap()
+				.setLocalAddress(InetAddress.getLoopbackAddress())
+				.setListenerPort(0)
+				.setCanonicalHostName(InetAddress.getLoopbackAddress().getHostAddress())
+				.register("*", TestAsyncSignatureExecHandler::handle)
+				.create();
+		this.server.start();
+		this.pool = Executors.newFixedThreadPool(2);
+		this.offloaded = new AtomicInteger();
+		this.executor = r -> {
+			this.offloaded.incrementAndGet();
+			this.pool.execute(r);
+		};
+	}
+
+	@AfterEach
+	public void stop() throws InterruptedException {
+		this.server.close(CloseMode.IMMEDIATE);
+		this.pool.shutdownNow();
+		this.pool.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void signAndVerify() throws IOException, InterruptedException, ExecutionException {
+		try (CloseableHttpAsyncClient client = createClient(new AsyncSignatureExecHandler(SIGNER, VERIFIER, this.executor))) {
+			SimpleHttpResponse response = client.execute(createRequest("/signed"), null).get();
+			assertEquals(200, response.getCode());
+			assertEquals("Hello World!", response.getBodyText());
+			// one for signing the request, one for verifying the response
+			assertEquals(2, this.offloaded.get());
+		}
+	}
+
+	@Test
+	public void followRedirect() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+		try (CloseableHttpAsyncClient client = createClient(new AsyncSignatureExecHandler(SIGNER, VERIFIER, this.executor))) {
+			// the redirect handler discards the body of the redirection, the exchange must still complete once it is verified
+			SimpleHttpResponse response = client.execute(createRequest("/redirect"), null).get(10, TimeUnit.SECONDS);
+			assertEquals(200, response.getCode());
+			assertEquals("Hello World!", response.getBodyText());
+			// signing and verifying, for both the redirection and the redirected request
+			assertEquals(4, this.offloaded.get());
+		}
+	}
+
+	@Test
+	public void rejectBadlySignedResponse() throws IOException {
+		try (CloseableHttpAsyncClient client = createClient(new AsyncSignatureExecHandler(SIGNER, VERIFIER, this.executor))) {
+			ExecutionException e = assertThrows(ExecutionException.class, () -> client.execute(createRequest("/tampered"), null).get());
+			assertTrue(e.getCause() instanceof SignatureException);
+		}
+	}
+
+	@Test
+	public void unsignedResponse() throws IOException {
+		// the server does not sign its response to an unsigned request
+		try (CloseableHttpAsyncClient client = createClient(AsyncSignatureExecHandler.verifying(VERIFIER, this.executor))) {
+			ExecutionException e = assertThrows(ExecutionException.class, () -> client.execute(createRequest("/signed"), null).get());
+			assertTrue(e.getCause() instanceof GeneralSecurityException);
+		}
+	}
+
+	@Test
+	public void signingFailure() throws IOException {
+		try (CloseableHttpAsyncClient client = createClient(AsyncSignatureExecHandler.signing(SIGNER, this.executor))) {
+			SimpleHttpRequest request = SimpleHttpRequests.get(uri("/signed"));
+			// no Date header to sign
+			ExecutionException e = assertThrows(ExecutionException.class, () -> client.execute(request, null).get());
+			assertTrue(e.getCause() instanceof GeneralSecurityException || e.getCause() instanceof IllegalStateException, e.getCause().toString());
+		}
+	}
+
+	private static CloseableHttpAsyncClient createClient(AsyncSignatureExecHandler handler) {
+		CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+				.addExecInterceptorAfter(ChainElement.PROTOCOL.name(), AsyncSignatureExecHandler.NAME, handler)
+				.build();
+		client.start();
+		return client;
+	}
+
+	private SimpleHttpRequest createRequest(String path) {
+		SimpleHttpRequest request = SimpleHttpRequests.get(uri(path));
+		request.setHeader("Date", DATE);
+		return request;
+	}
+
+	private URI uri(String path) {
+		return URI.create("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + this.server.getLocalPort() + path);
+	}
+
+	private static void handle(ClassicHttpRequest request, ClassicHttpResponse response, HttpContext context) throws IOException {
+		try {
+			if (!VERIFIER.verify(new MessageWrapper.Request(request))) {
+				response.setCode(401);
+				return;
+			}
+			if (request.getPath().equals("/redirect")) {
+				response.setCode(302);
+				response.setHeader("Location", "/signed");
+			} else {
+				response.setCode(200);
+			}
+			response.setHeader("Date", DATE);
+			RESPONSE_SIGNER.sign(new MessageWrapper.Response(response));
+		} catch (GeneralSecurityException e) {
+			// e.g. unsigned request, left unsigned
+			response.setCode(500);
+			return;
+		}
+		if (request.getPath().equals("/tampered")) {
+			response.setHeader("Date", "Mon, 06 Jan 2014 21:31:40 GMT");
+		}
+		if (request.getPath().equals("/redirect")) {
+			response.setEntity(new StringEntity("Moved to /signed", ContentType.TEXT_PLAIN));
+			return;
+		}
+		response.setEntity(new StringEntity("Hello World!", ContentType.TEXT_PLAIN));
+	}
+}
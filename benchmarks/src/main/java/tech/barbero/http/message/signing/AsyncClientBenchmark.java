@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequests;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.impl.bootstrap.HttpServer;
+import org.apache.hc.core5.http.impl.bootstrap.ServerBootstrap;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tech.barbero.http.message.signing.ahc5.AsyncSignatureExecHandler;
+
+/**
+ * Measures the throughput of an Apache HttpClient 5.x async client signing its requests with RSA against a local
+ * in-process server, the signature being computed either inline on the I/O reactor thread or offloaded to a worker
+ * pool by {@link AsyncSignatureExecHandler}. The client has a single I/O reactor thread, shared by all the benchmark
+ * threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class AsyncClientBenchmark {
+
+	private static final HttpMessageSigner SIGNER = HttpMessageSigner.builder()
+			.algorithm(HttpMessageSigner.Algorithm.RSA_SHA256)
+			.keyMap(HashKeyMap.INSTANCE)
+			.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+			.addHeaderToSign("Date")
+			.keyId("myKeyId").build();
+
+	@Param({"inline", "offloaded"})
+	private String signing;
+
+	private HttpServer server;
+	private ExecutorService workers;
+	private CloseableHttpAsyncClient client;
+	private URI uri;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		String host = InetAddress.getLoopbackAddress().getHostAddress();
+		this.server = ServerBootstrap.bootstrap()
+				.setLocalAddress(InetAddress.getLoopbackAddress())
+				.setListenerPort(0)
+				.setCanonicalHostName(host)
+				.register("*", (request, response, context) -> response.setEntity(new StringEntity("Hello World!", ContentType.TEXT_PLAIN)))
+				.create();
+		this.server.start();
+		this.uri = URI.create("http://" + host + ":" + this.server.getLocalPort() + "/web/service?foo=bar");
+
+		this.workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		Executor executor = "inline".equals(this.signing) ? Runnable::run : this.workers;
+		this.client = HttpAsyncClients.custom()
+				.setIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(1).build())
+				.setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create().setMaxConnTotal(64).setMaxConnPerRoute(64).build())
+				.addExecInterceptorAfter(ChainElement.PROTOCOL.name(), AsyncSignatureExecHandler.NAME, AsyncSignatureExecHandler.signing(SIGNER, executor))
+				.build();
+		this.client.start();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException, InterruptedException {
+		this.client.close(CloseMode.GRACEFUL);
+		this.server.close(CloseMode.IMMEDIATE);
+		this.workers.shutdownNow();
+		this.workers.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	@Benchmark
+	public int execute() throws InterruptedException, ExecutionException {
+		SimpleHttpRequest request = SimpleHttpRequests.get(this.uri);
+		request.setHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		SimpleHttpResponse response = this.client.execute(request, null).get();
+		return response.getCode();
+	}
+}
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.servlet.Servlets;
+import io.undertow.servlet.api.DeploymentManager;
+import io.undertow.servlet.api.FilterInfo;
+import io.undertow.servlet.util.ImmediateInstanceFactory;
+import io.undertow.util.Headers;
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+import tech.barbero.http.message.signing.servlet.SignatureHeaderVerifierServletFilter;
+
+/**
+ * Round trip of a signed request to an embedded Jetty or Undertow server over a loopback keep-alive connection, with
+ * the signature verified either by the servlet filter or by the native handler of the server. Verification uses HMAC
+ * so that the cost of reading the headers is not hidden by the cryptography.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmbeddedServerVerifierBenchmark {
+
+	private static final byte[] BODY = "ok".getBytes(StandardCharsets.US_ASCII);
+
+	@Param({ "jetty", "undertow" })
+	public String server;
+
+	@Param({ "servlet", "native" })
+	public String verifier;
+
+	private AutoCloseable stop;
+	private Socket socket;
+	private OutputStream out;
+	private InputStream in;
+	private byte[] request;
+	private final byte[] response = new byte[4096];
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+		int port;
+		if ("jetty".equals(this.server)) {
+			port = startJetty(signatureVerifier);
+		} else {
+			port = startUndertow(signatureVerifier);
+		}
+		this.request = signedRequest();
+		this.socket = new Socket();
+		this.socket.setTcpNoDelay(true);
+		this.socket.connect(new InetSocketAddress("127.0.0.1", port));
+		this.out = this.socket.getOutputStream();
+		this.in = this.socket.getInputStream();
+		if (roundTrip() != 200) {
+			throw new IllegalStateException("Signed request not accepted");
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		this.socket.close();
+		this.stop.close();
+	}
+
+	@Benchmark
+	public int roundTrip() throws IOException {
+		this.out.write(this.request);
+		this.out.flush();
+		return readResponse();
+	}
+
+	private int startJetty(SignatureHeaderVerifier signatureVerifier) throws Exception {
+		Server jetty = new Server();
+		ServerConnector connector = new ServerConnector(jetty);
+		connector.setHost("127.0.0.1");
+		jetty.addConnector(connector);
+		if ("native".equals(this.verifier)) {
+			jetty.setHandler(new tech.barbero.http.message.signing.jetty.SignatureHeaderVerifierHandler(signatureVerifier, new AbstractHandler() {
+				@Override
+				public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+					baseRequest.setHandled(true);
+					ok(response);
+				}
+			}));
+		} else {
+			ServletContextHandler context = new ServletContextHandler();
+			context.addFilter(new FilterHolder(new SignatureHeaderVerifierServletFilter(signatureVerifier)), "/*", EnumSet.of(DispatcherType.REQUEST));
+			context.addServlet(new ServletHolder(new OkServlet()), "/*");
+			jetty.setHandler(context);
+		}
+		jetty.start();
+		this.stop = jetty::stop;
+		return connector.getLocalPort();
+	}
+
+	private int startUndertow(SignatureHeaderVerifier signatureVerifier) throws ServletException {
+		HttpHandler handler;
+		if ("native".equals(this.verifier)) {
+			handler = new tech.barbero.http.message.signing.undertow.SignatureHeaderVerifierHandler(signatureVerifier, exchange -> {
+				exchange.getResponseHeaders().put(Headers.CONTENT_LENGTH, BODY.length);
+				exchange.getResponseSender().send(new String(BODY, StandardCharsets.US_ASCII));
+			});
+		} else {
+			DeploymentManager manager = Servlets.defaultContainer().addDeployment(Servlets.deployment()
+					.setClassLoader(EmbeddedServerVerifierBenchmark.class.getClassLoader())
+					.setContextPath("")
+					.setDeploymentName("benchmark")
+					.addFilter(new FilterInfo("signature", SignatureHeaderVerifierServletFilter.class,
+							new ImmediateInstanceFactory<>(new SignatureHeaderVerifierServletFilter(signatureVerifier))))
+					.addFilterUrlMapping("signature", "/*", DispatcherType.REQUEST)
+					.addServlet(Servlets.servlet("ok", OkServlet.class).addMapping("/*")));
+			manager.deploy();
+			handler = manager.start();
+		}
+		Undertow undertow = Undertow.builder().addHttpListener(0, "127.0.0.1").setHandler(handler).build();
+		undertow.start();
+		this.stop = undertow::stop;
+		return ((InetSocketAddress) undertow.getListenerInfo().get(0).getAddress()).getPort();
+	}
+
+	/**
+	 * The signed request of {@link VerifierBenchmark}, as sent on the wire.
+	 */
+	private static byte[] signedRequest() throws Exception {
+		HttpMessageSigner signer = HttpMessageSigner.builder()
+				.algorithm(Algorithm.HMAC_SHA256)
+				.keyMap(HashKeyMap.INSTANCE)
+				.keyId("key-id")
+				.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+				.addHeaderToSign("Host")
+				.addHeaderToSign("Date")
+				.addHeaderToSign("Content-Type")
+				.addHeaderToSign("Digest")
+				.addHeaderToSign("Content-Length")
+				.build();
+		HttpRequest message = signer.sign(VerifierBenchmark.createRequest());
+		StringBuilder ret = new StringBuilder("POST /foo?param=value&pet=dog HTTP/1.1\r\n");
+		for (String name : new String[] { "Host", "Date", "Content-Type", "Digest", "Content-Length", HttpMessageSigner.HEADER_SIGNATURE }) {
+			ret.append(name).append(": ").append(String.join(",", message.headerValues(name))).append("\r\n");
+		}
+		return ret.append("\r\n").append("{\"hello\": \"world\"}").toString().getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Reads a response with a {@code Content-Length} header, and returns its status code.
+	 */
+	private int readResponse() throws IOException {
+		int length = 0;
+		int headersEnd = -1;
+		int contentLength = -1;
+		while (headersEnd < 0 || length < headersEnd + contentLength) {
+			int read = this.in.read(this.response, length, this.response.length - length);
+			if (read < 0) {
+				throw new IOException("Connection closed");
+			}
+			length += read;
+			if (headersEnd < 0) {
+				String head = new String(this.response, 0, length, StandardCharsets.ISO_8859_1);
+				int end = head.indexOf("\r\n\r\n");
+				if (end >= 0) {
+					headersEnd = end + 4;
+					contentLength = contentLength(head.substring(0, end));
+				}
+			}
+		}
+		return Integer.parseInt(new String(this.response, "HTTP/1.1 ".length(), 3, StandardCharsets.ISO_8859_1));
+	}
+
+	private static int contentLength(String head) {
+		for (String line : head.split("\r\n")) {
+			if (line.regionMatches(true, 0, "Content-Length:", 0, "Content-Length:".length())) {
+				return Integer.parseInt(line.substring("Content-Length:".length()).trim());
+			}
+		}
+		return 0;
+	}
+
+	static void ok(HttpServletResponse response) throws IOException {
+		response.setStatus(HttpServletResponse.SC_OK);
+		response.setContentLength(BODY.length);
+		response.getOutputStream().write(BODY);
+	}
+
+	/**
+	 * Answers all requests with a small body.
+	 */
+	public static final class OkServlet extends HttpServlet {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+			ok(response);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+/**
+ * Measures the time to first signature of a freshly started process, i.e. what a cold started signing sidecar pays
+ * before signing and verifying its first messages. For each algorithm, a request is signed and verified with keys
+ * read from a {@link DirectoryKeyMap} containing {@code rsa.pem}, {@code ec.pem} and {@code hmac.jwk}, and the elapsed
+ * times are printed. Exits with status 1 if a signature is not verified.
+ * <p>
+ * Run it from the JVM or from the native executable built by the {@code native} profile, where it is also used as a
+ * smoke test:
+ *
+ * <pre>
+ * $ time java -cp benchmarks/target/benchmarks.jar tech.barbero.http.message.signing.FirstSignature benchmarks/src/native/keys
+ * $ time benchmarks/target/first-signature benchmarks/src/native/keys
+ * </pre>
+ */
+public final class FirstSignature {
+
+	private FirstSignature() {
+		// prevent instantiation
+	}
+
+	public static void main(String[] args) throws IOException, GeneralSecurityException {
+		if (args.length != 1) {
+			System.err.println("Usage: FirstSignature <key directory>");
+			System.exit(2);
+		}
+		PrintStream out = new PrintStream(System.out, true, StandardCharsets.UTF_8.name());
+		long start = System.nanoTime();
+		try (DirectoryKeyMap keyMap = DirectoryKeyMap.of(Paths.get(args[0]))) {
+			SignatureHeaderVerifier verifier = SignatureHeaderVerifier.builder().keyMap(keyMap).build();
+			boolean verified = signAndVerify(out, keyMap, verifier, Algorithm.HMAC_SHA256, "hmac");
+			verified &= signAndVerify(out, keyMap, verifier, Algorithm.RSA_SHA256, "rsa");
+			verified &= signAndVerify(out, keyMap, verifier, Algorithm.ECDSA_SHA256, "ec");
+			out.printf("total: %.3f ms%n", millisSince(start));
+			if (!verified) {
+				System.exit(1);
+			}
+		}
+	}
+
+	private static boolean signAndVerify(PrintStream out, KeyMap keyMap, SignatureHeaderVerifier verifier, Algorithm algorithm, String keyId)
+			throws GeneralSecurityException {
+		long start = System.nanoTime();
+		HttpMessageSigner signer = HttpMessageSigner.builder()
+				.algorithm(algorithm)
+				.keyMap(keyMap)
+				.keyId(keyId)
+				.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+				.addHeaderToSign("Host")
+				.addHeaderToSign("Date")
+				.build();
+		HttpRequest request = new RequestMock("GET", URI.create("http://example.com/foo?param=value&pet=dog"));
+		request.addHeader("Host", "example.com");
+		request.addHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		signer.sign(request);
+		double signed = millisSince(start);
+		boolean verified = verifier.verify(request);
+		out.printf("%s: signed in %.3f ms, %s in %.3f ms%n", algorithm.algorithmName(), signed, verified ? "verified" : "NOT VERIFIED",
+				millisSince(start) - signed);
+		return verified;
+	}
+
+	private static double millisSince(long start) {
+		return (System.nanoTime() - start) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+}
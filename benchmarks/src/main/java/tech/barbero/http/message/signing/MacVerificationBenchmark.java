@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the HMAC comparison step of the verifier with the previous implementation (fresh arrays and
+ * {@link Arrays#equals(byte[], byte[])}). Run with {@code -prof gc} to compare the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MacVerificationBenchmark {
+
+	private Mac mac;
+	private String signingString;
+	private String signature;
+
+	@Setup
+	public void setup() throws GeneralSecurityException {
+		this.mac = HttpMessageSigner.Algorithm.HMAC_SHA256.createMac();
+		this.mac.init(HashKeyMap.INSTANCE.getSecretKey("user1"));
+		this.signingString = "(request-target): post /foo?param=value&pet=dog\n"
+				+ "host: example.com\n"
+				+ "date: Sun, 05 Jan 2014 21:31:40 GMT\n"
+				+ "content-type: application/json\n"
+				+ "digest: SHA-256=X48E9qOokqqrvdts8nOJRJN3OWDUoyWxBf7kbu9DBPE=\n"
+				+ "content-length: 18";
+		this.signature = Base64.getEncoder().encodeToString(this.mac.doFinal(this.signingString.getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	@Benchmark
+	public boolean perThreadBuffers() throws GeneralSecurityException {
+		return SignatureHeaderVerifier.verifyMac(this.mac, this.signingString, this.signature);
+	}
+
+	@Benchmark
+	public boolean freshArrays() {
+		this.mac.update(this.signingString.getBytes(StandardCharsets.US_ASCII));
+		return Arrays.equals(this.mac.doFinal(), Base64.getDecoder().decode(this.signature));
+	}
+}
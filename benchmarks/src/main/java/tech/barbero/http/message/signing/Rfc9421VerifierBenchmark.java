@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End to end verification of an RFC 9421 signed request, covering the same headers as {@link VerifierBenchmark} does
+ * with the draft {@code Signature} header, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Rfc9421VerifierBenchmark {
+
+	@Param({ "HMAC_SHA256", "RSA_V1_5_SHA256" })
+	public Rfc9421Algorithm algorithm;
+
+	private Rfc9421Verifier verifier;
+	private HttpRequest request;
+
+	@Setup
+	public void setup() throws GeneralSecurityException {
+		Rfc9421Signer signer = Rfc9421Signer.builder()
+				.algorithm(this.algorithm)
+				.keyMap(HashKeyMap.INSTANCE)
+				.keyId("key-id")
+				.addComponent(Rfc9421Signer.REQUEST_TARGET)
+				.addComponent("Host")
+				.addComponent("Date")
+				.addComponent("Content-Type")
+				.addComponent("Digest")
+				.addComponent("Content-Length")
+				.build();
+		this.request = signer.sign(VerifierBenchmark.createRequest());
+		this.verifier = Rfc9421Verifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+	}
+
+	@Benchmark
+	public boolean verify() throws GeneralSecurityException {
+		return this.verifier.verify(this.request);
+	}
+}
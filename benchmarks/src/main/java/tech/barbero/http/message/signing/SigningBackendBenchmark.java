@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+import org.conscrypt.Conscrypt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazon.corretto.crypto.provider.AmazonCorrettoCryptoProvider;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+/**
+ * Compares the {@link SigningBackend signing backends} on full signatures and verifications of a request. {@code none}
+ * is the default path of signers and verifiers, without backend. The {@code conscrypt} (BoringSSL) and {@code accp}
+ * (AWS-LC) backends load native libraries bundled for Linux x86_64 only.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SigningBackendBenchmark {
+
+	@Param({ "HMAC_SHA256", "RSA_SHA256" })
+	private Algorithm algorithm;
+
+	@Param({ "none", "jca", "precomputedHmac", "conscrypt", "accp" })
+	private String backend;
+
+	private final MessageFactory messageFactory = new MessageFactory.MockImpl();
+	private HttpMessageSigner signer;
+	private SignatureHeaderVerifier verifier;
+	private HttpRequest signed;
+
+	@Setup
+	public void setup() throws GeneralSecurityException {
+		HttpMessageSigner.Builder signerBuilder = HttpMessageSigner.builder()
+				.algorithm(this.algorithm)
+				.keyMap(HashKeyMap.INSTANCE)
+				.keyId(this.algorithm == Algorithm.HMAC_SHA256 ? "user1" : "myKeyId")
+				.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+				.addHeaderToSign("Host")
+				.addHeaderToSign("Date")
+				.addHeaderToSign("Digest");
+		SignatureHeaderVerifier.Builder verifierBuilder = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE);
+		if (!"none".equals(this.backend)) {
+			SigningBackend signingBackend = createBackend(this.backend);
+			signerBuilder.backend(signingBackend);
+			verifierBuilder.backend(this.algorithm, signingBackend);
+		}
+		this.signer = signerBuilder.build();
+		this.verifier = verifierBuilder.build();
+		this.signed = this.signer.sign(request());
+		if (!this.verifier.verify(this.signed)) {
+			throw new IllegalStateException("The request signed with " + this.backend + " is not verified");
+		}
+	}
+
+	private static SigningBackend createBackend(String name) {
+		switch (name) {
+			case "jca":
+				return SigningBackend.jca();
+			case "precomputedHmac":
+				return SigningBackend.precomputedHmac();
+			case "conscrypt":
+				Conscrypt.checkAvailability();
+				return SigningBackend.jca(Conscrypt.newProvider());
+			case "accp":
+				AmazonCorrettoCryptoProvider.INSTANCE.assertHealthy();
+				return SigningBackend.jca(AmazonCorrettoCryptoProvider.INSTANCE);
+			default:
+				throw new IllegalArgumentException("Unknown backend '" + name + "'");
+		}
+	}
+
+	private HttpRequest request() {
+		HttpRequest ret = this.messageFactory.createRequest("POST", URI.create("http://example.com/foo?param=value&pet=dog"));
+		ret.addHeader("Host", "example.com");
+		ret.addHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		ret.addHeader("Digest", "SHA-256=X48E9qOokqqrvdts8nOJRJN3OWDUoyWxBf7kbu9DBPE=");
+		return ret;
+	}
+
+	@Benchmark
+	public HttpRequest sign() throws GeneralSecurityException {
+		return this.signer.sign(request());
+	}
+
+	@Benchmark
+	public boolean verify() throws GeneralSecurityException {
+		return this.verifier.verify(this.signed);
+	}
+}
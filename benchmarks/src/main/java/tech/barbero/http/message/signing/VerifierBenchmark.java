@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+/**
+ * End to end verification of a signed request, per algorithm and with or without engine pooling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VerifierBenchmark {
+
+	@Param({ "HMAC_SHA256", "RSA_SHA256" })
+	public Algorithm algorithm;
+
+	@Param({ "0", "16" })
+	public int enginePoolSize;
+
+	private SignatureHeaderVerifier verifier;
+	private HttpRequest request;
+
+	@Setup
+	public void setup() throws GeneralSecurityException {
+		HttpMessageSigner signer = HttpMessageSigner.builder()
+				.algorithm(this.algorithm)
+				.keyMap(HashKeyMap.INSTANCE)
+				.keyId("key-id")
+				.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+				.addHeaderToSign("Host")
+				.addHeaderToSign("Date")
+				.addHeaderToSign("Content-Type")
+				.addHeaderToSign("Digest")
+				.addHeaderToSign("Content-Length")
+				.build();
+		this.request = signer.sign(createRequest());
+
+		SignatureHeaderVerifier.Builder builder = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE);
+		if (this.enginePoolSize > 0) {
+			builder.enginePoolSize(this.enginePoolSize);
+		}
+		this.verifier = builder.build();
+	}
+
+	static HttpRequest createRequest() {
+		HttpRequest request = new RequestMock("POST", URI.create("http://example.com/foo?param=value&pet=dog"));
+		request.addHeader("Host", "example.com");
+		request.addHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		request.addHeader("Content-Type", "application/json");
+		request.addHeader("Digest", "SHA-256=X48E9qOokqqrvdts8nOJRJN3OWDUoyWxBf7kbu9DBPE=");
+		request.addHeader("Content-Length", "18");
+		return request;
+	}
+
+	@Benchmark
+	public boolean verify() throws GeneralSecurityException {
+		return this.verifier.verify(this.request);
+	}
+}
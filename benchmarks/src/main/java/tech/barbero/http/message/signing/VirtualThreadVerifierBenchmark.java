@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+/**
+ * Verifies an HMAC signed request on a new virtual thread per operation, with the Java 21 classes of the multi-release
+ * jar and with the Java 8 ones (the multi-release support of the JDK being disabled). Requires Java 21.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VirtualThreadVerifierBenchmark {
+
+	private SignatureHeaderVerifier verifier;
+	private HttpRequest request;
+	private ExecutorService executor;
+
+	@Setup
+	public void setup() throws GeneralSecurityException, ReflectiveOperationException {
+		HttpMessageSigner signer = HttpMessageSigner.builder()
+				.algorithm(Algorithm.HMAC_SHA256)
+				.keyMap(HashKeyMap.INSTANCE)
+				.keyId("key-id")
+				.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+				.addHeaderToSign("Host")
+				.addHeaderToSign("Date")
+				.addHeaderToSign("Content-Type")
+				.addHeaderToSign("Digest")
+				.addHeaderToSign("Content-Length")
+				.build();
+		this.request = signer.sign(VerifierBenchmark.createRequest());
+		this.verifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+		// the benchmarks are compiled for Java 8
+		this.executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+	}
+
+	@TearDown
+	public void tearDown() throws InterruptedException {
+		this.executor.shutdown();
+		this.executor.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	@Benchmark
+	public boolean multiReleaseClasses() throws InterruptedException, ExecutionException {
+		return this.executor.submit(() -> this.verifier.verify(this.request)).get();
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-Djdk.util.jar.enableMultiRelease=false")
+	public boolean java8Classes() throws InterruptedException, ExecutionException {
+		return this.executor.submit(() -> this.verifier.verify(this.request)).get();
+	}
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+import javax.crypto.SecretKey;
+
+/**
+ * An asynchronous variant of {@link KeyMap}, for keys which are retrieved from remote services (e.g. a JWKS endpoint or a
+ * key vault) and should not block the signing or verifying threads while being fetched.
+ * <p>
+ * The returned stages complete with {@code null} when there is no key associated with the requested {@code keyId}, and
+ * complete exceptionally when the key cannot be retrieved.
+ */
+public interface AsyncKeyMap {
+
+	/**
+	 * Returns a stage completing with the public key associated with the given {@code keyId} or null if none.
+	 *
+	 * @param keyId
+	 *          the id of key to be returned.
+	 * @return a stage completing with the public key associated with the given {@code keyId} or null if none.
+	 */
+	CompletionStage<PublicKey> getPublicKey(String keyId);
+
+	/**
+	 * Returns a stage completing with the private key associated with the given {@code keyId} or null if none.
+	 *
+	 * @param keyId
+	 *          the id of key to be returned.
+	 * @return a stage completing with the private key associated with the given {@code keyId} or null if none.
+	 */
+	CompletionStage<PrivateKey> getPrivateKey(String keyId);
+
+	/**
+	 * Returns a stage completing with the secret key associated with the given {@code keyId} or null if none.
+	 *
+	 * @param keyId
+	 *          the id of key to be returned.
+	 * @return a stage completing with the secret key associated with the given {@code keyId} or null if none.
+	 */
+	CompletionStage<SecretKey> getSecretKey(String keyId);
+
+	/**
+	 * Returns an {@link AsyncKeyMap} doing its lookups synchronously in the given {@link KeyMap}. The returned stages are
+	 * already completed.
+	 *
+	 * @param keyMap
+	 *          the key map to look keys up in.
+	 * @return an asynchronous view of the given key map.
+	 */
+	static AsyncKeyMap of(KeyMap keyMap) {
+		return new KeyMapAdapters.Async(keyMap, Runnable::run);
+	}
+
+	/**
+	 * Returns an {@link AsyncKeyMap} doing its lookups in the given {@link KeyMap} from the given executor. This is
+	 * suitable for a {@link KeyMap} whose lookups may block.
+	 *
+	 * @param keyMap
+	 *          the key map to look keys up in.
+	 * @param executor
+	 *          the executor to run the lookups.
+	 * @return an asynchronous view of the given key map.
+	 */
+	static AsyncKeyMap of(KeyMap keyMap, Executor executor) {
+		return new KeyMapAdapters.Async(keyMap, executor);
+	}
+
+	/**
+	 * Returns an {@link AsyncKeyMap} coalescing concurrent lookups of the same kind of key for the same {@code keyId}:
+	 * while a lookup is in flight in the given key map, further requests for it get the same result instead of issuing
+	 * another lookup. Results are not cached once the lookup completes.
+	 *
+	 * @param keyMap
+	 *          the key map to look keys up in.
+	 * @return a coalescing view of the given key map.
+	 */
+	static AsyncKeyMap coalescing(AsyncKeyMap keyMap) {
+		return new CoalescingAsyncKeyMap(keyMap);
+	}
+
+	/**
+	 * Returns a {@link KeyMap} waiting for the lookups of the given {@link AsyncKeyMap} to complete. Its methods throw
+	 * an {@link IllegalStateException} if the lookup completes exceptionally or if the waiting thread is interrupted.
+	 *
+	 * @param keyMap
+	 *          the asynchronous key map to look keys up in.
+	 * @return a blocking view of the given key map.
+	 */
+	static KeyMap blocking(AsyncKeyMap keyMap) {
+		return new KeyMapAdapters.Blocking(keyMap);
+	}
+}
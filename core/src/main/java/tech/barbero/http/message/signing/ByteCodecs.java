@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.util.Arrays;
+
+/**
+ * Encoding and decoding routines writing into caller provided buffers, so that hot paths do not have to allocate
+ * intermediate arrays like {@link String#getBytes(java.nio.charset.Charset)} or {@link java.util.Base64.Decoder} do.
+ */
+final class ByteCodecs {
+
+	private static final byte UNMAPPABLE_ASCII = (byte) '?';
+
+	private static final byte[] BASE64_DECODING_TABLE = new byte[128];
+
+	static {
+		Arrays.fill(BASE64_DECODING_TABLE, (byte) -1);
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+		for (int i = 0; i < alphabet.length(); i++) {
+			BASE64_DECODING_TABLE[alphabet.charAt(i)] = (byte) i;
+		}
+	}
+
+	private ByteCodecs() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Encodes the given string as US-ASCII into the given buffer. Characters which cannot be mapped are replaced by
+	 * {@code '?'}, exactly like {@code src.toString().getBytes(StandardCharsets.US_ASCII)} does.
+	 *
+	 * @param src
+	 *          the string to be encoded.
+	 * @param dst
+	 *          the buffer to write to. It must be at least {@code src.length()} long.
+	 * @return the number of bytes written to {@code dst}.
+	 */
+	static int encodeAscii(CharSequence src, byte[] dst) {
+		int length = src.length();
+		int written = 0;
+		for (int i = 0; i < length; i++) {
+			char c = src.charAt(i);
+			if (c < 0x80) {
+				dst[written++] = (byte) c;
+			} else {
+				if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(src.charAt(i + 1))) {
+					// a surrogate pair is a single unmappable code point
+					i++;
+				}
+				dst[written++] = UNMAPPABLE_ASCII;
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * Decodes the given string with the "Basic" Base64 encoding scheme (RFC 4648, without line separators) into the
+	 * given buffer. Like {@link java.util.Base64#getDecoder()}, the padding characters are optional.
+	 *
+	 * @param src
+	 *          the Base64 string to be decoded.
+	 * @param dst
+	 *          the buffer to write to.
+	 * @return the number of bytes written to {@code dst}, or -1 if the decoded bytes do not fit in {@code dst}.
+	 * @throws IllegalArgumentException
+	 *           if {@code src} is not a valid Base64 string.
+	 */
+	static int decodeBase64(CharSequence src, byte[] dst) {
+		int length = src.length();
+		int end = length;
+		while (end > 0 && src.charAt(end - 1) == '=') {
+			end--;
+		}
+		if (end != length && (length - end > 2 || length % 4 != 0)) {
+			throw new IllegalArgumentException("Invalid Base64 padding");
+		}
+		if (end % 4 == 1) {
+			throw new IllegalArgumentException("Invalid Base64 string length");
+		}
+
+		int written = 0;
+		int bits = 0;
+		int bitCount = 0;
+		for (int i = 0; i < end; i++) {
+			char c = src.charAt(i);
+			int value = c < BASE64_DECODING_TABLE.length ? BASE64_DECODING_TABLE[c] : -1;
+			if (value < 0) {
+				throw new IllegalArgumentException("Illegal Base64 character '" + c + "'");
+			}
+			bits = (bits << 6) | value;
+			bitCount += 6;
+			if (bitCount >= 8) {
+				bitCount -= 8;
+				if (written == dst.length) {
+					return -1;
+				}
+				dst[written++] = (byte) (bits >> bitCount);
+			}
+		}
+		return written;
+	}
+}
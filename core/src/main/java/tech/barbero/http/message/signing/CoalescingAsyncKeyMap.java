@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import javax.crypto.SecretKey;
+
+/**
+ * An {@link AsyncKeyMap} issuing a single lookup in its delegate for concurrent requests of the same key (single-flight).
+ */
+final class CoalescingAsyncKeyMap implements AsyncKeyMap {
+
+	private final SingleFlight<PublicKey> publicKeys;
+	private final SingleFlight<PrivateKey> privateKeys;
+	private final SingleFlight<SecretKey> secretKeys;
+
+	CoalescingAsyncKeyMap(AsyncKeyMap delegate) {
+		Objects.requireNonNull(delegate);
+		this.publicKeys = new SingleFlight<>(delegate::getPublicKey);
+		this.privateKeys = new SingleFlight<>(delegate::getPrivateKey);
+		this.secretKeys = new SingleFlight<>(delegate::getSecretKey);
+	}
+
+	@Override
+	public CompletionStage<PublicKey> getPublicKey(String keyId) {
+		return this.publicKeys.get(keyId);
+	}
+
+	@Override
+	public CompletionStage<PrivateKey> getPrivateKey(String keyId) {
+		return this.privateKeys.get(keyId);
+	}
+
+	@Override
+	public CompletionStage<SecretKey> getSecretKey(String keyId) {
+		return this.secretKeys.get(keyId);
+	}
+
+	private static final class SingleFlight<K extends Key> {
+		private final Function<String, CompletionStage<K>> lookup;
+		private final ConcurrentMap<String, CompletableFuture<K>> inFlight = new ConcurrentHashMap<>();
+
+		SingleFlight(Function<String, CompletionStage<K>> lookup) {
+			this.lookup = lookup;
+		}
+
+		CompletionStage<K> get(String keyId) {
+			CompletableFuture<K> promise = new CompletableFuture<>();
+			CompletableFuture<K> existing = this.inFlight.putIfAbsent(Objects.requireNonNull(keyId), promise);
+			if (existing != null) {
+				return dependent(existing);
+			}
+			try {
+				this.lookup.apply(keyId).whenComplete((key, failure) -> {
+					// removed before completion so that requests issued once completed start a new lookup
+					this.inFlight.remove(keyId, promise);
+					if (failure != null) {
+						promise.completeExceptionally(failure);
+					} else {
+						promise.complete(key);
+					}
+				});
+			} catch (RuntimeException e) {
+				this.inFlight.remove(keyId, promise);
+				promise.completeExceptionally(e);
+			}
+			return dependent(promise);
+		}
+
+		/**
+		 * Returns a stage completing with the given future, so that callers cannot complete the shared future themselves.
+		 */
+		private static <K> CompletionStage<K> dependent(CompletableFuture<K> future) {
+			return future.thenApply(Function.identity());
+		}
+	}
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Provides the value of the {@code Date} header of HTTP messages, formatted as an HTTP date (RFC 7231 IMF-fixdate, e.g.
+ * {@code Sun, 06 Nov 1994 08:49:37 GMT}).
+ * <p>
+ * As the header has a precision of one second, the formatted value is computed at most once per second and shared by
+ * all callers in between. The last parsed value is cached as well, as all messages sent during a given second carry the
+ * same {@code Date} header. Both caches are replaced atomically without locking.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class DateHeaderProvider {
+
+	private static final DateTimeFormatter HTTP_DATE_FORMATTER = DateTimeFormatter
+			.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+			.withZone(ZoneOffset.UTC);
+
+	private static final DateHeaderProvider SYSTEM_UTC = new DateHeaderProvider(Clock.systemUTC());
+
+	private final Clock clock;
+
+	private volatile FormattedDate formatted;
+
+	/**
+	 * The last parsed date, null until a date has been parsed.
+	 */
+	private volatile ParsedDate parsed;
+
+	private DateHeaderProvider(Clock clock) {
+		this.clock = clock;
+		this.formatted = new FormattedDate(Long.MIN_VALUE, "");
+	}
+
+	/**
+	 * Returns the shared provider of dates of the system clock.
+	 *
+	 * @return the shared provider of dates of the system clock.
+	 */
+	public static DateHeaderProvider systemUTC() {
+		return SYSTEM_UTC;
+	}
+
+	/**
+	 * Returns a new provider of dates of the given clock.
+	 *
+	 * @param clock
+	 *          the clock to read the current date from.
+	 * @return a new provider of dates of the given clock.
+	 */
+	public static DateHeaderProvider of(Clock clock) {
+		return new DateHeaderProvider(Objects.requireNonNull(clock));
+	}
+
+	/**
+	 * Returns the current date formatted as an HTTP date.
+	 *
+	 * @return the current date formatted as an HTTP date.
+	 */
+	public String currentDate() {
+		long epochSecond = Math.floorDiv(this.clock.millis(), 1000L);
+		FormattedDate current = this.formatted;
+		if (current.epochSecond != epochSecond) {
+			// concurrent callers may format the same second more than once, which is harmless.
+			current = new FormattedDate(epochSecond, HTTP_DATE_FORMATTER.format(Instant.ofEpochSecond(epochSecond)));
+			this.formatted = current;
+		}
+		return current.value;
+	}
+
+	/**
+	 * Adds a {@code Date} header with the {@link #currentDate() current date} to the given message, unless it already has
+	 * one.
+	 *
+	 * @param message
+	 *          the message to add the header to.
+	 */
+	public void addDateHeaderIfMissing(HttpMessage message) {
+		if (message.headerValues(HttpMessageSigner.HEADER_DATE).isEmpty()) {
+			message.addHeader(HttpMessageSigner.HEADER_DATE, currentDate());
+		}
+	}
+
+	/**
+	 * Parses the given HTTP date. The obsolete RFC 850 and asctime formats are not supported.
+	 *
+	 * @param value
+	 *          the value of a {@code Date} header.
+	 * @return the parsed instant, or an empty optional if the value is not a valid HTTP date.
+	 */
+	public Optional<Instant> parse(String value) {
+		ParsedDate last = this.parsed;
+		if (last != null && last.value.equals(value)) {
+			return Optional.of(last.instant);
+		}
+		try {
+			Instant instant = DateTimeFormatter.RFC_1123_DATE_TIME.parse(value, Instant::from);
+			this.parsed = new ParsedDate(value, instant);
+			return Optional.of(instant);
+		} catch (@SuppressWarnings("unused") DateTimeParseException e) {
+			return Optional.empty();
+		}
+	}
+
+	Clock clock() {
+		return this.clock;
+	}
+
+	private static final class FormattedDate {
+		final long epochSecond;
+		final String value;
+
+		FormattedDate(long epochSecond, String value) {
+			this.epochSecond = epochSecond;
+			this.value = value;
+		}
+	}
+
+	private static final class ParsedDate {
+		final String value;
+		final Instant instant;
+
+		ParsedDate(String value, Instant instant) {
+			this.value = value;
+			this.instant = instant;
+		}
+	}
+}
@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.crypto.SecretKey;
+
+import tech.barbero.http.message.signing.KeyFiles.Format;
+import tech.barbero.http.message.signing.KeyFiles.Keys;
+
+/**
+ * A {@link KeyMap} backed by a directory of key files. The keyId of a key is the name of its file without the
+ * extension. The supported formats are:
+ * <ul>
+ * <li>{@code <keyId>.pem}: PEM encoded X.509 certificate, public key (SubjectPublicKeyInfo or PKCS#1 RSA) and/or private
+ * key (PKCS#8 or PKCS#1 RSA). A single file can contain several of them, e.g. a private key and its certificate.</li>
+ * <li>{@code <keyId>.der}: DER encoded X.509 certificate, SubjectPublicKeyInfo public key or PKCS#8 private key.</li>
+ * <li>{@code <keyId>.jwk}: JSON Web Key of type {@code RSA}, {@code EC} or {@code oct} (secret key).</li>
+ * </ul>
+ * The public key of an RSA private key is derived from it when the file does not contain it. When several files have
+ * the same keyId, e.g. {@code rsa.pem} and {@code rsa.jwk}, the key is read from the first of them in the order of the
+ * formats above, then of their names.
+ * <p>
+ * Only the names of the files are read when this key map is created. Files are read and parsed the first time their key
+ * is requested, and parsed keys are then kept in memory. When created with {@link #watch(Path)}, changes to the
+ * directory are tracked with a {@link WatchService}: the index of the directory is replaced by an updated copy, so
+ * that readers are never blocked, and the keys of added, modified or deleted files are reloaded on next use. If the
+ * directory cannot be listed again after the watch service lost events, the previous index is kept.
+ * <p>
+ * Lookups throw an {@link IllegalStateException} if the file associated with the requested keyId cannot be read or
+ * parsed.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class DirectoryKeyMap implements KeyMap, Closeable {
+
+	private final Path directory;
+	private final Optional<WatchService> watchService;
+	private volatile Map<String, IndexEntry> index;
+
+	private DirectoryKeyMap(Path directory, Optional<WatchService> watchService) throws IOException {
+		this.directory = directory;
+		this.watchService = watchService;
+		if (watchService.isPresent()) {
+			// register before listing so that no change can be missed.
+			directory.register(watchService.get(), ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+		}
+		this.index = Collections.unmodifiableMap(list(directory));
+	}
+
+	/**
+	 * Creates a new key map from the key files of the given directory. Later changes of the directory are ignored.
+	 *
+	 * @param directory
+	 *          the directory containing the key files.
+	 * @return a new key map.
+	 * @throws IOException
+	 *           if the directory cannot be listed.
+	 */
+	public static DirectoryKeyMap of(Path directory) throws IOException {
+		return new DirectoryKeyMap(checkDirectory(directory), Optional.empty());
+	}
+
+	/**
+	 * Creates a new key map from the key files of the given directory, which is then watched for changes from a daemon
+	 * thread until this key map is {@link #close() closed}.
+	 *
+	 * @param directory
+	 *          the directory containing the key files.
+	 * @return a new key map.
+	 * @throws IOException
+	 *           if the directory cannot be listed or watched.
+	 */
+	public static DirectoryKeyMap watch(Path directory) throws IOException {
+		checkDirectory(directory);
+		WatchService watchService = directory.getFileSystem().newWatchService();
+		try {
+			DirectoryKeyMap ret = new DirectoryKeyMap(directory, Optional.of(watchService));
+			Thread watcher = new Thread(ret::processEvents, "DirectoryKeyMap watcher of " + directory);
+			watcher.setDaemon(true);
+			watcher.start();
+			return ret;
+		} catch (IOException | RuntimeException e) {
+			watchService.close();
+			throw e;
+		}
+	}
+
+	private static Path checkDirectory(Path directory) throws IOException {
+		if (!Files.isDirectory(Objects.requireNonNull(directory))) {
+			throw new IOException("'" + directory + "' is not a directory");
+		}
+		return directory;
+	}
+
+	private static Map<String, IndexEntry> list(Path directory) throws IOException {
+		Map<String, IndexEntry> ret = new HashMap<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				Optional<IndexEntry> entry = IndexEntry.of(file);
+				if (entry.isPresent()) {
+					ret.merge(entry.get().keyId(), entry.get(), IndexEntry::first);
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the entry of the file the key of the given keyId is to be read from, if any.
+	 */
+	private static Optional<IndexEntry> find(Path directory, String keyId) throws IOException {
+		Optional<IndexEntry> ret = Optional.empty();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				Optional<IndexEntry> entry = IndexEntry.of(file).filter(e -> e.keyId().equals(keyId));
+				if (entry.isPresent()) {
+					ret = Optional.of(ret.isPresent() ? IndexEntry.first(ret.get(), entry.get()) : entry.get());
+				}
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public PublicKey getPublicKey(String keyId) {
+		Keys keys = keys(keyId);
+		return keys != null ? keys.publicKey() : null;
+	}
+
+	@Override
+	public PrivateKey getPrivateKey(String keyId) {
+		Keys keys = keys(keyId);
+		return keys != null ? keys.privateKey() : null;
+	}
+
+	@Override
+	public SecretKey getSecretKey(String keyId) {
+		Keys keys = keys(keyId);
+		return keys != null ? keys.secretKey() : null;
+	}
+
+	private Keys keys(String keyId) {
+		IndexEntry entry = this.index.get(keyId);
+		return entry != null ? entry.keys() : null;
+	}
+
+	/**
+	 * Stops watching the directory, if it was watched.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.watchService.isPresent()) {
+			this.watchService.get().close();
+		}
+	}
+
+	private void processEvents() {
+		WatchService service = this.watchService.get();
+		try {
+			while (true) {
+				WatchKey key = service.take();
+				Map<String, IndexEntry> newIndex = new HashMap<>(this.index);
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == OVERFLOW) {
+						newIndex = relist(newIndex);
+						break;
+					}
+					Path file = this.directory.resolve((Path) event.context());
+					Optional<IndexEntry> entry = IndexEntry.of(file);
+					if (entry.isPresent()) {
+						if (event.kind() == ENTRY_DELETE) {
+							deleted(newIndex, entry.get());
+						} else {
+							changed(newIndex, entry.get());
+						}
+					}
+				}
+				this.index = Collections.unmodifiableMap(newIndex);
+				if (!key.reset()) {
+					// the directory is not accessible anymore
+					this.index = Collections.emptyMap();
+					return;
+				}
+			}
+		} catch (@SuppressWarnings("unused") ClosedWatchServiceException e) {
+			// this key map has been closed
+		} catch (@SuppressWarnings("unused") InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private Map<String, IndexEntry> relist(Map<String, IndexEntry> index) {
+		try {
+			return list(this.directory);
+		} catch (@SuppressWarnings("unused") IOException e) {
+			// keep the index as updated so far rather than stopping to watch, the directory is listed again on next overflow
+			return index;
+		}
+	}
+
+	private static void changed(Map<String, IndexEntry> index, IndexEntry entry) {
+		IndexEntry current = index.get(entry.keyId());
+		if (current == null || current.file.equals(entry.file) || IndexEntry.first(current, entry) == entry) {
+			// a new entry, so that the key is parsed again on next use
+			index.put(entry.keyId(), entry);
+		}
+	}
+
+	private void deleted(Map<String, IndexEntry> index, IndexEntry entry) {
+		IndexEntry current = index.get(entry.keyId());
+		if (current != null && current.file.equals(entry.file)) {
+			index.remove(entry.keyId());
+			try {
+				// another file with the same keyId takes over, if any
+				find(this.directory, entry.keyId()).ifPresent(e -> index.put(e.keyId(), e));
+			} catch (@SuppressWarnings("unused") IOException e) {
+				// the directory cannot be listed, the key is not available until its files change again
+			}
+		}
+	}
+
+	private static final class IndexEntry {
+		private final String keyId;
+		private final Path file;
+		private final Format format;
+		private volatile Keys keys;
+
+		private IndexEntry(String keyId, Path file, Format format) {
+			this.keyId = keyId;
+			this.file = file;
+			this.format = format;
+		}
+
+		static Optional<IndexEntry> of(Path file) {
+			Path fileName = file.getFileName();
+			if (fileName == null) {
+				return Optional.empty();
+			}
+			String name = fileName.toString();
+			return Format.of(name)
+					.map(format -> new IndexEntry(name.substring(0, name.length() - format.extension().length()), file, format));
+		}
+
+		String keyId() {
+			return this.keyId;
+		}
+
+		/**
+		 * Returns the entry of two files with the same keyId the key is to be read from: the first by format, then by name.
+		 */
+		static IndexEntry first(IndexEntry a, IndexEntry b) {
+			int order = a.format.compareTo(b.format);
+			if (order == 0) {
+				// both files are in the same directory
+				order = a.file.compareTo(b.file);
+			}
+			return order <= 0 ? a : b;
+		}
+
+		Keys keys() {
+			Keys ret = this.keys;
+			if (ret == null) {
+				// concurrent first uses may read the file more than once, which is harmless.
+				try {
+					ret = KeyFiles.read(this.format, Files.readAllBytes(this.file));
+				} catch (IOException | GeneralSecurityException e) {
+					throw new IllegalStateException("Unable to read key file '" + this.file + "'", e);
+				}
+				this.keys = ret;
+			}
+			return ret;
+		}
+	}
+}
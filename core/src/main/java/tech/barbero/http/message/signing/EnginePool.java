@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+/**
+ * A pool of cryptographic engines (e.g. {@link java.security.Signature} or {@link javax.crypto.Mac}) already initialized
+ * with a key, indexed by keyId and algorithm.
+ * <p>
+ * Engines are checked out with {@link #borrow(String, Algorithm, Key, EngineFactory)} and must be given back with
+ * {@link #release(String, Algorithm, Key, Object)} once they are back to their initialized state. An engine which ends
+ * up in an unknown state (e.g. because an exception has been thrown while using it) must simply not be released. The
+ * engines pooled for a keyId are discarded as soon as the key returned by the {@link KeyMap} for this keyId is not equal
+ * to the one they have been initialized with.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @param <K>
+ *          the type of keys the engines are initialized with.
+ * @param <E>
+ *          the type of pooled engines.
+ */
+final class EnginePool<K extends Key, E> {
+
+	private final int maxIdleEnginesPerKey;
+	private final Map<Algorithm, ConcurrentMap<String, Entry<K, E>>> entries;
+
+	EnginePool(int maxIdleEnginesPerKey) {
+		if (maxIdleEnginesPerKey <= 0) {
+			throw new IllegalArgumentException("The maximum number of idle engines per key must be strictly positive");
+		}
+		this.maxIdleEnginesPerKey = maxIdleEnginesPerKey;
+		this.entries = new EnumMap<>(Algorithm.class);
+		for (Algorithm algorithm : Algorithm.values()) {
+			this.entries.put(algorithm, new ConcurrentHashMap<>());
+		}
+	}
+
+	/**
+	 * Returns an engine initialized with the given key, either from the pool or freshly created by the given factory.
+	 *
+	 * @param keyId
+	 *          the id of the key.
+	 * @param algorithm
+	 *          the algorithm of the engine.
+	 * @param key
+	 *          the key as currently returned by the {@link KeyMap}.
+	 * @param factory
+	 *          the factory to be used to create and initialize a new engine if none is available in the pool.
+	 * @return an engine initialized with the given key.
+	 * @throws GeneralSecurityException
+	 *           if the factory fails to create a new engine.
+	 */
+	E borrow(String keyId, Algorithm algorithm, K key, EngineFactory<K, E> factory) throws GeneralSecurityException {
+		// a null key is not pooled, the factory will report the appropriate error.
+		if (key != null) {
+			ConcurrentMap<String, Entry<K, E>> algorithmEntries = this.entries.get(algorithm);
+			Entry<K, E> entry = algorithmEntries.get(keyId);
+			if (entry == null || !entry.isFor(key)) {
+				// the key has changed (or has never been seen): engines pooled for the previous key are dropped.
+				entry = new Entry<>(key);
+				algorithmEntries.put(keyId, entry);
+			}
+			E engine = entry.poll();
+			if (engine != null) {
+				return engine;
+			}
+		}
+		return factory.create(algorithm, key);
+	}
+
+	/**
+	 * Gives back an engine to the pool. The engine is discarded if the pool for this key is already full or if the key has
+	 * changed since the engine has been borrowed.
+	 *
+	 * @param keyId
+	 *          the id of the key.
+	 * @param algorithm
+	 *          the algorithm of the engine.
+	 * @param key
+	 *          the key the engine has been initialized with.
+	 * @param engine
+	 *          the engine, in its initialized state.
+	 */
+	void release(String keyId, Algorithm algorithm, K key, E engine) {
+		if (key != null) {
+			Entry<K, E> entry = this.entries.get(algorithm).get(keyId);
+			if (entry != null && entry.isFor(key)) {
+				entry.offer(engine, this.maxIdleEnginesPerKey);
+			}
+		}
+	}
+
+	/**
+	 * Creates and initializes a new engine.
+	 *
+	 * @param <K>
+	 *          the type of keys the engine is initialized with.
+	 * @param <E>
+	 *          the type of the created engine.
+	 */
+	@FunctionalInterface
+	interface EngineFactory<K extends Key, E> {
+		E create(Algorithm algorithm, K key) throws GeneralSecurityException;
+	}
+
+	private static final class Entry<K extends Key, E> {
+		private final K key;
+		private final Queue<E> idleEngines;
+		private final AtomicInteger idleCount;
+
+		Entry(K key) {
+			this.key = key;
+			this.idleEngines = new ConcurrentLinkedQueue<>();
+			this.idleCount = new AtomicInteger();
+		}
+
+		boolean isFor(K otherKey) {
+			return this.key == otherKey || this.key.equals(otherKey);
+		}
+
+		E poll() {
+			E engine = this.idleEngines.poll();
+			if (engine != null) {
+				this.idleCount.decrementAndGet();
+			}
+			return engine;
+		}
+
+		void offer(E engine, int maxIdleEngines) {
+			if (this.idleCount.incrementAndGet() <= maxIdleEngines) {
+				this.idleEngines.offer(engine);
+			} else {
+				this.idleCount.decrementAndGet();
+			}
+		}
+	}
+}
@@ -8,6 +8,7 @@
  *******************************************************************************/
 package tech.barbero.http.message.signing;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -23,9 +24,30 @@ public interface HttpMessage {
 	 * @param name
 	 *          the name of the header of which values are returned.
 	 * @return values of all headers with a specified name.
+	 * @throws IllegalArgumentException
+	 *           if the name is null or empty.
 	 */
 	List<String> headerValues(String name);
 
+	/**
+	 * Returns all the values of the headers with each of the specified names of this message, as by calling
+	 * {@link #headerValues(String)} for each name. Implementations which have to scan all headers of the message on each
+	 * lookup should override this method to collect all values in one pass over their headers.
+	 *
+	 * @param names
+	 *          the names of the headers of which values are returned.
+	 * @return a list with, at each index, the values of all headers with the name at this index in {@code names}.
+	 * @throws IllegalArgumentException
+	 *           if one of the names is null or empty.
+	 */
+	default List<List<String>> headerValues(List<String> names) {
+		List<List<String>> ret = new ArrayList<>(names.size());
+		for (String name : names) {
+			ret.add(headerValues(name));
+		}
+		return ret;
+	}
+
 	/**
 	 * Adds a header with the given value to this message.
 	 *
@@ -18,6 +18,7 @@ import java.security.Signature;
 import java.security.SignatureException;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -90,6 +91,8 @@ public abstract class HttpMessageSigner {
 
 	abstract Optional<Provider> securityProvider();
 
+	abstract Optional<SigningBackend> backend();
+
 	abstract SigningStringBuilder signingStringBuilder();
 
 	/**
@@ -106,16 +109,65 @@ public abstract class HttpMessageSigner {
 	 *           from the {@link KeyMap} is inappropriate for the requested cryptographic algorithm.
 	 */
 	public <M extends HttpMessage> M sign(M message) throws GeneralSecurityException {
-		String signingString = signingStringBuilder().signingString(message);
-		message.addHeader(HEADER_SIGNATURE, param(PARAM_KEY_ID, keyId()));
-		message.addHeader(HEADER_SIGNATURE, param(PARAM_ALGORITHM, algorithm().algorithmName()));
+		return addSignature(message, signatureHeaderValues(signingStringBuilder().signingString(message)));
+	}
+
+	/**
+	 * Signs the given template message once, and returns a signature which can be stamped onto many copies of it, e.g.
+	 * the same webhook broadcast to subscribers sharing a key. Copies whose signed headers have the same values as the
+	 * template's get the template's {@code Signature} header without any cryptographic operation, other messages are
+	 * signed again.
+	 * <p>
+	 * The template message is not modified.
+	 *
+	 * @param template
+	 *          the HTTP message whose signature is to be reused.
+	 * @return a reusable signature of the template message.
+	 * @throws GeneralSecurityException
+	 *           when the requested cryptographic algorithm is not available in the environment, or if the key retrieved
+	 *           from the {@link KeyMap} is inappropriate for the requested cryptographic algorithm.
+	 */
+	public ReusableSignature signOnce(HttpMessage template) throws GeneralSecurityException {
+		List<List<String>> signedValues = signingStringBuilder().signedValues(template);
+		return new ReusableSignature(this, signedValues, signatureHeaderValues(signingStringBuilder().signingString(template)));
+	}
+
+	/**
+	 * Returns whether the given header, or pseudo header such as {@link #REQUEST_TARGET}, is covered by the signatures
+	 * created by this signer. Only the {@code Date} header is covered when no headers to sign are configured.
+	 *
+	 * @param header
+	 *          the name of the header, case insensitive.
+	 * @return whether the given header is signed.
+	 */
+	public boolean signs(String header) {
+		if (headersToSign().isEmpty()) {
+			return HEADER_DATE.equalsIgnoreCase(header);
+		}
+		return headersToSign().stream().map(String::trim).anyMatch(h -> h.equalsIgnoreCase(header));
+	}
+
+	/**
+	 * Returns the values of the {@code Signature} header of a message with the given signing string.
+	 */
+	private List<String> signatureHeaderValues(String signingString) throws GeneralSecurityException {
+		List<String> ret = new ArrayList<>(4);
+		ret.add(param(PARAM_KEY_ID, keyId()));
+		ret.add(param(PARAM_ALGORITHM, algorithm().algorithmName()));
 
 		if (!headersToSign().isEmpty()) {
 			String paramHeaders = headersToSign().stream().map(String::trim).map(String::toLowerCase).collect(Collectors.joining(" ", "\"", "\""));
-			message.addHeader(HEADER_SIGNATURE, param(PARAM_HEADERS, paramHeaders));
+			ret.add(param(PARAM_HEADERS, paramHeaders));
 		}
 
-		message.addHeader(HEADER_SIGNATURE, param(PARAM_SIGNATURE, sign(signingString)));
+		ret.add(param(PARAM_SIGNATURE, sign(signingString)));
+		return ret;
+	}
+
+	static <M extends HttpMessage> M addSignature(M message, List<String> signatureHeaderValues) {
+		for (int i = 0; i < signatureHeaderValues.size(); i++) {
+			message.addHeader(HEADER_SIGNATURE, signatureHeaderValues.get(i));
+		}
 		return message;
 	}
 
@@ -131,8 +183,14 @@ public abstract class HttpMessageSigner {
 	private byte[] sign(byte[] input) throws GeneralSecurityException {
 		switch (algorithm().type()) {
 			case PUBLIC_KEY:
+				if (backend().isPresent()) {
+					return backend().get().sign(algorithm(), keyMap().getPrivateKey(keyId()), input);
+				}
 				return signWithPublicKeyAlgorithm(input);
 			case SECRET_KEY:
+				if (backend().isPresent()) {
+					return backend().get().mac(algorithm(), keyMap().getSecretKey(keyId()), input);
+				}
 				return signWithSecretKeyAlgorithm(input);
 		}
 		throw new IllegalStateException("Unknown algorithm type '" + algorithm().type() + "'");
@@ -274,6 +332,18 @@ public abstract class HttpMessageSigner {
 		 */
 		public abstract Builder securityProvider(Provider provider);
 
+		/**
+		 * The optional backend implementing the cryptographic operations of the {@link #algorithm(Algorithm) algorithm},
+		 * e.g. {@link SigningBackend#precomputedHmac()} or a native provider through {@link SigningBackend#jca(Provider)}.
+		 * When set, the {@link #securityProvider(Provider) security provider} is not used, and the randomness of
+		 * signatures is left to the backend.
+		 *
+		 * @param backend
+		 *          The backend implementing the cryptographic operations.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder backend(SigningBackend backend);
+
 		abstract Builder headersToSign(List<String> headers);
 
 		abstract List<String> headersToSign();
@@ -298,20 +368,31 @@ public abstract class HttpMessageSigner {
 		abstract HttpMessageSigner autoBuild();
 
 		/**
-		 * Returns a newly configured {@code HttpMessageSigner}.
+		 * Returns a newly configured {@code HttpMessageSigner}. When headers to sign are configured, they must include the
+		 * {@code Date} header and either {@link HttpMessageSigner#REQUEST_TARGET} (signing requests) or
+		 * {@link HttpMessageSigner#RESPONSE_STATUS} (signing responses).
 		 *
 		 * @return a newly configured {@code HttpMessageSigner}.
 		 */
 		public HttpMessageSigner build() {
+			// the signer gets a frozen copy, so that further calls to addHeaderToSign do not change it
+			List<String> headers = headersToSign();
+			headersToSign(Collections.unmodifiableList(new ArrayList<>(headers)));
 			signingStringBuilder(SigningStringBuilder.forHeaders(headersToSign()));
-			HttpMessageSigner ret = autoBuild();
+			HttpMessageSigner ret;
+			try {
+				ret = autoBuild();
+			} finally {
+				headersToSign(headers);
+			}
 			if (!headersToSign().isEmpty()) {
 				if (headersToSign().stream().noneMatch(HEADER_DATE::equalsIgnoreCase)) {
 					throw new IllegalStateException("HttpMessageSigner should be configured to sign the '" + HEADER_DATE + "' header");
 				}
 
-				if (headersToSign().stream().noneMatch(REQUEST_TARGET::equalsIgnoreCase)) {
-					throw new IllegalStateException("HttpMessageSigner should be configured to sign the '" + REQUEST_TARGET + "' header");
+				if (headersToSign().stream().noneMatch(h -> REQUEST_TARGET.equalsIgnoreCase(h) || RESPONSE_STATUS.equalsIgnoreCase(h))) {
+					throw new IllegalStateException("HttpMessageSigner should be configured to sign either the '" + REQUEST_TARGET + "' or the '"
+							+ RESPONSE_STATUS + "' header");
 				}
 			}
 			return ret;
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Optional;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+/**
+ * A {@link SigningBackend} creating a Java Cryptography Architecture engine per operation, from a given provider or from
+ * the default ones.
+ */
+final class JcaSigningBackend implements SigningBackend {
+
+	static final JcaSigningBackend DEFAULT = new JcaSigningBackend(null);
+
+	private final Optional<Provider> provider;
+
+	JcaSigningBackend(Provider provider) {
+		this.provider = Optional.ofNullable(provider);
+	}
+
+	@Override
+	public byte[] sign(Algorithm algorithm, PrivateKey key, byte[] input) throws GeneralSecurityException {
+		Signature signature = createSignature(algorithm);
+		signature.initSign(key);
+		signature.update(input);
+		return signature.sign();
+	}
+
+	@Override
+	public boolean verify(Algorithm algorithm, PublicKey key, byte[] input, byte[] signature) throws GeneralSecurityException {
+		Signature jSignature = createSignature(algorithm);
+		jSignature.initVerify(key);
+		jSignature.update(input);
+		return jSignature.verify(signature);
+	}
+
+	@Override
+	public byte[] mac(Algorithm algorithm, SecretKey key, byte[] input) throws GeneralSecurityException {
+		Mac mac = this.provider.isPresent() ? algorithm.createMac(this.provider.get()) : algorithm.createMac();
+		mac.init(key);
+		return mac.doFinal(input);
+	}
+
+	private Signature createSignature(Algorithm algorithm) throws NoSuchAlgorithmException {
+		return this.provider.isPresent() ? algorithm.createSignature(this.provider.get()) : algorithm.createSignature();
+	}
+
+	@Override
+	public String toString() {
+		return "jca(" + this.provider.map(Provider::getName).orElse("default") + ")";
+	}
+}
@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal JSON (RFC 8259) reader, just enough to read JSON Web Keys without depending on a JSON library.
+ * <p>
+ * Objects are returned as {@link Map}, arrays as {@link List}, strings as {@link String}, numbers as their
+ * {@link String} representation, booleans as {@link Boolean} and {@code null} as {@code null}.
+ */
+final class Json {
+
+	private final CharSequence input;
+	private int position;
+
+	private Json(CharSequence input) {
+		this.input = input;
+	}
+
+	/**
+	 * Parses the given JSON text which must be a JSON object.
+	 *
+	 * @param input
+	 *          the JSON text.
+	 * @return the members of the object.
+	 * @throws IllegalArgumentException
+	 *           if the input is not a valid JSON object.
+	 */
+	@SuppressWarnings("unchecked")
+	static Map<String, Object> parseObject(CharSequence input) {
+		Json json = new Json(input);
+		json.skipWhitespaces();
+		if (json.peek() != '{') {
+			throw json.error("JSON object expected");
+		}
+		Object ret = json.readValue();
+		json.skipWhitespaces();
+		if (json.position != input.length()) {
+			throw json.error("Unexpected trailing content");
+		}
+		return (Map<String, Object>) ret;
+	}
+
+	private Object readValue() {
+		skipWhitespaces();
+		char c = peek();
+		switch (c) {
+			case '{':
+				return readObject();
+			case '[':
+				return readArray();
+			case '"':
+				return readString();
+			case 't':
+				readLiteral("true");
+				return Boolean.TRUE;
+			case 'f':
+				readLiteral("false");
+				return Boolean.FALSE;
+			case 'n':
+				readLiteral("null");
+				return null;
+			default:
+				if (c == '-' || (c >= '0' && c <= '9')) {
+					return readNumber();
+				}
+				throw error("Unexpected character '" + c + "'");
+		}
+	}
+
+	private Map<String, Object> readObject() {
+		Map<String, Object> ret = new LinkedHashMap<>();
+		expect('{');
+		skipWhitespaces();
+		if (peek() == '}') {
+			this.position++;
+			return ret;
+		}
+		while (true) {
+			skipWhitespaces();
+			String name = readString();
+			skipWhitespaces();
+			expect(':');
+			ret.put(name, readValue());
+			skipWhitespaces();
+			if (peek() == ',') {
+				this.position++;
+			} else {
+				expect('}');
+				return ret;
+			}
+		}
+	}
+
+	private List<Object> readArray() {
+		List<Object> ret = new ArrayList<>();
+		expect('[');
+		skipWhitespaces();
+		if (peek() == ']') {
+			this.position++;
+			return ret;
+		}
+		while (true) {
+			ret.add(readValue());
+			skipWhitespaces();
+			if (peek() == ',') {
+				this.position++;
+			} else {
+				expect(']');
+				return ret;
+			}
+		}
+	}
+
+	private String readString() {
+		expect('"');
+		StringBuilder ret = new StringBuilder();
+		while (true) {
+			char c = next();
+			if (c == '"') {
+				return ret.toString();
+			} else if (c == '\\') {
+				char escaped = next();
+				switch (escaped) {
+					case '"':
+					case '\\':
+					case '/':
+						ret.append(escaped);
+						break;
+					case 'b':
+						ret.append('\b');
+						break;
+					case 'f':
+						ret.append('\f');
+						break;
+					case 'n':
+						ret.append('\n');
+						break;
+					case 'r':
+						ret.append('\r');
+						break;
+					case 't':
+						ret.append('\t');
+						break;
+					case 'u':
+						if (this.position + 4 > this.input.length()) {
+							throw error("Truncated unicode escape sequence");
+						}
+						try {
+							ret.append((char) Integer.parseInt(this.input.subSequence(this.position, this.position + 4).toString(), 16));
+						} catch (NumberFormatException e) {
+							throw error("Invalid unicode escape sequence");
+						}
+						this.position += 4;
+						break;
+					default:
+						throw error("Invalid escape sequence '\\" + escaped + "'");
+				}
+			} else if (c < 0x20) {
+				throw error("Unescaped control character in string");
+			} else {
+				ret.append(c);
+			}
+		}
+	}
+
+	private String readNumber() {
+		int start = this.position;
+		while (this.position < this.input.length() && "+-0123456789.eE".indexOf(this.input.charAt(this.position)) >= 0) {
+			this.position++;
+		}
+		return this.input.subSequence(start, this.position).toString();
+	}
+
+	private void readLiteral(String literal) {
+		for (int i = 0; i < literal.length(); i++) {
+			if (next() != literal.charAt(i)) {
+				throw error("Invalid literal, '" + literal + "' expected");
+			}
+		}
+	}
+
+	private void skipWhitespaces() {
+		while (this.position < this.input.length()) {
+			char c = this.input.charAt(this.position);
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return;
+			}
+			this.position++;
+		}
+	}
+
+	private void expect(char expected) {
+		char c = next();
+		if (c != expected) {
+			this.position--;
+			throw error("'" + expected + "' expected");
+		}
+	}
+
+	private char peek() {
+		if (this.position >= this.input.length()) {
+			throw error("Unexpected end of input");
+		}
+		return this.input.charAt(this.position);
+	}
+
+	private char next() {
+		char ret = peek();
+		this.position++;
+		return ret;
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at position " + this.position);
+	}
+}
@@ -0,0 +1,377 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.CertificateFactory;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPrivateKeySpec;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPrivateCrtKeySpec;
+import java.security.spec.RSAPrivateKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Readers of the key file formats supported by {@link DirectoryKeyMap}.
+ */
+final class KeyFiles {
+
+	// DER encoding of the AlgorithmIdentifier of rsaEncryption (1.2.840.113549.1.1.1) with NULL parameters.
+	private static final byte[] RSA_ALGORITHM_IDENTIFIER = {
+			0x30, 0x0d, 0x06, 0x09, 0x2a, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xf7, 0x0d, 0x01, 0x01, 0x01, 0x05, 0x00 };
+
+	private static final String PEM_BEGIN = "-----BEGIN ";
+	private static final String PEM_END = "-----END ";
+	private static final String PEM_DASHES = "-----";
+
+	private KeyFiles() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Supported key file formats.
+	 */
+	enum Format {
+		/**
+		 * Textual encoding (RFC 7468) of one or several of: X.509 certificates, SubjectPublicKeyInfo public keys, PKCS#8
+		 * private keys and PKCS#1 RSA public and private keys.
+		 */
+		PEM(".pem"),
+		/**
+		 * Binary encoding of a single X.509 certificate, SubjectPublicKeyInfo public key or PKCS#8 private key.
+		 */
+		DER(".der"),
+		/**
+		 * JSON Web Key (RFC 7517) of type RSA, EC or oct.
+		 */
+		JWK(".jwk");
+
+		private final String extension;
+
+		Format(String extension) {
+			this.extension = extension;
+		}
+
+		String extension() {
+			return this.extension;
+		}
+
+		static Optional<Format> of(String fileName) {
+			String lowerCaseFileName = fileName.toLowerCase(Locale.ROOT);
+			for (Format format : values()) {
+				if (lowerCaseFileName.endsWith(format.extension) && lowerCaseFileName.length() > format.extension.length()) {
+					return Optional.of(format);
+				}
+			}
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * The keys read from a single key file.
+	 */
+	static final class Keys {
+		private PublicKey publicKey;
+		private PrivateKey privateKey;
+		private SecretKey secretKey;
+
+		PublicKey publicKey() {
+			return this.publicKey;
+		}
+
+		PrivateKey privateKey() {
+			return this.privateKey;
+		}
+
+		SecretKey secretKey() {
+			return this.secretKey;
+		}
+
+		private void setPrivateKey(PrivateKey key) throws GeneralSecurityException {
+			this.privateKey = key;
+			if (this.publicKey == null && key instanceof RSAPrivateCrtKey) {
+				RSAPrivateCrtKey rsaKey = (RSAPrivateCrtKey) key;
+				this.publicKey = KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(rsaKey.getModulus(), rsaKey.getPublicExponent()));
+			}
+		}
+	}
+
+	static Keys read(Format format, byte[] content) throws GeneralSecurityException {
+		Keys keys = new Keys();
+		switch (format) {
+			case PEM:
+				readPem(new String(content, StandardCharsets.US_ASCII), keys);
+				break;
+			case DER:
+				readDer(content, keys);
+				break;
+			case JWK:
+				readJwk(new String(content, StandardCharsets.UTF_8), keys);
+				break;
+			default:
+				throw new IllegalStateException("Unknown key file format '" + format + "'");
+		}
+		return keys;
+	}
+
+	private static void readPem(String content, Keys keys) throws GeneralSecurityException {
+		int from = 0;
+		boolean found = false;
+		while (true) {
+			int begin = content.indexOf(PEM_BEGIN, from);
+			if (begin < 0) {
+				break;
+			}
+			int labelEnd = content.indexOf(PEM_DASHES, begin + PEM_BEGIN.length());
+			if (labelEnd < 0) {
+				throw new InvalidKeySpecException("Malformed PEM encapsulation boundary");
+			}
+			String label = content.substring(begin + PEM_BEGIN.length(), labelEnd);
+			String endBoundary = PEM_END + label + PEM_DASHES;
+			int end = content.indexOf(endBoundary, labelEnd);
+			if (end < 0) {
+				throw new InvalidKeySpecException("Missing '" + endBoundary + "'");
+			}
+			byte[] der;
+			try {
+				der = Base64.getMimeDecoder().decode(content.substring(labelEnd + PEM_DASHES.length(), end));
+			} catch (IllegalArgumentException e) {
+				throw new InvalidKeySpecException("Invalid Base64 content in PEM '" + label + "'", e);
+			}
+			readPem(label, der, keys);
+			found = true;
+			from = end + endBoundary.length();
+		}
+		if (!found) {
+			throw new InvalidKeySpecException("No PEM encoded key found");
+		}
+	}
+
+	private static void readPem(String label, byte[] der, Keys keys) throws GeneralSecurityException {
+		switch (label) {
+			case "CERTIFICATE":
+				keys.publicKey = CertificateFactory.getInstance("X.509").generateCertificate(new ByteArrayInputStream(der)).getPublicKey();
+				break;
+			case "PUBLIC KEY":
+				keys.publicKey = publicKey(der);
+				break;
+			case "RSA PUBLIC KEY":
+				keys.publicKey = KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(
+						derSequence(RSA_ALGORITHM_IDENTIFIER, derBitString(der))));
+				break;
+			case "PRIVATE KEY":
+				keys.setPrivateKey(privateKey(der));
+				break;
+			case "RSA PRIVATE KEY":
+				keys.setPrivateKey(KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(
+						derSequence(new byte[] { 0x02, 0x01, 0x00 }, RSA_ALGORITHM_IDENTIFIER, derTagged(0x04, der)))));
+				break;
+			default:
+				throw new InvalidKeySpecException("Unsupported PEM type '" + label + "'");
+		}
+	}
+
+	private static void readDer(byte[] der, Keys keys) throws GeneralSecurityException {
+		try {
+			keys.setPrivateKey(privateKey(der));
+			return;
+		} catch (@SuppressWarnings("unused") InvalidKeySpecException e) {
+			// not a PKCS#8 private key, try next format
+		}
+		try {
+			keys.publicKey = publicKey(der);
+			return;
+		} catch (@SuppressWarnings("unused") InvalidKeySpecException e) {
+			// not a SubjectPublicKeyInfo, try next format
+		}
+		keys.publicKey = CertificateFactory.getInstance("X.509").generateCertificate(new ByteArrayInputStream(der)).getPublicKey();
+	}
+
+	private static PublicKey publicKey(byte[] der) throws GeneralSecurityException {
+		X509EncodedKeySpec keySpec = new X509EncodedKeySpec(der);
+		try {
+			return KeyFactory.getInstance("RSA").generatePublic(keySpec);
+		} catch (@SuppressWarnings("unused") InvalidKeySpecException e) {
+			// not an RSA key, try next algorithm
+		}
+		try {
+			return KeyFactory.getInstance("EC").generatePublic(keySpec);
+		} catch (@SuppressWarnings("unused") InvalidKeySpecException e) {
+			// not an EC key
+		}
+		throw new InvalidKeySpecException("Unsupported public key, only RSA and EC keys are supported");
+	}
+
+	private static PrivateKey privateKey(byte[] der) throws GeneralSecurityException {
+		PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(der);
+		try {
+			return KeyFactory.getInstance("RSA").generatePrivate(keySpec);
+		} catch (@SuppressWarnings("unused") InvalidKeySpecException e) {
+			// not an RSA key, try next algorithm
+		}
+		try {
+			return KeyFactory.getInstance("EC").generatePrivate(keySpec);
+		} catch (@SuppressWarnings("unused") InvalidKeySpecException e) {
+			// not an EC key
+		}
+		throw new InvalidKeySpecException("Unsupported private key, only RSA and EC keys are supported");
+	}
+
+	private static void readJwk(String content, Keys keys) throws GeneralSecurityException {
+		final Map<String, Object> jwk;
+		try {
+			jwk = Json.parseObject(content);
+		} catch (IllegalArgumentException e) {
+			throw new InvalidKeySpecException("Invalid JSON Web Key", e);
+		}
+		String keyType = jwkMember(jwk, "kty");
+		switch (keyType) {
+			case "RSA":
+				readRsaJwk(jwk, keys);
+				break;
+			case "EC":
+				readEcJwk(jwk, keys);
+				break;
+			case "oct":
+				keys.secretKey = new SecretKeySpec(jwkBytes(jwk, "k"), hmacAlgorithm(jwk));
+				break;
+			default:
+				throw new InvalidKeySpecException("Unsupported JSON Web Key type '" + keyType + "'");
+		}
+	}
+
+	private static void readRsaJwk(Map<String, Object> jwk, Keys keys) throws GeneralSecurityException {
+		KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+		BigInteger modulus = jwkInteger(jwk, "n");
+		BigInteger publicExponent = jwkInteger(jwk, "e");
+		keys.publicKey = keyFactory.generatePublic(new RSAPublicKeySpec(modulus, publicExponent));
+		if (jwk.containsKey("d")) {
+			BigInteger privateExponent = jwkInteger(jwk, "d");
+			if (jwk.containsKey("p")) {
+				keys.privateKey = keyFactory.generatePrivate(new RSAPrivateCrtKeySpec(modulus, publicExponent, privateExponent,
+						jwkInteger(jwk, "p"), jwkInteger(jwk, "q"), jwkInteger(jwk, "dp"), jwkInteger(jwk, "dq"), jwkInteger(jwk, "qi")));
+			} else {
+				keys.privateKey = keyFactory.generatePrivate(new RSAPrivateKeySpec(modulus, privateExponent));
+			}
+		}
+	}
+
+	private static void readEcJwk(Map<String, Object> jwk, Keys keys) throws GeneralSecurityException {
+		String curve = jwkMember(jwk, "crv");
+		final String standardName;
+		switch (curve) {
+			case "P-256":
+				standardName = "secp256r1";
+				break;
+			case "P-384":
+				standardName = "secp384r1";
+				break;
+			case "P-521":
+				standardName = "secp521r1";
+				break;
+			default:
+				throw new InvalidKeySpecException("Unsupported JSON Web Key curve '" + curve + "'");
+		}
+		AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+		parameters.init(new ECGenParameterSpec(standardName));
+		ECParameterSpec parameterSpec = parameters.getParameterSpec(ECParameterSpec.class);
+
+		KeyFactory keyFactory = KeyFactory.getInstance("EC");
+		keys.publicKey = keyFactory.generatePublic(new ECPublicKeySpec(new ECPoint(jwkInteger(jwk, "x"), jwkInteger(jwk, "y")), parameterSpec));
+		if (jwk.containsKey("d")) {
+			keys.privateKey = keyFactory.generatePrivate(new ECPrivateKeySpec(jwkInteger(jwk, "d"), parameterSpec));
+		}
+	}
+
+	private static String hmacAlgorithm(Map<String, Object> jwk) throws InvalidKeySpecException {
+		Object alg = jwk.get("alg");
+		if (alg == null || "HS256".equals(alg)) {
+			return "HmacSHA256";
+		} else if ("HS384".equals(alg)) {
+			return "HmacSHA384";
+		} else if ("HS512".equals(alg)) {
+			return "HmacSHA512";
+		}
+		throw new InvalidKeySpecException("Unsupported JSON Web Key algorithm '" + alg + "'");
+	}
+
+	private static String jwkMember(Map<String, Object> jwk, String name) throws InvalidKeySpecException {
+		Object value = jwk.get(name);
+		if (!(value instanceof String)) {
+			throw new InvalidKeySpecException("Missing or invalid JSON Web Key member '" + name + "'");
+		}
+		return (String) value;
+	}
+
+	private static byte[] jwkBytes(Map<String, Object> jwk, String name) throws InvalidKeySpecException {
+		try {
+			return Base64.getUrlDecoder().decode(jwkMember(jwk, name));
+		} catch (IllegalArgumentException e) {
+			throw new InvalidKeySpecException("Invalid base64url encoding of JSON Web Key member '" + name + "'", e);
+		}
+	}
+
+	private static BigInteger jwkInteger(Map<String, Object> jwk, String name) throws InvalidKeySpecException {
+		return new BigInteger(1, jwkBytes(jwk, name));
+	}
+
+	private static byte[] derSequence(byte[]... elements) {
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		for (byte[] element : elements) {
+			content.write(element, 0, element.length);
+		}
+		return derTagged(0x30, content.toByteArray());
+	}
+
+	private static byte[] derBitString(byte[] content) {
+		byte[] bitString = new byte[content.length + 1];
+		// no unused bits
+		bitString[0] = 0;
+		System.arraycopy(content, 0, bitString, 1, content.length);
+		return derTagged(0x03, bitString);
+	}
+
+	private static byte[] derTagged(int tag, byte[] content) {
+		ByteArrayOutputStream ret = new ByteArrayOutputStream(content.length + 6);
+		ret.write(tag);
+		int length = content.length;
+		if (length < 0x80) {
+			ret.write(length);
+		} else {
+			int lengthBytes = (Integer.SIZE - Integer.numberOfLeadingZeros(length) + 7) / 8;
+			ret.write(0x80 | lengthBytes);
+			for (int i = lengthBytes - 1; i >= 0; i--) {
+				ret.write(length >>> (8 * i));
+			}
+		}
+		ret.write(content, 0, content.length);
+		return ret.toByteArray();
+	}
+}
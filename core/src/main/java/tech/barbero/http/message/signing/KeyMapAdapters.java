@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Adapters between {@link KeyMap} and {@link AsyncKeyMap}.
+ */
+final class KeyMapAdapters {
+
+	private KeyMapAdapters() {
+		// prevent instantiation
+	}
+
+	static final class Async implements AsyncKeyMap {
+		private final KeyMap keyMap;
+		private final Executor executor;
+
+		Async(KeyMap keyMap, Executor executor) {
+			this.keyMap = Objects.requireNonNull(keyMap);
+			this.executor = Objects.requireNonNull(executor);
+		}
+
+		@Override
+		public CompletionStage<PublicKey> getPublicKey(String keyId) {
+			return lookup(keyId, this.keyMap::getPublicKey);
+		}
+
+		@Override
+		public CompletionStage<PrivateKey> getPrivateKey(String keyId) {
+			return lookup(keyId, this.keyMap::getPrivateKey);
+		}
+
+		@Override
+		public CompletionStage<SecretKey> getSecretKey(String keyId) {
+			return lookup(keyId, this.keyMap::getSecretKey);
+		}
+
+		private <K extends Key> CompletionStage<K> lookup(String keyId, Function<String, K> lookup) {
+			return CompletableFuture.supplyAsync(() -> lookup.apply(keyId), this.executor);
+		}
+	}
+
+	static final class Blocking implements KeyMap {
+		private final AsyncKeyMap keyMap;
+
+		Blocking(AsyncKeyMap keyMap) {
+			this.keyMap = Objects.requireNonNull(keyMap);
+		}
+
+		@Override
+		public PublicKey getPublicKey(String keyId) {
+			return await(keyId, this.keyMap.getPublicKey(keyId));
+		}
+
+		@Override
+		public PrivateKey getPrivateKey(String keyId) {
+			return await(keyId, this.keyMap.getPrivateKey(keyId));
+		}
+
+		@Override
+		public SecretKey getSecretKey(String keyId) {
+			return await(keyId, this.keyMap.getSecretKey(keyId));
+		}
+
+		private static <K extends Key> K await(String keyId, CompletionStage<K> stage) {
+			try {
+				return stage.toCompletableFuture().get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while retrieving key '" + keyId + "'", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Unable to retrieve key '" + keyId + "'", e.getCause());
+			}
+		}
+	}
+}
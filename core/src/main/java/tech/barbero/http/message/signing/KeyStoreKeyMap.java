@@ -0,0 +1,402 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.crypto.SecretKey;
+
+/**
+ * A {@link KeyMap} backed by a {@link KeyStore} file (e.g. PKCS12 or JKS). The keyId of a key is the alias of its
+ * entry.
+ * <p>
+ * All entries are read and decrypted when the key store is loaded, and are then served from an immutable index, so
+ * that lookups never call the (synchronized) {@link KeyStore} methods and never contend with each other. For private
+ * key entries, the public key is taken from the certificate of the entry. Trusted certificate entries provide a public
+ * key only.
+ * <p>
+ * The key store can be reloaded on demand with {@link #reload()}, or periodically in the background when a
+ * {@link Builder#reloadInterval(Duration) reload interval} is configured. Background reloads only happen when the last
+ * modification time or the size of the file changed. A new index replaces the previous one atomically once fully
+ * loaded; if loading fails, the previous index is kept.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class KeyStoreKeyMap implements KeyMap, Closeable {
+
+	private final Path file;
+	private final String type;
+	private final char[] storePassword;
+	private final char[] keyPassword;
+	private final Optional<ScheduledExecutorService> reloader;
+
+	private volatile Index index;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final AtomicLong loads = new AtomicLong();
+	private final AtomicLong loadFailures = new AtomicLong();
+	private volatile Optional<Exception> lastLoadFailure = Optional.empty();
+
+	// the periodic task is cancelled by close(), and never throws as it records its failures itself.
+	@SuppressWarnings("FutureReturnValueIgnored")
+	private KeyStoreKeyMap(Builder builder) throws IOException, GeneralSecurityException {
+		this.file = builder.file;
+		this.type = builder.type;
+		this.storePassword = builder.storePassword.clone();
+		this.keyPassword = builder.keyPassword.orElse(builder.storePassword).clone();
+		this.index = load();
+		if (builder.reloadInterval.isPresent()) {
+			long interval = builder.reloadInterval.get().toMillis();
+			ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread ret = new Thread(r, "KeyStoreKeyMap reloader of " + this.file);
+				ret.setDaemon(true);
+				return ret;
+			});
+			executor.scheduleWithFixedDelay(this::reloadIfModified, interval, interval, TimeUnit.MILLISECONDS);
+			this.reloader = Optional.of(executor);
+		} else {
+			this.reloader = Optional.empty();
+		}
+	}
+
+	/**
+	 * Returns a new builder of {@link KeyStoreKeyMap}.
+	 *
+	 * @return a new builder.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	@Override
+	public PublicKey getPublicKey(String keyId) {
+		Entry entry = this.index.entries.get(keyId);
+		return count(entry != null ? entry.publicKey : null);
+	}
+
+	@Override
+	public PrivateKey getPrivateKey(String keyId) {
+		Entry entry = this.index.entries.get(keyId);
+		return count(entry != null ? entry.privateKey : null);
+	}
+
+	@Override
+	public SecretKey getSecretKey(String keyId) {
+		Entry entry = this.index.entries.get(keyId);
+		return count(entry != null ? entry.secretKey : null);
+	}
+
+	private <K extends Key> K count(K key) {
+		if (key != null) {
+			this.hits.increment();
+		} else {
+			this.misses.increment();
+		}
+		return key;
+	}
+
+	/**
+	 * Loads the key store file again and replaces the keys served by this key map by its content.
+	 *
+	 * @throws IOException
+	 *           if the file cannot be read. The previously loaded keys are kept.
+	 * @throws GeneralSecurityException
+	 *           if the key store or one of its keys cannot be loaded. The previously loaded keys are kept.
+	 */
+	public synchronized void reload() throws IOException, GeneralSecurityException {
+		try {
+			this.index = load();
+		} catch (IOException | GeneralSecurityException | RuntimeException e) {
+			recordLoadFailure(e);
+			throw e;
+		}
+	}
+
+	private void reloadIfModified() {
+		final BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(this.file, BasicFileAttributes.class);
+		} catch (IOException e) {
+			recordLoadFailure(e);
+			return;
+		}
+		Index current = this.index;
+		if (!attributes.lastModifiedTime().toInstant().equals(current.fileLastModified) || attributes.size() != current.fileSize) {
+			try {
+				reload();
+			} catch (@SuppressWarnings("unused") IOException | GeneralSecurityException | RuntimeException e) {
+				// recorded by reload(), the previous keys are kept until next try
+			}
+		}
+	}
+
+	private void recordLoadFailure(Exception e) {
+		this.loadFailures.incrementAndGet();
+		this.lastLoadFailure = Optional.of(e);
+	}
+
+	private Index load() throws IOException, GeneralSecurityException {
+		Instant start = Instant.now();
+		BasicFileAttributes attributes = Files.readAttributes(this.file, BasicFileAttributes.class);
+		KeyStore keyStore = KeyStore.getInstance(this.type);
+		try (InputStream is = Files.newInputStream(this.file)) {
+			keyStore.load(is, this.storePassword);
+		}
+
+		Map<String, Entry> entries = new HashMap<>();
+		for (Enumeration<String> aliases = keyStore.aliases(); aliases.hasMoreElements();) {
+			String alias = aliases.nextElement();
+			Entry entry = new Entry();
+			if (keyStore.isKeyEntry(alias)) {
+				Key key = keyStore.getKey(alias, this.keyPassword);
+				if (key instanceof PrivateKey) {
+					entry.privateKey = (PrivateKey) key;
+				} else if (key instanceof SecretKey) {
+					entry.secretKey = (SecretKey) key;
+				}
+			}
+			Certificate certificate = keyStore.getCertificate(alias);
+			if (certificate != null) {
+				entry.publicKey = certificate.getPublicKey();
+			}
+			entries.put(alias, entry);
+		}
+
+		this.loads.incrementAndGet();
+		return new Index(Collections.unmodifiableMap(entries), attributes.lastModifiedTime().toInstant(), attributes.size(),
+				start, Duration.between(start, Instant.now()));
+	}
+
+	/**
+	 * Returns the number of entries of the currently loaded key store.
+	 *
+	 * @return the number of entries of the currently loaded key store.
+	 */
+	public int size() {
+		return this.index.entries.size();
+	}
+
+	/**
+	 * Returns the number of lookups which returned a key.
+	 *
+	 * @return the number of lookups which returned a key.
+	 */
+	public long hitCount() {
+		return this.hits.sum();
+	}
+
+	/**
+	 * Returns the number of lookups which returned {@code null}, because of an unknown keyId or because the entry does
+	 * not hold a key of the requested kind.
+	 *
+	 * @return the number of lookups which returned {@code null}.
+	 */
+	public long missCount() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * Returns the number of times the key store has been successfully loaded, including the initial load.
+	 *
+	 * @return the number of successful loads.
+	 */
+	public long loadCount() {
+		return this.loads.get();
+	}
+
+	/**
+	 * Returns the number of times the key store failed to be loaded or reloaded.
+	 *
+	 * @return the number of failed loads.
+	 */
+	public long loadFailureCount() {
+		return this.loadFailures.get();
+	}
+
+	/**
+	 * Returns the exception of the last failed load, if any.
+	 *
+	 * @return the exception of the last failed load, if any.
+	 */
+	public Optional<Exception> lastLoadFailure() {
+		return this.lastLoadFailure;
+	}
+
+	/**
+	 * Returns when the currently served keys started to be loaded.
+	 *
+	 * @return when the currently served keys started to be loaded.
+	 */
+	public Instant lastLoadTime() {
+		return this.index.loadTime;
+	}
+
+	/**
+	 * Returns how long it took to load and decrypt the currently served keys.
+	 *
+	 * @return how long it took to load the currently served keys.
+	 */
+	public Duration lastLoadDuration() {
+		return this.index.loadDuration;
+	}
+
+	/**
+	 * Stops reloading the key store in the background, if it was.
+	 */
+	@Override
+	public void close() {
+		if (this.reloader.isPresent()) {
+			this.reloader.get().shutdownNow();
+		}
+	}
+
+	private static final class Index {
+		final Map<String, Entry> entries;
+		final Instant fileLastModified;
+		final long fileSize;
+		final Instant loadTime;
+		final Duration loadDuration;
+
+		Index(Map<String, Entry> entries, Instant fileLastModified, long fileSize, Instant loadTime, Duration loadDuration) {
+			this.entries = entries;
+			this.fileLastModified = fileLastModified;
+			this.fileSize = fileSize;
+			this.loadTime = loadTime;
+			this.loadDuration = loadDuration;
+		}
+	}
+
+	private static final class Entry {
+		PublicKey publicKey;
+		PrivateKey privateKey;
+		SecretKey secretKey;
+	}
+
+	/**
+	 * A builder of {@link KeyStoreKeyMap}.
+	 */
+	public static final class Builder {
+
+		private Path file;
+		private String type = KeyStore.getDefaultType();
+		private char[] storePassword = new char[0];
+		private Optional<char[]> keyPassword = Optional.empty();
+		private Optional<Duration> reloadInterval = Optional.empty();
+
+		Builder() {
+		}
+
+		/**
+		 * Sets the key store file to be loaded. Mandatory.
+		 *
+		 * @param file
+		 *          the key store file.
+		 * @return this builder for daisy chaining.
+		 */
+		public Builder file(Path file) {
+			this.file = Objects.requireNonNull(file);
+			return this;
+		}
+
+		/**
+		 * Sets the type of the key store, as given to {@link KeyStore#getInstance(String)}. Defaults to
+		 * {@link KeyStore#getDefaultType()}.
+		 *
+		 * @param type
+		 *          the type of the key store, e.g. {@code PKCS12} or {@code JKS}.
+		 * @return this builder for daisy chaining.
+		 */
+		public Builder type(String type) {
+			this.type = Objects.requireNonNull(type);
+			return this;
+		}
+
+		/**
+		 * Sets the password of the key store. Defaults to an empty password.
+		 *
+		 * @param password
+		 *          the password of the key store. It is copied.
+		 * @return this builder for daisy chaining.
+		 */
+		public Builder storePassword(char[] password) {
+			this.storePassword = Objects.requireNonNull(password).clone();
+			return this;
+		}
+
+		/**
+		 * Sets the password protecting the keys of the key store. Defaults to the password of the key store.
+		 *
+		 * @param password
+		 *          the password protecting the keys. It is copied.
+		 * @return this builder for daisy chaining.
+		 */
+		public Builder keyPassword(char[] password) {
+			this.keyPassword = Optional.of(Objects.requireNonNull(password).clone());
+			return this;
+		}
+
+		/**
+		 * Sets the interval at which the key store file is checked for modifications and reloaded from a background daemon
+		 * thread. The thread is stopped when the key map is {@link KeyStoreKeyMap#close() closed}. By default, the key
+		 * store is only loaded once.
+		 *
+		 * @param interval
+		 *          the interval between two checks, must be positive.
+		 * @return this builder for daisy chaining.
+		 */
+		public Builder reloadInterval(Duration interval) {
+			if (interval.isNegative() || interval.isZero()) {
+				throw new IllegalArgumentException("Reload interval must be positive");
+			}
+			this.reloadInterval = Optional.of(interval);
+			return this;
+		}
+
+		/**
+		 * Loads the key store and returns a new {@link KeyStoreKeyMap} serving its keys.
+		 *
+		 * @return a new key map.
+		 * @throws IOException
+		 *           if the key store file cannot be read.
+		 * @throws GeneralSecurityException
+		 *           if the key store or one of its keys cannot be loaded.
+		 */
+		public KeyStoreKeyMap build() throws IOException, GeneralSecurityException {
+			if (this.file == null) {
+				throw new IllegalStateException("Missing required property: file");
+			}
+			return new KeyStoreKeyMap(this);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.SecretKey;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+/**
+ * A {@link SigningBackend} computing HMAC-SHA256 (RFC 2104) from SHA-256 digests cloned from per-key prototypes which
+ * have already absorbed the inner and outer padded keys. This saves, for each message, the lookup of a
+ * {@link javax.crypto.Mac} implementation, its initialization and the compression of the two padded key blocks.
+ * Everything else is delegated.
+ * <p>
+ * At most {@link #MAX_KEY_SCHEDULES} key schedules are kept: when more keys are in use, all of them are dropped and
+ * computed again on demand.
+ */
+final class PrecomputedHmacBackend implements SigningBackend {
+
+	static final int MAX_KEY_SCHEDULES = 256;
+
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+	private static final int BLOCK_SIZE = 64;
+	private static final byte IPAD = 0x36;
+	private static final byte OPAD = 0x5c;
+
+	private final SigningBackend delegate;
+	private final ConcurrentMap<SecretKey, KeySchedule> keySchedules = new ConcurrentHashMap<>();
+
+	PrecomputedHmacBackend(SigningBackend delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public byte[] sign(Algorithm algorithm, PrivateKey key, byte[] input) throws GeneralSecurityException {
+		return this.delegate.sign(algorithm, key, input);
+	}
+
+	@Override
+	public boolean verify(Algorithm algorithm, PublicKey key, byte[] input, byte[] signature) throws GeneralSecurityException {
+		return this.delegate.verify(algorithm, key, input, signature);
+	}
+
+	@Override
+	public byte[] mac(Algorithm algorithm, SecretKey key, byte[] input) throws GeneralSecurityException {
+		KeySchedule keySchedule = algorithm == Algorithm.HMAC_SHA256 ? keySchedule(key) : null;
+		if (keySchedule == null) {
+			return this.delegate.mac(algorithm, key, input);
+		}
+		return keySchedule.mac(input);
+	}
+
+	/**
+	 * Returns the key schedule of the given key, or null if its encoded form is not available.
+	 */
+	private KeySchedule keySchedule(SecretKey key) throws GeneralSecurityException {
+		if (key == null) {
+			return null;
+		}
+		KeySchedule ret = this.keySchedules.get(key);
+		if (ret == null) {
+			byte[] encoded = key.getEncoded();
+			if (encoded == null) {
+				return null;
+			}
+			try {
+				ret = new KeySchedule(encoded);
+			} finally {
+				Arrays.fill(encoded, (byte) 0);
+			}
+			if (this.keySchedules.size() >= MAX_KEY_SCHEDULES) {
+				this.keySchedules.clear();
+			}
+			this.keySchedules.put(key, ret);
+		}
+		return ret;
+	}
+
+	int keyScheduleCount() {
+		return this.keySchedules.size();
+	}
+
+	@Override
+	public String toString() {
+		return "precomputedHmac(" + this.delegate + ")";
+	}
+
+	/**
+	 * The inner and outer digests of a key, never updated once built: only their clones are.
+	 */
+	private static final class KeySchedule {
+
+		private final MessageDigest inner;
+		private final MessageDigest outer;
+
+		KeySchedule(byte[] key) throws GeneralSecurityException {
+			this.inner = MessageDigest.getInstance(DIGEST_ALGORITHM);
+			this.outer = MessageDigest.getInstance(DIGEST_ALGORITHM);
+			byte[] block = new byte[BLOCK_SIZE];
+			byte[] blockKey = key.length > BLOCK_SIZE ? this.inner.digest(key) : key;
+			try {
+				for (int i = 0; i < BLOCK_SIZE; i++) {
+					block[i] = (byte) ((i < blockKey.length ? blockKey[i] : 0) ^ IPAD);
+				}
+				this.inner.update(block);
+				for (int i = 0; i < BLOCK_SIZE; i++) {
+					block[i] = (byte) ((i < blockKey.length ? blockKey[i] : 0) ^ OPAD);
+				}
+				this.outer.update(block);
+			} finally {
+				Arrays.fill(block, (byte) 0);
+				Arrays.fill(blockKey, (byte) 0);
+			}
+			// fails early if the provider of SHA-256 cannot copy the state of a digest
+			clone(this.inner);
+		}
+
+		byte[] mac(byte[] input) throws GeneralSecurityException {
+			MessageDigest innerDigest = clone(this.inner);
+			innerDigest.update(input);
+			MessageDigest outerDigest = clone(this.outer);
+			outerDigest.update(innerDigest.digest());
+			return outerDigest.digest();
+		}
+
+		private static MessageDigest clone(MessageDigest digest) throws GeneralSecurityException {
+			try {
+				return (MessageDigest) digest.clone();
+			} catch (CloneNotSupportedException e) {
+				throw new GeneralSecurityException("The " + DIGEST_ALGORITHM + " implementation of " + digest.getProvider().getName()
+						+ " cannot be cloned", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The signature of a template message, stamped onto the messages whose signed headers have the same values, e.g. copies
+ * of a webhook broadcast to many subscribers. Values are compared as returned by the messages, header by header, without
+ * building the signing string. Messages whose signed values differ are signed again by the
+ * {@link HttpMessageSigner signer} of the template.
+ * <p>
+ * This class is immutable and thread-safe.
+ *
+ * @see HttpMessageSigner#signOnce(HttpMessage)
+ */
+public final class ReusableSignature {
+
+	private final HttpMessageSigner signer;
+	private final List<List<String>> signedValues;
+	private final List<String> signatureHeaderValues;
+
+	ReusableSignature(HttpMessageSigner signer, List<List<String>> signedValues, List<String> signatureHeaderValues) {
+		this.signer = signer;
+		List<List<String>> copy = new ArrayList<>(signedValues.size());
+		for (List<String> values : signedValues) {
+			// values may be views of the headers of the template
+			copy.add(Collections.unmodifiableList(new ArrayList<>(values)));
+		}
+		this.signedValues = Collections.unmodifiableList(copy);
+		this.signatureHeaderValues = Collections.unmodifiableList(new ArrayList<>(signatureHeaderValues));
+	}
+
+	/**
+	 * Adds the {@code Signature} header of the template to the given message if its signed headers have the same values
+	 * as the template's, or signs it otherwise.
+	 * <p>
+	 * This implementation modifies the given message. It returns it for convenience.
+	 *
+	 * @param message
+	 *          the HTTP message to be signed.
+	 * @return the message given in parameter with a new {@code Signature} header.
+	 * @throws GeneralSecurityException
+	 *           when the message has to be signed again and the signer fails to.
+	 */
+	public <M extends HttpMessage> M sign(M message) throws GeneralSecurityException {
+		if (matches(message)) {
+			return HttpMessageSigner.addSignature(message, this.signatureHeaderValues);
+		}
+		return this.signer.sign(message);
+	}
+
+	/**
+	 * Returns whether the signed headers of the given message have the same values as the template's, i.e. whether
+	 * {@link #sign(HttpMessage)} reuses the signature of the template.
+	 *
+	 * @param message
+	 *          the HTTP message to compare with the template.
+	 * @return true if the signature of the template is valid for the given message.
+	 */
+	public boolean matches(HttpMessage message) {
+		return this.signedValues.equals(this.signer.signingStringBuilder().signedValues(message));
+	}
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.util.Arrays;
+import java.util.Optional;
+
+import javax.crypto.Mac;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm.Type;
+
+/**
+ * Cryptographic algorithms which can be used for signing an HTTP message as specified by
+ * <a href="https://www.rfc-editor.org/rfc/rfc9421#section-3.3">RFC 9421</a>. {@code ed25519} is not supported as it is
+ * not available in Java 8.
+ */
+public enum Rfc9421Algorithm {
+	/**
+	 * RSASSA-PSS using SHA-512, with a MGF1 mask and a salt of 64 bytes. Requires RSA keys of at least 2048 bits.
+	 */
+	RSA_PSS_SHA512("rsa-pss-sha512", "RSASSA-PSS", Type.PUBLIC_KEY),
+	/**
+	 * RSASSA-PKCS1-v1_5 using SHA-256.
+	 */
+	RSA_V1_5_SHA256("rsa-v1_5-sha256", "SHA256withRSA", Type.PUBLIC_KEY),
+	/**
+	 * HMAC using SHA-256.
+	 */
+	HMAC_SHA256("hmac-sha256", "HmacSHA256", Type.SECRET_KEY),
+	/**
+	 * ECDSA using curve P-256 and SHA-256. Signatures are the concatenation of the {@code r} and {@code s} values, as
+	 * required by RFC 9421, instead of the DER encoding of the Java Cryptography Architecture.
+	 */
+	ECDSA_P256_SHA256("ecdsa-p256-sha256", "SHA256withECDSA", Type.PUBLIC_KEY);
+
+	private static final int P256_FIELD_SIZE = 32;
+
+	private final String algorithmName;
+	private final String javaAlgorithmName;
+	private final Type type;
+
+	Rfc9421Algorithm(String algorithmName, String javaAlgorithmName, Type type) {
+		this.algorithmName = algorithmName;
+		this.javaAlgorithmName = javaAlgorithmName;
+		this.type = type;
+	}
+
+	/**
+	 * Returns the algorithm registered under the given name, as found in the {@code alg} signature parameter.
+	 *
+	 * @param algorithmName
+	 *          the name of the algorithm.
+	 * @return the algorithm, or an empty optional if the name is unknown.
+	 */
+	static Optional<Rfc9421Algorithm> fromName(String algorithmName) {
+		for (Rfc9421Algorithm algorithm : values()) {
+			if (algorithm.algorithmName.equals(algorithmName)) {
+				return Optional.of(algorithm);
+			}
+		}
+		return Optional.empty();
+	}
+
+	String algorithmName() {
+		return this.algorithmName;
+	}
+
+	Type type() {
+		return this.type;
+	}
+
+	Signature createSignature(Optional<Provider> provider) throws GeneralSecurityException {
+		Signature ret = provider.isPresent()
+				? Signature.getInstance(this.javaAlgorithmName, provider.get())
+				: Signature.getInstance(this.javaAlgorithmName);
+		if (this == RSA_PSS_SHA512) {
+			setPssParameters(ret);
+		}
+		return ret;
+	}
+
+	private static void setPssParameters(Signature signature) throws InvalidAlgorithmParameterException {
+		signature.setParameter(new PSSParameterSpec("SHA-512", "MGF1", MGF1ParameterSpec.SHA512, 64, PSSParameterSpec.TRAILER_FIELD_BC));
+	}
+
+	Mac createMac(Optional<Provider> provider) throws NoSuchAlgorithmException {
+		return provider.isPresent()
+				? Mac.getInstance(this.javaAlgorithmName, provider.get())
+				: Mac.getInstance(this.javaAlgorithmName);
+	}
+
+	/**
+	 * Converts a signature produced by the Java Cryptography Architecture to its RFC 9421 encoding.
+	 */
+	byte[] toWireFormat(byte[] signature) throws SignatureException {
+		return this == ECDSA_P256_SHA256 ? derToConcatenated(signature, P256_FIELD_SIZE) : signature;
+	}
+
+	/**
+	 * Converts an RFC 9421 encoded signature to the encoding expected by the Java Cryptography Architecture.
+	 */
+	byte[] fromWireFormat(byte[] signature) throws SignatureException {
+		return this == ECDSA_P256_SHA256 ? concatenatedToDer(signature, P256_FIELD_SIZE) : signature;
+	}
+
+	/**
+	 * Converts a DER encoded {@code SEQUENCE { r INTEGER, s INTEGER }} to the fixed size concatenation of {@code r} and
+	 * {@code s}.
+	 */
+	static byte[] derToConcatenated(byte[] der, int fieldSize) throws SignatureException {
+		byte[] ret = new byte[2 * fieldSize];
+		int pos = 0;
+		if (der.length < 8 || der[pos++] != 0x30) {
+			throw new SignatureException("Invalid DER encoded ECDSA signature");
+		}
+		// the sequence length (short or 1 byte long form)
+		pos += (der[pos] & 0x80) != 0 ? 1 + (der[pos] & 0x7f) : 1;
+		for (int i = 0; i < 2; i++) {
+			if (pos + 2 > der.length || der[pos++] != 0x02) {
+				throw new SignatureException("Invalid DER encoded ECDSA signature");
+			}
+			int length = der[pos++] & 0xff;
+			if (pos + length > der.length) {
+				throw new SignatureException("Invalid DER encoded ECDSA signature");
+			}
+			// skip the leading zero bytes (sign padding)
+			int start = pos;
+			while (length > fieldSize && der[start] == 0) {
+				start++;
+				length--;
+			}
+			if (length > fieldSize) {
+				throw new SignatureException("Invalid DER encoded ECDSA signature");
+			}
+			System.arraycopy(der, start, ret, (i + 1) * fieldSize - length, length);
+			pos = start + length;
+		}
+		return ret;
+	}
+
+	/**
+	 * Converts the fixed size concatenation of {@code r} and {@code s} to a DER encoded
+	 * {@code SEQUENCE { r INTEGER, s INTEGER }}.
+	 */
+	static byte[] concatenatedToDer(byte[] concatenated, int fieldSize) throws SignatureException {
+		if (concatenated.length != 2 * fieldSize) {
+			throw new SignatureException("Invalid ECDSA signature length " + concatenated.length);
+		}
+		byte[] r = derInteger(Arrays.copyOfRange(concatenated, 0, fieldSize));
+		byte[] s = derInteger(Arrays.copyOfRange(concatenated, fieldSize, 2 * fieldSize));
+		int contentLength = r.length + s.length;
+		byte[] ret;
+		int pos;
+		if (contentLength < 0x80) {
+			ret = new byte[2 + contentLength];
+			ret[0] = 0x30;
+			ret[1] = (byte) contentLength;
+			pos = 2;
+		} else {
+			ret = new byte[3 + contentLength];
+			ret[0] = 0x30;
+			ret[1] = (byte) 0x81;
+			ret[2] = (byte) contentLength;
+			pos = 3;
+		}
+		System.arraycopy(r, 0, ret, pos, r.length);
+		System.arraycopy(s, 0, ret, pos + r.length, s.length);
+		return ret;
+	}
+
+	private static byte[] derInteger(byte[] unsigned) {
+		int start = 0;
+		while (start < unsigned.length - 1 && unsigned[start] == 0) {
+			start++;
+		}
+		// a leading zero byte keeps the integer positive
+		int padding = (unsigned[start] & 0x80) != 0 ? 1 : 0;
+		int length = unsigned.length - start + padding;
+		byte[] ret = new byte[2 + length];
+		ret[0] = 0x02;
+		ret[1] = (byte) length;
+		System.arraycopy(unsigned, start, ret, 2 + padding, unsigned.length - start);
+		return ret;
+	}
+}
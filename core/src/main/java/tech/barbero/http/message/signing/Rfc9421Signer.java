@@ -0,0 +1,335 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.crypto.Mac;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * A utility class to add the {@code Signature-Input} and {@code Signature} headers of
+ * <a href="https://www.rfc-editor.org/rfc/rfc9421">RFC 9421 HTTP Message Signatures</a> to an {@link HttpMessage}.
+ * The covered components are compiled once, when building the signer, into a reusable signature base plan.
+ * <p>
+ * This class is immutable and thread-safe. Once configured by its builder, it can be reused as many times as desired.
+ *
+ * @see Rfc9421Verifier
+ */
+@AutoValue
+public abstract class Rfc9421Signer {
+
+	/**
+	 * The string value of the {@code Signature-Input} header.
+	 */
+	public static final String HEADER_SIGNATURE_INPUT = "Signature-Input";
+
+	/**
+	 * The method of a request.
+	 */
+	public static final String METHOD = "@method";
+
+	/**
+	 * The full target URI of a request.
+	 */
+	public static final String TARGET_URI = "@target-uri";
+
+	/**
+	 * The authority of the target URI of a request.
+	 */
+	public static final String AUTHORITY = "@authority";
+
+	/**
+	 * The scheme of the target URI of a request.
+	 */
+	public static final String SCHEME = "@scheme";
+
+	/**
+	 * The path and query of the target URI of a request.
+	 */
+	public static final String REQUEST_TARGET = "@request-target";
+
+	/**
+	 * The absolute path of the target URI of a request.
+	 */
+	public static final String PATH = "@path";
+
+	/**
+	 * The query of the target URI of a request, including the leading {@code ?}.
+	 */
+	public static final String QUERY = "@query";
+
+	/**
+	 * The status code of a response.
+	 */
+	public static final String STATUS = "@status";
+
+	static final String DEFAULT_LABEL = "sig1";
+
+	private final Optional<SecureRandom> secureRandom;
+
+	Rfc9421Signer() {
+		// implementation classes cannot exist outside of this package
+		SecureRandom strongSecureRandom = null;
+		try {
+			strongSecureRandom = SecureRandom.getInstanceStrong();
+		} catch (@SuppressWarnings("unused") NoSuchAlgorithmException e) {
+			// we handle the fact that secureRandom can be null.
+		}
+		this.secureRandom = Optional.ofNullable(strongSecureRandom);
+	}
+
+	/**
+	 * Returns a new builder of {@code Rfc9421Signer}.
+	 *
+	 * @return a new builder of {@code Rfc9421Signer}.
+	 */
+	public static Rfc9421Signer.Builder builder() {
+		return new AutoValue_Rfc9421Signer.Builder()
+				.label(DEFAULT_LABEL)
+				.clock(Clock.systemUTC())
+				.components(new ArrayList<String>());
+	}
+
+	abstract String label();
+
+	abstract String keyId();
+
+	abstract KeyMap keyMap();
+
+	abstract Rfc9421Algorithm algorithm();
+
+	abstract List<String> components();
+
+	abstract Optional<Provider> securityProvider();
+
+	abstract Clock clock();
+
+	abstract Optional<Duration> expiresAfter();
+
+	abstract Optional<String> tag();
+
+	abstract SignatureBase signatureBase();
+
+	/**
+	 * The parameters following the {@code created} and {@code expires} ones, already serialized.
+	 */
+	abstract String serializedParameters();
+
+	/**
+	 * Sign (i.e. add the {@code Signature-Input} and {@code Signature} headers to) and returns the given HTTP message. It
+	 * uses the algorithm, covered components, key and label as specified to the builder used to create this object.
+	 * <p>
+	 * This implementation modifies the given message. It returns it for convenience.
+	 *
+	 * @param message
+	 *          the HTTP message to be signed
+	 * @return the message given in parameter with new {@code Signature-Input} and {@code Signature} headers.
+	 * @throws GeneralSecurityException
+	 *           when the requested cryptographic algorithm is not available in the environment, or if the key retrieved
+	 *           from the {@link KeyMap} is inappropriate for the requested cryptographic algorithm.
+	 */
+	public <M extends HttpMessage> M sign(M message) throws GeneralSecurityException {
+		long created = Math.floorDiv(clock().millis(), 1000L);
+		StringBuilder params = new StringBuilder(128)
+				.append(signatureBase().innerList())
+				.append(';').append(SignatureInput.PARAM_CREATED).append('=').append(created);
+		if (expiresAfter().isPresent()) {
+			params.append(';').append(SignatureInput.PARAM_EXPIRES).append('=').append(created + expiresAfter().get().getSeconds());
+		}
+		String signatureParams = params.append(serializedParameters()).toString();
+		byte[] signature = sign(signatureBase().base(message, signatureParams).getBytes(StandardCharsets.US_ASCII));
+
+		message.addHeader(HEADER_SIGNATURE_INPUT, label() + '=' + signatureParams);
+		message.addHeader(HttpMessageSigner.HEADER_SIGNATURE, label() + "=:" + Base64.getEncoder().encodeToString(signature) + ':');
+		return message;
+	}
+
+	private byte[] sign(byte[] input) throws GeneralSecurityException {
+		switch (algorithm().type()) {
+			case PUBLIC_KEY:
+				Signature signature = algorithm().createSignature(securityProvider());
+				if (this.secureRandom.isPresent()) {
+					signature.initSign(keyMap().getPrivateKey(keyId()), this.secureRandom.get());
+				} else {
+					signature.initSign(keyMap().getPrivateKey(keyId()));
+				}
+				signature.update(input);
+				return algorithm().toWireFormat(signature.sign());
+			case SECRET_KEY:
+				Mac mac = algorithm().createMac(securityProvider());
+				mac.init(keyMap().getSecretKey(keyId()));
+				return mac.doFinal(input);
+		}
+		throw new IllegalStateException("Unknown algorithm type '" + algorithm().type() + "'");
+	}
+
+	/**
+	 * A builder of {@code Rfc9421Signer}.
+	 */
+	@AutoValue.Builder
+	public abstract static class Builder {
+
+		Builder() {
+		}
+
+		/**
+		 * The label of the signature in the {@code Signature-Input} and {@code Signature} dictionaries. Defaults to
+		 * {@code sig1}.
+		 *
+		 * @param label
+		 *          the label of the signature.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder label(String label);
+
+		abstract String label();
+
+		/**
+		 * The value of the {@code keyid} signature parameter, also used to find the private/secret key in the key map.
+		 *
+		 * @param keyId
+		 *          The value of the {@code keyid} signature parameter.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder keyId(String keyId);
+
+		abstract String keyId();
+
+		/**
+		 * The key map to be used to find the private/secret key associated with the {@code keyId}.
+		 *
+		 * @param keyMap
+		 *          The key map to be used to find the private/secret key associated with the {@code keyId}.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder keyMap(KeyMap keyMap);
+
+		/**
+		 * The algorithm to be used to sign the HTTP messages. It is also added as the {@code alg} signature parameter.
+		 *
+		 * @param algorithm
+		 *          The algorithm to be used to sign the HTTP messages.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder algorithm(Rfc9421Algorithm algorithm);
+
+		abstract Rfc9421Algorithm algorithm();
+
+		/**
+		 * The optional Java Security Provider to be used to find the implementation of the cryptographic algorithms.
+		 *
+		 * @param provider
+		 *          The Java Security Provider to be used to find the implementation of the cryptographic algorithms.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder securityProvider(Provider provider);
+
+		/**
+		 * The clock used to set the {@code created} signature parameter. Defaults to {@link Clock#systemUTC()}.
+		 *
+		 * @param clock
+		 *          the clock used to set the {@code created} signature parameter.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder clock(Clock clock);
+
+		/**
+		 * Adds an {@code expires} signature parameter, set to the creation time of the signature plus the given duration.
+		 *
+		 * @param expiresAfter
+		 *          the validity duration of the signatures.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder expiresAfter(Duration expiresAfter);
+
+		/**
+		 * Adds a {@code tag} signature parameter, identifying the application or profile of the signatures.
+		 *
+		 * @param tag
+		 *          the value of the {@code tag} signature parameter.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder tag(String tag);
+
+		abstract Optional<String> tag();
+
+		abstract Builder components(List<String> components);
+
+		abstract List<String> components();
+
+		abstract Builder signatureBase(SignatureBase signatureBase);
+
+		abstract Builder serializedParameters(String serializedParameters);
+
+		/**
+		 * Adds the given component to the list of components covered by the signature. Components are either header field
+		 * names or derived components such as {@link Rfc9421Signer#METHOD} or {@link Rfc9421Signer#AUTHORITY}. They are
+		 * covered in the order they have been added to this builder. Header field names are lowercased.
+		 *
+		 * @param component
+		 *          The identifier of the component to be covered.
+		 * @return this builder for daisy chain.
+		 */
+		public Builder addComponent(String component) {
+			String identifier = Objects.requireNonNull(component).trim().toLowerCase(Locale.ROOT);
+			if (!components().contains(identifier)) {
+				components().add(identifier);
+			}
+			return this;
+		}
+
+		abstract Rfc9421Signer autoBuild();
+
+		/**
+		 * Returns a newly configured {@code Rfc9421Signer}.
+		 *
+		 * @return a newly configured {@code Rfc9421Signer}.
+		 * @throws IllegalArgumentException
+		 *           if a covered component is not supported, or if the label, keyId or tag cannot be serialized.
+		 */
+		public Rfc9421Signer build() {
+			StructuredFields.checkKey(label());
+			signatureBase(SignatureBase.compile(components()));
+			StringBuilder params = new StringBuilder()
+					.append(';').append(SignatureInput.PARAM_KEY_ID).append('=');
+			StructuredFields.appendString(params, keyId());
+			params.append(';').append(SignatureInput.PARAM_ALGORITHM).append('=');
+			StructuredFields.appendString(params, algorithm().algorithmName());
+			if (tag().isPresent()) {
+				params.append(';').append(SignatureInput.PARAM_TAG).append('=');
+				StructuredFields.appendString(params, tag().get());
+			}
+			serializedParameters(params.toString());
+			// the signer gets a frozen copy, so that further calls to addComponent do not change it
+			List<String> mutableComponents = components();
+			components(Collections.unmodifiableList(new ArrayList<>(mutableComponents)));
+			try {
+				return autoBuild();
+			} finally {
+				components(mutableComponents);
+			}
+		}
+	}
+}
@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * An utility class to verify the {@code Signature-Input} and {@code Signature} headers of
+ * <a href="https://www.rfc-editor.org/rfc/rfc9421">RFC 9421 HTTP Message Signatures</a>. Signature base plans are
+ * compiled once per distinct list of covered components and reused for subsequent messages.
+ * <p>
+ * This class is immutable and thread-safe. Once configured by its builder, it can be reused as many times as desired.
+ *
+ * @see Rfc9421Signer
+ */
+@AutoValue
+public abstract class Rfc9421Verifier {
+
+	/**
+	 * Bounds the number of compiled plans, as the lists of covered components come from the (untrusted) messages. Plans
+	 * are compiled on each message once the bound is reached.
+	 */
+	private static final int MAX_CACHED_PLANS = 64;
+
+	private static final List<String> SIGNATURE_HEADERS = Collections.unmodifiableList(
+			Arrays.asList(Rfc9421Signer.HEADER_SIGNATURE_INPUT, HttpMessageSigner.HEADER_SIGNATURE));
+
+	Rfc9421Verifier() {
+	}
+
+	abstract KeyMap keyMap();
+
+	abstract Optional<Provider> securityProvider();
+
+	abstract Optional<String> label();
+
+	abstract Optional<Rfc9421Algorithm> algorithm();
+
+	abstract List<String> requiredComponents();
+
+	abstract Optional<Duration> maxAge();
+
+	abstract Clock clock();
+
+	abstract SignatureBasePlans plans();
+
+	/**
+	 * Verify the RFC 9421 signature of the given HTTP message. The verified signature is the one with the configured
+	 * label, or the first one of the {@code Signature-Input} header if no label is configured.
+	 *
+	 * @param message
+	 *          the message to verify.
+	 * @return true if the signature exists in the message, covers the required components, is neither expired nor too
+	 *         old, and is verified, false otherwise.
+	 * @throws GeneralSecurityException
+	 *           when the signature headers are missing or malformed, or when the underlying Java Cryptography Architecture
+	 *           fails to verify the signature.
+	 */
+	public boolean verify(HttpMessage message) throws GeneralSecurityException {
+		try {
+			List<List<String>> headers = message.headerValues(SIGNATURE_HEADERS);
+			List<String> inputValues = headers.get(0);
+			List<String> signatureValues = headers.get(1);
+			if (inputValues.isEmpty() || signatureValues.isEmpty()) {
+				throw new IllegalStateException("Missing '" + Rfc9421Signer.HEADER_SIGNATURE_INPUT + "' or '" + HttpMessageSigner.HEADER_SIGNATURE + "' header");
+			}
+			Map<String, SignatureInput> inputs = SignatureInput.parse(StructuredFields.combine(inputValues));
+			SignatureInput input = label().isPresent() ? inputs.get(label().get()) : inputs.values().stream().findFirst().orElse(null);
+			if (input == null) {
+				return false;
+			}
+			byte[] signature = StructuredFields.parseByteSequenceDictionary(StructuredFields.combine(signatureValues)).get(input.label());
+			if (signature == null || !input.components().containsAll(requiredComponents()) || !isFresh(input)) {
+				return false;
+			}
+			Optional<Rfc9421Algorithm> algorithm = algorithm(input);
+			if (!algorithm.isPresent()) {
+				return false;
+			}
+			if (!input.keyId().isPresent()) {
+				throw new IllegalStateException("Missing '" + SignatureInput.PARAM_KEY_ID + "' signature parameter");
+			}
+			byte[] base = plans().get(input).base(message, input.signatureParams()).getBytes(StandardCharsets.US_ASCII);
+			switch (algorithm.get().type()) {
+				case PUBLIC_KEY:
+					return verifyPublicKey(algorithm.get(), base, signature, keyMap().getPublicKey(input.keyId().get()));
+				case SECRET_KEY:
+					return verifySecretKey(algorithm.get(), base, signature, keyMap().getSecretKey(input.keyId().get()));
+			}
+			throw new GeneralSecurityException("Unknown HTTP message signature algorithm type '" + algorithm.get() + ":" + algorithm.get().type() + "'");
+		} catch (Exception e) {
+			if (e instanceof GeneralSecurityException) {
+				throw (GeneralSecurityException) e;
+			}
+			throw new GeneralSecurityException("Unable to verify message '" + message.toString() + "'", e);
+		}
+	}
+
+	/**
+	 * Returns the algorithm of the signature: the one of the {@code alg} parameter, which must match the configured one
+	 * if any, or the configured one.
+	 */
+	private Optional<Rfc9421Algorithm> algorithm(SignatureInput input) {
+		if (!input.algorithm().isPresent()) {
+			if (!algorithm().isPresent()) {
+				throw new IllegalStateException("Missing '" + SignatureInput.PARAM_ALGORITHM + "' signature parameter and no algorithm configured");
+			}
+			return algorithm();
+		}
+		Optional<Rfc9421Algorithm> ret = Rfc9421Algorithm.fromName(input.algorithm().get());
+		if (!ret.isPresent()) {
+			throw new IllegalStateException("Unsupported algorithm '" + input.algorithm().get() + "'");
+		}
+		if (algorithm().isPresent() && algorithm().get() != ret.get()) {
+			return Optional.empty();
+		}
+		return ret;
+	}
+
+	/**
+	 * Checks the {@code expires} parameter, and the {@code created} one against the configured max age if any.
+	 */
+	private boolean isFresh(SignatureInput input) {
+		long now = Math.floorDiv(clock().millis(), 1000L);
+		if (input.expires().isPresent() && now > input.expires().getAsLong()) {
+			return false;
+		}
+		if (maxAge().isPresent()) {
+			if (!input.created().isPresent()) {
+				return false;
+			}
+			return Math.abs(now - input.created().getAsLong()) <= maxAge().get().getSeconds();
+		}
+		return true;
+	}
+
+	private boolean verifyPublicKey(Rfc9421Algorithm algorithm, byte[] base, byte[] signature, PublicKey key) throws GeneralSecurityException {
+		Signature jSignature = algorithm.createSignature(securityProvider());
+		jSignature.initVerify(key);
+		jSignature.update(base);
+		return jSignature.verify(algorithm.fromWireFormat(signature));
+	}
+
+	private boolean verifySecretKey(Rfc9421Algorithm algorithm, byte[] base, byte[] signature, SecretKey key) throws GeneralSecurityException {
+		Mac mac = algorithm.createMac(securityProvider());
+		mac.init(key);
+		return MessageDigest.isEqual(mac.doFinal(base), signature);
+	}
+
+	/**
+	 * Returns a new {@link Rfc9421Verifier} builder.
+	 *
+	 * @return a new {@link Rfc9421Verifier} builder.
+	 */
+	public static Builder builder() {
+		return new AutoValue_Rfc9421Verifier.Builder()
+				.clock(Clock.systemUTC())
+				.requiredComponents(new ArrayList<String>());
+	}
+
+	/**
+	 * A {@link Rfc9421Verifier} builder.
+	 */
+	@AutoValue.Builder
+	public abstract static class Builder {
+		Builder() {
+		}
+
+		/**
+		 * The key map to be used to find the public/secret key associated with the {@code keyid} signature parameter.
+		 *
+		 * @param keyMap
+		 *          The key map to be used to find the public/secret key associated with the {@code keyid} signature
+		 *          parameter.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder keyMap(KeyMap keyMap);
+
+		/**
+		 * The optional Java Security Provider to be used to find the implementation of the cryptographic algorithms.
+		 *
+		 * @param provider
+		 *          The Java Security Provider to be used to find the implementation of the cryptographic algorithms.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder securityProvider(Provider provider);
+
+		/**
+		 * The label of the signature to verify. By default, the first signature of the {@code Signature-Input} header is
+		 * verified.
+		 *
+		 * @param label
+		 *          the label of the signature to verify.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder label(String label);
+
+		/**
+		 * The expected algorithm of the signatures. Signatures whose {@code alg} parameter names another algorithm are not
+		 * verified, and signatures without an {@code alg} parameter are verified with this algorithm. When not set, the
+		 * {@code alg} parameter is required.
+		 *
+		 * @param algorithm
+		 *          the expected algorithm of the signatures.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder algorithm(Rfc9421Algorithm algorithm);
+
+		abstract Builder requiredComponents(List<String> requiredComponents);
+
+		abstract List<String> requiredComponents();
+
+		/**
+		 * Adds a component which must be covered by the signatures. Signatures not covering all the required components are
+		 * not verified. Header field names are lowercased.
+		 *
+		 * @param component
+		 *          the identifier of the required component.
+		 * @return this builder for daisy chain.
+		 */
+		public Builder addRequiredComponent(String component) {
+			String identifier = Objects.requireNonNull(component).trim().toLowerCase(Locale.ROOT);
+			if (!requiredComponents().contains(identifier)) {
+				requiredComponents().add(identifier);
+			}
+			return this;
+		}
+
+		/**
+		 * Enables the rejection of signatures whose {@code created} parameter is too far from the current time. When
+		 * enabled, signatures without a {@code created} parameter are not verified either. Signatures whose
+		 * {@code expires} parameter is in the past are always rejected.
+		 * <p>
+		 * Disabled by default.
+		 *
+		 * @param maxAge
+		 *          the maximum accepted difference, in either direction, between the creation time of the signatures and
+		 *          the current time.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder maxAge(Duration maxAge);
+
+		/**
+		 * The clock used to check the {@code created} and {@code expires} signature parameters. Defaults to
+		 * {@link Clock#systemUTC()}.
+		 *
+		 * @param clock
+		 *          the clock used to check the {@code created} and {@code expires} signature parameters.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder clock(Clock clock);
+
+		abstract Builder plans(SignatureBasePlans plans);
+
+		abstract Rfc9421Verifier autoBuild();
+
+		/**
+		 * Returns a newly configured {@code Rfc9421Verifier}.
+		 *
+		 * @return a newly configured {@code Rfc9421Verifier}.
+		 */
+		public Rfc9421Verifier build() {
+			// the verifier gets a frozen copy, so that further calls to addRequiredComponent do not change it
+			List<String> mutableComponents = requiredComponents();
+			requiredComponents(Collections.unmodifiableList(new ArrayList<>(mutableComponents)));
+			plans(new SignatureBasePlans(MAX_CACHED_PLANS));
+			try {
+				return autoBuild();
+			} finally {
+				requiredComponents(mutableComponents);
+			}
+		}
+	}
+}
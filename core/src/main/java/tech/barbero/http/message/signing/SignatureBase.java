@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A compiled plan building the <a href="https://www.rfc-editor.org/rfc/rfc9421#section-2.5">signature base</a> of HTTP
+ * messages for a list of covered components. The list is validated and compiled once (component kinds, signature base
+ * line prefixes and serialized inner list), and the values of the covered header fields are fetched with a single
+ * {@link HttpMessage#headerValues(List) bulk lookup} per message.
+ * <p>
+ * Components with parameters (e.g. {@code ;sf}, {@code ;req} or {@code @query-param;name}) are not supported.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+final class SignatureBase {
+
+	static final String SIGNATURE_PARAMS = "@signature-params";
+
+	private enum Kind {
+		FIELD(null),
+		METHOD(Rfc9421Signer.METHOD),
+		TARGET_URI(Rfc9421Signer.TARGET_URI),
+		AUTHORITY(Rfc9421Signer.AUTHORITY),
+		SCHEME(Rfc9421Signer.SCHEME),
+		REQUEST_TARGET(Rfc9421Signer.REQUEST_TARGET),
+		PATH(Rfc9421Signer.PATH),
+		QUERY(Rfc9421Signer.QUERY),
+		STATUS(Rfc9421Signer.STATUS);
+
+		private final String componentName;
+
+		Kind(String componentName) {
+			this.componentName = componentName;
+		}
+
+		static Kind of(String component) {
+			if (!component.startsWith("@")) {
+				return FIELD;
+			}
+			for (Kind kind : values()) {
+				if (component.equals(kind.componentName)) {
+					return kind;
+				}
+			}
+			throw new IllegalArgumentException("Unsupported derived component '" + component + "'");
+		}
+	}
+
+	private static final String HEADER_HOST = "Host";
+
+	private final List<String> components;
+	private final Kind[] kinds;
+	/**
+	 * The {@code "component": } prefix of each line.
+	 */
+	private final String[] linePrefixes;
+	private final List<String> fields;
+	private final String innerList;
+
+	private SignatureBase(List<String> components) {
+		int size = components.size();
+		this.components = Collections.unmodifiableList(new ArrayList<>(components));
+		this.kinds = new Kind[size];
+		this.linePrefixes = new String[size];
+		List<String> fieldList = new ArrayList<>(size);
+		Set<String> seen = new HashSet<>();
+		StringBuilder list = new StringBuilder("(");
+		for (int i = 0; i < size; i++) {
+			String component = components.get(i);
+			if (component.isEmpty() || !component.equals(component.toLowerCase(Locale.ROOT)) || component.equals(SIGNATURE_PARAMS)) {
+				throw new IllegalArgumentException("Invalid component identifier '" + component + "'");
+			}
+			if (!seen.add(component)) {
+				throw new IllegalArgumentException("Component '" + component + "' is covered more than once");
+			}
+			this.kinds[i] = Kind.of(component);
+			if (this.kinds[i] == Kind.FIELD) {
+				fieldList.add(component);
+			}
+			String serialized = StructuredFields.serializeString(component);
+			this.linePrefixes[i] = serialized + ": ";
+			if (i > 0) {
+				list.append(' ');
+			}
+			list.append(serialized);
+		}
+		this.fields = Collections.unmodifiableList(fieldList);
+		this.innerList = list.append(')').toString();
+	}
+
+	/**
+	 * Compiles the signature base plan of the given covered components.
+	 *
+	 * @param components
+	 *          the identifiers of the covered components, i.e. lowercased header field names or derived component names.
+	 * @return the compiled plan.
+	 * @throws IllegalArgumentException
+	 *           if a component identifier is invalid, unsupported or repeated.
+	 */
+	static SignatureBase compile(List<String> components) {
+		return new SignatureBase(components);
+	}
+
+	List<String> components() {
+		return this.components;
+	}
+
+	/**
+	 * Returns the serialization of the covered components as a structured field inner list, without parameters.
+	 */
+	String innerList() {
+		return this.innerList;
+	}
+
+	/**
+	 * Builds the signature base of the given message.
+	 *
+	 * @param message
+	 *          the message.
+	 * @param signatureParams
+	 *          the serialized value of the {@code @signature-params} component, i.e. the {@link #innerList() inner list}
+	 *          followed with the signature parameters.
+	 * @return the signature base.
+	 * @throws IllegalStateException
+	 *           if a covered header field is missing or if a derived component does not apply to the message.
+	 */
+	String base(HttpMessage message, String signatureParams) {
+		List<List<String>> values = this.fields.isEmpty() ? Collections.emptyList() : message.headerValues(this.fields);
+		checkFields(values);
+		StringBuilder ret = new StringBuilder(256);
+		int field = 0;
+		for (int i = 0; i < this.kinds.length; i++) {
+			ret.append(this.linePrefixes[i]);
+			if (this.kinds[i] == Kind.FIELD) {
+				appendValues(ret, values.get(field++));
+			} else {
+				ret.append(derivedValue(this.kinds[i], message));
+			}
+			ret.append('\n');
+		}
+		return ret.append('"').append(SIGNATURE_PARAMS).append("\": ").append(signatureParams).toString();
+	}
+
+	private void checkFields(List<List<String>> values) {
+		List<String> notFound = null;
+		for (int i = 0; i < values.size(); i++) {
+			if (values.get(i).isEmpty()) {
+				if (notFound == null) {
+					notFound = new ArrayList<>();
+				}
+				notFound.add(this.fields.get(i));
+			}
+		}
+		if (notFound != null) {
+			throw new IllegalStateException("The following components cannot be found in the message: "
+					+ notFound.stream().map(s -> ("'" + s + "'")).collect(Collectors.joining(", ")));
+		}
+	}
+
+	/**
+	 * Multiple values of a header field are concatenated, separated by an ASCII comma and an ASCII space, after removal of
+	 * their leading and trailing whitespaces.
+	 */
+	private static void appendValues(StringBuilder builder, List<String> values) {
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			builder.append(values.get(i).trim());
+		}
+	}
+
+	private static String derivedValue(Kind kind, HttpMessage message) {
+		if (kind == Kind.STATUS) {
+			if (!(message instanceof HttpResponse)) {
+				throw new IllegalStateException("Component '" + Rfc9421Signer.STATUS + "' can only be used with HTTP Response.");
+			}
+			return Integer.toString(((HttpResponse) message).statusCode());
+		}
+		if (!(message instanceof HttpRequest)) {
+			throw new IllegalStateException("Component '" + kind.componentName + "' can only be used with HTTP Request.");
+		}
+		HttpRequest request = (HttpRequest) message;
+		URI uri = request.uri();
+		switch (kind) {
+			case METHOD:
+				return request.method();
+			case TARGET_URI:
+				return uri.toString();
+			case AUTHORITY:
+				return authority(request);
+			case SCHEME:
+				if (uri.getScheme() == null) {
+					throw new IllegalStateException("The URI of the request has no scheme");
+				}
+				return uri.getScheme().toLowerCase(Locale.ROOT);
+			case REQUEST_TARGET:
+				return uri.getRawQuery() != null ? path(uri) + '?' + uri.getRawQuery() : path(uri);
+			case PATH:
+				return path(uri);
+			case QUERY:
+				return uri.getRawQuery() != null ? '?' + uri.getRawQuery() : "?";
+			default:
+				throw new IllegalStateException("Unknown component kind '" + kind + "'");
+		}
+	}
+
+	private static String path(URI uri) {
+		String path = uri.getRawPath();
+		return path == null || path.isEmpty() ? "/" : path;
+	}
+
+	/**
+	 * The authority of the target URI, lowercased and without the default port of its scheme. Falls back to the
+	 * {@code Host} header when the URI is not absolute.
+	 */
+	private static String authority(HttpRequest request) {
+		URI uri = request.uri();
+		String authority = uri.getRawAuthority();
+		if (authority == null) {
+			List<String> hosts = request.headerValues(HEADER_HOST);
+			if (hosts.size() != 1) {
+				throw new IllegalStateException("The authority of the request cannot be determined");
+			}
+			authority = hosts.get(0).trim();
+		}
+		authority = authority.toLowerCase(Locale.ROOT);
+		if (("http".equalsIgnoreCase(uri.getScheme()) && authority.endsWith(":80"))
+				|| ("https".equalsIgnoreCase(uri.getScheme()) && authority.endsWith(":443"))) {
+			authority = authority.substring(0, authority.lastIndexOf(':'));
+		}
+		return authority;
+	}
+}
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A bounded cache of the {@link SignatureBase} plans compiled from the {@code Signature-Input} headers, indexed by the
+ * serialized inner list of covered components. Once the bound is reached, plans of new lists are compiled on each call.
+ * <p>
+ * This class is thread-safe.
+ */
+final class SignatureBasePlans {
+
+	private final int maxPlans;
+	private final ConcurrentMap<String, SignatureBase> plans;
+
+	SignatureBasePlans(int maxPlans) {
+		if (maxPlans <= 0) {
+			throw new IllegalArgumentException("The maximum number of cached plans must be strictly positive");
+		}
+		this.maxPlans = maxPlans;
+		this.plans = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Returns the plan of the covered components of the given signature input, compiling it if not already cached.
+	 *
+	 * @param input
+	 *          the signature input.
+	 * @return the plan of the covered components of the given signature input.
+	 * @throws IllegalArgumentException
+	 *           if a component identifier is invalid, unsupported or repeated.
+	 */
+	SignatureBase get(SignatureInput input) {
+		SignatureBase ret = this.plans.get(input.innerList());
+		if (ret == null) {
+			ret = SignatureBase.compile(input.components());
+			if (this.plans.size() < this.maxPlans) {
+				SignatureBase concurrentlyCompiled = this.plans.putIfAbsent(input.innerList(), ret);
+				if (concurrentlyCompiled != null) {
+					ret = concurrentlyCompiled;
+				}
+			}
+		}
+		return ret;
+	}
+}
@@ -9,17 +9,14 @@
 package tech.barbero.http.message.signing;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
-import org.apache.http.HeaderElement;
-import org.apache.http.message.BasicHeaderValueParser;
-
 import com.google.auto.value.AutoValue;
-import com.google.common.base.Splitter;
 
 import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
 
@@ -53,8 +50,6 @@ abstract class SignatureHeaderElements {
 
 	@AutoValue.Builder
 	abstract static class Builder {
-		private static final BasicHeaderValueParser HEADER_VALUE_PARSER = new BasicHeaderValueParser();
-		private static final Splitter SPLITTER = Splitter.on(" ").trimResults().omitEmptyStrings();
 
 		abstract Builder keyId(String keyId);
 
@@ -75,17 +70,73 @@ abstract class SignatureHeaderElements {
 			return autoBuild();
 		}
 
+		/**
+		 * Parses the comma separated {@code name=value} elements of the given header value. Values may be quoted, quotes
+		 * are stripped but escaped characters are left as is. Parameters of an element (following a semicolon) are
+		 * ignored.
+		 */
 		Builder parse(String headerValue) {
-			HeaderElement[] elements = BasicHeaderValueParser.parseElements(headerValue, HEADER_VALUE_PARSER);
-			for (HeaderElement element : elements) {
-				parseHeaderElement(element);
+			int length = headerValue.length();
+			int pos = 0;
+			while (pos < length) {
+				int nameEnd = endOfName(headerValue, pos);
+				String name = headerValue.substring(pos, nameEnd).trim();
+				String value = null;
+				pos = nameEnd;
+				if (pos < length && headerValue.charAt(pos) == '=') {
+					int valueEnd = endOfValue(headerValue, pos + 1);
+					value = unquote(headerValue.substring(pos + 1, valueEnd).trim());
+					pos = valueEnd;
+				}
+				while (pos < length && headerValue.charAt(pos) == ';') {
+					pos = endOfValue(headerValue, pos + 1);
+				}
+				// skip empty elements, e.g. a trailing comma
+				if (!name.isEmpty() || value != null) {
+					parseHeaderElement(name, value);
+				}
+				// skip the comma
+				pos++;
 			}
 			return this;
 		}
 
-		private void parseHeaderElement(HeaderElement element) {
-			String elementValue = element.getValue();
-			switch (element.getName()) {
+		private static int endOfName(String headerValue, int from) {
+			int pos = from;
+			while (pos < headerValue.length() && "=;,".indexOf(headerValue.charAt(pos)) < 0) {
+				pos++;
+			}
+			return pos;
+		}
+
+		private static int endOfValue(String headerValue, int from) {
+			boolean quoted = false;
+			boolean escaped = false;
+			int pos = from;
+			for (; pos < headerValue.length(); pos++) {
+				char c = headerValue.charAt(pos);
+				if (escaped) {
+					escaped = false;
+				} else if (c == '"') {
+					quoted = !quoted;
+				} else if (quoted) {
+					escaped = c == '\\';
+				} else if (c == ';' || c == ',') {
+					break;
+				}
+			}
+			return pos;
+		}
+
+		private static String unquote(String value) {
+			if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+				return value.substring(1, value.length() - 1);
+			}
+			return value;
+		}
+
+		private void parseHeaderElement(String name, String elementValue) {
+			switch (name) {
 				case HttpMessageSigner.PARAM_KEY_ID:
 					keyId(elementValue);
 					break;
@@ -99,7 +150,9 @@ abstract class SignatureHeaderElements {
 					}
 					throw new IllegalStateException("Unsupported algorithm '" + elementValue + "'");
 				case HttpMessageSigner.PARAM_HEADERS:
-					signedHeaders(SPLITTER.splitToList(elementValue).stream()
+					signedHeaders(Arrays.stream(elementValue.split(" "))
+							.map(String::trim)
+							.filter(h -> !h.isEmpty())
 							.map(Builder::normalizeHeader)
 							.distinct()
 							.collect(Collectors.toList()));
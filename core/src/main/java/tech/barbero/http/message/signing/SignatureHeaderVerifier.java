@@ -10,17 +10,32 @@ package tech.barbero.http.message.signing;
 
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
-import java.security.NoSuchAlgorithmException;
+import java.security.MessageDigest;
 import java.security.Provider;
+import java.security.PublicKey;
 import java.security.Signature;
-import java.util.Arrays;
+import java.security.SignatureException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 
 import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 
 import com.google.auto.value.AutoValue;
-import com.google.common.base.Throwables;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
 
 /**
  * An utility class to verify the {@code Signature} header of HTTP messages. *
@@ -33,10 +48,38 @@ public abstract class SignatureHeaderVerifier {
 	SignatureHeaderVerifier() {
 	}
 
+	private static final int MAX_RETAINED_MAC_INPUT_BUFFER_SIZE = 8192;
+
 	abstract KeyMap keyMap();
 
+	abstract AsyncKeyMap asyncKeyMap();
+
 	abstract Optional<Provider> securityProvider();
 
+	abstract Optional<EnginePool<PublicKey, Signature>> signaturePool();
+
+	abstract Optional<EnginePool<SecretKey, Mac>> macPool();
+
+	abstract Map<Algorithm, SigningBackend> backends();
+
+	abstract Optional<Duration> maxDateSkew();
+
+	abstract DateHeaderProvider dateHeaderProvider();
+
+	abstract Optional<VerificationCache> verificationCache();
+
+	abstract Optional<VerificationRateLimiter> rateLimiter();
+
+	/**
+	 * Returns the statistics of the verification cache of this verifier, if {@link Builder#verificationCache(int, Duration)
+	 * enabled}.
+	 *
+	 * @return the statistics of the verification cache, or an empty optional if it is not enabled.
+	 */
+	public Optional<VerificationCacheStats> verificationCacheStats() {
+		return verificationCache().map(VerificationCache::stats);
+	}
+
 	/**
 	 * Verify the {@code Signature} header from the given HTTP message.
 	 *
@@ -47,56 +90,303 @@ public abstract class SignatureHeaderVerifier {
 	 *           when the underlying Java Cryptography Architecture fails to verify the signature.
 	 */
 	public boolean verify(HttpMessage message) throws GeneralSecurityException {
+		return check(message) == Outcome.VERIFIED;
+	}
+
+	/**
+	 * Verify the {@code Signature} header from the given HTTP message, telling apart the signatures which are not
+	 * verified from the ones whose verification is not admitted by the {@link Builder#rateLimiter(VerificationRateLimiter)
+	 * rate limiter}, e.g. so that a server side filter does not penalize the latter twice.
+	 *
+	 * @param message
+	 *          the message to verify.
+	 * @return the outcome of the verification.
+	 * @throws GeneralSecurityException
+	 *           when the underlying Java Cryptography Architecture fails to verify the signature.
+	 */
+	public Outcome check(HttpMessage message) throws GeneralSecurityException {
 		try {
 			SignatureHeaderElements signatureHeader = SignatureHeaderElements
 					.fromHeaderValuesList(message.headerValues(HttpMessageSigner.HEADER_SIGNATURE));
+			if (!isAdmitted(signatureHeader)) {
+				return Outcome.NOT_ADMITTED;
+			}
+			return verify(message, signatureHeader) ? Outcome.VERIFIED : Outcome.NOT_VERIFIED;
+		} catch (Exception e) {
+			throw verificationFailure(message, e);
+		}
+	}
+
+	private boolean verify(HttpMessage message, SignatureHeaderElements signatureHeader) throws GeneralSecurityException {
+		if (!isFresh(message, signatureHeader)) {
+			return false;
+		}
+		String signingString = SigningStringBuilder.forHeaders(signatureHeader.signedHeaders()).signingString(message);
+		switch (signatureHeader.algorithm().type()) {
+			case PUBLIC_KEY:
+				return verifyResolved(keyMap().getPublicKey(signatureHeader.keyId()), signatureHeader,
+						key -> verifyPublicKey(signingString, signatureHeader, key));
+			case SECRET_KEY:
+				return verifyResolved(keyMap().getSecretKey(signatureHeader.keyId()), signatureHeader,
+						key -> verifySecretKey(signingString, signatureHeader, key));
+		}
+		throw unknownAlgorithmType(signatureHeader);
+	}
+
+	/**
+	 * Verify the {@code Signature} header from the given HTTP message, retrieving the key from the {@link AsyncKeyMap} of
+	 * this verifier. The signature is verified by the thread completing the key lookup.
+	 *
+	 * @param message
+	 *          the message to verify.
+	 * @return a stage completing with true if the {@code Signature} header exists in the message and is verified, false
+	 *         otherwise. It completes exceptionally with a {@link GeneralSecurityException} when the key cannot be
+	 *         retrieved or when the underlying Java Cryptography Architecture fails to verify the signature.
+	 * @see #verifyAsync(HttpMessage, Executor)
+	 */
+	public CompletionStage<Boolean> verifyAsync(HttpMessage message) {
+		return verifyAsync(message, Runnable::run);
+	}
+
+	/**
+	 * Verify the {@code Signature} header from the given HTTP message, retrieving the key from the {@link AsyncKeyMap} of
+	 * this verifier. The signature is verified from the given executor once the key has been retrieved.
+	 *
+	 * @param message
+	 *          the message to verify.
+	 * @param executor
+	 *          the executor to verify the signature from.
+	 * @return a stage completing with true if the {@code Signature} header exists in the message and is verified, false
+	 *         otherwise. It completes exceptionally with a {@link GeneralSecurityException} when the key cannot be
+	 *         retrieved or when the underlying Java Cryptography Architecture fails to verify the signature.
+	 */
+	public CompletionStage<Boolean> verifyAsync(HttpMessage message, Executor executor) {
+		CompletableFuture<Boolean> ret = new CompletableFuture<>();
+		try {
+			SignatureHeaderElements signatureHeader = SignatureHeaderElements
+					.fromHeaderValuesList(message.headerValues(HttpMessageSigner.HEADER_SIGNATURE));
+			if (!isAdmitted(signatureHeader)) {
+				ret.complete(Boolean.FALSE);
+				return ret;
+			}
+			if (!isFresh(message, signatureHeader)) {
+				ret.complete(Boolean.FALSE);
+				return ret;
+			}
 			String signingString = SigningStringBuilder.forHeaders(signatureHeader.signedHeaders()).signingString(message);
 			switch (signatureHeader.algorithm().type()) {
 				case PUBLIC_KEY:
-					return verifyPublicKey(signingString, signatureHeader);
+					whenKeyRetrieved(asyncKeyMap().getPublicKey(signatureHeader.keyId()), message, executor, ret,
+							key -> verifyResolved(key, signatureHeader, k -> verifyPublicKey(signingString, signatureHeader, k)));
+					return ret;
 				case SECRET_KEY:
-					return verifySecretKey(signingString, signatureHeader);
+					whenKeyRetrieved(asyncKeyMap().getSecretKey(signatureHeader.keyId()), message, executor, ret,
+							key -> verifyResolved(key, signatureHeader, k -> verifySecretKey(signingString, signatureHeader, k)));
+					return ret;
 			}
-			throw new GeneralSecurityException("Unknown HTTP message signature algorithm type '"
-					+ signatureHeader.algorithm() + ":"
-					+ signatureHeader.algorithm().type() + "'");
+			throw unknownAlgorithmType(signatureHeader);
 		} catch (Exception e) {
-			Throwables.throwIfInstanceOf(e, GeneralSecurityException.class);
-			throw new GeneralSecurityException("Unable to verify message '" + message.toString() + "'", e);
+			ret.completeExceptionally(verificationFailure(message, e));
+			return ret;
+		}
+	}
+
+	/**
+	 * Checks that the rate limiter, if any, admits the verification of a signature with the keyId of the given header.
+	 */
+	private boolean isAdmitted(SignatureHeaderElements signatureHeader) {
+		return !rateLimiter().isPresent() || rateLimiter().get().admitKeyId(signatureHeader.keyId());
+	}
+
+	/**
+	 * Verifies the signature with the given key, penalizing its keyId with the rate limiter, if any, when it fails. Only
+	 * the keyIds resolved by the key map are penalized: penalties of made up keyIds would put into debt the buckets they
+	 * share with the keyIds of legitimate clients.
+	 */
+	private <K> boolean verifyResolved(K key, SignatureHeaderElements signatureHeader, KeyVerification<K> verification) throws GeneralSecurityException {
+		boolean verified = false;
+		try {
+			verified = verification.verify(key);
+			return verified;
+		} finally {
+			if (!verified && key != null && rateLimiter().isPresent()) {
+				rateLimiter().get().penalizeKeyId(signatureHeader.keyId());
+			}
+		}
+	}
+
+	/**
+	 * Checks that the signed {@code Date} header of the message is within the configured skew of the current time. Always
+	 * true if no max date skew is configured.
+	 */
+	private boolean isFresh(HttpMessage message, SignatureHeaderElements signatureHeader) {
+		if (!maxDateSkew().isPresent()) {
+			return true;
+		}
+		// an unsigned Date header could be replaced by anyone
+		if (!signatureHeader.signedHeaders().contains(SignatureHeaderElements.Builder.normalizeHeader(HttpMessageSigner.HEADER_DATE))) {
+			return false;
+		}
+		List<String> dates = message.headerValues(HttpMessageSigner.HEADER_DATE);
+		if (dates.size() != 1) {
+			return false;
+		}
+		Optional<Instant> date = dateHeaderProvider().parse(dates.get(0));
+		if (!date.isPresent()) {
+			return false;
+		}
+		Duration skew = Duration.between(date.get(), dateHeaderProvider().clock().instant()).abs();
+		return skew.compareTo(maxDateSkew().get()) <= 0;
+	}
+
+	private static <K> void whenKeyRetrieved(CompletionStage<K> key, HttpMessage message, Executor executor,
+			CompletableFuture<Boolean> result, KeyVerification<K> verification) {
+		key.whenCompleteAsync((k, failure) -> {
+			if (failure != null) {
+				Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+				result.completeExceptionally(new GeneralSecurityException("Unable to retrieve the key to verify message '" + message + "'", cause));
+			} else {
+				try {
+					result.complete(verification.verify(k));
+				} catch (Exception e) {
+					result.completeExceptionally(verificationFailure(message, e));
+				}
+			}
+		}, executor);
+	}
+
+	@FunctionalInterface
+	private interface KeyVerification<K> {
+		boolean verify(K key) throws GeneralSecurityException;
+	}
+
+	private static GeneralSecurityException unknownAlgorithmType(SignatureHeaderElements signatureHeader) {
+		return new GeneralSecurityException("Unknown HTTP message signature algorithm type '"
+				+ signatureHeader.algorithm() + ":"
+				+ signatureHeader.algorithm().type() + "'");
+	}
+
+	private static GeneralSecurityException verificationFailure(HttpMessage message, Exception e) {
+		if (e instanceof GeneralSecurityException) {
+			return (GeneralSecurityException) e;
+		}
+		return new GeneralSecurityException("Unable to verify message '" + message.toString() + "'", e);
+	}
+
+	private boolean verifySecretKey(String signingString, SignatureHeaderElements signatureHeader, SecretKey secretKey) throws GeneralSecurityException {
+		SigningBackend backend = backends().get(signatureHeader.algorithm());
+		if (backend != null) {
+			return backend.verifyMac(signatureHeader.algorithm(), secretKey, signingString.getBytes(StandardCharsets.US_ASCII),
+					Base64.getDecoder().decode(signatureHeader.signature()));
+		}
+		if (macPool().isPresent()) {
+			EnginePool<SecretKey, Mac> pool = macPool().get();
+			Mac mac = pool.borrow(signatureHeader.keyId(), signatureHeader.algorithm(), secretKey, this::createVerifyingMac);
+			boolean verified = verify(mac, signingString, signatureHeader);
+			// doFinal() resets the Mac to its initialized state
+			pool.release(signatureHeader.keyId(), signatureHeader.algorithm(), secretKey, mac);
+			return verified;
 		}
+		return verify(createVerifyingMac(signatureHeader.algorithm(), secretKey), signingString, signatureHeader);
 	}
 
-	private boolean verifySecretKey(String signingString, SignatureHeaderElements signatureHeader) throws GeneralSecurityException {
-		Mac mac = createMac(signatureHeader);
-		mac.init(keyMap().getSecretKey(signatureHeader.keyId()));
-		mac.update(signingString.getBytes(StandardCharsets.US_ASCII));
-		return Arrays.equals(mac.doFinal(), Base64.getDecoder().decode(signatureHeader.signature()));
+	private static boolean verify(Mac mac, String signingString, SignatureHeaderElements signatureHeader) throws ShortBufferException {
+		return verifyMac(mac, signingString, signatureHeader.signature());
 	}
 
-	private Mac createMac(SignatureHeaderElements signatureHeader) throws NoSuchAlgorithmException {
+	/**
+	 * Verifies the given Base64 encoded signature against the MAC of the signing string. The comparison is done in constant
+	 * time, and the signing string, computed MAC and decoded signature go through per-thread buffers instead of freshly
+	 * allocated arrays.
+	 */
+	static boolean verifyMac(Mac mac, String signingString, String signature) throws ShortBufferException {
+		byte[][] buffers = VerificationBuffers.borrow();
+		try {
+			byte[] input = buffers[VerificationBuffers.MAC_INPUT];
+			if (input.length < signingString.length()) {
+				input = new byte[signingString.length()];
+				if (input.length <= MAX_RETAINED_MAC_INPUT_BUFFER_SIZE) {
+					buffers[VerificationBuffers.MAC_INPUT] = input;
+				}
+			}
+			mac.update(input, 0, ByteCodecs.encodeAscii(signingString, input));
+
+			int macLength = mac.getMacLength();
+			byte[] computed = buffers[VerificationBuffers.MAC_COMPUTED];
+			byte[] provided = buffers[VerificationBuffers.MAC_PROVIDED];
+			if (computed.length != macLength) {
+				computed = new byte[macLength];
+				provided = new byte[macLength];
+				buffers[VerificationBuffers.MAC_COMPUTED] = computed;
+				buffers[VerificationBuffers.MAC_PROVIDED] = provided;
+			}
+			mac.doFinal(computed, 0);
+
+			// the length of a MAC is not secret, only its content is.
+			return ByteCodecs.decodeBase64(signature, provided) == macLength && MessageDigest.isEqual(computed, provided);
+		} finally {
+			VerificationBuffers.release(buffers);
+		}
+	}
+
+	private Mac createVerifyingMac(Algorithm algorithm, SecretKey key) throws GeneralSecurityException {
 		final Mac ret;
 		if (securityProvider().isPresent()) {
-			ret = signatureHeader.algorithm().createMac(securityProvider().get());
+			ret = algorithm.createMac(securityProvider().get());
 		} else {
-			ret = signatureHeader.algorithm().createMac();
+			ret = algorithm.createMac();
 		}
+		ret.init(key);
 		return ret;
 	}
 
-	private boolean verifyPublicKey(String signingString, SignatureHeaderElements signatureHeader) throws GeneralSecurityException {
-		Signature jSignature = createSignature(signatureHeader);
-		jSignature.initVerify(keyMap().getPublicKey(signatureHeader.keyId()));
+	private boolean verifyPublicKey(String signingString, SignatureHeaderElements signatureHeader, PublicKey publicKey) throws GeneralSecurityException {
+		if (verificationCache().isPresent() && publicKey != null) {
+			VerificationCache cache = verificationCache().get();
+			VerificationCache.Digest digest = VerificationCache.digest(signatureHeader.keyId(), signatureHeader.algorithm(), signingString,
+					signatureHeader.signature());
+			if (cache.isVerified(digest, publicKey, dateHeaderProvider().clock().millis())) {
+				return true;
+			}
+			boolean verified = verifyPublicKeyUncached(signingString, signatureHeader, publicKey);
+			if (verified) {
+				cache.verified(digest, publicKey, dateHeaderProvider().clock().millis());
+			}
+			return verified;
+		}
+		return verifyPublicKeyUncached(signingString, signatureHeader, publicKey);
+	}
+
+	private boolean verifyPublicKeyUncached(String signingString, SignatureHeaderElements signatureHeader, PublicKey publicKey) throws GeneralSecurityException {
+		SigningBackend backend = backends().get(signatureHeader.algorithm());
+		if (backend != null) {
+			return backend.verify(signatureHeader.algorithm(), publicKey, signingString.getBytes(StandardCharsets.US_ASCII),
+					Base64.getDecoder().decode(signatureHeader.signature()));
+		}
+		if (signaturePool().isPresent()) {
+			EnginePool<PublicKey, Signature> pool = signaturePool().get();
+			Signature jSignature = pool.borrow(signatureHeader.keyId(), signatureHeader.algorithm(), publicKey, this::createVerifyingSignature);
+			boolean verified = verify(jSignature, signingString, signatureHeader);
+			// verify() resets the Signature to the state it was in after initVerify()
+			pool.release(signatureHeader.keyId(), signatureHeader.algorithm(), publicKey, jSignature);
+			return verified;
+		}
+		return verify(createVerifyingSignature(signatureHeader.algorithm(), publicKey), signingString, signatureHeader);
+	}
+
+	private static boolean verify(Signature jSignature, String signingString, SignatureHeaderElements signatureHeader) throws SignatureException {
 		jSignature.update(signingString.getBytes(StandardCharsets.US_ASCII));
 		return jSignature.verify(Base64.getDecoder().decode(signatureHeader.signature()));
 	}
 
-	private Signature createSignature(SignatureHeaderElements signatureHeader) throws NoSuchAlgorithmException {
+	private Signature createVerifyingSignature(Algorithm algorithm, PublicKey key) throws GeneralSecurityException {
 		final Signature ret;
 		if (securityProvider().isPresent()) {
-			ret = signatureHeader.algorithm().createSignature(securityProvider().get());
+			ret = algorithm.createSignature(securityProvider().get());
 		} else {
-			ret = signatureHeader.algorithm().createSignature();
+			ret = algorithm.createSignature();
 		}
+		ret.initVerify(key);
 		return ret;
 	}
 
@@ -106,7 +396,30 @@ public abstract class SignatureHeaderVerifier {
 	 * @return a new {@link SignatureHeaderVerifier} builder.
 	 */
 	public static Builder builder() {
-		return new AutoValue_SignatureHeaderVerifier.Builder();
+		return new AutoValue_SignatureHeaderVerifier.Builder()
+				.dateHeaderProvider(DateHeaderProvider.systemUTC())
+				.backends(new EnumMap<>(Algorithm.class));
+	}
+
+	/**
+	 * The outcome of the verification of a message.
+	 */
+	public enum Outcome {
+
+		/**
+		 * The {@code Signature} header exists in the message and is verified.
+		 */
+		VERIFIED,
+
+		/**
+		 * The {@code Signature} header is missing, stale or not verified.
+		 */
+		NOT_VERIFIED,
+
+		/**
+		 * The signature has not been verified, as its keyId exceeds the limit of the rate limiter.
+		 */
+		NOT_ADMITTED
 	}
 
 	/**
@@ -118,7 +431,10 @@ public abstract class SignatureHeaderVerifier {
 		}
 
 		/**
-		 * The key map to be used to find the public/secret key associated with the {@code keyId} in the message.
+		 * The key map to be used to find the public/secret key associated with the {@code keyId} in the message. Either
+		 * this key map or an {@link #asyncKeyMap(AsyncKeyMap) asynchronous one} is required. When only this one is set,
+		 * {@link SignatureHeaderVerifier#verifyAsync(HttpMessage) asynchronous verifications} look keys up in it
+		 * synchronously.
 		 *
 		 * @param keyMap
 		 *          The key map to be used to find the public/secret key associated with the {@code keyId} in the message.
@@ -127,6 +443,23 @@ public abstract class SignatureHeaderVerifier {
 		 */
 		public abstract Builder keyMap(KeyMap keyMap);
 
+		abstract Optional<KeyMap> keyMap();
+
+		/**
+		 * The asynchronous key map to be used by {@link SignatureHeaderVerifier#verifyAsync(HttpMessage)} to find the
+		 * public/secret key associated with the {@code keyId} in the message. When no {@link #keyMap(KeyMap) key map} is
+		 * set, {@link SignatureHeaderVerifier#verify(HttpMessage) synchronous verifications} wait for the lookups of this
+		 * one to complete.
+		 *
+		 * @param keyMap
+		 *          The asynchronous key map to be used to find the public/secret key associated with the {@code keyId} in
+		 *          the message.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder asyncKeyMap(AsyncKeyMap keyMap);
+
+		abstract Optional<AsyncKeyMap> asyncKeyMap();
+
 		/**
 		 * The optional Java Security Provider to be used to find the implementation of the cryptographic algorithms.
 		 *
@@ -136,11 +469,148 @@ public abstract class SignatureHeaderVerifier {
 		 */
 		public abstract Builder securityProvider(Provider provider);
 
+		abstract Builder signaturePool(EnginePool<PublicKey, Signature> signaturePool);
+
+		abstract Builder macPool(EnginePool<SecretKey, Mac> macPool);
+
+		/**
+		 * Enables the pooling of the cryptographic engines used to verify signatures. Engines are initialized once with a key
+		 * and reused for subsequent messages signed with the same keyId and algorithm, saving the cost of key setup (e.g.
+		 * public key validation) on each verification. Pooled engines are discarded as soon as the {@link KeyMap} returns a
+		 * different key for their keyId.
+		 * <p>
+		 * Pooling is disabled by default.
+		 *
+		 * @param maxIdleEnginesPerKey
+		 *          the maximum number of idle engines kept per keyId and algorithm. It should typically be in the order of
+		 *          the number of threads concurrently verifying messages.
+		 * @return this builder for daisy chain.
+		 */
+		public Builder enginePoolSize(int maxIdleEnginesPerKey) {
+			signaturePool(new EnginePool<>(maxIdleEnginesPerKey));
+			macPool(new EnginePool<>(maxIdleEnginesPerKey));
+			return this;
+		}
+
+		abstract Builder backends(Map<Algorithm, SigningBackend> backends);
+
+		abstract Map<Algorithm, SigningBackend> backends();
+
+		/**
+		 * Sets the backend implementing the verification of the signatures made with the given algorithm, e.g.
+		 * {@link SigningBackend#precomputedHmac()} for {@link Algorithm#HMAC_SHA256} or a native provider through
+		 * {@link SigningBackend#jca(Provider)}. Signatures made with this algorithm are then verified neither with the
+		 * {@link #securityProvider(Provider) security provider} nor with {@link #enginePoolSize(int) pooled engines}: reusing
+		 * engines is left to the backend. The {@link #verificationCache(int, Duration) verification cache} still applies.
+		 * <p>
+		 * By default, all the algorithms are verified with the Java Cryptography Architecture engines.
+		 *
+		 * @param algorithm
+		 *          the algorithm whose signatures are verified by the backend.
+		 * @param backend
+		 *          the backend verifying the signatures made with the algorithm.
+		 * @return this builder for daisy chain.
+		 */
+		public Builder backend(Algorithm algorithm, SigningBackend backend) {
+			backends().put(Objects.requireNonNull(algorithm), Objects.requireNonNull(backend));
+			return this;
+		}
+
+		/**
+		 * Enables the rejection of messages whose {@code Date} header is too far from the current time, limiting the window
+		 * during which a captured message can be replayed. When enabled, messages without a single, signed and valid
+		 * {@code Date} header are not verified either.
+		 * <p>
+		 * Disabled by default.
+		 *
+		 * @param maxDateSkew
+		 *          the maximum accepted difference, in either direction, between the {@code Date} header and the current
+		 *          time.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder maxDateSkew(Duration maxDateSkew);
+
+		/**
+		 * The provider used to get the current time and to parse the {@code Date} header when a
+		 * {@link #maxDateSkew(Duration) max date skew} is configured. Defaults to {@link DateHeaderProvider#systemUTC()}.
+		 *
+		 * @param dateHeaderProvider
+		 *          the provider used to get the current time and parse {@code Date} headers.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder dateHeaderProvider(DateHeaderProvider dateHeaderProvider);
+
+		abstract Builder verificationCache(VerificationCache verificationCache);
+
+		/**
+		 * Enables the caching of successful verifications of public key signatures, so that retried or hedged copies of a
+		 * message, carrying the same signature over the same signing string, skip the cryptographic verification. Entries
+		 * are indexed by a digest of the keyId, algorithm, signing string and signature, and only match as long as the
+		 * {@link KeyMap} returns the same key for the keyId. Secret key (HMAC) signatures are not cached, as verifying them
+		 * costs about as much as computing the digest.
+		 * <p>
+		 * A cached verification only skips the signature check: the {@link #maxDateSkew(Duration) max date skew} is still
+		 * enforced on each message. As a cache hit is precisely a replayed message, it must not be enabled along with replay
+		 * detection. Statistics are available from {@link SignatureHeaderVerifier#verificationCacheStats()}.
+		 * <p>
+		 * Disabled by default.
+		 *
+		 * @param maxEntries
+		 *          the maximum number of cached verifications. Each entry retains less than 200 bytes, on top of the key
+		 *          shared with the {@link KeyMap}.
+		 * @param ttl
+		 *          how long a successful verification is remembered, based on the clock of the
+		 *          {@link #dateHeaderProvider(DateHeaderProvider) date header provider}. It should be short, in the order of
+		 *          the retry delays of clients.
+		 * @return this builder for daisy chain.
+		 */
+		public Builder verificationCache(int maxEntries, Duration ttl) {
+			return verificationCache(new VerificationCache(maxEntries, ttl));
+		}
+
+		/**
+		 * Sets the rate limiter admitting, or not, the verification of signatures by their keyId. Signatures of a keyId
+		 * exceeding its {@link VerificationRateLimiter.Builder#keyIdLimit(double, int) limit} are not verified, without
+		 * retrieving the key nor computing the signing string, and the verification returns false. Failed verifications
+		 * with a key resolved by the key map, either unverified signatures or errors, are penalized; unknown keyIds and
+		 * stale messages are not. The same limiter can be shared with a server side filter limiting the verifications by
+		 * remote address.
+		 * <p>
+		 * As the keyId of a message is not authenticated before its signature is verified, anyone knowing the keyId of a
+		 * client can get it penalized by sending failing signatures with it, and lock it out for up to the
+		 * {@link VerificationRateLimiter.Builder#maxPenalty(Duration) max penalty}. Limiting the verifications by remote
+		 * address as well bounds the rate at which a single address can do so. A failure penalty of zero disables
+		 * penalties altogether.
+		 * <p>
+		 * Disabled by default.
+		 *
+		 * @param rateLimiter
+		 *          the rate limiter of verifications.
+		 * @return this builder for daisy chain.
+		 */
+		public abstract Builder rateLimiter(VerificationRateLimiter rateLimiter);
+
 		/**
 		 * Returns a newly configured {@code SignatureHeaderVerifier}.
 		 *
 		 * @return a newly configured {@code SignatureHeaderVerifier}.
 		 */
-		public abstract SignatureHeaderVerifier build();
+		public SignatureHeaderVerifier build() {
+			if (!keyMap().isPresent() && asyncKeyMap().isPresent()) {
+				keyMap(AsyncKeyMap.blocking(asyncKeyMap().get()));
+			} else if (keyMap().isPresent() && !asyncKeyMap().isPresent()) {
+				asyncKeyMap(AsyncKeyMap.of(keyMap().get()));
+			}
+			// the verifier gets a frozen copy, so that further calls to backend do not change it
+			Map<Algorithm, SigningBackend> backends = backends();
+			backends(Collections.unmodifiableMap(new EnumMap<>(backends)));
+			try {
+				return autoBuild();
+			} finally {
+				backends(backends);
+			}
+		}
+
+		abstract SignatureHeaderVerifier autoBuild();
 	}
 }
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * A member of the {@code Signature-Input} header: the covered components and parameters of a signature.
+ */
+final class SignatureInput {
+
+	static final String PARAM_CREATED = "created";
+	static final String PARAM_EXPIRES = "expires";
+	static final String PARAM_KEY_ID = "keyid";
+	static final String PARAM_ALGORITHM = "alg";
+	static final String PARAM_TAG = "tag";
+
+	private final String label;
+	private final List<String> components;
+	private String innerList;
+	private String signatureParams;
+
+	private String keyId;
+	private String algorithm;
+	private String tag;
+	private Long created;
+	private Long expires;
+
+	private SignatureInput(String label, List<String> components) {
+		this.label = label;
+		this.components = components;
+	}
+
+	/**
+	 * Parses the value of the {@code Signature-Input} header.
+	 *
+	 * @param value
+	 *          the combined values of the {@code Signature-Input} headers.
+	 * @return the signature inputs, by label, in order.
+	 * @throws IllegalArgumentException
+	 *           if the value is not a valid {@code Signature-Input} dictionary.
+	 */
+	static Map<String, SignatureInput> parse(String value) {
+		Map<String, SignatureInput> ret = new LinkedHashMap<>();
+		StructuredFields.Parser parser = new StructuredFields.Parser(value);
+		if (parser.atEnd()) {
+			return ret;
+		}
+		do {
+			String label = parser.parseKey();
+			parser.expect('=');
+			SignatureInput input = parseInnerList(label, parser);
+			// as for any dictionary, the last member with a given key wins
+			ret.put(label, input);
+		} while (parser.nextMember());
+		return ret;
+	}
+
+	private static SignatureInput parseInnerList(String label, StructuredFields.Parser parser) {
+		parser.expect('(');
+		StringBuilder canonical = new StringBuilder(128).append('(');
+		List<String> components = new ArrayList<>();
+		parser.skipSpaces();
+		while (!parser.tryConsume(')')) {
+			if (!components.isEmpty()) {
+				canonical.append(' ');
+			}
+			Object item = parser.parseBareItem(canonical);
+			if (!(item instanceof String) || canonical.charAt(canonical.length() - 1) != '"') {
+				throw parser.error("component identifier string expected");
+			}
+			components.add((String) item);
+			parser.parseParameters(canonical, (k, v) -> {
+				throw new IllegalArgumentException("Unsupported parameter '" + k + "' of component '" + item + "'");
+			});
+			if (!parser.tryConsume(' ')) {
+				parser.expect(')');
+				break;
+			}
+			parser.skipSpaces();
+		}
+		canonical.append(')');
+		SignatureInput ret = new SignatureInput(label, Collections.unmodifiableList(components));
+		ret.innerList = canonical.toString();
+		parser.parseParameters(canonical, ret::parameter);
+		ret.signatureParams = canonical.toString();
+		return ret;
+	}
+
+	private void parameter(String key, Object value) {
+		switch (key) {
+			case PARAM_KEY_ID:
+				this.keyId = stringParameter(key, value);
+				break;
+			case PARAM_ALGORITHM:
+				this.algorithm = stringParameter(key, value);
+				break;
+			case PARAM_TAG:
+				this.tag = stringParameter(key, value);
+				break;
+			case PARAM_CREATED:
+				this.created = integerParameter(key, value);
+				break;
+			case PARAM_EXPIRES:
+				this.expires = integerParameter(key, value);
+				break;
+			default:
+				// other parameters (e.g. nonce) are signed but not interpreted
+				break;
+		}
+	}
+
+	private static String stringParameter(String key, Object value) {
+		if (!(value instanceof String)) {
+			throw new IllegalArgumentException("Signature parameter '" + key + "' must be a string");
+		}
+		return (String) value;
+	}
+
+	private static Long integerParameter(String key, Object value) {
+		if (!(value instanceof Long)) {
+			throw new IllegalArgumentException("Signature parameter '" + key + "' must be an integer");
+		}
+		return (Long) value;
+	}
+
+	String label() {
+		return this.label;
+	}
+
+	List<String> components() {
+		return this.components;
+	}
+
+	/**
+	 * Returns the canonical serialization of the covered components, without the signature parameters.
+	 */
+	String innerList() {
+		return this.innerList;
+	}
+
+	/**
+	 * Returns the canonical serialization of the whole member value, i.e. the value of the {@code @signature-params}
+	 * component.
+	 */
+	String signatureParams() {
+		return this.signatureParams;
+	}
+
+	Optional<String> keyId() {
+		return Optional.ofNullable(this.keyId);
+	}
+
+	Optional<String> algorithm() {
+		return Optional.ofNullable(this.algorithm);
+	}
+
+	Optional<String> tag() {
+		return Optional.ofNullable(this.tag);
+	}
+
+	OptionalLong created() {
+		return this.created == null ? OptionalLong.empty() : OptionalLong.of(this.created);
+	}
+
+	OptionalLong expires() {
+		return this.expires == null ? OptionalLong.empty() : OptionalLong.of(this.expires);
+	}
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.util.Objects;
+
+import javax.crypto.SecretKey;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+/**
+ * The implementation of the cryptographic operations behind the signing and the verification of HTTP messages. By
+ * default, {@link HttpMessageSigner} and {@link SignatureHeaderVerifier} use the {@link java.security.Signature} and
+ * {@link javax.crypto.Mac} engines of the Java Cryptography Architecture. A backend can be selected per algorithm to
+ * plug in a faster implementation, either from a native security provider (e.g. Conscrypt or Amazon Corretto Crypto
+ * Provider, see {@link #jca(Provider)}) or written against another API.
+ * <p>
+ * Implementations must be thread-safe, as they are shared by all the messages signed or verified by a signer or a
+ * verifier.
+ */
+public interface SigningBackend {
+
+	/**
+	 * Signs the given input with a public key algorithm.
+	 *
+	 * @param algorithm
+	 *          the public key algorithm to sign with.
+	 * @param key
+	 *          the private key to sign with.
+	 * @param input
+	 *          the bytes to sign.
+	 * @return the signature of the input.
+	 * @throws GeneralSecurityException
+	 *           when the algorithm is not available or the key is inappropriate for it.
+	 */
+	byte[] sign(Algorithm algorithm, PrivateKey key, byte[] input) throws GeneralSecurityException;
+
+	/**
+	 * Verifies the signature of the given input with a public key algorithm.
+	 *
+	 * @param algorithm
+	 *          the public key algorithm to verify with.
+	 * @param key
+	 *          the public key to verify with.
+	 * @param input
+	 *          the signed bytes.
+	 * @param signature
+	 *          the signature to verify.
+	 * @return true if the signature is verified, false otherwise.
+	 * @throws GeneralSecurityException
+	 *           when the algorithm is not available or the key is inappropriate for it.
+	 */
+	boolean verify(Algorithm algorithm, PublicKey key, byte[] input, byte[] signature) throws GeneralSecurityException;
+
+	/**
+	 * Computes the MAC of the given input with a secret key algorithm.
+	 *
+	 * @param algorithm
+	 *          the secret key algorithm.
+	 * @param key
+	 *          the secret key.
+	 * @param input
+	 *          the bytes to authenticate.
+	 * @return the MAC of the input.
+	 * @throws GeneralSecurityException
+	 *           when the algorithm is not available or the key is inappropriate for it.
+	 */
+	byte[] mac(Algorithm algorithm, SecretKey key, byte[] input) throws GeneralSecurityException;
+
+	/**
+	 * Verifies the MAC of the given input with a secret key algorithm. The default implementation compares the
+	 * {@link #mac(Algorithm, SecretKey, byte[]) computed MAC} with the given one in constant time.
+	 *
+	 * @param algorithm
+	 *          the secret key algorithm.
+	 * @param key
+	 *          the secret key.
+	 * @param input
+	 *          the authenticated bytes.
+	 * @param mac
+	 *          the MAC to verify.
+	 * @return true if the MAC is verified, false otherwise.
+	 * @throws GeneralSecurityException
+	 *           when the algorithm is not available or the key is inappropriate for it.
+	 */
+	default boolean verifyMac(Algorithm algorithm, SecretKey key, byte[] input, byte[] mac) throws GeneralSecurityException {
+		return MessageDigest.isEqual(mac(algorithm, key, input), mac);
+	}
+
+	/**
+	 * Returns the backend using the engines of the highest priority Java Security Provider implementing each algorithm,
+	 * i.e. the behavior of signers and verifiers without any backend.
+	 *
+	 * @return the backend using the default Java Security Providers.
+	 */
+	static SigningBackend jca() {
+		return JcaSigningBackend.DEFAULT;
+	}
+
+	/**
+	 * Returns the backend using the engines of the given Java Security Provider. This is how native implementations
+	 * packaged as providers are plugged in, e.g. {@code Conscrypt.newProvider()} (BoringSSL) or
+	 * {@code AmazonCorrettoCryptoProvider.INSTANCE} (AWS-LC), without registering them globally with
+	 * {@link java.security.Security#insertProviderAt(Provider, int)}.
+	 *
+	 * @param provider
+	 *          the Java Security Provider implementing the algorithms.
+	 * @return the backend using the given Java Security Provider.
+	 */
+	static SigningBackend jca(Provider provider) {
+		return new JcaSigningBackend(Objects.requireNonNull(provider));
+	}
+
+	/**
+	 * Returns a backend computing {@link Algorithm#HMAC_SHA256} MACs in Java, from SHA-256 digests into which the inner
+	 * and outer padded keys have been absorbed once per key, instead of initializing a {@link javax.crypto.Mac} for each
+	 * message. The key schedules of the most recently used keys are kept in memory. Other algorithms, and secret keys
+	 * whose encoded form is not available (e.g. keys stored in a hardware module), go through {@link #jca()}.
+	 *
+	 * @return a backend with precomputed HMAC key schedules.
+	 */
+	static SigningBackend precomputedHmac() {
+		return new PrecomputedHmacBackend(jca());
+	}
+}
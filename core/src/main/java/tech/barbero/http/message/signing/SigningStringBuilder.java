@@ -8,16 +8,60 @@
  *******************************************************************************/
 package tech.barbero.http.message.signing;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * Builds the signing string of HTTP messages for a list of headers. The list is compiled once at creation (normalized
+ * names and special header kinds), and the values of each header are fetched once per message.
+ */
 class SigningStringBuilder {
 
-	private final List<String> headersToSign;
+	private enum Kind {
+		HEADER,
+		REQUEST_TARGET,
+		RESPONSE_STATUS;
+
+		static Kind of(String header) {
+			if (HttpMessageSigner.REQUEST_TARGET.equals(header)) {
+				return REQUEST_TARGET;
+			} else if (HttpMessageSigner.RESPONSE_STATUS.equals(header)) {
+				return RESPONSE_STATUS;
+			}
+			return HEADER;
+		}
+	}
+
+	/**
+	 * Whether no headers have been requested, i.e. only the {@code Date} header is signed.
+	 */
+	private final boolean dateOnly;
+	private final String[] headers;
+	private final String[] normalizedHeaders;
+	private final Kind[] kinds;
+	/**
+	 * The headers whose values are looked up in messages, i.e. the non special ones.
+	 */
+	private final List<String> lookedUpHeaders;
 
 	private SigningStringBuilder(List<String> headersToSign) {
-		this.headersToSign = headersToSign;
+		this.dateOnly = headersToSign.isEmpty();
+		List<String> headerList = this.dateOnly ? Collections.singletonList(HttpMessageSigner.HEADER_DATE) : headersToSign;
+		int size = headerList.size();
+		this.headers = headerList.toArray(new String[size]);
+		this.normalizedHeaders = new String[size];
+		this.kinds = new Kind[size];
+		List<String> lookedUp = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			this.normalizedHeaders[i] = normalizeHeader(this.headers[i]);
+			this.kinds[i] = Kind.of(this.headers[i]);
+			if (this.kinds[i] == Kind.HEADER) {
+				lookedUp.add(this.headers[i]);
+			}
+		}
+		this.lookedUpHeaders = Collections.unmodifiableList(lookedUp);
 	}
 
 	static SigningStringBuilder noHeader() {
@@ -29,92 +73,122 @@ class SigningStringBuilder {
 	}
 
 	String signingString(HttpMessage message) {
-		return signingStringParts(message).stream().collect(Collectors.joining("\n"));
-	}
-
-	private static String headerSigningString(HttpMessage message, String header) {
-		final String ret;
-		if (HttpMessageSigner.REQUEST_TARGET.equals(header)) {
-			if (!(message instanceof HttpRequest)) {
-				throw new IllegalStateException("Header '" + HttpMessageSigner.REQUEST_TARGET + "' can only be used with HTTP Request.");
+		List<List<String>> values = headerValues(message);
+		StringBuilder ret = new StringBuilder();
+		for (int i = 0; i < this.headers.length; i++) {
+			if (i > 0) {
+				ret.append('\n');
 			}
-			ret = requestTargetHeaderSigningString((HttpRequest) message);
-		} else if (HttpMessageSigner.RESPONSE_STATUS.equals(header)) {
-			if (!(message instanceof HttpResponse)) {
-				throw new IllegalStateException("Header '" + HttpMessageSigner.RESPONSE_STATUS + "' can only be used with HTTP Response.");
+			ret.append(this.normalizedHeaders[i]).append(": ");
+			switch (this.kinds[i]) {
+				case REQUEST_TARGET:
+					ret.append(requestTarget(message));
+					break;
+				case RESPONSE_STATUS:
+					ret.append(responseStatus(message));
+					break;
+				default:
+					appendValues(ret, values.get(i));
+					break;
 			}
-			ret = responseStatusHeaderSigningString((HttpResponse) message);
-		} else {
-			ret = headerSigningString(header, message.headerValues(header));
 		}
-		return ret;
+		return ret.toString();
 	}
 
-	private List<String> signingStringParts(HttpMessage message) {
-		checkHeaders(message);
-		final List<String> ret;
-		if (this.headersToSign.isEmpty()) {
-			ret = Collections.singletonList(headerSigningString(HttpMessageSigner.HEADER_DATE, message.headerValues(HttpMessageSigner.HEADER_DATE)));
-		} else {
-			ret = this.headersToSign.stream()
-					.map(h -> headerSigningString(message, h))
-					.collect(Collectors.toList());
+	/**
+	 * Returns the values signed by the signing string of the given message, header by header, without building it: the
+	 * values of each header as returned by the message, or a single value for special headers. Messages with equal
+	 * signed values have the same signing string.
+	 */
+	List<List<String>> signedValues(HttpMessage message) {
+		List<List<String>> ret = headerValues(message);
+		for (int i = 0; i < this.headers.length; i++) {
+			switch (this.kinds[i]) {
+				case REQUEST_TARGET:
+					ret.set(i, Collections.singletonList(requestTarget(message)));
+					break;
+				case RESPONSE_STATUS:
+					ret.set(i, Collections.singletonList(responseStatus(message)));
+					break;
+				default:
+					break;
+			}
 		}
 		return ret;
 	}
 
-	private void checkHeaders(HttpMessage message) {
-		if (this.headersToSign.isEmpty()) {
-			if (message.headerValues(HttpMessageSigner.HEADER_DATE).isEmpty()) {
-				throw new IllegalStateException("A HTTP message must contain at least a date header to be signed");
+	/**
+	 * Fetches the values of the headers to sign in one call to the message, failing if any of them is missing from the
+	 * message. Values of special headers are {@code null}.
+	 */
+	private List<List<String>> headerValues(HttpMessage message) {
+		List<List<String>> lookedUpValues = this.lookedUpHeaders.isEmpty() ? Collections.emptyList() : message.headerValues(this.lookedUpHeaders);
+		List<List<String>> ret = new ArrayList<>(this.headers.length);
+		List<String> notFound = null;
+		int lookedUpIndex = 0;
+		for (int i = 0; i < this.headers.length; i++) {
+			List<String> values = null;
+			if (this.kinds[i] == Kind.HEADER) {
+				values = lookedUpValues.get(lookedUpIndex++);
+				if (values.isEmpty()) {
+					if (notFound == null) {
+						notFound = new ArrayList<>();
+					}
+					notFound.add(this.headers[i]);
+				}
 			}
-		} else {
-			List<String> notFound = this.headersToSign.stream()
-					.filter(h -> !HttpMessageSigner.REQUEST_TARGET.equals(h))
-					.filter(h -> !HttpMessageSigner.RESPONSE_STATUS.equals(h))
-					.filter(h -> message.headerValues(h).isEmpty())
-					.collect(Collectors.toList());
-			if (!notFound.isEmpty()) {
-				throw new IllegalStateException("The following headers cannot be found in the message: "
-						+ notFound.stream().map(s -> ("'" + s + "'")).collect(Collectors.joining(", ")));
+			ret.add(values);
+		}
+		if (notFound != null) {
+			if (this.dateOnly) {
+				throw new IllegalStateException("A HTTP message must contain at least a date header to be signed");
 			}
+			throw new IllegalStateException("The following headers cannot be found in the message: "
+					+ notFound.stream().map(s -> ("'" + s + "'")).collect(Collectors.joining(", ")));
 		}
+		return ret;
 	}
 
-	private static String responseStatusHeaderSigningString(HttpResponse response) {
-		return headerSigningString(HttpMessageSigner.RESPONSE_STATUS, Integer.toString(response.statusCode()));
+	private static String responseStatus(HttpMessage message) {
+		if (!(message instanceof HttpResponse)) {
+			throw new IllegalStateException("Header '" + HttpMessageSigner.RESPONSE_STATUS + "' can only be used with HTTP Response.");
+		}
+		return Integer.toString(((HttpResponse) message).statusCode());
 	}
 
-	private static String requestTargetHeaderSigningString(HttpRequest request) {
+	private static String requestTarget(HttpMessage message) {
+		if (!(message instanceof HttpRequest)) {
+			throw new IllegalStateException("Header '" + HttpMessageSigner.REQUEST_TARGET + "' can only be used with HTTP Request.");
+		}
+		HttpRequest request = (HttpRequest) message;
 		String query = request.uri().getQuery();
-		return headerSigningString(HttpMessageSigner.REQUEST_TARGET, request.method().toLowerCase() + ' ' + request.uri().getPath() + (query != null ? "?" + query : ""));
+		return (request.method().toLowerCase() + ' ' + request.uri().getPath() + (query != null ? "?" + query : "")).trim();
 	}
 
 	/**
-	 * Create the header field string by concatenating the lowercased header field name followed with an ASCII colon `:`, an ASCII space ` `, and the header field value.
-	 * Leading and trailing optional whitespace (OWS) in the header field value are omitted (as specified in RFC7230 [RFC7230], Section 3.2.4).
-	 *
-	 * @param header
-	 *          the name of the header.
-	 * @param value
-	 *          the value of the header.
-	 * @return the header field string properly formatted.
+	 * The header field string starts with the lowercased header field name, followed with an ASCII colon `:` and an ASCII
+	 * space ` `.
 	 */
-	private static String headerSigningString(String header, String value) {
-		return header.toLowerCase().trim() + ": " + value.trim();
+	private static String normalizeHeader(String header) {
+		return header.toLowerCase().trim();
 	}
 
 	/**
 	 * If there are multiple instances of the same header field, all header field values associated with the header field MUST be concatenated, separated by a ASCII comma
-	 * and an ASCII space `, `, and used in the order in which they will appear in the transmitted HTTP message.
+	 * and an ASCII space `, `, and used in the order in which they will appear in the transmitted HTTP message. Leading and trailing optional whitespace (OWS) in the
+	 * header field value are omitted (as specified in RFC7230 [RFC7230], Section 3.2.4).
 	 *
-	 * @param header
-	 *          the name of the header.
+	 * @param builder
+	 *          the builder to append the values to.
 	 * @param values
 	 *          the values of the header.
-	 * @return the header field string properly formatted.
 	 */
-	private static String headerSigningString(String header, List<String> values) {
-		return header.toLowerCase().trim() + ": " + values.stream().map(String::trim).collect(Collectors.joining(", "));
+	private static void appendValues(StringBuilder builder, List<String> values) {
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			builder.append(values.get(i).trim());
+		}
 	}
 }
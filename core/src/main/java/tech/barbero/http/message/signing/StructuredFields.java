@@ -0,0 +1,371 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The subset of <a href="https://www.rfc-editor.org/rfc/rfc8941">structured field values</a> (RFC 8941) needed by RFC
+ * 9421 headers. Parsing is done in a single pass over the header value, and also produces the canonical serialization
+ * of what has been parsed, as RFC 9421 signs the serialized form of the {@code Signature-Input} members.
+ */
+final class StructuredFields {
+
+	private StructuredFields() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Combines the values of all the instances of a structured header field, as if they were sent as a single header.
+	 */
+	static String combine(List<String> values) {
+		return values.size() == 1 ? values.get(0) : String.join(",", values);
+	}
+
+	/**
+	 * Checks that the given value is a valid dictionary or parameter key.
+	 *
+	 * @throws IllegalArgumentException
+	 *           if the value is not a valid key.
+	 */
+	static void checkKey(String value) {
+		Parser parser = new Parser(value);
+		parser.parseKey();
+		if (!parser.atEnd() || value.startsWith(" ")) {
+			throw new IllegalArgumentException("Invalid structured field key '" + value + "'");
+		}
+	}
+
+	/**
+	 * Serializes the given value as a structured field string.
+	 *
+	 * @throws IllegalArgumentException
+	 *           if the value contains characters other than printable ASCII ones.
+	 */
+	static String serializeString(String value) {
+		StringBuilder ret = new StringBuilder(value.length() + 2);
+		appendString(ret, value);
+		return ret.toString();
+	}
+
+	static void appendString(StringBuilder builder, String value) {
+		builder.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x20 || c > 0x7e) {
+				throw new IllegalArgumentException("Structured field strings can only contain printable ASCII characters: '" + value + "'");
+			}
+			if (c == '"' || c == '\\') {
+				builder.append('\\');
+			}
+			builder.append(c);
+		}
+		builder.append('"');
+	}
+
+	/**
+	 * Parses a dictionary whose members are all byte sequences, such as the {@code Signature} header.
+	 *
+	 * @return the decoded byte sequences, by key, in order.
+	 * @throws IllegalArgumentException
+	 *           if the value is not such a dictionary.
+	 */
+	static Map<String, byte[]> parseByteSequenceDictionary(String value) {
+		Map<String, byte[]> ret = new LinkedHashMap<>();
+		Parser parser = new Parser(value);
+		if (parser.atEnd()) {
+			return ret;
+		}
+		StringBuilder ignored = new StringBuilder();
+		do {
+			String key = parser.parseKey();
+			parser.expect('=');
+			Object item = parser.parseBareItem(ignored);
+			if (!(item instanceof byte[])) {
+				throw parser.error("byte sequence expected");
+			}
+			parser.parseParameters(ignored, (k, v) -> {
+				// parameters of signatures are not defined
+			});
+			ret.put(key, (byte[]) item);
+		} while (parser.nextMember());
+		return ret;
+	}
+
+	/**
+	 * Receives the parameters of a parsed item.
+	 */
+	@FunctionalInterface
+	interface ParameterHandler {
+		void parameter(String key, Object value);
+	}
+
+	/**
+	 * A cursor over a structured field value. Parsed items are returned as {@link String} (strings and tokens),
+	 * {@link Long} (integers), {@link Boolean} or {@code byte[]} (byte sequences). Decimals are returned as their
+	 * canonical serialization.
+	 */
+	static final class Parser {
+		private final String input;
+		private int pos;
+
+		Parser(String input) {
+			this.input = input;
+			skipSpaces();
+		}
+
+		boolean atEnd() {
+			return this.pos >= this.input.length();
+		}
+
+		private char current() {
+			return this.input.charAt(this.pos);
+		}
+
+		boolean tryConsume(char c) {
+			if (!atEnd() && current() == c) {
+				this.pos++;
+				return true;
+			}
+			return false;
+		}
+
+		void expect(char c) {
+			if (!tryConsume(c)) {
+				throw error("'" + c + "' expected");
+			}
+		}
+
+		void skipSpaces() {
+			while (!atEnd() && current() == ' ') {
+				this.pos++;
+			}
+		}
+
+		private void skipOptionalWhitespaces() {
+			while (!atEnd() && (current() == ' ' || current() == '\t')) {
+				this.pos++;
+			}
+		}
+
+		/**
+		 * Moves to the next member of a list or dictionary.
+		 *
+		 * @return true if there is a next member, false at the end of the value.
+		 */
+		boolean nextMember() {
+			skipOptionalWhitespaces();
+			if (atEnd()) {
+				return false;
+			}
+			expect(',');
+			skipOptionalWhitespaces();
+			if (atEnd()) {
+				throw error("trailing comma");
+			}
+			return true;
+		}
+
+		String parseKey() {
+			int start = this.pos;
+			if (atEnd() || !(isLowercaseAlpha(current()) || current() == '*')) {
+				throw error("key expected");
+			}
+			this.pos++;
+			while (!atEnd() && isKeyChar(current())) {
+				this.pos++;
+			}
+			return this.input.substring(start, this.pos);
+		}
+
+		/**
+		 * Parses the parameters of an item, appending their canonical serialization to the given builder.
+		 */
+		void parseParameters(StringBuilder canonical, ParameterHandler handler) {
+			while (tryConsume(';')) {
+				skipSpaces();
+				String key = parseKey();
+				canonical.append(';').append(key);
+				Object value = Boolean.TRUE;
+				if (tryConsume('=')) {
+					int length = canonical.length();
+					canonical.append('=');
+					value = parseBareItem(canonical);
+					if (Boolean.TRUE.equals(value)) {
+						// true parameters are serialized without their value
+						canonical.setLength(length);
+					}
+				}
+				handler.parameter(key, value);
+			}
+		}
+
+		/**
+		 * Parses a bare item, appending its canonical serialization to the given builder.
+		 */
+		Object parseBareItem(StringBuilder canonical) {
+			if (atEnd()) {
+				throw error("item expected");
+			}
+			char c = current();
+			if (c == '"') {
+				String ret = parseString();
+				appendString(canonical, ret);
+				return ret;
+			} else if (c == '-' || isDigit(c)) {
+				return parseNumber(canonical);
+			} else if (c == ':') {
+				return parseByteSequence(canonical);
+			} else if (c == '?') {
+				this.pos++;
+				if (tryConsume('1')) {
+					canonical.append("?1");
+					return Boolean.TRUE;
+				} else if (tryConsume('0')) {
+					canonical.append("?0");
+					return Boolean.FALSE;
+				}
+				throw error("boolean expected");
+			} else if (isAlpha(c) || c == '*') {
+				String ret = parseToken();
+				canonical.append(ret);
+				return ret;
+			}
+			throw error("item expected");
+		}
+
+		private String parseString() {
+			this.pos++;
+			StringBuilder ret = null;
+			int start = this.pos;
+			while (!atEnd()) {
+				char c = current();
+				if (c == '"') {
+					String value = ret == null ? this.input.substring(start, this.pos) : ret.append(this.input, start, this.pos).toString();
+					this.pos++;
+					return value;
+				} else if (c == '\\') {
+					// only allocates a builder for strings with escapes
+					if (ret == null) {
+						ret = new StringBuilder();
+					}
+					ret.append(this.input, start, this.pos);
+					this.pos++;
+					if (atEnd() || (current() != '"' && current() != '\\')) {
+						throw error("invalid escape");
+					}
+					start = this.pos;
+				} else if (c < 0x20 || c > 0x7e) {
+					throw error("invalid string character");
+				}
+				this.pos++;
+			}
+			throw error("unterminated string");
+		}
+
+		private String parseToken() {
+			int start = this.pos;
+			this.pos++;
+			while (!atEnd() && isTokenChar(current())) {
+				this.pos++;
+			}
+			return this.input.substring(start, this.pos);
+		}
+
+		private Object parseNumber(StringBuilder canonical) {
+			int start = this.pos;
+			boolean negative = tryConsume('-');
+			int digitsStart = this.pos;
+			while (!atEnd() && isDigit(current())) {
+				this.pos++;
+			}
+			int integerDigits = this.pos - digitsStart;
+			if (integerDigits == 0) {
+				throw error("digit expected");
+			}
+			if (!tryConsume('.')) {
+				if (integerDigits > 15) {
+					throw error("integer too long");
+				}
+				long value = Long.parseLong(this.input.substring(start, this.pos));
+				canonical.append(value);
+				return value;
+			}
+			int fractionStart = this.pos;
+			while (!atEnd() && isDigit(current())) {
+				this.pos++;
+			}
+			int fractionDigits = this.pos - fractionStart;
+			if (integerDigits > 12 || fractionDigits == 0 || fractionDigits > 3) {
+				throw error("invalid decimal");
+			}
+			int fractionEnd = this.pos;
+			while (fractionEnd > fractionStart + 1 && this.input.charAt(fractionEnd - 1) == '0') {
+				fractionEnd--;
+			}
+			int length = canonical.length();
+			if (negative) {
+				canonical.append('-');
+			}
+			canonical.append(Long.parseLong(this.input.substring(digitsStart, fractionStart - 1)))
+					.append('.').append(this.input, fractionStart, fractionEnd);
+			return canonical.substring(length);
+		}
+
+		private byte[] parseByteSequence(StringBuilder canonical) {
+			this.pos++;
+			int start = this.pos;
+			while (!atEnd() && current() != ':') {
+				char c = current();
+				if (!(isAlpha(c) || isDigit(c) || c == '+' || c == '/' || c == '=')) {
+					throw error("invalid byte sequence character");
+				}
+				this.pos++;
+			}
+			if (atEnd()) {
+				throw error("unterminated byte sequence");
+			}
+			String encoded = this.input.substring(start, this.pos);
+			this.pos++;
+			canonical.append(':').append(encoded).append(':');
+			try {
+				return Base64.getDecoder().decode(encoded);
+			} catch (IllegalArgumentException e) {
+				throw error("invalid byte sequence: " + e.getMessage());
+			}
+		}
+
+		IllegalArgumentException error(String message) {
+			return new IllegalArgumentException("Invalid structured field value, " + message + " at position " + this.pos + ": '" + this.input + "'");
+		}
+
+		private static boolean isLowercaseAlpha(char c) {
+			return c >= 'a' && c <= 'z';
+		}
+
+		private static boolean isAlpha(char c) {
+			return isLowercaseAlpha(c) || (c >= 'A' && c <= 'Z');
+		}
+
+		private static boolean isDigit(char c) {
+			return c >= '0' && c <= '9';
+		}
+
+		private static boolean isKeyChar(char c) {
+			return isLowercaseAlpha(c) || isDigit(c) || c == '_' || c == '-' || c == '.' || c == '*';
+		}
+
+		private static boolean isTokenChar(char c) {
+			return isAlpha(c) || isDigit(c) || c == ':' || c == '/' || "!#$%&'*+-.^_`|~".indexOf(c) >= 0;
+		}
+	}
+}
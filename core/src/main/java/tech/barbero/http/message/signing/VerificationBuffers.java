@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+/**
+ * Scratch buffers of the HMAC verification, held per thread. A set of buffers is made of the {@link #MAC_INPUT
+ * encoded signing string}, the {@link #MAC_COMPUTED computed MAC} and the {@link #MAC_PROVIDED decoded provided MAC}.
+ * Users may replace a buffer of the set by a bigger one, which will then be reused by the next verifications of the
+ * thread.
+ * <p>
+ * A Java 21 variant of this class is shipped in the multi-release jar, see {@code src/main/java21}.
+ */
+final class VerificationBuffers {
+
+	static final int MAC_INPUT = 0;
+	static final int MAC_COMPUTED = 1;
+	static final int MAC_PROVIDED = 2;
+
+	// plain byte arrays (and not an instance of a class of ours) are held by threads so that
+	// the class loader of this library does not leak in containers with pooled threads.
+	private static final ThreadLocal<byte[][]> BUFFERS = ThreadLocal.withInitial(VerificationBuffers::create);
+
+	private VerificationBuffers() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Returns a set of buffers for the current thread, to be {@link #release(byte[][]) released} once the verification is
+	 * done.
+	 *
+	 * @return the set of buffers of the current thread.
+	 */
+	static byte[][] borrow() {
+		return BUFFERS.get();
+	}
+
+	/**
+	 * Releases a set of buffers {@link #borrow() borrowed} by the current thread.
+	 *
+	 * @param buffers
+	 *          the set of buffers.
+	 */
+	static void release(byte[][] buffers) {
+		// held by the thread
+	}
+
+	private static byte[][] create() {
+		return new byte[][] { new byte[256], new byte[0], new byte[0] };
+	}
+}
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+/**
+ * A bounded cache of successful verifications, indexed by a SHA-256 digest of the keyId, algorithm, signing string and
+ * signature of the verified messages. It lets retried or hedged copies of a message skip the cryptographic
+ * verification.
+ * <p>
+ * Entries expire after a fixed time to live and are evicted in insertion order once the cache is full. As all entries
+ * have the same time to live, the oldest entries are also the first to expire. An entry only matches as long as the key
+ * returned by the {@link KeyMap} is equal to the one the signature has been verified with. Failed verifications are never
+ * cached.
+ * <p>
+ * The entries are spread over up to {@value #MAX_SEGMENTS} segments, each with its own lock and an equal share of the
+ * maximum number of entries, so that concurrent verifications of different messages rarely contend. The insertion order
+ * and thus the eviction is per segment: the evicted entry is the oldest one of its segment, not necessarily the oldest
+ * one of the cache.
+ * <p>
+ * This class is thread-safe.
+ */
+final class VerificationCache {
+
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+
+	static final int MAX_SEGMENTS = 16;
+
+	private final long ttlMillis;
+	private final Segment[] segments;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	VerificationCache(int maxEntries, Duration ttl) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("The maximum number of cached verifications must be strictly positive");
+		}
+		if (ttl.isNegative() || ttl.isZero()) {
+			throw new IllegalArgumentException("The time to live of cached verifications must be strictly positive");
+		}
+		this.ttlMillis = ttl.toMillis();
+		// every segment holds at least one entry, and the shares add up to maxEntries
+		this.segments = new Segment[Math.min(maxEntries, MAX_SEGMENTS)];
+		for (int i = 0; i < this.segments.length; i++) {
+			this.segments[i] = new Segment(maxEntries / this.segments.length + (i < maxEntries % this.segments.length ? 1 : 0));
+		}
+	}
+
+	/**
+	 * Computes the digest indexing the verification of the given signature.
+	 *
+	 * @param keyId
+	 *          the id of the key.
+	 * @param algorithm
+	 *          the algorithm of the signature.
+	 * @param signingString
+	 *          the signing string of the message.
+	 * @param signature
+	 *          the Base64 encoded signature of the message.
+	 * @return the digest indexing the verification.
+	 */
+	static Digest digest(String keyId, Algorithm algorithm, String signingString, String signature) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform implementation is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+		// NUL separators avoid ambiguities between the fields
+		digest.update(keyId.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(algorithm.algorithmName().getBytes(StandardCharsets.US_ASCII));
+		digest.update((byte) 0);
+		digest.update(signingString.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(signature.getBytes(StandardCharsets.US_ASCII));
+		return new Digest(digest.digest());
+	}
+
+	/**
+	 * Returns whether a non expired successful verification with the given key is cached for the given digest.
+	 *
+	 * @param digest
+	 *          the digest of the verification.
+	 * @param key
+	 *          the key as currently returned by the {@link KeyMap}.
+	 * @param now
+	 *          the current time, in milliseconds since the epoch.
+	 * @return true if a matching successful verification is cached.
+	 */
+	boolean isVerified(Digest digest, Key key, long now) {
+		Segment segment = segmentFor(digest);
+		final Entry entry;
+		synchronized (segment) {
+			entry = segment.entries.get(digest);
+		}
+		if (entry != null && entry.expiresAt > now && entry.isFor(key)) {
+			this.hits.increment();
+			return true;
+		}
+		this.misses.increment();
+		return false;
+	}
+
+	/**
+	 * Records a successful verification.
+	 *
+	 * @param digest
+	 *          the digest of the verification.
+	 * @param key
+	 *          the key the signature has been verified with.
+	 * @param now
+	 *          the current time, in milliseconds since the epoch.
+	 */
+	void verified(Digest digest, Key key, long now) {
+		Segment segment = segmentFor(digest);
+		synchronized (segment) {
+			// re-inserting moves the entry at the end of the iteration order
+			segment.entries.remove(digest);
+			Iterator<Entry> oldest = segment.entries.values().iterator();
+			while (oldest.hasNext()) {
+				Entry entry = oldest.next();
+				if (entry.expiresAt <= now) {
+					oldest.remove();
+				} else if (segment.entries.size() >= segment.maxEntries) {
+					oldest.remove();
+					this.evictions.increment();
+				} else {
+					break;
+				}
+			}
+			segment.entries.put(digest, new Entry(key, now + this.ttlMillis));
+		}
+	}
+
+	VerificationCacheStats stats() {
+		int size = 0;
+		for (Segment segment : this.segments) {
+			synchronized (segment) {
+				size += segment.entries.size();
+			}
+		}
+		return VerificationCacheStats.create(this.hits.sum(), this.misses.sum(), this.evictions.sum(), size);
+	}
+
+	private Segment segmentFor(Digest digest) {
+		return this.segments[Math.floorMod(digest.hashCode(), this.segments.length)];
+	}
+
+	/**
+	 * A part of the cache, guarded by its own lock.
+	 */
+	private static final class Segment {
+		private final int maxEntries;
+		private final LinkedHashMap<Digest, Entry> entries;
+
+		Segment(int maxEntries) {
+			this.maxEntries = maxEntries;
+			this.entries = new LinkedHashMap<>();
+		}
+	}
+
+	/**
+	 * A SHA-256 digest, compared by content.
+	 */
+	static final class Digest {
+		private final byte[] bytes;
+		private final int hashCode;
+
+		Digest(byte[] bytes) {
+			this.bytes = bytes;
+			this.hashCode = Arrays.hashCode(bytes);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return this == obj || (obj instanceof Digest && Arrays.equals(this.bytes, ((Digest) obj).bytes));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
+	private static final class Entry {
+		private final Key key;
+		private final long expiresAt;
+
+		Entry(Key key, long expiresAt) {
+			this.key = key;
+			this.expiresAt = expiresAt;
+		}
+
+		boolean isFor(Key otherKey) {
+			return this.key == otherKey || this.key.equals(otherKey);
+		}
+	}
+}
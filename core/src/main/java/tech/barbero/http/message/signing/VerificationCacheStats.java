@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * A snapshot of the statistics of the verification cache of a {@link SignatureHeaderVerifier}. Counts are cumulative
+ * since the creation of the verifier.
+ *
+ * @see SignatureHeaderVerifier.Builder#verificationCache(int, java.time.Duration)
+ */
+@AutoValue
+public abstract class VerificationCacheStats {
+
+	VerificationCacheStats() {
+		// implementation classes cannot exist outside of this package
+	}
+
+	static VerificationCacheStats create(long hitCount, long missCount, long evictionCount, int size) {
+		return new AutoValue_VerificationCacheStats(hitCount, missCount, evictionCount, size);
+	}
+
+	/**
+	 * Returns the number of verifications answered by the cache.
+	 *
+	 * @return the number of verifications answered by the cache.
+	 */
+	public abstract long hitCount();
+
+	/**
+	 * Returns the number of verifications not found in the cache, and thus cryptographically verified.
+	 *
+	 * @return the number of verifications not found in the cache.
+	 */
+	public abstract long missCount();
+
+	/**
+	 * Returns the number of non expired entries evicted because the cache was full.
+	 *
+	 * @return the number of non expired entries evicted because the cache was full.
+	 */
+	public abstract long evictionCount();
+
+	/**
+	 * Returns the number of entries currently in the cache, including expired ones not purged yet.
+	 *
+	 * @return the number of entries currently in the cache.
+	 */
+	public abstract int size();
+}
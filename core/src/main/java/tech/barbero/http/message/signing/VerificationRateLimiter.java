@@ -0,0 +1,358 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * An admission control of signature verifications, shedding the load of clients whose verifications keep failing before
+ * any cryptographic operation is done. Verifications are admitted by token buckets keyed by the {@code keyId} of the
+ * signature, when set on a {@link SignatureHeaderVerifier.Builder#rateLimiter(VerificationRateLimiter) verifier}, and by
+ * the remote address of the client, when set on a server side filter.
+ * <p>
+ * Each admitted verification consumes one token, and each failed one consumes the {@link Builder#failurePenalty(int)
+ * failure penalty} on top of it. Penalties can put buckets into debt up to the {@link Builder#maxPenalty(Duration) max
+ * penalty}, so that repeatedly failing clients are locked out for a while, even after they stop sending requests. Successful
+ * verifications only consume their token: a legitimate client is never limited as long as its rate stays below the
+ * configured one. As the keyId of a message is not authenticated before its signature is verified, penalties are only
+ * charged to the keyIds resolved by the key map of the verifier, and can still be triggered by anyone knowing them, see
+ * {@link SignatureHeaderVerifier.Builder#rateLimiter(VerificationRateLimiter)}.
+ * <p>
+ * Memory is bounded: each limit is a fixed size table of buckets, whatever the number of keyIds or addresses. Each key
+ * is hashed, with a per-instance random seed, to one bucket in each of two rows, and is admitted as long as one of its
+ * two buckets has tokens left. A key is thus only limited by the traffic of other keys if they exhaust both of its
+ * buckets. Buckets are updated with a single compare-and-set of their state, without locks. As the two buckets are not
+ * updated atomically, a few more verifications than configured may be admitted under contention.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class VerificationRateLimiter {
+
+	static final int DEFAULT_FAILURE_PENALTY = 10;
+	static final Duration DEFAULT_MAX_PENALTY = Duration.ofMinutes(1);
+	static final int DEFAULT_BUCKETS = 4096;
+
+	private final Optional<Limit> keyIdLimit;
+	private final Optional<Limit> addressLimit;
+	private final int failurePenalty;
+	private final LongSupplier ticker;
+	private final long origin;
+	private final LongAdder rejections = new LongAdder();
+
+	private VerificationRateLimiter(Builder builder) {
+		SecureRandom random = new SecureRandom();
+		long maxPenaltyNanos = builder.maxPenalty.toNanos();
+		this.keyIdLimit = builder.keyIdRate.map(rate -> new Limit(rate, builder.keyIdBurst, maxPenaltyNanos, builder.buckets, random.nextLong()));
+		this.addressLimit = builder.addressRate.map(rate -> new Limit(rate, builder.addressBurst, maxPenaltyNanos, builder.buckets, random.nextLong()));
+		this.failurePenalty = builder.failurePenalty;
+		this.ticker = builder.ticker;
+		this.origin = builder.ticker.getAsLong();
+	}
+
+	/**
+	 * Returns a new builder of verification rate limiter.
+	 *
+	 * @return a new builder of verification rate limiter.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Admits, or not, the verification of a message received from the given remote address. Always true if no
+	 * {@link Builder#addressLimit(double, int) address limit} is configured.
+	 *
+	 * @param remoteAddress
+	 *          the address of the client, e.g. as returned by {@code ServletRequest.getRemoteAddr()}.
+	 * @return true if the message can be verified, false if it should be rejected without verification.
+	 */
+	public boolean admitAddress(String remoteAddress) {
+		return admit(this.addressLimit, remoteAddress);
+	}
+
+	/**
+	 * Records the failed verification of a message received from the given remote address, be it an unverified signature
+	 * or an error while verifying it.
+	 *
+	 * @param remoteAddress
+	 *          the address of the client.
+	 */
+	public void penalizeAddress(String remoteAddress) {
+		penalize(this.addressLimit, remoteAddress);
+	}
+
+	/**
+	 * Returns the number of verifications not admitted since the creation of this limiter.
+	 *
+	 * @return the number of verifications not admitted.
+	 */
+	public long rejectionCount() {
+		return this.rejections.sum();
+	}
+
+	boolean admitKeyId(String keyId) {
+		return admit(this.keyIdLimit, keyId);
+	}
+
+	void penalizeKeyId(String keyId) {
+		penalize(this.keyIdLimit, keyId);
+	}
+
+	private boolean admit(Optional<Limit> limit, String key) {
+		if (!limit.isPresent()) {
+			return true;
+		}
+		if (limit.get().admit(Objects.requireNonNull(key), now())) {
+			return true;
+		}
+		this.rejections.increment();
+		return false;
+	}
+
+	private void penalize(Optional<Limit> limit, String key) {
+		if (limit.isPresent()) {
+			limit.get().penalize(Objects.requireNonNull(key), now(), this.failurePenalty);
+		}
+	}
+
+	/**
+	 * Returns the current time, in nanoseconds since the creation of this limiter, so that it is never negative.
+	 */
+	private long now() {
+		return this.ticker.getAsLong() - this.origin;
+	}
+
+	/**
+	 * Token buckets of a given rate, implemented with the generic cell rate algorithm: the state of a bucket is the
+	 * theoretical arrival time of the next verification, all tokens being available when it is in the past. A
+	 * verification is admitted if consuming its token would not push it further in the future than the burst.
+	 */
+	private static final class Limit {
+		private static final int ROWS = 2;
+
+		private final long intervalNanos;
+		private final long burstNanos;
+		private final long maxDebtNanos;
+		private final int mask;
+		private final long seed;
+		private final AtomicLongArray arrivals;
+
+		Limit(double permitsPerSecond, int burst, long maxPenaltyNanos, int buckets, long seed) {
+			this.intervalNanos = Math.max(1L, (long) (1e9 / permitsPerSecond));
+			this.burstNanos = saturatedMultiply(this.intervalNanos, burst);
+			this.maxDebtNanos = saturatedAdd(this.burstNanos, maxPenaltyNanos);
+			this.mask = buckets - 1;
+			this.seed = seed;
+			this.arrivals = new AtomicLongArray(ROWS * buckets);
+		}
+
+		boolean admit(String key, long now) {
+			long hash = hash(key);
+			int first = index(hash, 0);
+			int second = index(hash, 1);
+			if (!hasToken(first, now) && !hasToken(second, now)) {
+				return false;
+			}
+			// a bucket without token is charged up to the burst only, so that the keys sharing it are not locked out by admissions
+			consume(first, now, this.intervalNanos, this.burstNanos);
+			consume(second, now, this.intervalNanos, this.burstNanos);
+			return true;
+		}
+
+		void penalize(String key, long now, int penalty) {
+			long hash = hash(key);
+			long cost = saturatedMultiply(this.intervalNanos, penalty);
+			consume(index(hash, 0), now, cost, this.maxDebtNanos);
+			consume(index(hash, 1), now, cost, this.maxDebtNanos);
+		}
+
+		private boolean hasToken(int index, long now) {
+			return Math.max(this.arrivals.get(index), now) + this.intervalNanos - now <= this.burstNanos;
+		}
+
+		private void consume(int index, long now, long cost, long maxDebtNanos) {
+			long arrival;
+			long next;
+			do {
+				arrival = this.arrivals.get(index);
+				next = Math.max(arrival, Math.min(saturatedAdd(Math.max(arrival, now), cost), saturatedAdd(now, maxDebtNanos)));
+			} while (!this.arrivals.compareAndSet(index, arrival, next));
+		}
+
+		private int index(long hash, int row) {
+			return row * (this.mask + 1) + ((int) (hash >>> (32 * row)) & this.mask);
+		}
+
+		/**
+		 * A seeded 64 bits FNV-1a hash with a MurmurHash3 finalizer, so that keys colliding in one row are unlikely to
+		 * collide in the other, and that colliding keys cannot be crafted without knowing the seed as easily as with
+		 * {@link String#hashCode()}.
+		 */
+		private long hash(String key) {
+			long h = this.seed;
+			for (int i = 0; i < key.length(); i++) {
+				h = (h ^ key.charAt(i)) * 0x100000001b3L;
+			}
+			h ^= h >>> 33;
+			h *= 0xff51afd7ed558ccdL;
+			h ^= h >>> 33;
+			h *= 0xc4ceb9fe1a85ec53L;
+			h ^= h >>> 33;
+			return h;
+		}
+
+		private static long saturatedAdd(long a, long b) {
+			long ret = a + b;
+			return ((a ^ ret) & (b ^ ret)) < 0 ? Long.MAX_VALUE : ret;
+		}
+
+		private static long saturatedMultiply(long a, long b) {
+			return b != 0 && a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+		}
+	}
+
+	/**
+	 * A builder of {@link VerificationRateLimiter}.
+	 */
+	public static final class Builder {
+		private Optional<Double> keyIdRate = Optional.empty();
+		private int keyIdBurst;
+		private Optional<Double> addressRate = Optional.empty();
+		private int addressBurst;
+		private int failurePenalty = DEFAULT_FAILURE_PENALTY;
+		private Duration maxPenalty = DEFAULT_MAX_PENALTY;
+		private int buckets = DEFAULT_BUCKETS;
+		private LongSupplier ticker = System::nanoTime;
+
+		Builder() {
+		}
+
+		/**
+		 * Limits the rate of verifications of the signatures with a given {@code keyId}. Disabled by default.
+		 *
+		 * @param permitsPerSecond
+		 *          the sustained number of verifications per second admitted for each keyId.
+		 * @param burst
+		 *          the number of verifications admitted at once for a keyId which has not been used for a while.
+		 * @return this builder for daisy chaining.
+		 * @throws IllegalArgumentException
+		 *           if the rate or burst is not strictly positive.
+		 */
+		public Builder keyIdLimit(double permitsPerSecond, int burst) {
+			checkLimit(permitsPerSecond, burst);
+			this.keyIdRate = Optional.of(permitsPerSecond);
+			this.keyIdBurst = burst;
+			return this;
+		}
+
+		/**
+		 * Limits the rate of verifications of the messages received from a given remote address. Disabled by default.
+		 *
+		 * @param permitsPerSecond
+		 *          the sustained number of verifications per second admitted for each address.
+		 * @param burst
+		 *          the number of verifications admitted at once for an address which has not been seen for a while.
+		 * @return this builder for daisy chaining.
+		 * @throws IllegalArgumentException
+		 *           if the rate or burst is not strictly positive.
+		 */
+		public Builder addressLimit(double permitsPerSecond, int burst) {
+			checkLimit(permitsPerSecond, burst);
+			this.addressRate = Optional.of(permitsPerSecond);
+			this.addressBurst = burst;
+			return this;
+		}
+
+		private static void checkLimit(double permitsPerSecond, int burst) {
+			if (!(permitsPerSecond > 0) || Double.isInfinite(permitsPerSecond)) {
+				throw new IllegalArgumentException("Rate must be strictly positive and finite: " + permitsPerSecond);
+			}
+			if (burst <= 0) {
+				throw new IllegalArgumentException("Burst must be strictly positive: " + burst);
+			}
+		}
+
+		/**
+		 * Sets the number of tokens consumed by a failed verification, on top of the one consumed by its admission.
+		 * Defaults to {@value VerificationRateLimiter#DEFAULT_FAILURE_PENALTY}.
+		 *
+		 * @param permits
+		 *          the number of tokens consumed by a failed verification.
+		 * @return this builder for daisy chaining.
+		 * @throws IllegalArgumentException
+		 *           if the penalty is negative.
+		 */
+		public Builder failurePenalty(int permits) {
+			if (permits < 0) {
+				throw new IllegalArgumentException("Failure penalty must be positive or zero: " + permits);
+			}
+			this.failurePenalty = permits;
+			return this;
+		}
+
+		/**
+		 * Sets how long a keyId or address can be locked out by its accumulated failure penalties. Defaults to one minute.
+		 *
+		 * @param maxPenalty
+		 *          the maximum duration of a lockout.
+		 * @return this builder for daisy chaining.
+		 * @throws IllegalArgumentException
+		 *           if the duration is negative.
+		 */
+		public Builder maxPenalty(Duration maxPenalty) {
+			if (maxPenalty.isNegative()) {
+				throw new IllegalArgumentException("Max penalty must be positive or zero: " + maxPenalty);
+			}
+			this.maxPenalty = maxPenalty;
+			return this;
+		}
+
+		/**
+		 * Sets the number of buckets of each row of each limit, rounded up to a power of two. Each limit retains two rows
+		 * of 8 bytes buckets, i.e. 64 KiB with the default of {@value VerificationRateLimiter#DEFAULT_BUCKETS} buckets. It
+		 * should be well above the number of keyIds or addresses expected to be active at once.
+		 *
+		 * @param buckets
+		 *          the number of buckets per row.
+		 * @return this builder for daisy chaining.
+		 * @throws IllegalArgumentException
+		 *           if the number of buckets is not strictly positive or larger than 2^28.
+		 */
+		public Builder buckets(int buckets) {
+			if (buckets <= 0 || buckets > 1 << 28) {
+				throw new IllegalArgumentException("Number of buckets must be between 1 and 2^28: " + buckets);
+			}
+			this.buckets = buckets == 1 ? 1 : Integer.highestOneBit(buckets - 1) << 1;
+			return this;
+		}
+
+		Builder ticker(LongSupplier ticker) {
+			this.ticker = Objects.requireNonNull(ticker);
+			return this;
+		}
+
+		/**
+		 * Returns a newly configured {@code VerificationRateLimiter}.
+		 *
+		 * @return a newly configured {@code VerificationRateLimiter}.
+		 */
+		public VerificationRateLimiter build() {
+			if (!this.keyIdRate.isPresent() && !this.addressRate.isPresent()) {
+				throw new IllegalStateException("Missing required property: either keyIdLimit or addressLimit");
+			}
+			return new VerificationRateLimiter(this);
+		}
+	}
+}
@@ -9,5 +9,5 @@
 /**
  * Single package for HTTP message signing.
  */
-@org.osgi.annotation.versioning.Version("1.0.0")
+@org.osgi.annotation.versioning.Version("1.1.0")
 package tech.barbero.http.message.signing;
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Scratch buffers of the HMAC verification, held per thread. A set of buffers is made of the {@link #MAC_INPUT
+ * encoded signing string}, the {@link #MAC_COMPUTED computed MAC} and the {@link #MAC_PROVIDED decoded provided MAC}.
+ * Users may replace a buffer of the set by a bigger one, which will then be reused by the next verifications of the
+ * thread.
+ * <p>
+ * Java 21 variant: virtual threads are cheap, short lived and rarely verify more than a message, so instead of
+ * populating a thread local which would be discarded with them, they borrow their buffers from a small pool shared by
+ * all virtual threads, sized after the number of carrier threads. A virtual thread only gets fresh buffers when the
+ * pool is empty, and they are dropped if the pool is full when released.
+ */
+final class VerificationBuffers {
+
+	static final int MAC_INPUT = 0;
+	static final int MAC_COMPUTED = 1;
+	static final int MAC_PROVIDED = 2;
+
+	// plain byte arrays (and not an instance of a class of ours) are held by threads so that
+	// the class loader of this library does not leak in containers with pooled threads.
+	private static final ThreadLocal<byte[][]> BUFFERS = ThreadLocal.withInitial(VerificationBuffers::create);
+
+	// verifications do not block, so that at most one set per carrier thread is in use at once
+	private static final AtomicReferenceArray<byte[][]> SHARED = new AtomicReferenceArray<>(2 * Runtime.getRuntime().availableProcessors());
+
+	private VerificationBuffers() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Returns a set of buffers for the current thread, to be {@link #release(byte[][]) released} once the verification is
+	 * done.
+	 *
+	 * @return the set of buffers of the current thread.
+	 */
+	static byte[][] borrow() {
+		return Thread.currentThread().isVirtual() ? borrowShared() : BUFFERS.get();
+	}
+
+	/**
+	 * Releases a set of buffers {@link #borrow() borrowed} by the current thread.
+	 *
+	 * @param buffers
+	 *          the set of buffers.
+	 */
+	static void release(byte[][] buffers) {
+		if (Thread.currentThread().isVirtual()) {
+			releaseShared(buffers);
+		}
+	}
+
+	static byte[][] borrowShared() {
+		int start = firstSlot();
+		for (int i = 0; i < SHARED.length(); i++) {
+			int slot = (start + i) % SHARED.length();
+			byte[][] ret = SHARED.get(slot);
+			if (ret != null && SHARED.compareAndSet(slot, ret, null)) {
+				return ret;
+			}
+		}
+		return create();
+	}
+
+	static void releaseShared(byte[][] buffers) {
+		int start = firstSlot();
+		for (int i = 0; i < SHARED.length(); i++) {
+			int slot = (start + i) % SHARED.length();
+			if (SHARED.get(slot) == null && SHARED.compareAndSet(slot, null, buffers)) {
+				return;
+			}
+		}
+		// the pool is full, the set is dropped
+	}
+
+	private static int firstSlot() {
+		// spreads the threads over the slots
+		return (int) (Thread.currentThread().threadId() % SHARED.length());
+	}
+
+	private static byte[][] create() {
+		return new byte[][] { new byte[256], new byte[0], new byte[0] };
+	}
+}
@@ -33,6 +33,9 @@ abstract class MessageMock implements HttpMessage {
 
 	@Override
 	public List<String> headerValues(String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Argument 'name' must not be null of empty");
+		}
 		return headers.getOrDefault(normalizeHeaderName(name), Collections.emptyList());
 	}
 }
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.util.Properties;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+/**
+ * Fails when signing or verifying a request allocates more bytes per call than the budget checked in
+ * {@code allocation-budgets.properties}, in the package of the test class. Allocations are measured on the current
+ * thread, once the code has been warmed up, and the lowest of several rounds is kept so that JIT compilations do not
+ * make the tests flaky. Budgets have some headroom over the measures of a Java 8 HotSpot VM: lower a budget when an
+ * optimization lands, so that it cannot silently regress.
+ */
+public class TestAllocationBudget {
+
+	private static final int ROUNDS = 10;
+
+	protected MessageFactory messageFactory;
+
+	@BeforeEach
+	public void beforeAll() {
+		messageFactory = createFactory();
+	}
+
+	protected MessageFactory createFactory() {
+		return new MessageFactory.MockImpl();
+	}
+
+	@Test
+	public void signHmacSha256() throws Exception {
+		assertWithinBudget("sign.HMAC_SHA256", bytesPerSign(Algorithm.HMAC_SHA256, 2000));
+	}
+
+	@Test
+	public void signRsaSha256() throws Exception {
+		assertWithinBudget("sign.RSA_SHA256", bytesPerSign(Algorithm.RSA_SHA256, 100));
+	}
+
+	@Test
+	public void verifyHmacSha256() throws Exception {
+		assertWithinBudget("verify.HMAC_SHA256", bytesPerVerify(Algorithm.HMAC_SHA256, 2000));
+	}
+
+	@Test
+	public void verifyRsaSha256() throws Exception {
+		assertWithinBudget("verify.RSA_SHA256", bytesPerVerify(Algorithm.RSA_SHA256, 1000));
+	}
+
+	private long bytesPerSign(Algorithm algorithm, int iterations) throws GeneralSecurityException {
+		HttpMessageSigner signer = signer(algorithm);
+		long ret = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			// requests are created before measuring, only the signature is measured
+			HttpRequest[] requests = new HttpRequest[iterations];
+			for (int i = 0; i < iterations; i++) {
+				requests[i] = createRequest();
+			}
+			long start = allocatedBytes();
+			for (HttpRequest request : requests) {
+				signer.sign(request);
+			}
+			ret = Math.min(ret, (allocatedBytes() - start) / iterations);
+		}
+		return ret;
+	}
+
+	private long bytesPerVerify(Algorithm algorithm, int iterations) throws GeneralSecurityException {
+		HttpRequest request = signer(algorithm).sign(createRequest());
+		SignatureHeaderVerifier verifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+		long ret = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = allocatedBytes();
+			for (int i = 0; i < iterations; i++) {
+				if (!verifier.verify(request)) {
+					throw new AssertionError("Signature not verified");
+				}
+			}
+			ret = Math.min(ret, (allocatedBytes() - start) / iterations);
+		}
+		return ret;
+	}
+
+	private void assertWithinBudget(String name, long bytesPerCall) throws IOException {
+		Properties budgets = new Properties();
+		try (InputStream in = getClass().getResourceAsStream("allocation-budgets.properties")) {
+			assertNotNull(in, "Missing allocation-budgets.properties in the package of " + getClass().getName());
+			budgets.load(in);
+		}
+		String budget = budgets.getProperty(name);
+		assertNotNull(budget, "Missing budget '" + name + "', " + bytesPerCall + " bytes allocated per call");
+		assertTrue(bytesPerCall <= Long.parseLong(budget.trim()),
+				"Allocation budget '" + name + "' exceeded: " + bytesPerCall + " bytes allocated per call, budget is " + budget.trim());
+	}
+
+	private static HttpMessageSigner signer(Algorithm algorithm) {
+		return HttpMessageSigner.builder()
+				.algorithm(algorithm)
+				.keyMap(HashKeyMap.INSTANCE)
+				.keyId("key-id")
+				.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+				.addHeaderToSign("Host")
+				.addHeaderToSign("Date")
+				.addHeaderToSign("Content-Type")
+				.addHeaderToSign("Digest")
+				.addHeaderToSign("Content-Length")
+				.build();
+	}
+
+	private HttpRequest createRequest() {
+		HttpRequest request = messageFactory.createRequest("POST", URI.create("http://example.com/foo?param=value&pet=dog"));
+		request.addHeader("Host", "example.com");
+		request.addHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		request.addHeader("Content-Type", "application/json");
+		request.addHeader("Digest", "SHA-256=X48E9qOokqqrvdts8nOJRJN3OWDUoyWxBf7kbu9DBPE=");
+		request.addHeader("Content-Length", "18");
+		return request;
+	}
+
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "Allocated bytes cannot be measured on this JVM");
+		com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+		assumeTrue(sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled(),
+				"Allocated bytes cannot be measured on this JVM");
+		return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+public class TestAsyncKeyMap {
+
+	private static final SecretKey SECRET_KEY = new SecretKeySpec("a shared secret".getBytes(StandardCharsets.US_ASCII), "HmacSHA256");
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void createExecutor() {
+		this.executor = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterEach
+	public void shutdownExecutor() throws InterruptedException {
+		this.executor.shutdownNow();
+		this.executor.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void coalescesConcurrentLookups() throws InterruptedException, ExecutionException {
+		KeyService service = new KeyService();
+		AsyncKeyMap keyMap = AsyncKeyMap.coalescing(service);
+
+		List<CompletableFuture<SecretKey>> lookups = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			lookups.add(keyMap.getSecretKey("hmac").toCompletableFuture());
+		}
+		CompletableFuture<SecretKey> otherKey = keyMap.getSecretKey("other").toCompletableFuture();
+		CompletableFuture<PublicKey> otherKind = keyMap.getPublicKey("hmac").toCompletableFuture();
+		assertEquals(3, service.fetches.get());
+
+		service.complete("hmac", SECRET_KEY);
+		for (CompletableFuture<SecretKey> lookup : lookups) {
+			assertSame(SECRET_KEY, lookup.get());
+		}
+		assertFalse(otherKey.isDone());
+		assertFalse(otherKind.isDone());
+
+		// no caching once completed
+		keyMap.getSecretKey("hmac");
+		assertEquals(4, service.fetches.get());
+	}
+
+	@Test
+	public void coalescedFailure() {
+		KeyService service = new KeyService();
+		AsyncKeyMap keyMap = AsyncKeyMap.coalescing(service);
+
+		CompletableFuture<SecretKey> first = keyMap.getSecretKey("hmac").toCompletableFuture();
+		CompletableFuture<SecretKey> second = keyMap.getSecretKey("hmac").toCompletableFuture();
+		service.fail("hmac", new IllegalStateException("service unavailable"));
+
+		assertEquals(1, service.fetches.get());
+		ExecutionException e = assertThrows(ExecutionException.class, first::get);
+		assertEquals("service unavailable", e.getCause().getMessage());
+		assertThrows(ExecutionException.class, second::get);
+
+		// a failed lookup is retried
+		keyMap.getSecretKey("hmac");
+		assertEquals(2, service.fetches.get());
+	}
+
+	@Test
+	public void blockingKeyMap() throws GeneralSecurityException {
+		KeyMap keyMap = AsyncKeyMap.blocking(AsyncKeyMap.of(new MapKeyMap(SECRET_KEY), this.executor));
+		assertSame(SECRET_KEY, keyMap.getSecretKey("hmac"));
+		assertNull(keyMap.getSecretKey("unknown"));
+		assertNull(keyMap.getPublicKey("hmac"));
+
+		KeyService failing = new KeyService();
+		failing.fail("hmac", new IllegalStateException("service unavailable"));
+		assertThrows(IllegalStateException.class, () -> AsyncKeyMap.blocking(failing).getSecretKey("hmac"));
+	}
+
+	@Test
+	public void verifyAsyncSecretKey() throws GeneralSecurityException, InterruptedException, ExecutionException {
+		HttpRequest request = signedRequest(new MapKeyMap(SECRET_KEY), "hmac", Algorithm.HMAC_SHA256);
+
+		KeyService service = new KeyService();
+		SignatureHeaderVerifier verifier = SignatureHeaderVerifier.builder().asyncKeyMap(AsyncKeyMap.coalescing(service)).build();
+		CompletableFuture<Boolean> first = verifier.verifyAsync(request, this.executor).toCompletableFuture();
+		CompletableFuture<Boolean> second = verifier.verifyAsync(request, this.executor).toCompletableFuture();
+		assertFalse(first.isDone());
+
+		this.executor.execute(() -> service.complete("hmac", SECRET_KEY));
+		assertTrue(first.get());
+		assertTrue(second.get());
+		assertEquals(1, service.fetches.get());
+	}
+
+	@Test
+	public void verifyAsyncPublicKey() throws GeneralSecurityException, InterruptedException, ExecutionException {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(1024);
+		KeyPair keyPair = generator.generateKeyPair();
+		MapKeyMap keys = new MapKeyMap(keyPair);
+		HttpRequest request = signedRequest(keys, "rsa", Algorithm.RSA_SHA256);
+
+		SignatureHeaderVerifier verifier = SignatureHeaderVerifier.builder().asyncKeyMap(AsyncKeyMap.of(keys, this.executor)).build();
+		assertTrue(verifier.verifyAsync(request).toCompletableFuture().get());
+		// synchronous verification through the blocking bridge
+		assertTrue(verifier.verify(request));
+	}
+
+	@Test
+	public void verifyAsyncWithSynchronousKeyMap() throws GeneralSecurityException, InterruptedException, ExecutionException {
+		MapKeyMap keys = new MapKeyMap(SECRET_KEY);
+		HttpRequest request = signedRequest(keys, "hmac", Algorithm.HMAC_SHA256);
+		SignatureHeaderVerifier verifier = SignatureHeaderVerifier.builder().keyMap(keys).build();
+		assertTrue(verifier.verifyAsync(request).toCompletableFuture().get());
+
+		request.addHeader("Date", "Mon, 06 Jan 2014 21:31:40 GMT");
+		assertFalse(verifier.verifyAsync(request).toCompletableFuture().get());
+	}
+
+	@Test
+	public void verifyAsyncFailures() throws GeneralSecurityException {
+		HttpRequest request = signedRequest(new MapKeyMap(SECRET_KEY), "hmac", Algorithm.HMAC_SHA256);
+		KeyService service = new KeyService();
+		service.fail("hmac", new IllegalStateException("service unavailable"));
+		SignatureHeaderVerifier verifier = SignatureHeaderVerifier.builder().asyncKeyMap(service).build();
+
+		ExecutionException e = assertThrows(ExecutionException.class, () -> verifier.verifyAsync(request).toCompletableFuture().get());
+		assertTrue(e.getCause() instanceof GeneralSecurityException);
+		assertEquals("service unavailable", e.getCause().getCause().getMessage());
+
+		HttpRequest unsigned = new RequestMock("GET", URI.create("http://example.com/resource"));
+		e = assertThrows(ExecutionException.class, () -> verifier.verifyAsync(unsigned).toCompletableFuture().get());
+		assertTrue(e.getCause() instanceof GeneralSecurityException);
+	}
+
+	private static HttpRequest signedRequest(KeyMap keyMap, String keyId, Algorithm algorithm) throws GeneralSecurityException {
+		HttpRequest request = new RequestMock("GET", URI.create("http://example.com/resource"));
+		request.addHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		HttpMessageSigner.builder().algorithm(algorithm).keyMap(keyMap).keyId(keyId).build().sign(request);
+		return request;
+	}
+
+	/**
+	 * An in-process stand-in for a remote key service, whose lookups complete when told so by the test.
+	 */
+	private static final class KeyService implements AsyncKeyMap {
+		final AtomicInteger fetches = new AtomicInteger();
+		private final Map<String, CompletableFuture<Object>> pending = new HashMap<>();
+
+		@Override
+		public CompletionStage<PublicKey> getPublicKey(String keyId) {
+			return fetch("public:" + keyId).thenApply(PublicKey.class::cast);
+		}
+
+		@Override
+		public CompletionStage<PrivateKey> getPrivateKey(String keyId) {
+			return fetch("private:" + keyId).thenApply(PrivateKey.class::cast);
+		}
+
+		@Override
+		public CompletionStage<SecretKey> getSecretKey(String keyId) {
+			return fetch("secret:" + keyId).thenApply(SecretKey.class::cast);
+		}
+
+		private CompletableFuture<Object> fetch(String id) {
+			this.fetches.incrementAndGet();
+			return response(id);
+		}
+
+		void complete(String keyId, SecretKey key) {
+			response("secret:" + keyId).complete(key);
+		}
+
+		void fail(String keyId, Exception e) {
+			response("secret:" + keyId).completeExceptionally(e);
+		}
+
+		private synchronized CompletableFuture<Object> response(String id) {
+			return this.pending.computeIfAbsent(id, k -> new CompletableFuture<>());
+		}
+	}
+
+	private static final class MapKeyMap implements KeyMap {
+		private final KeyPair keyPair;
+		private final SecretKey secretKey;
+
+		MapKeyMap(KeyPair keyPair) {
+			this.keyPair = keyPair;
+			this.secretKey = null;
+		}
+
+		MapKeyMap(SecretKey secretKey) {
+			this.keyPair = null;
+			this.secretKey = secretKey;
+		}
+
+		@Override
+		public PublicKey getPublicKey(String keyId) {
+			return "rsa".equals(keyId) && this.keyPair != null ? this.keyPair.getPublic() : null;
+		}
+
+		@Override
+		public PrivateKey getPrivateKey(String keyId) {
+			return "rsa".equals(keyId) && this.keyPair != null ? this.keyPair.getPrivate() : null;
+		}
+
+		@Override
+		public SecretKey getSecretKey(String keyId) {
+			return "hmac".equals(keyId) ? this.secretKey : null;
+		}
+	}
+}
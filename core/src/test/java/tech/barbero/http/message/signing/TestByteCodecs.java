@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class TestByteCodecs {
+
+	@Test
+	public void encodeAscii() {
+		String[] strings = { "", "date: Sun, 05 Jan 2014 21:31:40 GMT", "caf\u00e9 \ud83d\ude00 \ud83d", "\ude00x" };
+		for (String s : strings) {
+			byte[] dst = new byte[s.length()];
+			int length = ByteCodecs.encodeAscii(s, dst);
+			assertArrayEquals(s.getBytes(StandardCharsets.US_ASCII), Arrays.copyOf(dst, length));
+		}
+	}
+
+	@Test
+	public void decodeBase64() {
+		Random random = new Random(42);
+		for (int size = 0; size < 70; size++) {
+			byte[] expected = new byte[size];
+			random.nextBytes(expected);
+			String encoded = Base64.getEncoder().encodeToString(expected);
+			String unpadded = Base64.getEncoder().withoutPadding().encodeToString(expected);
+
+			byte[] dst = new byte[size];
+			assertEquals(size, ByteCodecs.decodeBase64(encoded, dst));
+			assertArrayEquals(expected, dst);
+
+			Arrays.fill(dst, (byte) 0);
+			assertEquals(size, ByteCodecs.decodeBase64(unpadded, dst));
+			assertArrayEquals(expected, dst);
+		}
+	}
+
+	@Test
+	public void decodeBase64TooLong() {
+		assertEquals(-1, ByteCodecs.decodeBase64(Base64.getEncoder().encodeToString(new byte[33]), new byte[32]));
+	}
+
+	@Test
+	public void decodeBase64Invalid() {
+		assertThrows(IllegalArgumentException.class, () -> ByteCodecs.decodeBase64("AAA*", new byte[3]));
+		assertThrows(IllegalArgumentException.class, () -> ByteCodecs.decodeBase64("AAAAA", new byte[4]));
+		assertThrows(IllegalArgumentException.class, () -> ByteCodecs.decodeBase64("AA=", new byte[3]));
+		assertThrows(IllegalArgumentException.class, () -> ByteCodecs.decodeBase64("A===", new byte[3]));
+		assertThrows(IllegalArgumentException.class, () -> ByteCodecs.decodeBase64("\u00e9AAA", new byte[3]));
+	}
+}
@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+/**
+ * Signers, verifiers and their caches and pools are shared by all the threads of an application. These tests hammer
+ * shared instances from many threads released at once, and check each result against the one of an instance used by a
+ * single thread.
+ */
+public class TestConcurrentSharing {
+
+	private static final int THREADS = 16;
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void before() {
+		executor = Executors.newFixedThreadPool(THREADS);
+	}
+
+	@AfterEach
+	public void after() throws InterruptedException {
+		executor.shutdownNow();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void sharedHmacSigner() throws Exception {
+		assertSharedSigner(Algorithm.HMAC_SHA256, 500);
+	}
+
+	@Test
+	public void sharedRsaSigner() throws Exception {
+		assertSharedSigner(Algorithm.RSA_SHA256, 20);
+	}
+
+	private void assertSharedSigner(Algorithm algorithm, int iterations) throws Exception {
+		HttpMessageSigner shared = signerBuilder(algorithm).build();
+		SignatureHeaderVerifier verifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+		runConcurrently(thread -> {
+			HttpMessageSigner own = signerBuilder(algorithm).build();
+			for (int i = 0; i < iterations; i++) {
+				HttpRequest request = shared.sign(createRequest(thread, i));
+				assertEquals(own.sign(createRequest(thread, i)).headerValues(HttpMessageSigner.HEADER_SIGNATURE),
+						request.headerValues(HttpMessageSigner.HEADER_SIGNATURE));
+				assertTrue(verifier.verify(request));
+			}
+		});
+	}
+
+	@Test
+	public void sharedVerifierWithCacheAndPools() throws Exception {
+		HttpMessageSigner rsaSigner = signerBuilder(Algorithm.RSA_SHA256).build();
+		HttpMessageSigner hmacSigner = signerBuilder(Algorithm.HMAC_SHA256).build();
+		// fewer cache entries than distinct signatures, so that entries are evicted while being read
+		List<HttpRequest> signed = new ArrayList<>();
+		for (int i = 0; i < 24; i++) {
+			signed.add(rsaSigner.sign(createRequest(-1, i)));
+			signed.add(hmacSigner.sign(createRequest(-2, i)));
+		}
+		SignatureHeaderVerifier verifier = SignatureHeaderVerifier.builder()
+				.keyMap(HashKeyMap.INSTANCE)
+				.enginePoolSize(2)
+				.verificationCache(16, Duration.ofMinutes(1))
+				.build();
+		runConcurrently(thread -> {
+			for (int i = 0; i < 300; i++) {
+				HttpRequest request = signed.get((thread * 7 + i) % signed.size());
+				assertTrue(verifier.verify(request));
+				assertFalse(verifier.verify(tampered(request)));
+			}
+		});
+	}
+
+	@Test
+	public void sharedVerificationCacheUnderContention() throws Exception {
+		int maxEntries = VerificationCache.MAX_SEGMENTS * 16;
+		int perThread = 1000;
+		VerificationCache cache = new VerificationCache(maxEntries, Duration.ofMinutes(1));
+		PublicKey key = HashKeyMap.INSTANCE.getPublicKey("key-id");
+		// each thread records far more distinct verifications than the cache can hold, and reads them back at once
+		runConcurrently(thread -> {
+			for (int i = 0; i < perThread; i++) {
+				VerificationCache.Digest digest = VerificationCache.digest("key-id", Algorithm.RSA_SHA256, "thread " + thread, Integer.toString(i));
+				cache.verified(digest, key, 0);
+				cache.isVerified(digest, key, 0);
+			}
+		});
+		VerificationCacheStats stats = cache.stats();
+		assertEquals(maxEntries, stats.size());
+		assertEquals(THREADS * perThread - maxEntries, stats.evictionCount());
+		assertEquals(THREADS * perThread, stats.hitCount() + stats.missCount());
+
+		// entries which all fit in the cache are hit from every thread
+		List<VerificationCache.Digest> cached = new ArrayList<>();
+		for (int i = 0; i < maxEntries / 2; i++) {
+			cached.add(VerificationCache.digest("other-key-id", Algorithm.RSA_SHA256, "shared", Integer.toString(i)));
+		}
+		VerificationCache fitting = new VerificationCache(maxEntries, Duration.ofMinutes(1));
+		for (VerificationCache.Digest digest : cached) {
+			fitting.verified(digest, key, 0);
+		}
+		runConcurrently(thread -> {
+			for (int i = 0; i < perThread; i++) {
+				assertTrue(fitting.isVerified(cached.get((thread * 7 + i) % cached.size()), key, 0));
+			}
+		});
+		assertEquals(VerificationCacheStats.create(THREADS * perThread, 0, 0, cached.size()), fitting.stats());
+	}
+
+	@Test
+	public void sharedVerifierAsync() throws Exception {
+		HttpMessageSigner signer = signerBuilder(Algorithm.HMAC_SHA256).build();
+		SignatureHeaderVerifier verifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).enginePoolSize(2).build();
+		ExecutorService verifyingExecutor = Executors.newFixedThreadPool(4);
+		try {
+			runConcurrently(thread -> {
+				for (int i = 0; i < 300; i++) {
+					HttpRequest request = signer.sign(createRequest(thread, i));
+					assertTrue(verifier.verifyAsync(request, verifyingExecutor).toCompletableFuture().get());
+					assertFalse(verifier.verifyAsync(tampered(request), verifyingExecutor).toCompletableFuture().get());
+				}
+			});
+		} finally {
+			verifyingExecutor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void sharedRfc9421SignerAndVerifier() throws Exception {
+		Rfc9421Signer signer = Rfc9421Signer.builder()
+				.algorithm(Rfc9421Algorithm.HMAC_SHA256)
+				.keyMap(HashKeyMap.INSTANCE)
+				.keyId("key-id")
+				.addComponent(Rfc9421Signer.METHOD)
+				.addComponent(Rfc9421Signer.TARGET_URI)
+				.addComponent("Date")
+				.addComponent("Digest")
+				.build();
+		Rfc9421Verifier verifier = Rfc9421Verifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+		runConcurrently(thread -> {
+			for (int i = 0; i < 300; i++) {
+				HttpRequest request = signer.sign(createRequest(thread, i));
+				assertTrue(verifier.verify(request));
+			}
+		});
+	}
+
+	@Test
+	public void sharedRateLimiterAdmitsAtMostBurstPlusRacingThreads() throws Exception {
+		int burst = 100;
+		// the time never passes, so that no token is refilled
+		VerificationRateLimiter limiter = VerificationRateLimiter.builder().keyIdLimit(1, burst).ticker(() -> 0L).build();
+		AtomicInteger admitted = new AtomicInteger();
+		runConcurrently(thread -> {
+			for (int i = 0; i < 100; i++) {
+				if (limiter.admitKeyId("key-id")) {
+					admitted.incrementAndGet();
+				}
+			}
+		});
+		// checking the two buckets of a key is not atomic, each racing thread may get one more token
+		assertTrue(admitted.get() >= burst && admitted.get() < burst + THREADS, "admitted " + admitted.get());
+		assertEquals(THREADS * 100 - admitted.get(), limiter.rejectionCount());
+	}
+
+	@Test
+	public void builderMutationDoesNotChangeBuiltSigner() throws GeneralSecurityException {
+		HttpMessageSigner.Builder builder = signerBuilder(Algorithm.HMAC_SHA256);
+		HttpMessageSigner signer = builder.build();
+		builder.addHeaderToSign("X-Added-Later");
+		HttpMessageSigner other = builder.build();
+
+		HttpRequest request = signer.sign(createRequest(0, 0));
+		assertFalse(String.join(",", request.headerValues(HttpMessageSigner.HEADER_SIGNATURE)).contains("x-added-later"));
+		assertTrue(SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build().verify(request));
+
+		HttpRequest otherRequest = createRequest(0, 0);
+		otherRequest.addHeader("X-Added-Later", "value");
+		assertTrue(String.join(",", other.sign(otherRequest).headerValues(HttpMessageSigner.HEADER_SIGNATURE)).contains("x-added-later"));
+	}
+
+	@Test
+	public void builderMutationDoesNotChangeBuiltRfc9421Instances() throws GeneralSecurityException {
+		Rfc9421Signer.Builder signerBuilder = Rfc9421Signer.builder()
+				.algorithm(Rfc9421Algorithm.HMAC_SHA256)
+				.keyMap(HashKeyMap.INSTANCE)
+				.keyId("key-id")
+				.addComponent(Rfc9421Signer.METHOD);
+		Rfc9421Signer signer = signerBuilder.build();
+		signerBuilder.addComponent("X-Added-Later");
+		Rfc9421Verifier.Builder verifierBuilder = Rfc9421Verifier.builder().keyMap(HashKeyMap.INSTANCE).addRequiredComponent(Rfc9421Signer.METHOD);
+		Rfc9421Verifier verifier = verifierBuilder.build();
+		verifierBuilder.addRequiredComponent("X-Added-Later");
+
+		HttpRequest request = signer.sign(createRequest(0, 0));
+		assertFalse(request.headerValues(Rfc9421Signer.HEADER_SIGNATURE_INPUT).get(0).contains("x-added-later"));
+		assertTrue(verifier.verify(request));
+		assertFalse(verifierBuilder.build().verify(request));
+	}
+
+	private void runConcurrently(ThreadTask task) throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Void>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			int thread = t;
+			futures.add(executor.submit(() -> {
+				start.await();
+				task.run(thread);
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<Void> future : futures) {
+			future.get(1, TimeUnit.MINUTES);
+		}
+	}
+
+	@FunctionalInterface
+	private interface ThreadTask {
+		void run(int thread) throws Exception;
+	}
+
+	private static HttpMessageSigner.Builder signerBuilder(Algorithm algorithm) {
+		return HttpMessageSigner.builder()
+				.algorithm(algorithm)
+				.keyMap(HashKeyMap.INSTANCE)
+				.keyId("key-id")
+				.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+				.addHeaderToSign("Host")
+				.addHeaderToSign("Date")
+				.addHeaderToSign("Digest");
+	}
+
+	private static HttpRequest createRequest(int thread, int i) {
+		HttpRequest request = new RequestMock("POST", URI.create("http://example.com/foo?thread=" + thread + "&i=" + i));
+		request.addHeader("Host", "example.com");
+		request.addHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		request.addHeader("Digest", "SHA-256=X48E9qOokqqrvdts8nOJRJN3OWDUoyWxBf7kbu9DBPE=");
+		return request;
+	}
+
+	/**
+	 * Returns a copy of the given signed request, with another {@code Digest}.
+	 */
+	private static HttpRequest tampered(HttpRequest request) {
+		HttpRequest ret = new RequestMock(request.method(), request.uri());
+		for (String name : new String[] { "Host", "Date", "Signature" }) {
+			for (String value : request.headerValues(name)) {
+				ret.addHeader(name, value);
+			}
+		}
+		ret.addHeader("Digest", "SHA-256=tampered");
+		return ret;
+	}
+}
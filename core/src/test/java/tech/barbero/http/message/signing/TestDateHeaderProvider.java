@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class TestDateHeaderProvider {
+
+	@Test
+	public void currentDate() {
+		MutableClock clock = new MutableClock(Instant.parse("2014-01-05T21:31:40.123Z"));
+		DateHeaderProvider provider = DateHeaderProvider.of(clock);
+		String date = provider.currentDate();
+		assertEquals("Sun, 05 Jan 2014 21:31:40 GMT", date);
+
+		clock.set(Instant.parse("2014-01-05T21:31:40.999Z"));
+		assertSame(date, provider.currentDate());
+
+		clock.set(Instant.parse("2014-01-05T21:31:41Z"));
+		assertEquals("Sun, 05 Jan 2014 21:31:41 GMT", provider.currentDate());
+	}
+
+	@Test
+	public void parse() {
+		DateHeaderProvider provider = DateHeaderProvider.of(Clock.systemUTC());
+		Instant expected = Instant.parse("2014-01-05T21:31:40Z");
+		Optional<Instant> parsed = provider.parse("Sun, 05 Jan 2014 21:31:40 GMT");
+		assertEquals(Optional.of(expected), parsed);
+		assertSame(parsed.get(), provider.parse("Sun, 05 Jan 2014 21:31:40 GMT").get());
+		assertEquals(Optional.of(expected), provider.parse("Sun, 5 Jan 2014 21:31:40 GMT"));
+		assertNotSame(parsed.get(), provider.parse("Sun, 05 Jan 2014 21:31:40 GMT").get());
+
+		assertFalse(provider.parse("2014-01-05T21:31:40Z").isPresent());
+		assertFalse(provider.parse("").isPresent());
+		assertFalse(provider.parse("Sunday, 05-Jan-14 21:31:40 GMT").isPresent());
+	}
+
+	@Test
+	public void parseEmpty() {
+		assertFalse(DateHeaderProvider.of(Clock.systemUTC()).parse("").isPresent());
+	}
+
+	@Test
+	public void addDateHeaderIfMissing() {
+		DateHeaderProvider provider = DateHeaderProvider.of(Clock.fixed(Instant.parse("2014-01-05T21:31:40Z"), ZoneOffset.UTC));
+		HttpRequest request = new RequestMock("GET", URI.create("http://example.com/resource"));
+		provider.addDateHeaderIfMissing(request);
+		assertEquals(Collections.singletonList("Sun, 05 Jan 2014 21:31:40 GMT"), request.headerValues("Date"));
+
+		HttpRequest datedRequest = new RequestMock("GET", URI.create("http://example.com/resource"));
+		datedRequest.addHeader("Date", "Mon, 06 Jan 2014 21:31:40 GMT");
+		provider.addDateHeaderIfMissing(datedRequest);
+		assertEquals(Arrays.asList("Mon, 06 Jan 2014 21:31:40 GMT"), datedRequest.headerValues("Date"));
+	}
+
+	private static final class MutableClock extends Clock {
+		private final AtomicLong millis;
+
+		MutableClock(Instant instant) {
+			this.millis = new AtomicLong(instant.toEpochMilli());
+		}
+
+		void set(Instant instant) {
+			this.millis.set(instant.toEpochMilli());
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public long millis() {
+			return this.millis.get();
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis());
+		}
+	}
+}
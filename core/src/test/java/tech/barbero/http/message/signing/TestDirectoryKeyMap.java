@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+public class TestDirectoryKeyMap {
+
+	private static KeyPair rsaKeyPair;
+
+	private Path directory;
+
+	@BeforeEach
+	public void createDirectory() throws IOException, GeneralSecurityException {
+		this.directory = Files.createTempDirectory("keys");
+		if (rsaKeyPair == null) {
+			KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+			generator.initialize(1024);
+			rsaKeyPair = generator.generateKeyPair();
+		}
+	}
+
+	@AfterEach
+	public void deleteDirectory() throws IOException {
+		try (Stream<Path> files = Files.walk(this.directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@Test
+	public void pemKeyPair() throws IOException, GeneralSecurityException {
+		write("rsa.pem", pem("PRIVATE KEY", rsaKeyPair.getPrivate().getEncoded()) + pem("PUBLIC KEY", rsaKeyPair.getPublic().getEncoded()));
+		try (DirectoryKeyMap keyMap = DirectoryKeyMap.of(this.directory)) {
+			assertEquals(rsaKeyPair.getPrivate(), keyMap.getPrivateKey("rsa"));
+			assertEquals(rsaKeyPair.getPublic(), keyMap.getPublicKey("rsa"));
+			assertNull(keyMap.getSecretKey("rsa"));
+			assertSignatureVerified(keyMap, "rsa", Algorithm.RSA_SHA256);
+		}
+	}
+
+	@Test
+	public void pemPrivateKeyOnly() throws IOException {
+		write("rsa.pem", pem("PRIVATE KEY", rsaKeyPair.getPrivate().getEncoded()));
+		try (DirectoryKeyMap keyMap = DirectoryKeyMap.of(this.directory)) {
+			assertEquals(rsaKeyPair.getPublic(), keyMap.getPublicKey("rsa"));
+		}
+	}
+
+	@Test
+	public void pemPkcs1() throws IOException {
+		write("rsa.pem", pem("RSA PRIVATE KEY", pkcs1(rsaKeyPair.getPrivate().getEncoded())));
+		write("rsa-pub.pem", pem("RSA PUBLIC KEY", pkcs1PublicKey((RSAPublicKey) rsaKeyPair.getPublic())));
+		try (DirectoryKeyMap keyMap = DirectoryKeyMap.of(this.directory)) {
+			assertEquals(rsaKeyPair.getPrivate(), keyMap.getPrivateKey("rsa"));
+			assertEquals(rsaKeyPair.getPublic(), keyMap.getPublicKey("rsa-pub"));
+		}
+	}
+
+	@Test
+	public void derPublicKey() throws IOException {
+		Files.write(this.directory.resolve("rsa.der"), rsaKeyPair.getPublic().getEncoded());
+		try (DirectoryKeyMap keyMap = DirectoryKeyMap.of(this.directory)) {
+			assertEquals(rsaKeyPair.getPublic(), keyMap.getPublicKey("rsa"));
+			assertNull(keyMap.getPrivateKey("rsa"));
+		}
+	}
+
+	@Test
+	public void jwkRsaKeyPair() throws IOException, GeneralSecurityException {
+		RSAPrivateCrtKey key = (RSAPrivateCrtKey) rsaKeyPair.getPrivate();
+		write("rsa.jwk", "{\"kty\": \"RSA\", \"key_ops\": [\"sign\", \"verify\"], \"ext\": true,\n"
+				+ "\"n\": \"" + b64u(key.getModulus()) + "\", \"e\": \"" + b64u(key.getPublicExponent()) + "\",\n"
+				+ "\"d\": \"" + b64u(key.getPrivateExponent()) + "\", \"p\": \"" + b64u(key.getPrimeP()) + "\",\n"
+				+ "\"q\": \"" + b64u(key.getPrimeQ()) + "\", \"dp\": \"" + b64u(key.getPrimeExponentP()) + "\",\n"
+				+ "\"dq\": \"" + b64u(key.getPrimeExponentQ()) + "\", \"qi\": \"" + b64u(key.getCrtCoefficient()) + "\"}");
+		try (DirectoryKeyMap keyMap = DirectoryKeyMap.of(this.directory)) {
+			assertEquals(rsaKeyPair.getPrivate(), keyMap.getPrivateKey("rsa"));
+			assertEquals(rsaKeyPair.getPublic(), keyMap.getPublicKey("rsa"));
+			assertSignatureVerified(keyMap, "rsa", Algorithm.RSA_SHA256);
+		}
+	}
+
+	@Test
+	public void jwkEcPublicKey() throws IOException, GeneralSecurityException {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+		generator.initialize(256);
+		ECPublicKey publicKey = (ECPublicKey) generator.generateKeyPair().getPublic();
+		write("ec.jwk", "{\"kty\":\"EC\",\"crv\":\"P-256\",\"x\":\"" + b64u(publicKey.getW().getAffineX())
+				+ "\",\"y\":\"" + b64u(publicKey.getW().getAffineY()) + "\"}");
+		try (DirectoryKeyMap keyMap = DirectoryKeyMap.of(this.directory)) {
+			assertEquals(publicKey, keyMap.getPublicKey("ec"));
+		}
+	}
+
+	@Test
+	public void jwkSecretKey() throws IOException, GeneralSecurityException {
+		byte[] secret = "a shared secret of 32 bytes long".getBytes(StandardCharsets.US_ASCII);
+		write("shared.jwk", "{\"kty\":\"oct\",\"alg\":\"HS256\",\"k\":\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(secret) + "\"}");
+		try (DirectoryKeyMap keyMap = DirectoryKeyMap.of(this.directory)) {
+			assertTrue(Arrays.equals(secret, keyMap.getSecretKey("shared").getEncoded()));
+			assertEquals("HmacSHA256", keyMap.getSecretKey("shared").getAlgorithm());
+			assertSignatureVerified(keyMap, "shared", Algorithm.HMAC_SHA256);
+		}
+	}
+
+	@Test
+	public void unknownKeyId() throws IOException {
+		write("rsa.pem", pem("PUBLIC KEY", rsaKeyPair.getPublic().getEncoded()));
+		write("notes.txt", "not a key");
+		try (DirectoryKeyMap keyMap = DirectoryKeyMap.of(this.directory)) {
+			assertNull(keyMap.getPublicKey("unknown"));
+			assertNull(keyMap.getPublicKey("notes"));
+			assertNull(keyMap.getPublicKey("../rsa"));
+		}
+	}
+
+	@Test
+	public void invalidFileIsParsedLazily() throws IOException {
+		write("broken.pem", "-----BEGIN PUBLIC KEY-----\nAAAA\n-----END PUBLIC KEY-----\n");
+		write("rsa.pem", pem("PUBLIC KEY", rsaKeyPair.getPublic().getEncoded()));
+		try (DirectoryKeyMap keyMap = DirectoryKeyMap.of(this.directory)) {
+			assertEquals(rsaKeyPair.getPublic(), keyMap.getPublicKey("rsa"));
+			assertThrows(IllegalStateException.class, () -> keyMap.getPublicKey("broken"));
+		}
+	}
+
+	@Test
+	public void duplicateKeyIdIsReadFromFirstFormat() throws IOException {
+		write("dup.jwk", "{\"kty\":\"oct\",\"k\":\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[32]) + "\"}");
+		Files.write(this.directory.resolve("dup.der"), rsaKeyPair.getPublic().getEncoded());
+		write("dup.pem", pem("PRIVATE KEY", rsaKeyPair.getPrivate().getEncoded()));
+		try (DirectoryKeyMap keyMap = DirectoryKeyMap.of(this.directory)) {
+			assertEquals(rsaKeyPair.getPrivate(), keyMap.getPrivateKey("dup"));
+			assertNull(keyMap.getSecretKey("dup"));
+		}
+	}
+
+	@Test
+	public void hotReloadOfDuplicateKeyId() throws IOException, InterruptedException {
+		write("dup.pem", pem("PUBLIC KEY", rsaKeyPair.getPublic().getEncoded()));
+		try (DirectoryKeyMap keyMap = DirectoryKeyMap.watch(this.directory)) {
+			write("dup.jwk", "{\"kty\":\"oct\",\"k\":\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[32]) + "\"}");
+			write("other.pem", pem("PUBLIC KEY", rsaKeyPair.getPublic().getEncoded()));
+			awaitUntil(() -> keyMap.getPublicKey("other") != null);
+			assertEquals(rsaKeyPair.getPublic(), keyMap.getPublicKey("dup"));
+
+			Files.delete(this.directory.resolve("dup.pem"));
+			awaitUntil(() -> keyMap.getSecretKey("dup") != null);
+			assertNull(keyMap.getPublicKey("dup"));
+		}
+	}
+
+	@Test
+	public void hotReload() throws IOException, GeneralSecurityException, InterruptedException {
+		write("rsa.pem", pem("PUBLIC KEY", rsaKeyPair.getPublic().getEncoded()));
+		try (DirectoryKeyMap keyMap = DirectoryKeyMap.watch(this.directory)) {
+			assertEquals(rsaKeyPair.getPublic(), keyMap.getPublicKey("rsa"));
+
+			KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+			generator.initialize(1024);
+			KeyPair newKeyPair = generator.generateKeyPair();
+			Path tmp = Files.createTempFile(this.directory, "key", ".tmp");
+			Files.write(tmp, pem("PUBLIC KEY", newKeyPair.getPublic().getEncoded()).getBytes(StandardCharsets.US_ASCII));
+			Files.move(tmp, this.directory.resolve("rsa.pem"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			write("added.pem", pem("PUBLIC KEY", rsaKeyPair.getPublic().getEncoded()));
+
+			awaitUntil(() -> newKeyPair.getPublic().equals(keyMap.getPublicKey("rsa")) && keyMap.getPublicKey("added") != null);
+
+			Files.delete(this.directory.resolve("added.pem"));
+			awaitUntil(() -> keyMap.getPublicKey("added") == null);
+		}
+	}
+
+	private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+		// some WatchService implementations poll the file system every few seconds.
+		long deadline = System.nanoTime() + 30_000_000_000L;
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() > deadline) {
+				throw new AssertionError("Condition not met in time");
+			}
+			Thread.sleep(50);
+		}
+	}
+
+	private static void assertSignatureVerified(KeyMap keyMap, String keyId, Algorithm algorithm) throws GeneralSecurityException {
+		HttpRequest request = new RequestMock("GET", URI.create("http://example.com/resource"));
+		request.addHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		HttpMessageSigner.builder().algorithm(algorithm).keyMap(keyMap).keyId(keyId).build().sign(request);
+		assertNotNull(request.headerValues(HttpMessageSigner.HEADER_SIGNATURE));
+		assertTrue(SignatureHeaderVerifier.builder().keyMap(keyMap).build().verify(request));
+	}
+
+	private void write(String fileName, String content) throws IOException {
+		Files.write(this.directory.resolve(fileName), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String pem(String label, byte[] der) {
+		return "-----BEGIN " + label + "-----\n"
+				+ Base64.getMimeEncoder(64, new byte[] { '\n' }).encodeToString(der)
+				+ "\n-----END " + label + "-----\n";
+	}
+
+	private static String b64u(BigInteger value) {
+		byte[] bytes = value.toByteArray();
+		if (bytes[0] == 0 && bytes.length > 1) {
+			bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+	}
+
+	/**
+	 * Extracts the PKCS#1 RSAPrivateKey from the privateKey OCTET STRING ending a PKCS#8 PrivateKeyInfo.
+	 */
+	private static byte[] pkcs1(byte[] pkcs8) {
+		// 30 82 LL LL | 02 01 00 | 30 0d ...(15 bytes) | 04 82 LL LL | RSAPrivateKey
+		int offset = 4 + 3 + 15;
+		int length = ((pkcs8[offset + 2] & 0xff) << 8) | (pkcs8[offset + 3] & 0xff);
+		return Arrays.copyOfRange(pkcs8, offset + 4, offset + 4 + length);
+	}
+
+	private static byte[] pkcs1PublicKey(RSAPublicKey key) {
+		byte[] modulus = derInteger(key.getModulus());
+		byte[] exponent = derInteger(key.getPublicExponent());
+		byte[] content = new byte[modulus.length + exponent.length];
+		System.arraycopy(modulus, 0, content, 0, modulus.length);
+		System.arraycopy(exponent, 0, content, modulus.length, exponent.length);
+		return der(0x30, content);
+	}
+
+	private static byte[] derInteger(BigInteger value) {
+		return der(0x02, value.toByteArray());
+	}
+
+	private static byte[] der(int tag, byte[] content) {
+		final byte[] length;
+		if (content.length < 0x80) {
+			length = new byte[] { (byte) content.length };
+		} else if (content.length < 0x100) {
+			length = new byte[] { (byte) 0x81, (byte) content.length };
+		} else {
+			length = new byte[] { (byte) 0x82, (byte) (content.length >> 8), (byte) content.length };
+		}
+		byte[] ret = new byte[1 + length.length + content.length];
+		ret[0] = (byte) tag;
+		System.arraycopy(length, 0, ret, 1, length.length);
+		System.arraycopy(content, 0, ret, 1 + length.length, content.length);
+		return ret;
+	}
+}
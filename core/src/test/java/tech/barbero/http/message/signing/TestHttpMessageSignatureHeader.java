@@ -179,4 +179,21 @@ public class TestHttpMessageSignatureHeader {
 				"algorithm=\"rsa-sha256\",keyId=\"rsa-key-1\",keyId=\"rsa-key-2\", ,,,signature=\"XXXXXXXXXXXXXXXX==\",keyId=rsa-key-3");
 		assertEquals("rsa-key-3", signatureHeader.keyId());
 	}
+
+	@Test
+	public void separatorsInQuotedValue() {
+		SignatureHeaderElements signatureHeader = SignatureHeaderElements.fromHeaderValue(
+				"keyId=\"rsa,key;1\",algorithm=\"rsa-sha256\",signature=\"XXXXXXXXXXXXXXXX==\"");
+		assertEquals("rsa,key;1", signatureHeader.keyId());
+		assertEquals("XXXXXXXXXXXXXXXX==", signatureHeader.signature());
+	}
+
+	@Test
+	public void spacesAroundElements() {
+		SignatureHeaderElements signatureHeader = SignatureHeaderElements.fromHeaderValue(
+				" keyId = \"rsa-key-1\" , algorithm=rsa-sha256;q=1 ,signature=\"XXXXXXXXXXXXXXXX==\" ");
+		assertEquals("rsa-key-1", signatureHeader.keyId());
+		assertEquals(Algorithm.RSA_SHA256, signatureHeader.algorithm());
+		assertEquals("XXXXXXXXXXXXXXXX==", signatureHeader.signature());
+	}
 }
@@ -9,24 +9,24 @@
 package tech.barbero.http.message.signing;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.net.URI;
 import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
-import org.apache.http.Header;
-import org.apache.http.HeaderElement;
-import org.apache.http.message.BasicHeaderValueFormatter;
-import org.apache.http.message.BasicHeaderValueParser;
-import org.apache.http.message.BasicLineFormatter;
-import org.apache.http.message.BasicLineParser;
-import org.apache.http.util.CharArrayBuffer;
+import javax.crypto.SecretKey;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -78,7 +78,8 @@ public class TestHttpMessageSigner {
 					.addHeaderToSign("date")
 					.build();
 		});
-		assertEquals(e.getMessage(), "HttpMessageSigner should be configured to sign the '" + HttpMessageSigner.REQUEST_TARGET + "' header");
+		assertEquals(e.getMessage(), "HttpMessageSigner should be configured to sign either the '" + HttpMessageSigner.REQUEST_TARGET + "' or the '"
+				+ HttpMessageSigner.RESPONSE_STATUS + "' header");
 	}
 
 	@Test
@@ -106,6 +107,19 @@ public class TestHttpMessageSigner {
 		assertTrue(signatureVerifier.verify(signedRequest));
 	}
 
+	@Test
+	public void responseStatusSignature() throws GeneralSecurityException {
+		HttpMessageSigner httpSigner = HttpMessageSigner.builder().algorithm(Algorithm.HMAC_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("key-id")
+				.addHeaderToSign(HttpMessageSigner.RESPONSE_STATUS).addHeaderToSign("Date").build();
+
+		// not all adapters wrap responses
+		HttpResponse response = new MessageFactory.MockImpl().createResponse(200);
+		response.addHeader("Date", "Sun, 20 Mar 2016 12:20:00 GMT");
+		HttpResponse signedResponse = httpSigner.sign(response);
+		SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+		assertTrue(signatureVerifier.verify(signedResponse));
+	}
+
 	@Test
 	public void publicDuplicatedHeaderToSign() {
 		HttpMessageSigner httpSigner = HttpMessageSigner.builder().algorithm(Algorithm.RSA_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("key-id")
@@ -113,6 +127,19 @@ public class TestHttpMessageSigner {
 		assertIterableEquals(Arrays.asList("(request-target)", "Date", "X2"), httpSigner.headersToSign());
 	}
 
+	@Test
+	public void signedHeaders() {
+		HttpMessageSigner httpSigner = HttpMessageSigner.builder().algorithm(Algorithm.RSA_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("key-id")
+				.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET).addHeaderToSign("Date").addHeaderToSign("Digest").build();
+		assertTrue(httpSigner.signs("digest"));
+		assertTrue(httpSigner.signs(HttpMessageSigner.REQUEST_TARGET));
+		assertFalse(httpSigner.signs("Content-Length"));
+
+		HttpMessageSigner defaultSigner = HttpMessageSigner.builder().algorithm(Algorithm.RSA_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("key-id").build();
+		assertTrue(defaultSigner.signs("date"));
+		assertFalse(defaultSigner.signs("Digest"));
+	}
+
 	@Test
 	public void privateKeySignature() throws GeneralSecurityException {
 		HttpMessageSigner httpSigner = HttpMessageSigner.builder().algorithm(Algorithm.HMAC_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("key-id").build();
@@ -157,54 +184,86 @@ public class TestHttpMessageSigner {
 		assertHeaderEquals(RFCData.SIGNATURE_HEADER__ALL_HEADERS_TEST, HttpMessageSigner.HEADER_SIGNATURE + ": " + signatureHeader);
 	}
 
-	private static void assertHeaderEquals(String expected, String actual) {
-		assertEquals(
-				formatHeader(expected),
-				formatHeader(actual));
+	@Test
+	public void signOnceStampsCopies() throws GeneralSecurityException {
+		RFCData rfcData = new RFCData(messageFactory);
+		AtomicInteger keyLookups = new AtomicInteger();
+		HttpMessageSigner messageSigner = HttpMessageSigner.builder().algorithm(Algorithm.RSA_SHA256).keyMap(countingKeyMap(rfcData.keyMap(), keyLookups))
+				.keyId(RFCData.KEY_ID)
+				.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+				.addHeaderToSign("host")
+				.addHeaderToSign("date")
+				.build();
+		HttpRequest template = rfcData.request();
+		ReusableSignature signature = messageSigner.signOnce(template);
+		assertTrue(template.headerValues(HttpMessageSigner.HEADER_SIGNATURE).isEmpty());
+		assertEquals(1, keyLookups.get());
+
+		for (int i = 0; i < 3; i++) {
+			HttpRequest copy = rfcData.request();
+			// not signed, may differ between copies
+			copy.addHeader("X-Subscriber", Integer.toString(i));
+			assertTrue(signature.matches(copy));
+			String signatureHeader = String.join(",", signature.sign(copy).headerValues(HttpMessageSigner.HEADER_SIGNATURE));
+			assertHeaderEquals(RFCData.SIGNATURE_HEADER__BASIC_TEST, HttpMessageSigner.HEADER_SIGNATURE + ": " + signatureHeader);
+		}
+		assertEquals(1, keyLookups.get());
 	}
 
-	private static String formatHeader(String value) {
-		return BasicLineFormatter.formatHeader(parseHeader(value), new BasicLineFormatter() {
+	@Test
+	public void signOnceSignsAgainDifferentMessages() throws GeneralSecurityException {
+		RFCData rfcData = new RFCData(messageFactory);
+		AtomicInteger keyLookups = new AtomicInteger();
+		HttpMessageSigner messageSigner = HttpMessageSigner.builder().algorithm(Algorithm.RSA_SHA256).keyMap(countingKeyMap(rfcData.keyMap(), keyLookups))
+				.keyId(RFCData.KEY_ID)
+				.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+				.addHeaderToSign("host")
+				.addHeaderToSign("date")
+				.build();
+		ReusableSignature signature = messageSigner.signOnce(rfcData.request());
+
+		HttpRequest otherTarget = messageFactory.createRequest("POST", URI.create("http://example.com/foo?param=value&pet=cat"));
+		for (String header : new String[] { "Host", "Date" }) {
+			otherTarget.addHeader(header, rfcData.request().headerValues(header).get(0));
+		}
+		assertFalse(signature.matches(otherTarget));
+		HttpRequest otherDate = rfcData.request();
+		otherDate.addHeader("Date", "Sun, 05 Jan 2014 21:31:41 GMT");
+		assertFalse(signature.matches(otherDate));
+
+		SignatureHeaderVerifier verifier = SignatureHeaderVerifier.builder().keyMap(rfcData.keyMap()).build();
+		assertTrue(verifier.verify(signature.sign(otherTarget)));
+		assertTrue(verifier.verify(signature.sign(otherDate)));
+		assertEquals(3, keyLookups.get());
+	}
+
+	private static KeyMap countingKeyMap(KeyMap keyMap, AtomicInteger privateKeyLookups) {
+		return new KeyMap() {
 			@Override
-			public CharArrayBuffer formatHeader(CharArrayBuffer buffer, Header header) {
-				if (header == null) {
-					throw new IllegalArgumentException("Header may not be null");
-				}
-				CharArrayBuffer result = initBuffer(buffer);
-				doFormatHeader(result, header);
-				return result;
+			public SecretKey getSecretKey(String keyId) {
+				return keyMap.getSecretKey(keyId);
 			}
 
 			@Override
-			protected void doFormatHeader(final CharArrayBuffer buffer, final Header header) {
-				final String name = header.getName();
-				final String value = formatHeaderElements(header.getValue());
-
-				int len = name.length() + 2;
-				if (value != null) {
-					len += value.length();
-				}
-				buffer.ensureCapacity(len);
-
-				buffer.append(name);
-				buffer.append(": ");
-				if (value != null) {
-					buffer.append(value);
-				}
+			public PublicKey getPublicKey(String keyId) {
+				return keyMap.getPublicKey(keyId);
 			}
-		});
-	}
-
-	static String formatHeaderElements(String value) {
-		return BasicHeaderValueFormatter.formatElements(parseHeaderElements(value), false, new BasicHeaderValueFormatter());
-	}
 
-	private static HeaderElement[] parseHeaderElements(String value) {
-		return BasicHeaderValueParser.parseElements(value, new BasicHeaderValueParser());
+			@Override
+			public PrivateKey getPrivateKey(String keyId) {
+				privateKeyLookups.incrementAndGet();
+				return keyMap.getPrivateKey(keyId);
+			}
+		};
 	}
 
-	private static Header parseHeader(String value) {
-		return BasicLineParser.parseHeader(value, new BasicLineParser());
+	private static void assertHeaderEquals(String expected, String actual) {
+		int expectedColon = expected.indexOf(':');
+		int actualColon = actual.indexOf(':');
+		assertEquals(expected.substring(0, expectedColon).toLowerCase(Locale.ROOT), actual.substring(0, actualColon).toLowerCase(Locale.ROOT));
+		assertEquals(
+				SignatureHeaderElements.fromHeaderValue(expected.substring(expectedColon + 1)),
+				SignatureHeaderElements.fromHeaderValue(actual.substring(actualColon + 1)));
 	}
 
 	private HttpRequest createDummyRequest() {
@@ -18,16 +18,26 @@ import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.util.Base64;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.crypto.SecretKey;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
 public class TestHttpMessageVerifier {
 
 	protected MessageFactory messageFactory;
@@ -154,4 +164,332 @@ public class TestHttpMessageVerifier {
 		request.addHeader(HttpMessageSigner.HEADER_SIGNATURE, signatureHeader);
 		assertTrue(signatureVerifier.verify(request));
 	}
+
+	@Test
+	public void failingSecretKeyTruncatedSignature() throws GeneralSecurityException {
+		SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+		HttpRequest request = messageFactory.createRequest("POST", URI.create("http://example.com/post/service?data=4"));
+		request.addHeader("Date", LocalDateTime.of(2016, 3, 20, 13, 20, 0).toInstant(ZoneOffset.ofHours(1)).toString());
+		request.addHeader("XXXX", "VVVV");
+		String signatureHeader = "keyId=\"user1\",algorithm=\"hmac-sha256\","
+				+ "headers=\"(request-target) date XXXX\","
+				+ "signature=\"Yji0QwbY0CBsS/xFWAfXANZoFWGFtBoghmXoWmqE\"";
+		request.addHeader(HttpMessageSigner.HEADER_SIGNATURE, signatureHeader);
+		assertFalse(signatureVerifier.verify(request));
+	}
+
+	@Test
+	public void failingSecretKeyExtendedSignature() throws GeneralSecurityException {
+		SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+		HttpRequest request = messageFactory.createRequest("POST", URI.create("http://example.com/post/service?data=4"));
+		request.addHeader("Date", LocalDateTime.of(2016, 3, 20, 13, 20, 0).toInstant(ZoneOffset.ofHours(1)).toString());
+		request.addHeader("XXXX", "VVVV");
+		String signatureHeader = "keyId=\"user1\",algorithm=\"hmac-sha256\","
+				+ "headers=\"(request-target) date XXXX\","
+				+ "signature=\"Yji0QwbY0CBsS/xFWAfXANZoFWGFtBoghmXoWmqEHesAAAA=\"";
+		request.addHeader(HttpMessageSigner.HEADER_SIGNATURE, signatureHeader);
+		assertFalse(signatureVerifier.verify(request));
+	}
+
+	@Test
+	public void maxDateSkewRFCTest() throws GeneralSecurityException {
+		RFCData rfcData = new RFCData(messageFactory);
+		Instant date = Instant.parse("2014-01-05T21:31:40Z");
+		for (Duration offset : new Duration[] { Duration.ZERO, Duration.ofSeconds(-300), Duration.ofSeconds(300) }) {
+			SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(rfcData.keyMap())
+					.maxDateSkew(Duration.ofMinutes(5))
+					.dateHeaderProvider(DateHeaderProvider.of(Clock.fixed(date.plus(offset), ZoneOffset.UTC)))
+					.build();
+			HttpRequest request = rfcData.request();
+			request.addHeader(HttpMessageSigner.HEADER_SIGNATURE, RFCData.SIGNATURE_HEADER_VALUE__BASIC_TEST);
+			assertTrue(signatureVerifier.verify(request));
+		}
+	}
+
+	@Test
+	public void failingMaxDateSkewRFCTest() throws GeneralSecurityException {
+		RFCData rfcData = new RFCData(messageFactory);
+		Instant date = Instant.parse("2014-01-05T21:31:40Z");
+		for (Duration offset : new Duration[] { Duration.ofSeconds(-301), Duration.ofSeconds(301), Duration.ofDays(365) }) {
+			SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(rfcData.keyMap())
+					.maxDateSkew(Duration.ofMinutes(5))
+					.dateHeaderProvider(DateHeaderProvider.of(Clock.fixed(date.plus(offset), ZoneOffset.UTC)))
+					.build();
+			HttpRequest request = rfcData.request();
+			request.addHeader(HttpMessageSigner.HEADER_SIGNATURE, RFCData.SIGNATURE_HEADER_VALUE__BASIC_TEST);
+			assertFalse(signatureVerifier.verify(request));
+		}
+	}
+
+	@Test
+	public void failingMaxDateSkewInvalidDate() throws GeneralSecurityException {
+		SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE)
+				.maxDateSkew(Duration.ofDays(365_000))
+				.build();
+		HttpMessageSigner signer = HttpMessageSigner.builder().algorithm(Algorithm.HMAC_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("user1").build();
+		HttpRequest request = createDatedRequest();
+		signer.sign(request);
+		// the date is not formatted as an HTTP date
+		assertFalse(signatureVerifier.verify(request));
+
+		HttpRequest validRequest = messageFactory.createRequest("GET", URI.create("http://example.com/resource"));
+		validRequest.addHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		signer.sign(validRequest);
+		assertTrue(signatureVerifier.verify(validRequest));
+	}
+
+	@Test
+	public void pooledEnginesRFCTest() throws GeneralSecurityException {
+		RFCData rfcData = new RFCData(messageFactory);
+		SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(rfcData.keyMap()).enginePoolSize(2).build();
+		for (int i = 0; i < 3; i++) {
+			HttpRequest request = rfcData.request();
+			request.addHeader(HttpMessageSigner.HEADER_SIGNATURE, RFCData.SIGNATURE_HEADER_VALUE__ALL_HEADERS_TEST);
+			assertTrue(signatureVerifier.verify(request));
+
+			HttpRequest badRequest = rfcData.request();
+			badRequest.addHeader(HttpMessageSigner.HEADER_SIGNATURE,
+					RFCData.SIGNATURE_HEADER_VALUE__ALL_HEADERS_TEST.replaceFirst("signature=\"(.*)\"", "signature=\"" + toB64(randomByteArray(128)) + "\""));
+			assertFalse(signatureVerifier.verify(badRequest));
+		}
+	}
+
+	@Test
+	public void pooledEnginesPublicKeyRotation() throws GeneralSecurityException {
+		assertPooledEnginesFollowKeyRotation(Algorithm.RSA_SHA256);
+	}
+
+	@Test
+	public void pooledEnginesSecretKeyRotation() throws GeneralSecurityException {
+		assertPooledEnginesFollowKeyRotation(Algorithm.HMAC_SHA256);
+	}
+
+	private void assertPooledEnginesFollowKeyRotation(Algorithm algorithm) throws GeneralSecurityException {
+		AtomicReference<String> currentKeyId = new AtomicReference<>("key-id");
+		KeyMap rotatingKeyMap = new KeyMap() {
+			@Override
+			public SecretKey getSecretKey(String keyId) {
+				return HashKeyMap.INSTANCE.getSecretKey(currentKeyId.get());
+			}
+
+			@Override
+			public PublicKey getPublicKey(String keyId) {
+				return HashKeyMap.INSTANCE.getPublicKey(currentKeyId.get());
+			}
+
+			@Override
+			public PrivateKey getPrivateKey(String keyId) {
+				return HashKeyMap.INSTANCE.getPrivateKey(currentKeyId.get());
+			}
+		};
+		HttpMessageSigner signer = HttpMessageSigner.builder().algorithm(algorithm).keyMap(HashKeyMap.INSTANCE).keyId("key-id").build();
+		SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(rotatingKeyMap).enginePoolSize(1).build();
+
+		assertTrue(signatureVerifier.verify(signer.sign(createDatedRequest())));
+		assertTrue(signatureVerifier.verify(signer.sign(createDatedRequest())));
+
+		currentKeyId.set(algorithm == Algorithm.HMAC_SHA256 ? "user1" : "myKeyId");
+		assertFalse(signatureVerifier.verify(signer.sign(createDatedRequest())));
+
+		currentKeyId.set("key-id");
+		assertTrue(signatureVerifier.verify(signer.sign(createDatedRequest())));
+	}
+
+	@Test
+	public void verificationCacheRFCTest() throws GeneralSecurityException {
+		RFCData rfcData = new RFCData(messageFactory);
+		AtomicReference<Instant> now = new AtomicReference<>(Instant.parse("2014-01-05T21:31:40Z"));
+		SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(rfcData.keyMap())
+				.verificationCache(2, Duration.ofSeconds(10))
+				.dateHeaderProvider(DateHeaderProvider.of(clock(now)))
+				.build();
+		for (int i = 0; i < 2; i++) {
+			HttpRequest request = rfcData.request();
+			request.addHeader(HttpMessageSigner.HEADER_SIGNATURE, RFCData.SIGNATURE_HEADER_VALUE__ALL_HEADERS_TEST);
+			assertTrue(signatureVerifier.verify(request));
+		}
+		assertEquals(VerificationCacheStats.create(1, 1, 0, 1), signatureVerifier.verificationCacheStats().get());
+
+		HttpRequest badRequest = rfcData.request();
+		badRequest.addHeader(HttpMessageSigner.HEADER_SIGNATURE,
+				RFCData.SIGNATURE_HEADER_VALUE__ALL_HEADERS_TEST.replaceFirst("signature=\"(.*)\"", "signature=\"" + toB64(randomByteArray(128)) + "\""));
+		assertFalse(signatureVerifier.verify(badRequest));
+		assertEquals(VerificationCacheStats.create(1, 2, 0, 1), signatureVerifier.verificationCacheStats().get());
+
+		now.set(now.get().plusSeconds(10));
+		HttpRequest request = rfcData.request();
+		request.addHeader(HttpMessageSigner.HEADER_SIGNATURE, RFCData.SIGNATURE_HEADER_VALUE__ALL_HEADERS_TEST);
+		assertTrue(signatureVerifier.verify(request));
+		assertEquals(VerificationCacheStats.create(1, 3, 0, 1), signatureVerifier.verificationCacheStats().get());
+	}
+
+	@Test
+	public void verificationCacheEviction() throws GeneralSecurityException {
+		HttpMessageSigner signer = HttpMessageSigner.builder().algorithm(Algorithm.RSA_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("key-id").build();
+		SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE)
+				.verificationCache(1, Duration.ofMinutes(1))
+				.build();
+		assertTrue(signatureVerifier.verify(signer.sign(createDatedRequest())));
+		HttpRequest otherRequest = messageFactory.createRequest("GET", URI.create("http://example.com/other"));
+		otherRequest.addHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		assertTrue(signatureVerifier.verify(signer.sign(otherRequest)));
+		assertEquals(VerificationCacheStats.create(0, 2, 1, 1), signatureVerifier.verificationCacheStats().get());
+	}
+
+	@Test
+	public void verificationCacheKeyRotation() throws GeneralSecurityException {
+		AtomicReference<String> currentKeyId = new AtomicReference<>("key-id");
+		KeyMap rotatingKeyMap = new KeyMap() {
+			@Override
+			public SecretKey getSecretKey(String keyId) {
+				return HashKeyMap.INSTANCE.getSecretKey(currentKeyId.get());
+			}
+
+			@Override
+			public PublicKey getPublicKey(String keyId) {
+				return HashKeyMap.INSTANCE.getPublicKey(currentKeyId.get());
+			}
+
+			@Override
+			public PrivateKey getPrivateKey(String keyId) {
+				return HashKeyMap.INSTANCE.getPrivateKey(currentKeyId.get());
+			}
+		};
+		HttpMessageSigner signer = HttpMessageSigner.builder().algorithm(Algorithm.RSA_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("key-id").build();
+		SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(rotatingKeyMap)
+				.verificationCache(10, Duration.ofMinutes(1))
+				.build();
+		HttpRequest request = signer.sign(createDatedRequest());
+		assertTrue(signatureVerifier.verify(request));
+		assertTrue(signatureVerifier.verify(request));
+
+		currentKeyId.set("myKeyId");
+		assertFalse(signatureVerifier.verify(request));
+		assertEquals(VerificationCacheStats.create(1, 2, 0, 1), signatureVerifier.verificationCacheStats().get());
+	}
+
+	@Test
+	public void noVerificationCacheByDefault() {
+		assertFalse(SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build().verificationCacheStats().isPresent());
+	}
+
+	@Test
+	public void rateLimiterShortCircuitsFailingKeyId() throws GeneralSecurityException {
+		AtomicLong ticker = new AtomicLong();
+		AtomicInteger lookups = new AtomicInteger();
+		SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(countingKeyMap(lookups))
+				.rateLimiter(VerificationRateLimiter.builder().keyIdLimit(1, 2).ticker(ticker::get).build())
+				.build();
+		HttpMessageSigner signer = HttpMessageSigner.builder().algorithm(Algorithm.RSA_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("key-id").build();
+
+		assertFalse(signatureVerifier.verify(forgedRequest()));
+		assertEquals(1, lookups.get());
+		// locked out by the failure penalty, the key is not even looked up
+		assertEquals(SignatureHeaderVerifier.Outcome.NOT_ADMITTED, signatureVerifier.check(signer.sign(createDatedRequest())));
+		assertEquals(1, lookups.get());
+
+		ticker.addAndGet(TimeUnit.SECONDS.toNanos(10));
+		assertTrue(signatureVerifier.verify(signer.sign(createDatedRequest())));
+		assertEquals(2, lookups.get());
+	}
+
+	@Test
+	public void rateLimiterIsolatesKeyIds() throws GeneralSecurityException {
+		AtomicLong ticker = new AtomicLong();
+		VerificationRateLimiter rateLimiter = VerificationRateLimiter.builder().keyIdLimit(1, 1).ticker(ticker::get).build();
+		SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).rateLimiter(rateLimiter).build();
+		HttpMessageSigner signer = HttpMessageSigner.builder().algorithm(Algorithm.RSA_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("myKeyId").build();
+
+		assertFalse(signatureVerifier.verify(forgedRequest()));
+		assertFalse(signatureVerifier.verify(forgedRequest()));
+		assertTrue(signatureVerifier.verify(signer.sign(createDatedRequest())));
+		assertEquals(1, rateLimiter.rejectionCount());
+	}
+
+	@Test
+	public void rateLimiterDoesNotPenalizeUnknownKeyIds() throws GeneralSecurityException {
+		AtomicLong ticker = new AtomicLong();
+		// a single bucket per row, shared by all keyIds
+		VerificationRateLimiter rateLimiter = VerificationRateLimiter.builder().keyIdLimit(1, 1).buckets(1).ticker(ticker::get).build();
+		SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).rateLimiter(rateLimiter).build();
+		HttpMessageSigner signer = HttpMessageSigner.builder().algorithm(Algorithm.RSA_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("myKeyId").build();
+		HttpRequest unknown = createDatedRequest();
+		unknown.addHeader(HttpMessageSigner.HEADER_SIGNATURE,
+				String.join(",", signer.sign(createDatedRequest()).headerValues(HttpMessageSigner.HEADER_SIGNATURE)).replace("keyId=myKeyId", "keyId=unknown"));
+
+		assertThrows(GeneralSecurityException.class, () -> signatureVerifier.verify(unknown));
+		ticker.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		assertEquals(SignatureHeaderVerifier.Outcome.VERIFIED, signatureVerifier.check(signer.sign(createDatedRequest())));
+	}
+
+	@Test
+	public void rateLimiterPenalizesAsyncFailures() throws Exception {
+		AtomicLong ticker = new AtomicLong();
+		AtomicInteger lookups = new AtomicInteger();
+		SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(countingKeyMap(lookups))
+				.rateLimiter(VerificationRateLimiter.builder().keyIdLimit(1, 2).ticker(ticker::get).build())
+				.build();
+
+		assertFalse(signatureVerifier.verifyAsync(forgedRequest()).toCompletableFuture().get());
+		assertFalse(signatureVerifier.verifyAsync(forgedRequest()).toCompletableFuture().get());
+		assertEquals(1, lookups.get());
+	}
+
+	/**
+	 * Returns a request signed with the key of {@code myKeyId} but claiming to be signed by {@code key-id}.
+	 */
+	private HttpRequest forgedRequest() throws GeneralSecurityException {
+		HttpMessageSigner signer = HttpMessageSigner.builder().algorithm(Algorithm.RSA_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("myKeyId").build();
+		HttpRequest signed = signer.sign(createDatedRequest());
+		HttpRequest forged = createDatedRequest();
+		forged.addHeader(HttpMessageSigner.HEADER_SIGNATURE,
+				String.join(",", signed.headerValues(HttpMessageSigner.HEADER_SIGNATURE)).replace("keyId=myKeyId", "keyId=key-id"));
+		return forged;
+	}
+
+	private static KeyMap countingKeyMap(AtomicInteger lookups) {
+		return new KeyMap() {
+			@Override
+			public SecretKey getSecretKey(String keyId) {
+				lookups.incrementAndGet();
+				return HashKeyMap.INSTANCE.getSecretKey(keyId);
+			}
+
+			@Override
+			public PublicKey getPublicKey(String keyId) {
+				lookups.incrementAndGet();
+				return HashKeyMap.INSTANCE.getPublicKey(keyId);
+			}
+
+			@Override
+			public PrivateKey getPrivateKey(String keyId) {
+				return HashKeyMap.INSTANCE.getPrivateKey(keyId);
+			}
+		};
+	}
+
+	private static Clock clock(AtomicReference<Instant> now) {
+		return new Clock() {
+			@Override
+			public ZoneId getZone() {
+				return ZoneOffset.UTC;
+			}
+
+			@Override
+			public Clock withZone(ZoneId zone) {
+				return this;
+			}
+
+			@Override
+			public Instant instant() {
+				return now.get();
+			}
+		};
+	}
+
+	private HttpRequest createDatedRequest() {
+		HttpRequest request = messageFactory.createRequest("GET", URI.create("http://example.com/resource"));
+		request.addHeader("Date", LocalDateTime.of(2016, 3, 20, 13, 20, 0).toInstant(ZoneOffset.ofHours(1)).toString());
+		return request;
+	}
 }
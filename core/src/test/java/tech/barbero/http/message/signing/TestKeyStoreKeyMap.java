@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.time.Duration;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+public class TestKeyStoreKeyMap {
+
+	private static final char[] PASSWORD = "changeit".toCharArray();
+
+	private Path file;
+
+	@BeforeEach
+	public void copyKeyStore() throws IOException {
+		this.file = Files.createTempFile("keystore", ".p12");
+		try (InputStream is = TestKeyStoreKeyMap.class.getResourceAsStream("/keystore.p12")) {
+			Files.copy(is, this.file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	@AfterEach
+	public void deleteKeyStore() throws IOException {
+		Files.deleteIfExists(this.file);
+	}
+
+	@Test
+	public void privateKeyEntry() throws IOException, GeneralSecurityException {
+		try (KeyStoreKeyMap keyMap = builder().build()) {
+			assertEquals(1, keyMap.size());
+			assertNotNull(keyMap.getPrivateKey("rsa"));
+			assertNotNull(keyMap.getPublicKey("rsa"));
+			assertNull(keyMap.getSecretKey("rsa"));
+			assertSignatureVerified(keyMap, "rsa", Algorithm.RSA_SHA256);
+		}
+	}
+
+	@Test
+	public void secretKeyEntry() throws IOException, GeneralSecurityException {
+		addSecretKey("hmac", "a shared secret");
+		try (KeyStoreKeyMap keyMap = builder().build()) {
+			assertEquals(2, keyMap.size());
+			assertEquals("a shared secret", new String(keyMap.getSecretKey("hmac").getEncoded(), StandardCharsets.US_ASCII));
+			assertNull(keyMap.getPublicKey("hmac"));
+			assertSignatureVerified(keyMap, "hmac", Algorithm.HMAC_SHA256);
+		}
+	}
+
+	@Test
+	public void metrics() throws IOException, GeneralSecurityException {
+		try (KeyStoreKeyMap keyMap = builder().build()) {
+			assertEquals(1, keyMap.loadCount());
+			assertEquals(0, keyMap.loadFailureCount());
+			assertNotNull(keyMap.lastLoadTime());
+			assertNotNull(keyMap.lastLoadDuration());
+
+			keyMap.getPrivateKey("rsa");
+			keyMap.getPublicKey("rsa");
+			keyMap.getSecretKey("rsa");
+			keyMap.getPublicKey("unknown");
+			assertEquals(2, keyMap.hitCount());
+			assertEquals(2, keyMap.missCount());
+		}
+	}
+
+	@Test
+	public void wrongPassword() {
+		assertThrows(IOException.class, () -> KeyStoreKeyMap.builder().file(this.file).type("PKCS12")
+				.storePassword("wrong".toCharArray()).build());
+	}
+
+	@Test
+	public void missingFile() {
+		assertThrows(IllegalStateException.class, () -> KeyStoreKeyMap.builder().build());
+	}
+
+	@Test
+	public void reload() throws IOException, GeneralSecurityException {
+		try (KeyStoreKeyMap keyMap = builder().build()) {
+			assertNull(keyMap.getSecretKey("hmac"));
+
+			addSecretKey("hmac", "a shared secret");
+			keyMap.reload();
+			assertNotNull(keyMap.getSecretKey("hmac"));
+			assertEquals(2, keyMap.loadCount());
+
+			Files.write(this.file, new byte[] { 1, 2, 3 });
+			assertThrows(IOException.class, keyMap::reload);
+			assertEquals(1, keyMap.loadFailureCount());
+			assertTrue(keyMap.lastLoadFailure().isPresent());
+			// the keys loaded last are still served
+			assertNotNull(keyMap.getSecretKey("hmac"));
+			assertNotNull(keyMap.getPrivateKey("rsa"));
+		}
+	}
+
+	@Test
+	public void periodicReload() throws IOException, GeneralSecurityException, InterruptedException {
+		try (KeyStoreKeyMap keyMap = builder().reloadInterval(Duration.ofMillis(20)).build()) {
+			Thread.sleep(100);
+			// the file has not changed
+			assertEquals(1, keyMap.loadCount());
+
+			addSecretKey("hmac", "a shared secret");
+			long deadline = System.nanoTime() + 10_000_000_000L;
+			while (keyMap.getSecretKey("hmac") == null) {
+				if (System.nanoTime() > deadline) {
+					throw new AssertionError("Key store has not been reloaded in time");
+				}
+				Thread.sleep(20);
+			}
+			assertEquals(0, keyMap.loadFailureCount());
+		}
+	}
+
+	private KeyStoreKeyMap.Builder builder() {
+		return KeyStoreKeyMap.builder().file(this.file).type("PKCS12").storePassword(PASSWORD);
+	}
+
+	private void addSecretKey(String alias, String secret) throws IOException, GeneralSecurityException {
+		KeyStore keyStore = KeyStore.getInstance("PKCS12");
+		try (InputStream is = Files.newInputStream(this.file)) {
+			keyStore.load(is, PASSWORD);
+		}
+		SecretKey key = new SecretKeySpec(secret.getBytes(StandardCharsets.US_ASCII), "HmacSHA256");
+		keyStore.setEntry(alias, new KeyStore.SecretKeyEntry(key), new KeyStore.PasswordProtection(PASSWORD));
+		Path tmp = Files.createTempFile(this.file.getParent(), "keystore", ".tmp");
+		try (OutputStream os = Files.newOutputStream(tmp)) {
+			keyStore.store(os, PASSWORD);
+		}
+		Files.move(tmp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static void assertSignatureVerified(KeyMap keyMap, String keyId, Algorithm algorithm) throws GeneralSecurityException {
+		HttpRequest request = new RequestMock("GET", URI.create("http://example.com/resource"));
+		request.addHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		HttpMessageSigner.builder().algorithm(algorithm).keyMap(keyMap).keyId(keyId).build().sign(request);
+		assertTrue(SignatureHeaderVerifier.builder().keyMap(keyMap).build().verify(request));
+	}
+}
@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+public class TestRfc9421 {
+
+	// RFC 9421, Appendix B.1.4
+	private static final String SHARED_SECRET = "uzvJfB4u3N0Jy4T7NZ75MDVcr8zSTInedJtkgcu46YW4XByzNJjxBdtjUkdJPBtbmHhIDi6pcl8jsasjlTMtDQ==";
+	private static final Instant CREATED = Instant.ofEpochSecond(1618884473L);
+
+	private static final KeyMap SHARED_SECRET_KEY_MAP = new KeyMap() {
+		@Override
+		public SecretKey getSecretKey(String keyId) {
+			return "test-shared-secret".equals(keyId) ? new SecretKeySpec(Base64.getDecoder().decode(SHARED_SECRET), "HmacSHA256") : null;
+		}
+
+		@Override
+		public PublicKey getPublicKey(String keyId) {
+			return null;
+		}
+
+		@Override
+		public PrivateKey getPrivateKey(String keyId) {
+			return null;
+		}
+	};
+
+	// RFC 9421, Appendix B.2
+	private static HttpRequest createRfcRequest() {
+		HttpRequest request = new RequestMock("POST", URI.create("http://example.com/foo?param=Value&Pet=dog"));
+		request.addHeader("Host", "example.com");
+		request.addHeader("Date", "Tue, 20 Apr 2021 02:07:55 GMT");
+		request.addHeader("Content-Type", "application/json");
+		request.addHeader("Content-Digest", "sha-512=:WZDPaVn/7XgHaAy8pmojAkGWoRx2UFChF41A2svX+TaPm+AbwAgBWnrIiYllu7BNNyealdVLvRwEmTHWXvJwew==:");
+		request.addHeader("Content-Length", "18");
+		return request;
+	}
+
+	@Test
+	public void rfcHmacSignatureBase() {
+		String signatureBase = SignatureBase.compile(Arrays.asList("date", "@authority", "content-type"))
+				.base(createRfcRequest(), "(\"date\" \"@authority\" \"content-type\");created=1618884473;keyid=\"test-shared-secret\"");
+		assertEquals("\"date\": Tue, 20 Apr 2021 02:07:55 GMT\n"
+				+ "\"@authority\": example.com\n"
+				+ "\"content-type\": application/json\n"
+				+ "\"@signature-params\": (\"date\" \"@authority\" \"content-type\");created=1618884473;keyid=\"test-shared-secret\"", signatureBase);
+	}
+
+	@Test
+	public void rfcHmacTest() throws GeneralSecurityException {
+		HttpRequest request = createRfcRequest();
+		request.addHeader(Rfc9421Signer.HEADER_SIGNATURE_INPUT, "sig-b25=(\"date\" \"@authority\" \"content-type\");created=1618884473;keyid=\"test-shared-secret\"");
+		request.addHeader(HttpMessageSigner.HEADER_SIGNATURE, "sig-b25=:pxcQw6G3AjtMBQjwo8XzkZf/bws5LelbaMk5rGIGtE8=:");
+		Rfc9421Verifier verifier = Rfc9421Verifier.builder().keyMap(SHARED_SECRET_KEY_MAP).algorithm(Rfc9421Algorithm.HMAC_SHA256).build();
+		assertTrue(verifier.verify(request));
+	}
+
+	@Test
+	public void rfcHmacTestWithoutAlgorithm() {
+		HttpRequest request = createRfcRequest();
+		request.addHeader(Rfc9421Signer.HEADER_SIGNATURE_INPUT, "sig-b25=(\"date\" \"@authority\" \"content-type\");created=1618884473;keyid=\"test-shared-secret\"");
+		request.addHeader(HttpMessageSigner.HEADER_SIGNATURE, "sig-b25=:pxcQw6G3AjtMBQjwo8XzkZf/bws5LelbaMk5rGIGtE8=:");
+		Rfc9421Verifier verifier = Rfc9421Verifier.builder().keyMap(SHARED_SECRET_KEY_MAP).build();
+		assertThrows(GeneralSecurityException.class, () -> verifier.verify(request));
+	}
+
+	@Test
+	public void signAndVerifyHmac() throws GeneralSecurityException {
+		assertSignAndVerify(Rfc9421Algorithm.HMAC_SHA256, HashKeyMap.INSTANCE);
+	}
+
+	@Test
+	public void signAndVerifyRsaV15() throws GeneralSecurityException {
+		assertSignAndVerify(Rfc9421Algorithm.RSA_V1_5_SHA256, HashKeyMap.INSTANCE);
+	}
+
+	@Test
+	public void signAndVerifyRsaPss() throws GeneralSecurityException {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(2048);
+		assertSignAndVerify(Rfc9421Algorithm.RSA_PSS_SHA512, keyPairMap(generator.generateKeyPair()));
+	}
+
+	@Test
+	public void signAndVerifyEcdsa() throws GeneralSecurityException {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+		generator.initialize(new ECGenParameterSpec("secp256r1"));
+		for (int i = 0; i < 16; i++) {
+			assertSignAndVerify(Rfc9421Algorithm.ECDSA_P256_SHA256, keyPairMap(generator.generateKeyPair()));
+		}
+	}
+
+	private static void assertSignAndVerify(Rfc9421Algorithm algorithm, KeyMap keyMap) throws GeneralSecurityException {
+		Rfc9421Signer signer = Rfc9421Signer.builder()
+				.algorithm(algorithm)
+				.keyMap(keyMap)
+				.keyId("key-id")
+				.addComponent(Rfc9421Signer.METHOD)
+				.addComponent(Rfc9421Signer.TARGET_URI)
+				.addComponent("Content-Digest")
+				.addComponent("Date")
+				.build();
+		HttpRequest request = signer.sign(createRfcRequest());
+		Rfc9421Verifier verifier = Rfc9421Verifier.builder().keyMap(keyMap).build();
+		assertTrue(verifier.verify(request));
+
+		HttpRequest tampered = createRfcRequest();
+		tampered.addHeader("Date", "Wed, 21 Apr 2021 02:07:55 GMT");
+		tampered.addHeader(Rfc9421Signer.HEADER_SIGNATURE_INPUT, request.headerValues(Rfc9421Signer.HEADER_SIGNATURE_INPUT).get(0));
+		tampered.addHeader(HttpMessageSigner.HEADER_SIGNATURE, request.headerValues(HttpMessageSigner.HEADER_SIGNATURE).get(0));
+		assertFalse(verifier.verify(tampered));
+	}
+
+	@Test
+	public void signedHeaders() throws GeneralSecurityException {
+		Rfc9421Signer signer = Rfc9421Signer.builder()
+				.label("my-sig")
+				.algorithm(Rfc9421Algorithm.HMAC_SHA256)
+				.keyMap(SHARED_SECRET_KEY_MAP)
+				.keyId("test-shared-secret")
+				.clock(Clock.fixed(CREATED, ZoneOffset.UTC))
+				.expiresAfter(Duration.ofMinutes(5))
+				.tag("app")
+				.addComponent("date")
+				.addComponent(Rfc9421Signer.AUTHORITY)
+				.addComponent("content-type")
+				.build();
+		HttpRequest request = signer.sign(createRfcRequest());
+		assertEquals(Arrays.asList("my-sig=(\"date\" \"@authority\" \"content-type\");created=1618884473;expires=1618884773;"
+				+ "keyid=\"test-shared-secret\";alg=\"hmac-sha256\";tag=\"app\""),
+				request.headerValues(Rfc9421Signer.HEADER_SIGNATURE_INPUT));
+		assertEquals(1, request.headerValues(HttpMessageSigner.HEADER_SIGNATURE).size());
+		assertTrue(request.headerValues(HttpMessageSigner.HEADER_SIGNATURE).get(0).matches("my-sig=:[A-Za-z0-9+/=]{44}:"));
+	}
+
+	@Test
+	public void responseStatus() throws GeneralSecurityException {
+		Rfc9421Signer signer = Rfc9421Signer.builder()
+				.algorithm(Rfc9421Algorithm.HMAC_SHA256)
+				.keyMap(HashKeyMap.INSTANCE)
+				.keyId("key-id")
+				.addComponent(Rfc9421Signer.STATUS)
+				.addComponent("date")
+				.build();
+		HttpResponse response = new ResponseMock(503);
+		response.addHeader("Date", "Tue, 20 Apr 2021 02:07:55 GMT");
+		assertTrue(Rfc9421Verifier.builder().keyMap(HashKeyMap.INSTANCE).build().verify(signer.sign(response)));
+
+		HttpRequest request = createRfcRequest();
+		assertThrows(IllegalStateException.class, () -> signer.sign(request));
+	}
+
+	@Test
+	public void freshness() throws GeneralSecurityException {
+		Rfc9421Signer signer = Rfc9421Signer.builder()
+				.algorithm(Rfc9421Algorithm.HMAC_SHA256)
+				.keyMap(HashKeyMap.INSTANCE)
+				.keyId("key-id")
+				.clock(Clock.fixed(CREATED, ZoneOffset.UTC))
+				.expiresAfter(Duration.ofMinutes(5))
+				.addComponent("date")
+				.build();
+		HttpRequest request = signer.sign(createRfcRequest());
+		assertTrue(verifierAt(CREATED.plusSeconds(300), null).verify(request));
+		assertFalse(verifierAt(CREATED.plusSeconds(301), null).verify(request));
+		assertTrue(verifierAt(CREATED.plusSeconds(60), Duration.ofMinutes(1)).verify(request));
+		assertFalse(verifierAt(CREATED.plusSeconds(61), Duration.ofMinutes(1)).verify(request));
+		assertFalse(verifierAt(CREATED.minusSeconds(61), Duration.ofMinutes(1)).verify(request));
+	}
+
+	private static Rfc9421Verifier verifierAt(Instant now, Duration maxAge) {
+		Rfc9421Verifier.Builder builder = Rfc9421Verifier.builder().keyMap(HashKeyMap.INSTANCE).clock(Clock.fixed(now, ZoneOffset.UTC));
+		if (maxAge != null) {
+			builder.maxAge(maxAge);
+		}
+		return builder.build();
+	}
+
+	@Test
+	public void requiredComponents() throws GeneralSecurityException {
+		Rfc9421Signer signer = Rfc9421Signer.builder()
+				.algorithm(Rfc9421Algorithm.HMAC_SHA256)
+				.keyMap(HashKeyMap.INSTANCE)
+				.keyId("key-id")
+				.addComponent(Rfc9421Signer.METHOD)
+				.addComponent("date")
+				.build();
+		HttpRequest request = signer.sign(createRfcRequest());
+		assertTrue(Rfc9421Verifier.builder().keyMap(HashKeyMap.INSTANCE).addRequiredComponent("Date").build().verify(request));
+		assertFalse(Rfc9421Verifier.builder().keyMap(HashKeyMap.INSTANCE).addRequiredComponent("content-digest").build().verify(request));
+	}
+
+	@Test
+	public void labelsAndAlgorithms() throws GeneralSecurityException {
+		HttpRequest request = createRfcRequest();
+		Rfc9421Signer.builder().label("hmac").algorithm(Rfc9421Algorithm.HMAC_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("key-id")
+				.addComponent("date").build().sign(request);
+		Rfc9421Signer.builder().label("rsa").algorithm(Rfc9421Algorithm.RSA_V1_5_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("key-id")
+				.addComponent("date").addComponent("content-type").build().sign(request);
+		assertEquals(2, request.headerValues(Rfc9421Signer.HEADER_SIGNATURE_INPUT).size());
+
+		assertTrue(Rfc9421Verifier.builder().keyMap(HashKeyMap.INSTANCE).label("rsa").build().verify(request));
+		assertTrue(Rfc9421Verifier.builder().keyMap(HashKeyMap.INSTANCE).label("hmac").build().verify(request));
+		assertFalse(Rfc9421Verifier.builder().keyMap(HashKeyMap.INSTANCE).label("other").build().verify(request));
+		assertFalse(Rfc9421Verifier.builder().keyMap(HashKeyMap.INSTANCE).label("rsa").algorithm(Rfc9421Algorithm.RSA_PSS_SHA512).build().verify(request));
+	}
+
+	@Test
+	public void malformedHeaders() {
+		Rfc9421Verifier verifier = Rfc9421Verifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+		String[] inputs = {
+				"sig1=\"date\"",
+				"sig1=(\"date\";sf);keyid=\"k\"",
+				"sig1=(date);keyid=\"k\"",
+				"sig1=(\"date\" \"date\");keyid=\"k\";alg=\"hmac-sha256\"",
+				"sig1=(\"@query-param\");keyid=\"k\";alg=\"hmac-sha256\"",
+				"sig1=(\"date\");keyid=\"key-id\";alg=\"ed25519\"",
+				"sig1=(\"date\");alg=\"hmac-sha256\"",
+				"sig1=(\"date\")," };
+		for (String input : inputs) {
+			HttpRequest request = createRfcRequest();
+			request.addHeader(Rfc9421Signer.HEADER_SIGNATURE_INPUT, input);
+			request.addHeader(HttpMessageSigner.HEADER_SIGNATURE, "sig1=:AAAA:");
+			assertThrows(GeneralSecurityException.class, () -> verifier.verify(request), input);
+		}
+		assertThrows(GeneralSecurityException.class, () -> verifier.verify(createRfcRequest()));
+	}
+
+	@Test
+	public void canonicalSignatureParams() {
+		Map<String, SignatureInput> inputs = SignatureInput.parse(
+				"sig1=( \"@method\"  \"date\" );created=0001618884473;keyid=\"a\\\\b\\\"c\";nonce=tok/en;flag=?1;other=?0;d=1.500, sig2=();keyid=\"k\"");
+		assertEquals(Arrays.asList("sig1", "sig2"), Arrays.asList(inputs.keySet().toArray()));
+		SignatureInput sig1 = inputs.get("sig1");
+		assertEquals(Arrays.asList("@method", "date"), sig1.components());
+		assertEquals("(\"@method\" \"date\")", sig1.innerList());
+		assertEquals("(\"@method\" \"date\");created=1618884473;keyid=\"a\\\\b\\\"c\";nonce=tok/en;flag;other=?0;d=1.5", sig1.signatureParams());
+		assertEquals("a\\b\"c", sig1.keyId().get());
+		assertEquals(1618884473L, sig1.created().getAsLong());
+		assertEquals("();keyid=\"k\"", inputs.get("sig2").signatureParams());
+	}
+
+	@Test
+	public void ecdsaSignatureEncoding() throws GeneralSecurityException {
+		byte[] concatenated = new byte[64];
+		concatenated[0] = (byte) 0x80;
+		concatenated[63] = 1;
+		byte[] der = Rfc9421Algorithm.concatenatedToDer(concatenated, 32);
+		// r is padded with a leading zero, s is reduced to a single byte
+		assertEquals(2 + 2 + 33 + 2 + 1, der.length);
+		assertArrayEquals(concatenated, Rfc9421Algorithm.derToConcatenated(der, 32));
+	}
+
+	private static KeyMap keyPairMap(KeyPair keyPair) {
+		return new KeyMap() {
+			@Override
+			public SecretKey getSecretKey(String keyId) {
+				return null;
+			}
+
+			@Override
+			public PublicKey getPublicKey(String keyId) {
+				return keyPair.getPublic();
+			}
+
+			@Override
+			public PrivateKey getPrivateKey(String keyId) {
+				return keyPair.getPrivate();
+			}
+		};
+	}
+}
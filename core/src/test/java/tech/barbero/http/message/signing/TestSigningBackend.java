@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Security;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+public class TestSigningBackend {
+
+	@Test
+	public void precomputedHmacMatchesMac() throws GeneralSecurityException {
+		SigningBackend backend = SigningBackend.precomputedHmac();
+		Random random = new Random(17);
+		// shorter than, as long as, and longer than a SHA-256 block
+		for (int keyLength : new int[] { 1, 32, 64, 65, 256 }) {
+			byte[] keyBytes = new byte[keyLength];
+			random.nextBytes(keyBytes);
+			SecretKey key = new SecretKeySpec(keyBytes, "HmacSHA256");
+			for (int inputLength : new int[] { 0, 1, 55, 64, 1000 }) {
+				byte[] input = new byte[inputLength];
+				random.nextBytes(input);
+				Mac mac = Mac.getInstance("HmacSHA256");
+				mac.init(key);
+				byte[] expected = mac.doFinal(input);
+				assertArrayEquals(expected, backend.mac(Algorithm.HMAC_SHA256, key, input), keyLength + " bytes key, " + inputLength + " bytes input");
+				assertTrue(backend.verifyMac(Algorithm.HMAC_SHA256, key, input, expected));
+				expected[0] = (byte) (expected[0] ^ 1);
+				assertFalse(backend.verifyMac(Algorithm.HMAC_SHA256, key, input, expected));
+			}
+		}
+	}
+
+	@Test
+	public void precomputedHmacKeySchedulesAreBounded() throws GeneralSecurityException {
+		PrecomputedHmacBackend backend = new PrecomputedHmacBackend(SigningBackend.jca());
+		for (int i = 0; i <= PrecomputedHmacBackend.MAX_KEY_SCHEDULES; i++) {
+			backend.mac(Algorithm.HMAC_SHA256, new SecretKeySpec(Integer.toString(i).getBytes(), "HmacSHA256"), new byte[1]);
+		}
+		assertTrue(backend.keyScheduleCount() <= PrecomputedHmacBackend.MAX_KEY_SCHEDULES);
+		assertEquals(1, backend.keyScheduleCount());
+	}
+
+	@Test
+	public void backendSignaturesMatchDefault() throws GeneralSecurityException {
+		// neither HMAC nor RSA PKCS#1 v1.5 signatures are randomized
+		assertSameSignature(Algorithm.HMAC_SHA256, "user1", SigningBackend.precomputedHmac());
+		assertSameSignature(Algorithm.HMAC_SHA256, "user1", SigningBackend.jca(Security.getProvider("SunJCE")));
+		assertSameSignature(Algorithm.RSA_SHA256, "myKeyId", SigningBackend.jca(Security.getProvider("SunRsaSign")));
+		assertSameSignature(Algorithm.RSA_SHA256, "myKeyId", SigningBackend.precomputedHmac());
+	}
+
+	private static void assertSameSignature(Algorithm algorithm, String keyId, SigningBackend backend) throws GeneralSecurityException {
+		HttpMessageSigner.Builder builder = HttpMessageSigner.builder().algorithm(algorithm).keyMap(HashKeyMap.INSTANCE).keyId(keyId);
+		HttpRequest expected = builder.build().sign(request());
+		HttpRequest actual = builder.backend(backend).build().sign(request());
+		assertEquals(expected.headerValues(HttpMessageSigner.HEADER_SIGNATURE), actual.headerValues(HttpMessageSigner.HEADER_SIGNATURE),
+				backend.toString());
+
+		SignatureHeaderVerifier verifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).backend(algorithm, backend).build();
+		assertTrue(verifier.verify(actual));
+		HttpRequest forged = request();
+		forged.addHeader(HttpMessageSigner.HEADER_DATE, "Thu, 01 Jan 1970 00:00:00 GMT");
+		for (String value : actual.headerValues(HttpMessageSigner.HEADER_SIGNATURE)) {
+			forged.addHeader(HttpMessageSigner.HEADER_SIGNATURE, value);
+		}
+		assertFalse(verifier.verify(forged));
+	}
+
+	@Test
+	public void verifierSelectsBackendPerAlgorithm() throws GeneralSecurityException {
+		AtomicInteger operations = new AtomicInteger();
+		SignatureHeaderVerifier.Builder builder = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).enginePoolSize(2)
+				.backend(Algorithm.HMAC_SHA256, countingBackend(operations));
+		SignatureHeaderVerifier verifier = builder.build();
+		// the verifier is not affected by later changes of its builder
+		builder.backend(Algorithm.RSA_SHA256, countingBackend(operations));
+
+		HttpMessageSigner rsaSigner = HttpMessageSigner.builder().algorithm(Algorithm.RSA_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("myKeyId").build();
+		assertTrue(verifier.verify(rsaSigner.sign(request())));
+		assertEquals(0, operations.get());
+
+		HttpMessageSigner hmacSigner = HttpMessageSigner.builder().algorithm(Algorithm.HMAC_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("user1").build();
+		assertTrue(verifier.verify(hmacSigner.sign(request())));
+		assertEquals(1, operations.get());
+		assertTrue(verifier.verifyAsync(hmacSigner.sign(request())).toCompletableFuture().join().booleanValue());
+		assertEquals(2, operations.get());
+	}
+
+	@Test
+	public void malformedMacFailsAsWithoutBackend() {
+		HttpRequest request = request();
+		request.addHeader(HttpMessageSigner.HEADER_SIGNATURE, "keyId=user1,algorithm=hmac-sha256,signature=\"not*base64\"");
+		SignatureHeaderVerifier.Builder builder = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE);
+		assertThrows(GeneralSecurityException.class, () -> builder.build().verify(request));
+		assertThrows(GeneralSecurityException.class, () -> builder.enginePoolSize(2).build().verify(request));
+		assertThrows(GeneralSecurityException.class,
+				() -> builder.backend(Algorithm.HMAC_SHA256, SigningBackend.precomputedHmac()).build().verify(request));
+	}
+
+	private static HttpRequest request() {
+		HttpRequest ret = new MessageFactory.MockImpl().createRequest("GET", URI.create("http://example.com/foo"));
+		ret.addHeader(HttpMessageSigner.HEADER_DATE, "Sun, 05 Jan 2014 21:31:40 GMT");
+		return ret;
+	}
+
+	private static SigningBackend countingBackend(AtomicInteger operations) {
+		SigningBackend delegate = SigningBackend.jca();
+		return new SigningBackend() {
+
+			@Override
+			public byte[] sign(Algorithm algorithm, PrivateKey key, byte[] input) throws GeneralSecurityException {
+				operations.incrementAndGet();
+				return delegate.sign(algorithm, key, input);
+			}
+
+			@Override
+			public boolean verify(Algorithm algorithm, PublicKey key, byte[] input, byte[] signature) throws GeneralSecurityException {
+				operations.incrementAndGet();
+				return delegate.verify(algorithm, key, input, signature);
+			}
+
+			@Override
+			public byte[] mac(Algorithm algorithm, SecretKey key, byte[] input) throws GeneralSecurityException {
+				operations.incrementAndGet();
+				return delegate.mac(algorithm, key, input);
+			}
+		};
+	}
+}
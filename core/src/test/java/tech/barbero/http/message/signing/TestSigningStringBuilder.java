@@ -15,7 +15,10 @@ import java.net.URI;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -131,6 +134,63 @@ public class TestSigningStringBuilder {
 		assertEquals("x2: t1=v1 , t2=\"v2\", t4=\"v1, V3 v2\"; p=8.9\nxxxx: VVVV\ndate: " + INSTANT.toString(), signingString);
 	}
 
+	@Test
+	public void testHeaderValuesFetchedOnce() {
+		HttpRequest request = createDummyRequest();
+		List<String> fetched = new ArrayList<>();
+		HttpRequest countingRequest = new HttpRequest() {
+			@Override
+			public List<String> headerValues(String name) {
+				fetched.add(name);
+				return request.headerValues(name);
+			}
+
+			@Override
+			public void addHeader(String name, String value) {
+				request.addHeader(name, value);
+			}
+
+			@Override
+			public String method() {
+				return request.method();
+			}
+
+			@Override
+			public URI uri() {
+				return request.uri();
+			}
+		};
+		SigningStringBuilder.forHeaders(Arrays.asList(HttpMessageSigner.REQUEST_TARGET, "Content-Type", "xxxx", "date"))
+				.signingString(countingRequest);
+		assertEquals(Arrays.asList("Content-Type", "xxxx", "date"), fetched);
+	}
+
+	@Test
+	public void testHeaderValuesOfSeveralNames() {
+		HttpRequest request = createDummyRequest();
+		request.addHeader("x-repeated", "first");
+		request.addHeader("X-Single", "single");
+		request.addHeader("X-REPEATED", "second");
+		List<String> names = Arrays.asList("X-Repeated", "missing", "x-single", "XXXX", "x-repeated");
+		List<List<String>> values = request.headerValues(names);
+		assertEquals(Arrays.asList(
+				Arrays.asList("first", "second"),
+				Collections.emptyList(),
+				Arrays.asList("single"),
+				Arrays.asList("VVVV"),
+				Arrays.asList("first", "second")), values);
+		for (int i = 0; i < names.size(); i++) {
+			assertEquals(new ArrayList<>(request.headerValues(names.get(i))), new ArrayList<>(values.get(i)));
+		}
+	}
+
+	@Test
+	public void testHeaderValuesOfInvalidNames() {
+		HttpRequest request = createDummyRequest();
+		assertThrows(IllegalArgumentException.class, () -> request.headerValues(Arrays.asList("date", "")));
+		assertThrows(IllegalArgumentException.class, () -> request.headerValues(Arrays.asList("date", null)));
+	}
+
 	@Test
 	public void testResponseStatus() {
 		String signingString = SigningStringBuilder
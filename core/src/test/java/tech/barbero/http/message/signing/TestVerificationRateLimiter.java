@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class TestVerificationRateLimiter {
+
+	private final AtomicLong ticker = new AtomicLong(Long.MIN_VALUE / 2);
+
+	@Test
+	public void burstThenRate() {
+		VerificationRateLimiter limiter = VerificationRateLimiter.builder().addressLimit(10, 5).ticker(this.ticker::get).build();
+		for (int i = 0; i < 5; i++) {
+			assertTrue(limiter.admitAddress("192.0.2.1"));
+		}
+		assertFalse(limiter.admitAddress("192.0.2.1"));
+		assertTrue(limiter.admitAddress("192.0.2.2"));
+
+		this.ticker.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+		assertTrue(limiter.admitAddress("192.0.2.1"));
+		assertFalse(limiter.admitAddress("192.0.2.1"));
+		assertEquals(2, limiter.rejectionCount());
+	}
+
+	@Test
+	public void penaltyIsBounded() {
+		VerificationRateLimiter limiter = VerificationRateLimiter.builder().addressLimit(1, 1).maxPenalty(Duration.ofSeconds(5))
+				.ticker(this.ticker::get).build();
+		for (int i = 0; i < 1000; i++) {
+			limiter.penalizeAddress("192.0.2.1");
+		}
+		assertFalse(limiter.admitAddress("192.0.2.1"));
+		this.ticker.addAndGet(TimeUnit.SECONDS.toNanos(5));
+		assertFalse(limiter.admitAddress("192.0.2.1"));
+		this.ticker.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		assertTrue(limiter.admitAddress("192.0.2.1"));
+	}
+
+	@Test
+	public void noPenalty() {
+		VerificationRateLimiter limiter = VerificationRateLimiter.builder().addressLimit(1, 1).failurePenalty(0).ticker(this.ticker::get).build();
+		limiter.penalizeAddress("192.0.2.1");
+		assertTrue(limiter.admitAddress("192.0.2.1"));
+	}
+
+	@Test
+	public void unlimitedDimension() {
+		VerificationRateLimiter limiter = VerificationRateLimiter.builder().keyIdLimit(1, 1).ticker(this.ticker::get).build();
+		for (int i = 0; i < 100; i++) {
+			limiter.penalizeAddress("192.0.2.1");
+			assertTrue(limiter.admitAddress("192.0.2.1"));
+		}
+		assertEquals(0, limiter.rejectionCount());
+	}
+
+	@Test
+	public void boundedTable() {
+		VerificationRateLimiter limiter = VerificationRateLimiter.builder().keyIdLimit(1, 1).buckets(3).ticker(this.ticker::get).build();
+		for (int i = 0; i < 100_000; i++) {
+			limiter.admitKeyId("key-" + i);
+		}
+		this.ticker.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		assertTrue(limiter.admitKeyId("key-0"));
+	}
+
+	@Test
+	public void invalidBuilder() {
+		assertThrows(IllegalStateException.class, () -> VerificationRateLimiter.builder().build());
+		assertThrows(IllegalArgumentException.class, () -> VerificationRateLimiter.builder().keyIdLimit(0, 1));
+		assertThrows(IllegalArgumentException.class, () -> VerificationRateLimiter.builder().keyIdLimit(Double.NaN, 1));
+		assertThrows(IllegalArgumentException.class, () -> VerificationRateLimiter.builder().addressLimit(1, 0));
+		assertThrows(IllegalArgumentException.class, () -> VerificationRateLimiter.builder().failurePenalty(-1));
+		assertThrows(IllegalArgumentException.class, () -> VerificationRateLimiter.builder().maxPenalty(Duration.ofSeconds(-1)));
+		assertThrows(IllegalArgumentException.class, () -> VerificationRateLimiter.builder().buckets(0));
+	}
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+/**
+ * Tests the Java 21 variant of {@link VerificationBuffers}. Run against the multi-release jar.
+ */
+public class TestVerificationBuffers {
+
+	@Test
+	public void platformThreadsReuseBuffers() {
+		assertSame(VerificationBuffers.borrow(), VerificationBuffers.borrow());
+	}
+
+	@Test
+	public void virtualThreadsReuseReleasedBuffers() throws Exception {
+		assertTrue(onVirtualThread(() -> {
+			byte[][] buffers = VerificationBuffers.borrow();
+			VerificationBuffers.release(buffers);
+			return VerificationBuffers.borrow() == buffers;
+		}));
+		assertTrue(onVirtualThread(() -> VerificationBuffers.borrow() != VerificationBuffers.borrow()));
+		assertNotSame(VerificationBuffers.borrow(), onVirtualThread(VerificationBuffers::borrow));
+	}
+
+	@Test
+	public void sharedBuffersDoNotAllocate() throws Throwable {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "Allocated bytes cannot be measured on this JVM");
+		com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+		assumeTrue(sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled(),
+				"Allocated bytes cannot be measured on this JVM");
+		// allocations cannot be measured on virtual threads, the pool they use is measured on the current thread. Its
+		// methods are looked up since the tests are compiled against the Java 8 classes.
+		MethodHandle borrowShared = MethodHandles.lookup().findStatic(VerificationBuffers.class, "borrowShared", MethodType.methodType(byte[][].class));
+		MethodHandle releaseShared = MethodHandles.lookup().findStatic(VerificationBuffers.class, "releaseShared",
+				MethodType.methodType(void.class, byte[][].class));
+		int iterations = 100_000;
+		long bytesPerCall = Long.MAX_VALUE;
+		for (int round = 0; round < 10; round++) {
+			long start = sunThreads.getCurrentThreadAllocatedBytes();
+			for (int i = 0; i < iterations; i++) {
+				releaseShared.invokeExact((byte[][]) borrowShared.invokeExact());
+			}
+			bytesPerCall = Math.min(bytesPerCall, (sunThreads.getCurrentThreadAllocatedBytes() - start) / iterations);
+		}
+		assertEquals(0, bytesPerCall);
+	}
+
+	@Test
+	public void verifyOnVirtualThread() throws Exception {
+		HttpMessageSigner signer = HttpMessageSigner.builder()
+				.algorithm(Algorithm.HMAC_SHA256)
+				.keyMap(HashKeyMap.INSTANCE)
+				.keyId("user1").build();
+		HttpRequest request = new RequestMock("GET", URI.create("http://example.com/foo"));
+		request.addHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		signer.sign(request);
+
+		SignatureHeaderVerifier verifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+		assertTrue(onVirtualThread(() -> verifier.verify(request)));
+	}
+
+	private static <T> T onVirtualThread(Callable<T> task) throws Exception {
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			return executor.submit(task).get();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.jdkhttp;
+
+import java.net.http.HttpRequest.BodyPublisher;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * A subscriber to a {@link BodyPublisher} computing the value of the {@code Digest} header (RFC 3230) of the published
+ * body. Buffers are digested as they are published and are not retained, so that bodies of any size, including the
+ * ones of unknown length, are digested in constant memory.
+ */
+final class BodyDigest implements Flow.Subscriber<ByteBuffer> {
+
+	private final String algorithm;
+	private final MessageDigest messageDigest;
+	private final CompletableFuture<String> value;
+	private Flow.Subscription subscription;
+
+	private BodyDigest(String algorithm) throws NoSuchAlgorithmException {
+		this.algorithm = algorithm;
+		this.messageDigest = MessageDigest.getInstance(algorithm);
+		this.value = new CompletableFuture<>();
+	}
+
+	/**
+	 * Subscribes to the given publisher and returns the value of the {@code Digest} header of the published body, e.g.
+	 * {@code SHA-256=X48E9qOokqqrvdts8nOJRJN3OWDUoyWxBf7kbu9DBPE=}. The publisher is subscribed to again when the
+	 * request is sent, it must then publish the same body.
+	 *
+	 * @param publisher
+	 *          the publisher of the body to be digested.
+	 * @param algorithm
+	 *          the name of the digest algorithm, as registered both for {@link MessageDigest} and in the IANA HTTP
+	 *          Digest Algorithm Values registry, e.g. {@code SHA-256}.
+	 * @return the value of the header, completed once the whole body has been published.
+	 * @throws NoSuchAlgorithmException
+	 *           if the algorithm is not supported.
+	 */
+	static CompletableFuture<String> of(BodyPublisher publisher, String algorithm) throws NoSuchAlgorithmException {
+		BodyDigest digest = new BodyDigest(algorithm);
+		publisher.subscribe(digest);
+		return digest.value;
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription s) {
+		if (this.subscription != null) {
+			s.cancel();
+			return;
+		}
+		this.subscription = Objects.requireNonNull(s);
+		s.request(Long.MAX_VALUE);
+	}
+
+	@Override
+	public void onNext(ByteBuffer item) {
+		this.messageDigest.update(item);
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		this.value.completeExceptionally(throwable);
+	}
+
+	@Override
+	public void onComplete() {
+		this.value.complete(this.algorithm + "=" + Base64.getEncoder().encodeToString(this.messageDigest.digest()));
+	}
+}
@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.jdkhttp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import tech.barbero.http.message.signing.DateHeaderProvider;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+
+/**
+ * Signs the requests sent with a {@link HttpClient}. Requests are either built with a {@link #newBuilder() signing
+ * builder}, or signed copies of already built requests are created with {@link #sign(HttpRequest)} and
+ * {@link #signAsync(HttpRequest, Executor)}. Either way, the headers created while signing are added to the request
+ * in a single pass.
+ * <p>
+ * When configured with a {@link Builder#digestAlgorithm(String) digest algorithm}, a {@code Digest} header (RFC 3230)
+ * is added to the requests with a body before they are signed. As the header is sent before the body, the body
+ * publisher is subscribed to once for computing the digest, and buffers are digested as they are published without
+ * retaining them. The body publisher must thus publish the same body each time it is subscribed to, which is the case of
+ * the ones of {@link HttpRequest.BodyPublishers} (for {@link HttpRequest.BodyPublishers#ofInputStream(java.util.function.Supplier)},
+ * as long as the supplier returns a new stream of the same content each time).
+ * <p>
+ * Note that the {@code Host} and {@code Content-Length} headers are set by the client. Only the latter can be signed,
+ * from the {@link BodyPublisher#contentLength() length of the body publisher}, when it is known.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class HttpRequestSigner {
+
+	static final String HEADER_DIGEST = "Digest";
+
+	private final HttpMessageSigner messageSigner;
+	private final Optional<DateHeaderProvider> dateHeaderProvider;
+	private final Optional<String> digestAlgorithm;
+
+	private HttpRequestSigner(Builder builder) {
+		this.messageSigner = builder.messageSigner;
+		this.dateHeaderProvider = builder.dateHeaderProvider;
+		this.digestAlgorithm = builder.digestAlgorithm;
+	}
+
+	/**
+	 * Creates a new request signer with the given message signer.
+	 *
+	 * @param messageSigner
+	 *          the message signer to be used to create the signature header.
+	 * @return a new request signer.
+	 */
+	public static HttpRequestSigner of(HttpMessageSigner messageSigner) {
+		return builder().messageSigner(messageSigner).build();
+	}
+
+	/**
+	 * Returns a new builder of request signer.
+	 *
+	 * @return a new builder of request signer.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Returns a new request builder whose {@link HttpRequest.Builder#build()} method returns signed requests. It throws
+	 * an {@link IllegalStateException} if the request cannot be signed, and an {@link java.io.UncheckedIOException} if
+	 * the digest of its body cannot be computed.
+	 *
+	 * @return a new signing request builder.
+	 */
+	public HttpRequest.Builder newBuilder() {
+		return new SigningRequestBuilder(this);
+	}
+
+	/**
+	 * Returns a new request builder with the given URI whose {@link HttpRequest.Builder#build()} method returns signed
+	 * requests.
+	 *
+	 * @param uri
+	 *          the URI of the request.
+	 * @return a new signing request builder.
+	 * @see #newBuilder()
+	 */
+	public HttpRequest.Builder newBuilder(URI uri) {
+		return newBuilder().uri(uri);
+	}
+
+	/**
+	 * Returns a signed copy of the given request.
+	 *
+	 * @param request
+	 *          the request to be signed.
+	 * @return a signed copy of the request.
+	 * @throws IOException
+	 *           if the body of the request cannot be read to compute its digest.
+	 * @throws GeneralSecurityException
+	 *           if the request cannot be signed.
+	 */
+	public HttpRequest sign(HttpRequest request) throws IOException, GeneralSecurityException {
+		return sign(SigningRequestBuilder.copyOf(this, request));
+	}
+
+	/**
+	 * Asynchronously creates a signed copy of the given request. Both the digest of the body, if any, and the signature
+	 * are computed on the given executor.
+	 *
+	 * @param request
+	 *          the request to be signed.
+	 * @param executor
+	 *          the executor to sign the request on.
+	 * @return a stage completed with the signed copy of the request, or exceptionally with an {@link IOException} if the
+	 *         body of the request cannot be read to compute its digest or with a {@link GeneralSecurityException} if the
+	 *         request cannot be signed.
+	 */
+	public CompletableFuture<HttpRequest> signAsync(HttpRequest request, Executor executor) {
+		Objects.requireNonNull(request);
+		Objects.requireNonNull(executor);
+		return CompletableFuture.supplyAsync(() -> {
+			SigningRequestBuilder builder = SigningRequestBuilder.copyOf(this, request);
+			RequestWrapper message = builder.message();
+			Optional<CompletableFuture<String>> digest;
+			try {
+				digest = digest(message, builder.bodyPublisher());
+			} catch (NoSuchAlgorithmException e) {
+				throw new CompletionException(e);
+			}
+			if (!digest.isPresent()) {
+				return CompletableFuture.completedFuture(signUnchecked(builder, message));
+			}
+			return digest.get().thenApplyAsync(value -> {
+				message.addHeader(HEADER_DIGEST, value);
+				return signUnchecked(builder, message);
+			}, executor);
+		}, executor).thenCompose(Function.identity());
+	}
+
+	/**
+	 * Signs the given request on the given executor and then sends it asynchronously with the given client.
+	 *
+	 * @param <T>
+	 *          the response body type.
+	 * @param client
+	 *          the client to send the request with.
+	 * @param request
+	 *          the request to be signed and sent.
+	 * @param responseBodyHandler
+	 *          the response body handler.
+	 * @param executor
+	 *          the executor to sign the request on.
+	 * @return a future of the response, completed exceptionally as described in
+	 *         {@link HttpClient#sendAsync(HttpRequest, BodyHandler)} or {@link #signAsync(HttpRequest, Executor)}.
+	 */
+	public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpClient client, HttpRequest request, BodyHandler<T> responseBodyHandler, Executor executor) {
+		Objects.requireNonNull(client);
+		Objects.requireNonNull(responseBodyHandler);
+		return signAsync(request, executor).thenCompose(signed -> client.sendAsync(signed, responseBodyHandler));
+	}
+
+	HttpRequest sign(SigningRequestBuilder builder) throws IOException, GeneralSecurityException {
+		RequestWrapper message = builder.message();
+		Optional<CompletableFuture<String>> digest = digest(message, builder.bodyPublisher());
+		if (digest.isPresent()) {
+			try {
+				message.addHeader(HEADER_DIGEST, digest.get().get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while computing the digest of the request body");
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new IOException(e.getCause());
+			}
+		}
+		return sign(builder, message);
+	}
+
+	private HttpRequest sign(SigningRequestBuilder builder, RequestWrapper message) throws GeneralSecurityException {
+		if (this.dateHeaderProvider.isPresent()) {
+			this.dateHeaderProvider.get().addDateHeaderIfMissing(message);
+		}
+		this.messageSigner.sign(message);
+		return builder.build(message);
+	}
+
+	private HttpRequest signUnchecked(SigningRequestBuilder builder, RequestWrapper message) {
+		try {
+			return sign(builder, message);
+		} catch (GeneralSecurityException e) {
+			throw new CompletionException(e);
+		}
+	}
+
+	private Optional<CompletableFuture<String>> digest(RequestWrapper message, Optional<BodyPublisher> bodyPublisher) throws NoSuchAlgorithmException {
+		if (!this.digestAlgorithm.isPresent() || !bodyPublisher.isPresent() || !message.headerValues(HEADER_DIGEST).isEmpty()) {
+			return Optional.empty();
+		}
+		return Optional.of(BodyDigest.of(bodyPublisher.get(), this.digestAlgorithm.get()));
+	}
+
+	/**
+	 * A builder of {@link HttpRequestSigner}.
+	 */
+	public static final class Builder {
+
+		private HttpMessageSigner messageSigner;
+		private Optional<DateHeaderProvider> dateHeaderProvider = Optional.empty();
+		private Optional<String> digestAlgorithm = Optional.empty();
+
+		Builder() {
+		}
+
+		/**
+		 * Sets the message signer to be used to create the signature header. Mandatory.
+		 *
+		 * @param messageSigner
+		 *          the message signer.
+		 * @return this builder for daisy chaining.
+		 */
+		public Builder messageSigner(HttpMessageSigner messageSigner) {
+			this.messageSigner = Objects.requireNonNull(messageSigner);
+			return this;
+		}
+
+		/**
+		 * Sets the provider of the {@code Date} header to be added to the requests which do not have one before signing
+		 * them. By default, no {@code Date} header is added.
+		 *
+		 * @param dateHeaderProvider
+		 *          the provider of the value of the {@code Date} header.
+		 * @return this builder for daisy chaining.
+		 */
+		public Builder dateHeaderProvider(DateHeaderProvider dateHeaderProvider) {
+			this.dateHeaderProvider = Optional.of(dateHeaderProvider);
+			return this;
+		}
+
+		/**
+		 * Sets the algorithm of the digest of the body of the requests, to be sent in a {@code Digest} header. The header is
+		 * only added to the requests with a body which do not have one. By default, no {@code Digest} header is added.
+		 *
+		 * @param algorithm
+		 *          the name of the algorithm, as registered both for {@link MessageDigest} and in the IANA HTTP Digest
+		 *          Algorithm Values registry, e.g. {@code SHA-256}.
+		 * @return this builder for daisy chaining.
+		 * @throws IllegalArgumentException
+		 *           if the algorithm is not supported.
+		 */
+		public Builder digestAlgorithm(String algorithm) {
+			try {
+				MessageDigest.getInstance(algorithm);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalArgumentException("Unsupported digest algorithm '" + algorithm + "'", e);
+			}
+			this.digestAlgorithm = Optional.of(algorithm);
+			return this;
+		}
+
+		/**
+		 * Returns a newly configured {@code HttpRequestSigner}.
+		 *
+		 * @return a newly configured {@code HttpRequestSigner}.
+		 */
+		public HttpRequestSigner build() {
+			if (this.messageSigner == null) {
+				throw new IllegalStateException("Missing required property: messageSigner");
+			}
+			return new HttpRequestSigner(this);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.jdkhttp;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+import tech.barbero.http.message.signing.HttpRequest;
+
+/**
+ * A view of the state of a {@link java.net.http.HttpRequest.Builder}. Added headers are recorded aside from the
+ * original ones, so that they can be applied to the builder in a single pass once the request has been signed.
+ */
+class RequestWrapper implements HttpRequest {
+
+	private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+
+	private final String method;
+	private final URI uri;
+	private final Map<String, List<String>> headers;
+	private final OptionalLong contentLength;
+	private final List<String> addedHeaders;
+
+	RequestWrapper(String method, URI uri, Map<String, List<String>> headers, OptionalLong contentLength) {
+		this.method = Objects.requireNonNull(method);
+		this.uri = Objects.requireNonNull(uri);
+		this.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		headers.forEach((name, values) -> this.headers.put(name, new ArrayList<>(values)));
+		this.contentLength = contentLength;
+		this.addedHeaders = new ArrayList<>();
+	}
+
+	@Override
+	public List<String> headerValues(String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Argument 'name' must not be null of empty");
+		}
+		List<String> values = this.headers.get(name);
+		if (values != null) {
+			return Collections.unmodifiableList(values);
+		} else if (HEADER_CONTENT_LENGTH.equalsIgnoreCase(name) && this.contentLength.isPresent()) {
+			// restricted header, set by the client from the length of the body publisher
+			return Collections.singletonList(Long.toString(this.contentLength.getAsLong()));
+		}
+		return Collections.emptyList();
+	}
+
+	@Override
+	public void addHeader(String name, String value) {
+		this.headers.computeIfAbsent(name, k -> new ArrayList<>()).add(Objects.requireNonNull(value));
+		this.addedHeaders.add(name);
+		this.addedHeaders.add(value);
+	}
+
+	@Override
+	public String method() {
+		return this.method;
+	}
+
+	@Override
+	public URI uri() {
+		return this.uri;
+	}
+
+	/**
+	 * Gives the headers added to this request to the given consumer, in the order they have been added.
+	 *
+	 * @param consumer
+	 *          the consumer of the names and values of the added headers.
+	 */
+	void forEachAddedHeader(BiConsumer<String, String> consumer) {
+		for (int i = 0; i < this.addedHeaders.size(); i += 2) {
+			consumer.accept(this.addedHeaders.get(i), this.addedHeaders.get(i + 1));
+		}
+	}
+}
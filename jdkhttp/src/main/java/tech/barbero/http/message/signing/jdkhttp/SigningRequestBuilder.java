@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.jdkhttp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+
+/**
+ * A {@link HttpRequest.Builder} whose built requests are signed. It records the method, URI, body publisher and
+ * headers given to the delegate builder, as the latter does not expose them. The signature (and {@code Date} and
+ * {@code Digest}) headers are added to a copy of the delegate in a single pass right before building the request, so
+ * that this builder can be reused the same way the delegate can.
+ * <p>
+ * Instances are not thread-safe.
+ */
+final class SigningRequestBuilder implements HttpRequest.Builder {
+
+	private static final String METHOD_GET = "GET";
+
+	private final HttpRequestSigner requestSigner;
+	private final HttpRequest.Builder delegate;
+	private final Map<String, List<String>> headers;
+	private URI uri;
+	private String method;
+	private Optional<BodyPublisher> bodyPublisher;
+
+	SigningRequestBuilder(HttpRequestSigner requestSigner) {
+		this.requestSigner = Objects.requireNonNull(requestSigner);
+		this.delegate = HttpRequest.newBuilder();
+		this.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		this.method = METHOD_GET;
+		this.bodyPublisher = Optional.empty();
+	}
+
+	private SigningRequestBuilder(SigningRequestBuilder other) {
+		this.requestSigner = other.requestSigner;
+		this.delegate = other.delegate.copy();
+		this.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		other.headers.forEach((name, values) -> this.headers.put(name, new ArrayList<>(values)));
+		this.uri = other.uri;
+		this.method = other.method;
+		this.bodyPublisher = other.bodyPublisher;
+	}
+
+	/**
+	 * Returns a new builder of a signed copy of the given request.
+	 *
+	 * @param requestSigner
+	 *          the signer of the built requests.
+	 * @param request
+	 *          the request to be copied.
+	 * @return a new builder initialized with the state of the given request.
+	 */
+	static SigningRequestBuilder copyOf(HttpRequestSigner requestSigner, HttpRequest request) {
+		SigningRequestBuilder builder = new SigningRequestBuilder(requestSigner);
+		builder.uri(request.uri());
+		if (request.bodyPublisher().isPresent()) {
+			builder.method(request.method(), request.bodyPublisher().get());
+		} else {
+			builder.delegate.method(request.method(), BodyPublishers.noBody());
+			builder.method = request.method();
+		}
+		builder.expectContinue(request.expectContinue());
+		request.version().ifPresent(builder::version);
+		request.timeout().ifPresent(builder::timeout);
+		request.headers().map().forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+		return builder;
+	}
+
+	@Override
+	public HttpRequest.Builder uri(URI uri) {
+		this.delegate.uri(uri);
+		this.uri = uri;
+		return this;
+	}
+
+	@Override
+	public HttpRequest.Builder expectContinue(boolean enable) {
+		this.delegate.expectContinue(enable);
+		return this;
+	}
+
+	@Override
+	public HttpRequest.Builder version(Version version) {
+		this.delegate.version(version);
+		return this;
+	}
+
+	@Override
+	public HttpRequest.Builder header(String name, String value) {
+		this.delegate.header(name, value);
+		this.headers.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
+		return this;
+	}
+
+	@Override
+	public HttpRequest.Builder headers(String... headers) {
+		this.delegate.headers(headers);
+		for (int i = 0; i < headers.length; i += 2) {
+			this.headers.computeIfAbsent(headers[i], k -> new ArrayList<>()).add(headers[i + 1]);
+		}
+		return this;
+	}
+
+	@Override
+	public HttpRequest.Builder timeout(Duration duration) {
+		this.delegate.timeout(duration);
+		return this;
+	}
+
+	@Override
+	public HttpRequest.Builder setHeader(String name, String value) {
+		this.delegate.setHeader(name, value);
+		List<String> values = new ArrayList<>();
+		values.add(value);
+		this.headers.put(name, values);
+		return this;
+	}
+
+	@Override
+	public HttpRequest.Builder GET() {
+		this.delegate.GET();
+		this.method = METHOD_GET;
+		this.bodyPublisher = Optional.empty();
+		return this;
+	}
+
+	@Override
+	public HttpRequest.Builder POST(BodyPublisher publisher) {
+		this.delegate.POST(publisher);
+		this.method = "POST";
+		this.bodyPublisher = Optional.of(publisher);
+		return this;
+	}
+
+	@Override
+	public HttpRequest.Builder PUT(BodyPublisher publisher) {
+		this.delegate.PUT(publisher);
+		this.method = "PUT";
+		this.bodyPublisher = Optional.of(publisher);
+		return this;
+	}
+
+	@Override
+	public HttpRequest.Builder DELETE() {
+		this.delegate.DELETE();
+		this.method = "DELETE";
+		this.bodyPublisher = Optional.empty();
+		return this;
+	}
+
+	@Override
+	public HttpRequest.Builder method(String method, BodyPublisher publisher) {
+		this.delegate.method(method, publisher);
+		this.method = method;
+		this.bodyPublisher = Optional.of(publisher);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws UncheckedIOException
+	 *           if the body of the request cannot be read to compute its digest.
+	 * @throws IllegalStateException
+	 *           if the request cannot be signed.
+	 */
+	@Override
+	public HttpRequest build() {
+		try {
+			return this.requestSigner.sign(this);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Can't compute the digest of HTTP request '" + this.method + " " + this.uri + "'", e);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Can't sign HTTP request '" + this.method + " " + this.uri + "'", e);
+		}
+	}
+
+	@Override
+	public HttpRequest.Builder copy() {
+		return new SigningRequestBuilder(this);
+	}
+
+	/**
+	 * Returns a view of the request being built, to be signed.
+	 *
+	 * @return a view of the request being built.
+	 */
+	RequestWrapper message() {
+		if (this.uri == null) {
+			throw new IllegalStateException("uri is null");
+		}
+		OptionalLong contentLength = this.bodyPublisher
+				.map(p -> p.contentLength() >= 0 ? OptionalLong.of(p.contentLength()) : OptionalLong.empty())
+				.orElse(OptionalLong.empty());
+		return new RequestWrapper(this.method, this.uri, this.headers, contentLength);
+	}
+
+	Optional<BodyPublisher> bodyPublisher() {
+		return this.bodyPublisher;
+	}
+
+	/**
+	 * Builds the request with the headers added to the given message.
+	 *
+	 * @param message
+	 *          the signed message, as returned by {@link #message()}.
+	 * @return the signed request.
+	 */
+	HttpRequest build(RequestWrapper message) {
+		HttpRequest.Builder signed = this.delegate.copy();
+		message.forEachAddedHeader(signed::header);
+		return signed.build();
+	}
+}
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.jdkhttp;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.OptionalLong;
+
+import tech.barbero.http.message.signing.HttpRequest;
+import tech.barbero.http.message.signing.HttpResponse;
+import tech.barbero.http.message.signing.MessageFactory;
+
+public class JdkHttpMessageFactory implements MessageFactory {
+
+	@Override
+	public HttpRequest createRequest(String method, URI uri) {
+		return new RequestWrapper(method.toUpperCase(), uri, Collections.emptyMap(), OptionalLong.empty());
+	}
+
+	@Override
+	public HttpResponse createResponse(int statusCode) {
+		throw new UnsupportedOperationException();
+	}
+
+}
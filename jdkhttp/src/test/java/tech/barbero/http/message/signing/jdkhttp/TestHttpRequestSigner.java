@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.jdkhttp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import tech.barbero.http.message.signing.DateHeaderProvider;
+import tech.barbero.http.message.signing.HashKeyMap;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+
+public class TestHttpRequestSigner {
+
+	private static final String DATE = "Sun, 05 Jan 2014 21:31:40 GMT";
+
+	private static final HttpMessageSigner SIGNER = HttpMessageSigner.builder()
+			.algorithm(Algorithm.HMAC_SHA256)
+			.keyMap(HashKeyMap.INSTANCE)
+			.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+			.addHeaderToSign("Date")
+			.keyId("user1").build();
+
+	private static final HttpMessageSigner BODY_SIGNER = HttpMessageSigner.builder()
+			.algorithm(Algorithm.RSA_SHA256)
+			.keyMap(HashKeyMap.INSTANCE)
+			.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+			.addHeaderToSign("Date")
+			.addHeaderToSign("Content-Length")
+			.addHeaderToSign("Digest")
+			.keyId("myKeyId").build();
+
+	private static final SignatureHeaderVerifier VERIFIER = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+
+	private static final URI URI = java.net.URI.create("http://www.example.com/web/service?foo=bar");
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void createExecutor() {
+		this.executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "signer"));
+	}
+
+	@AfterEach
+	public void shutdownExecutor() throws InterruptedException {
+		this.executor.shutdownNow();
+		this.executor.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void signingBuilder() throws GeneralSecurityException {
+		HttpRequest.Builder builder = HttpRequestSigner.of(SIGNER).newBuilder(URI).header("Date", DATE).GET();
+		HttpRequest request = builder.build();
+		int signatureHeaders = request.headers().allValues(HttpMessageSigner.HEADER_SIGNATURE).size();
+		assertTrue(VERIFIER.verify(wrap(request)));
+
+		// the builder can be reused and copied without accumulating signatures
+		builder.setHeader("Date", "Mon, 06 Jan 2014 21:31:40 GMT");
+		HttpRequest other = builder.copy().uri(java.net.URI.create("http://www.example.com/other")).build();
+		assertEquals(signatureHeaders, other.headers().allValues(HttpMessageSigner.HEADER_SIGNATURE).size());
+		assertTrue(VERIFIER.verify(wrap(other)));
+		assertFalse(other.headers().allValues(HttpMessageSigner.HEADER_SIGNATURE).equals(request.headers().allValues(HttpMessageSigner.HEADER_SIGNATURE)));
+
+		assertThrows(IllegalStateException.class, () -> HttpRequestSigner.of(SIGNER).newBuilder(URI).build());
+	}
+
+	@Test
+	public void signCopy() throws IOException, GeneralSecurityException {
+		HttpRequestSigner signer = HttpRequestSigner.builder().messageSigner(BODY_SIGNER).digestAlgorithm("SHA-256").build();
+		HttpRequest request = HttpRequest.newBuilder(URI)
+				.POST(BodyPublishers.ofString("Hello World!"))
+				.header("Date", DATE)
+				.timeout(Duration.ofSeconds(5))
+				.build();
+		HttpRequest signed = signer.sign(request);
+		assertEquals("POST", signed.method());
+		assertEquals(request.timeout(), signed.timeout());
+		assertEquals(List.of(DATE), signed.headers().allValues("Date"));
+		assertEquals(List.of("SHA-256=" + sha256("Hello World!".getBytes(StandardCharsets.UTF_8))), signed.headers().allValues("Digest"));
+		assertTrue(VERIFIER.verify(wrap(signed)));
+		// the original request is left untouched
+		assertTrue(request.headers().allValues(HttpMessageSigner.HEADER_SIGNATURE).isEmpty());
+	}
+
+	@Test
+	public void signAsyncStreamingBody() throws InterruptedException, ExecutionException, GeneralSecurityException {
+		byte[] body = new byte[1 << 20];
+		new Random(42).nextBytes(body);
+		DateHeaderProvider dateHeaderProvider = DateHeaderProvider.of(Clock.fixed(Instant.parse("2014-01-05T21:31:40Z"), ZoneOffset.UTC));
+		HttpMessageSigner messageSigner = HttpMessageSigner.builder()
+				.algorithm(Algorithm.HMAC_SHA256)
+				.keyMap(HashKeyMap.INSTANCE)
+				.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+				.addHeaderToSign("Date")
+				.addHeaderToSign("Digest")
+				.keyId("user1").build();
+		HttpRequestSigner signer = HttpRequestSigner.builder()
+				.messageSigner(messageSigner)
+				.dateHeaderProvider(dateHeaderProvider)
+				.digestAlgorithm("SHA-256")
+				.build();
+		Thread[] readingThread = new Thread[1];
+		HttpRequest request = HttpRequest.newBuilder(URI)
+				.PUT(BodyPublishers.ofInputStream(() -> {
+					readingThread[0] = Thread.currentThread();
+					return new ByteArrayInputStream(body);
+				}))
+				.build();
+
+		HttpRequest signed = signer.signAsync(request, this.executor).get();
+		assertEquals("signer", readingThread[0].getName());
+		assertEquals(List.of(DATE), signed.headers().allValues("Date"));
+		assertEquals(List.of("SHA-256=" + sha256(body)), signed.headers().allValues("Digest"));
+		assertTrue(VERIFIER.verify(wrap(signed)));
+	}
+
+	@Test
+	public void digestFailure() {
+		HttpRequestSigner signer = HttpRequestSigner.builder().messageSigner(SIGNER).digestAlgorithm("SHA-256").build();
+		HttpRequest request = HttpRequest.newBuilder(URI)
+				.POST(new BodyPublisher() {
+					@Override
+					public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+						subscriber.onSubscribe(new Flow.Subscription() {
+							@Override
+							public void request(long n) {
+								// nothing to publish
+							}
+
+							@Override
+							public void cancel() {
+								// nothing to cancel
+							}
+						});
+						subscriber.onError(new IOException("unreadable body"));
+					}
+
+					@Override
+					public long contentLength() {
+						return -1;
+					}
+				})
+				.header("Date", DATE)
+				.build();
+		assertThrows(IOException.class, () -> signer.sign(request));
+		ExecutionException e = assertThrows(ExecutionException.class, () -> signer.signAsync(request, this.executor).get());
+		assertTrue(e.getCause() instanceof IOException);
+		assertThrows(UncheckedIOException.class, () -> signer.newBuilder(URI).POST(request.bodyPublisher().get()).build());
+
+		assertThrows(IllegalArgumentException.class, () -> HttpRequestSigner.builder().digestAlgorithm("unknown"));
+	}
+
+	@Test
+	public void sendAsync() throws IOException, InterruptedException, ExecutionException {
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", TestHttpRequestSigner::verify);
+		server.start();
+		try {
+			HttpRequestSigner signer = HttpRequestSigner.builder().messageSigner(BODY_SIGNER).digestAlgorithm("SHA-256").build();
+			URI uri = java.net.URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/web/service?foo=bar");
+			HttpRequest request = HttpRequest.newBuilder(uri).POST(BodyPublishers.ofString("Hello World!")).header("Date", DATE).build();
+
+			HttpResponse<String> response = signer.sendAsync(HttpClient.newHttpClient(), request, BodyHandlers.ofString(), this.executor).get();
+			assertEquals(200, response.statusCode(), response.body());
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	private static void verify(HttpExchange exchange) throws IOException {
+		byte[] body;
+		try (InputStream in = exchange.getRequestBody()) {
+			body = in.readAllBytes();
+		}
+		int status;
+		try {
+			RequestWrapper request = new RequestWrapper(exchange.getRequestMethod(), exchange.getRequestURI(), exchange.getRequestHeaders(), OptionalLong.empty());
+			boolean verified = VERIFIER.verify(request)
+					&& request.headerValues("Digest").equals(List.of("SHA-256=" + sha256(body)))
+					&& request.headerValues("Content-Length").equals(List.of(Integer.toString(body.length)));
+			status = verified ? 200 : 401;
+		} catch (GeneralSecurityException e) {
+			status = 500;
+		}
+		exchange.sendResponseHeaders(status, -1);
+		exchange.close();
+	}
+
+	private static RequestWrapper wrap(HttpRequest request) {
+		Map<String, List<String>> headers = request.headers().map();
+		OptionalLong contentLength = request.bodyPublisher()
+				.map(p -> p.contentLength() >= 0 ? OptionalLong.of(p.contentLength()) : OptionalLong.empty())
+				.orElse(OptionalLong.empty());
+		return new RequestWrapper(request.method(), request.uri(), headers, contentLength);
+	}
+
+	private static String sha256(byte[] body) throws GeneralSecurityException {
+		return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(body));
+	}
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.jetty;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.server.Request;
+
+import tech.barbero.http.message.signing.HttpRequest;
+
+/**
+ * A view of a Jetty request reading and writing its {@link org.eclipse.jetty.http.HttpFields} in place, without the enumerations of the
+ * servlet API.
+ */
+final class RequestWrapper implements HttpRequest {
+
+	private final Request delegate;
+
+	RequestWrapper(Request delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public List<String> headerValues(String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Argument 'name' must not be null of empty");
+		}
+		return this.delegate.getHttpFields().getValuesList(name);
+	}
+
+	@Override
+	public List<List<String>> headerValues(List<String> names) {
+		List<List<String>> ret = new ArrayList<>(names.size());
+		for (String name : names) {
+			if (name == null || name.isEmpty()) {
+				throw new IllegalArgumentException("Argument 'names' must not contain null or empty names");
+			}
+			ret.add(new ArrayList<>());
+		}
+		// a single pass over the fields
+		for (HttpField field : this.delegate.getHttpFields()) {
+			for (int i = 0; i < names.size(); i++) {
+				if (field.getName().equalsIgnoreCase(names.get(i))) {
+					ret.get(i).add(field.getValue());
+				}
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public void addHeader(String name, String value) {
+		this.delegate.getHttpFields().add(name, value);
+	}
+
+	@Override
+	public String method() {
+		return this.delegate.getMethod();
+	}
+
+	@Override
+	public URI uri() {
+		return URI.create(this.delegate.getHttpURI().getPathQuery());
+	}
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.jetty;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+
+/**
+ * A Jetty handler sending an HTTP 401 unauthorized status code if the signature of the request is not recognized, and
+ * passing the request to the wrapped handler otherwise. Unlike
+ * {@code tech.barbero.http.message.signing.servlet.SignatureHeaderVerifierServletFilter}, headers are read directly from
+ * the {@link org.eclipse.jetty.http.HttpFields} of the request.
+ * <p>
+ * Jetty calls handlers from the threads of its thread pool, the signature is thus verified on the calling thread. Only
+ * the requests of the initial dispatch are verified. Later dispatches (e.g. asynchronous ones) of verified requests are
+ * passed to the wrapped handler, while the error dispatches of rejected requests are not.
+ */
+public class SignatureHeaderVerifierHandler extends HandlerWrapper {
+
+	private static final String REJECTED_ATTRIBUTE = SignatureHeaderVerifierHandler.class.getName() + ".rejected";
+
+	private final SignatureHeaderVerifier signatureVerifier;
+
+	/**
+	 * Creates a new {@code SignatureHeaderVerifierHandler} which will check HTTP request signatures with the given
+	 * {@link SignatureHeaderVerifier signatureVerifier}.
+	 *
+	 * @param signatureVerifier
+	 *          The signature verifier which will check HTTP request signature.
+	 */
+	public SignatureHeaderVerifierHandler(SignatureHeaderVerifier signatureVerifier) {
+		this.signatureVerifier = signatureVerifier;
+	}
+
+	/**
+	 * Creates a new {@code SignatureHeaderVerifierHandler} which will check HTTP request signatures with the given
+	 * {@link SignatureHeaderVerifier signatureVerifier} before passing the request to the given handler.
+	 *
+	 * @param signatureVerifier
+	 *          The signature verifier which will check HTTP request signature.
+	 * @param handler
+	 *          The handler of the requests whose signature is verified.
+	 */
+	public SignatureHeaderVerifierHandler(SignatureHeaderVerifier signatureVerifier, Handler handler) {
+		this(signatureVerifier);
+		setHandler(handler);
+	}
+
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+		if (baseRequest.getDispatcherType() != DispatcherType.REQUEST) {
+			// the error dispatch of a rejected request goes through the handlers as well
+			if (baseRequest.getAttribute(REJECTED_ATTRIBUTE) == null) {
+				super.handle(target, baseRequest, request, response);
+			} else {
+				baseRequest.setHandled(true);
+			}
+			return;
+		}
+		final boolean verified;
+		try {
+			verified = this.signatureVerifier.verify(new RequestWrapper(baseRequest));
+		} catch (GeneralSecurityException e) {
+			baseRequest.setAttribute(REJECTED_ATTRIBUTE, Boolean.TRUE);
+			throw new ServletException(e);
+		}
+		if (verified) {
+			super.handle(target, baseRequest, request, response);
+		} else {
+			baseRequest.setAttribute(REJECTED_ATTRIBUTE, Boolean.TRUE);
+			baseRequest.setHandled(true);
+			response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.jetty;
+
+import java.net.URI;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpURI;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.server.Request;
+
+import tech.barbero.http.message.signing.HttpRequest;
+import tech.barbero.http.message.signing.HttpResponse;
+import tech.barbero.http.message.signing.MessageFactory;
+
+public class JettyMessageFactory implements MessageFactory {
+
+	@Override
+	public HttpRequest createRequest(String method, URI uri) {
+		Request request = new Request(null, null);
+		request.setMetaData(new MetaData.Request(method.toUpperCase(), new HttpURI(uri.toString()), HttpVersion.HTTP_1_1, new HttpFields()));
+		return new RequestWrapper(request);
+	}
+
+	@Override
+	public HttpResponse createResponse(int statusCode) {
+		throw new UnsupportedOperationException();
+	}
+
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.jetty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import tech.barbero.http.message.signing.HashKeyMap;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+import tech.barbero.http.message.signing.HttpRequest;
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+
+public class TestSignatureHeaderVerifierHandler {
+
+	private static final HttpMessageSigner SIGNER = HttpMessageSigner.builder()
+			.algorithm(Algorithm.HMAC_SHA256)
+			.keyMap(HashKeyMap.INSTANCE)
+			.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+			.addHeaderToSign("Host")
+			.addHeaderToSign("Date")
+			.keyId("user1").build();
+
+	private static final SignatureHeaderVerifier VERIFIER = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+
+	private Server server;
+	private LocalConnector connector;
+
+	@BeforeEach
+	public void startServer() throws Exception {
+		this.server = new Server();
+		this.connector = new LocalConnector(this.server);
+		this.server.addConnector(this.connector);
+		this.server.setHandler(new SignatureHeaderVerifierHandler(VERIFIER, new AbstractHandler() {
+			@Override
+			public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+				baseRequest.setHandled(true);
+				response.setStatus(HttpServletResponse.SC_OK);
+				response.getWriter().print("Hello " + request.getQueryString());
+			}
+		}));
+		this.server.start();
+	}
+
+	@AfterEach
+	public void stopServer() throws Exception {
+		this.server.stop();
+	}
+
+	@Test
+	public void acceptSignedRequest() throws Exception {
+		String response = this.connector.getResponse(signedRequest("/foo?name=world"));
+		assertEquals(HttpServletResponse.SC_OK, status(response));
+		assertTrue(response.endsWith("\r\n\r\nHello name=world"), response);
+	}
+
+	@Test
+	public void rejectUnsignedRequest() throws Exception {
+		String response = this.connector.getResponse("GET /foo HTTP/1.1\r\nHost: localhost\r\nDate: Sun, 05 Jan 2014 21:31:40 GMT\r\nConnection: close\r\n\r\n");
+		// as with the servlet filter, a missing signature is an error
+		assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, status(response));
+		assertFalse(response.contains("Hello"), response);
+	}
+
+	@Test
+	public void rejectTamperedRequest() throws Exception {
+		String request = signedRequest("/foo?name=world").replace("/foo?name=world", "/foo?name=jetty");
+		String response = this.connector.getResponse(request);
+		assertEquals(HttpServletResponse.SC_UNAUTHORIZED, status(response));
+		assertFalse(response.contains("Hello"), response);
+	}
+
+	@Test
+	public void readHttpFieldsInOnePass() throws GeneralSecurityException {
+		HttpRequest request = new JettyMessageFactory().createRequest("get", URI.create("/foo"));
+		request.addHeader("Host", "localhost");
+		request.addHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		request.addHeader("X-Multi", "a");
+		request.addHeader("x-multi", "b");
+		SIGNER.sign(request);
+		assertEquals(2, request.headerValues("X-MULTI").size());
+		assertTrue(VERIFIER.verify(request));
+	}
+
+	private static int status(String response) {
+		// HTTP/1.1 200 OK
+		return Integer.parseInt(response.substring("HTTP/1.1 ".length(), "HTTP/1.1 ".length() + 3));
+	}
+
+	private static String signedRequest(String pathQuery) throws GeneralSecurityException {
+		HttpRequest request = new JettyMessageFactory().createRequest("get", URI.create(pathQuery));
+		request.addHeader("Host", "localhost");
+		request.addHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		SIGNER.sign(request);
+		StringBuilder ret = new StringBuilder("GET ").append(pathQuery).append(" HTTP/1.1\r\n");
+		for (String name : new String[] { "Host", "Date", HttpMessageSigner.HEADER_SIGNATURE }) {
+			ret.append(name).append(": ").append(String.join(",", request.headerValues(name))).append("\r\n");
+		}
+		return ret.append("Connection: close\r\n\r\n").toString();
+	}
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+import tech.barbero.http.message.signing.DateHeaderProvider;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.ahc4.RequestSignature;
+
+/**
+ * Sends requests with Apache HttpClient 4.5, signed by the {@link RequestSignature} interceptor. The interceptor is
+ * added last, so that it can sign the {@code Host} and {@code Content-Length} headers added by the client.
+ */
+final class Ahc4LoadClient implements LoadClient {
+
+	static final String NAME = "ahc4";
+
+	private final CloseableHttpClient client;
+	private final URI uri;
+
+	Ahc4LoadClient(HttpMessageSigner signer, URI uri, int concurrency) {
+		this.client = HttpClients.custom()
+				.addInterceptorLast(new RequestSignature(signer, DateHeaderProvider.systemUTC()))
+				.setMaxConnPerRoute(concurrency)
+				.setMaxConnTotal(concurrency)
+				.disableAutomaticRetries()
+				.build();
+		this.uri = uri;
+	}
+
+	@Override
+	public int send() throws IOException {
+		HttpPost request = new HttpPost(this.uri);
+		request.addHeader("Digest", DIGEST);
+		request.setEntity(new ByteArrayEntity(BODY, ContentType.APPLICATION_JSON));
+		try (CloseableHttpResponse response = this.client.execute(request)) {
+			EntityUtils.consume(response.getEntity());
+			return response.getStatusLine().getStatusCode();
+		}
+	}
+
+	@Override
+	public String name() {
+		return NAME;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.client.close();
+	}
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * A snapshot of the memory allocated by all the live threads of the JVM, clients and server alike, and of the garbage
+ * collections. Memory allocated by threads which die between two snapshots is not accounted for: the clients and the
+ * server use pools of long lived threads.
+ */
+final class AllocationSnapshot {
+
+	private final long allocatedBytes;
+	private final long gcCount;
+	private final long gcTimeMillis;
+
+	private AllocationSnapshot(long allocatedBytes, long gcCount, long gcTimeMillis) {
+		this.allocatedBytes = allocatedBytes;
+		this.gcCount = gcCount;
+		this.gcTimeMillis = gcTimeMillis;
+	}
+
+	static AllocationSnapshot take() {
+		long gcCount = 0;
+		long gcTimeMillis = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			gcCount += Math.max(0, gc.getCollectionCount());
+			gcTimeMillis += Math.max(0, gc.getCollectionTime());
+		}
+		return new AllocationSnapshot(allocatedBytes(), gcCount, gcTimeMillis);
+	}
+
+	/**
+	 * Returns the sum of the bytes allocated by the live threads, or -1 if the JVM cannot measure it.
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+			return -1;
+		}
+		com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+		if (!sunThreads.isThreadAllocatedMemorySupported() || !sunThreads.isThreadAllocatedMemoryEnabled()) {
+			return -1;
+		}
+		long ret = 0;
+		for (long allocated : sunThreads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+			ret += Math.max(0, allocated);
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the bytes allocated since the given snapshot, or -1 if the JVM cannot measure it.
+	 */
+	long allocatedBytesSince(AllocationSnapshot start) {
+		if (this.allocatedBytes < 0 || start.allocatedBytes < 0) {
+			return -1;
+		}
+		return Math.max(0, this.allocatedBytes - start.allocatedBytes);
+	}
+
+	long gcCountSince(AllocationSnapshot start) {
+		return this.gcCount - start.gcCount;
+	}
+
+	long gcTimeMillisSince(AllocationSnapshot start) {
+		return this.gcTimeMillis - start.gcTimeMillis;
+	}
+}
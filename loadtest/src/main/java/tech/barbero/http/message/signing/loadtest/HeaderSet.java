@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.loadtest;
+
+import java.util.Locale;
+
+import tech.barbero.http.message.signing.HttpMessageSigner;
+
+/**
+ * The sets of headers signed by the clients.
+ */
+enum HeaderSet {
+	/**
+	 * The default of the signer, only the {@code Date} header.
+	 */
+	DATE {
+		@Override
+		HttpMessageSigner.Builder addHeadersToSign(HttpMessageSigner.Builder builder) {
+			return builder;
+		}
+	},
+	/**
+	 * The request target and all the headers of the request, including its {@code Digest}.
+	 */
+	FULL {
+		@Override
+		HttpMessageSigner.Builder addHeadersToSign(HttpMessageSigner.Builder builder) {
+			return builder.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+					.addHeaderToSign("Host")
+					.addHeaderToSign("Date")
+					.addHeaderToSign("Content-Type")
+					.addHeaderToSign("Digest")
+					.addHeaderToSign("Content-Length");
+		}
+	};
+
+	abstract HttpMessageSigner.Builder addHeadersToSign(HttpMessageSigner.Builder builder);
+
+	String label() {
+		return name().toLowerCase(Locale.ROOT);
+	}
+
+	static HeaderSet fromLabel(String label) {
+		return valueOf(label.toUpperCase(Locale.ROOT));
+	}
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.loadtest;
+
+/**
+ * A histogram of latencies in nanoseconds, with a relative precision of about 1.5%, which records without allocating.
+ * Values below 128 are recorded exactly, larger ones in 64 sub-buckets per power of two. Not thread-safe: each worker
+ * records in its own histogram, and they are {@link #add(LatencyHistogram) merged} once the run is over.
+ */
+final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private final long[] counts = new long[(Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+	private long totalCount;
+	private long sum;
+	private long max;
+
+	void record(long nanos) {
+		long value = Math.max(0L, nanos);
+		this.counts[index(value)]++;
+		this.totalCount++;
+		this.sum += value;
+		this.max = Math.max(this.max, value);
+	}
+
+	void add(LatencyHistogram other) {
+		for (int i = 0; i < this.counts.length; i++) {
+			this.counts[i] += other.counts[i];
+		}
+		this.totalCount += other.totalCount;
+		this.sum += other.sum;
+		this.max = Math.max(this.max, other.max);
+	}
+
+	long totalCount() {
+		return this.totalCount;
+	}
+
+	long max() {
+		return this.max;
+	}
+
+	double mean() {
+		return this.totalCount == 0 ? 0 : (double) this.sum / this.totalCount;
+	}
+
+	/**
+	 * Returns the highest value of the bucket containing the given percentile, or 0 if nothing has been recorded.
+	 *
+	 * @param percentile
+	 *          the percentile, between 0 and 100.
+	 */
+	long percentile(double percentile) {
+		if (this.totalCount == 0) {
+			return 0;
+		}
+		long rank = Math.max(1L, (long) Math.ceil(percentile / 100 * this.totalCount));
+		long seen = 0;
+		for (int i = 0; i < this.counts.length; i++) {
+			seen += this.counts[i];
+			if (seen >= rank) {
+				return Math.min(highestValue(i), this.max);
+			}
+		}
+		return this.max;
+	}
+
+	static int index(long value) {
+		if (value < 2 * SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return shift * SUB_BUCKETS + (int) (value >>> shift);
+	}
+
+	static long highestValue(int index) {
+		if (index < 2 * SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long subBucket = index - shift * SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.loadtest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import tech.barbero.http.message.signing.HttpMessageSigner;
+
+/**
+ * A client sending signed requests to the embedded server. Implementations are thread-safe, and keep one connection
+ * per concurrent worker alive.
+ */
+interface LoadClient extends Closeable {
+
+	/**
+	 * The body of the requests.
+	 */
+	byte[] BODY = "{\"hello\": \"world\"}".getBytes(StandardCharsets.UTF_8);
+
+	/**
+	 * The {@code Digest} header of the requests, for {@link #BODY}.
+	 */
+	String DIGEST = "SHA-256=" + sha256(BODY);
+
+	/**
+	 * Sends a signed {@code POST} request with {@link #BODY}, reads the whole response and returns its status code.
+	 */
+	int send() throws IOException;
+
+	/**
+	 * Returns the name of this client, as used on the command line.
+	 */
+	String name();
+
+	static LoadClient create(String name, HttpMessageSigner signer, URI uri, int concurrency) {
+		switch (name) {
+			case Ahc4LoadClient.NAME:
+				return new Ahc4LoadClient(signer, uri, concurrency);
+			case OkHttpLoadClient.NAME:
+				return new OkHttpLoadClient(signer, uri, concurrency);
+			default:
+				throw new IllegalArgumentException("Unknown client '" + name + "', expected one of " + Ahc4LoadClient.NAME + ", " + OkHttpLoadClient.NAME);
+		}
+	}
+
+	static String sha256(byte[] body) {
+		try {
+			return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(body));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import tech.barbero.http.message.signing.HashKeyMap;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+
+/**
+ * Drives an embedded Jetty server protected by the {@code SignatureHeaderVerifierServletFilter} with signed traffic
+ * from the Apache HttpClient 4.x and OkHttp 3.x bridges, and reports the throughput, latency percentiles and allocation
+ * rate of each client, algorithm and set of signed headers.
+ * <p>
+ * Each scenario is a closed loop: a fixed number of workers send requests back to back for a fixed duration, after a
+ * warmup run of the same scenario. Clients and server run in the same JVM, so that allocation rates include both
+ * signing and verification. Results are printed, and written as JSON so that runs can be compared. Options, all
+ * optional:
+ *
+ * <pre>
+ * --clients=ahc4,okhttp3
+ * --algorithms=HMAC_SHA256,RSA_SHA256
+ * --headers=date,full
+ * --concurrency=16
+ * --warmup=PT5S
+ * --duration=PT15S
+ * --output=loadtest-results.json
+ * </pre>
+ */
+public final class LoadTest {
+
+	private final List<String> clients;
+	private final List<Algorithm> algorithms;
+	private final List<HeaderSet> headerSets;
+	private final int concurrency;
+	private final Duration warmup;
+	private final Duration duration;
+	private final Path output;
+
+	private LoadTest(List<String> clients, List<Algorithm> algorithms, List<HeaderSet> headerSets, int concurrency, Duration warmup, Duration duration,
+			Path output) {
+		this.clients = clients;
+		this.algorithms = algorithms;
+		this.headerSets = headerSets;
+		this.concurrency = concurrency;
+		this.warmup = warmup;
+		this.duration = duration;
+		this.output = output;
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<String> clients = Arrays.asList(Ahc4LoadClient.NAME, OkHttpLoadClient.NAME);
+		List<Algorithm> algorithms = Arrays.asList(Algorithm.HMAC_SHA256, Algorithm.RSA_SHA256);
+		List<HeaderSet> headerSets = Arrays.asList(HeaderSet.values());
+		int concurrency = 16;
+		Duration warmup = Duration.ofSeconds(5);
+		Duration duration = Duration.ofSeconds(15);
+		Path output = Paths.get("loadtest-results.json");
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			String name = separator < 0 ? arg : arg.substring(0, separator);
+			String value = separator < 0 ? "" : arg.substring(separator + 1);
+			switch (name) {
+				case "--clients":
+					clients = split(value);
+					break;
+				case "--algorithms":
+					algorithms = split(value).stream().map(Algorithm::valueOf).collect(Collectors.toList());
+					break;
+				case "--headers":
+					headerSets = split(value).stream().map(HeaderSet::fromLabel).collect(Collectors.toList());
+					break;
+				case "--concurrency":
+					concurrency = Integer.parseInt(value);
+					break;
+				case "--warmup":
+					warmup = Duration.parse(value);
+					break;
+				case "--duration":
+					duration = Duration.parse(value);
+					break;
+				case "--output":
+					output = Paths.get(value);
+					break;
+				default:
+					System.err.println("Usage: java -jar loadtest.jar [--clients=ahc4,okhttp3] [--algorithms=HMAC_SHA256,RSA_SHA256] [--headers=date,full]"
+							+ " [--concurrency=16] [--warmup=PT5S] [--duration=PT15S] [--output=loadtest-results.json]");
+					System.exit("--help".equals(name) ? 0 : 1);
+					return;
+			}
+		}
+		if (concurrency <= 0) {
+			throw new IllegalArgumentException("Concurrency must be strictly positive: " + concurrency);
+		}
+		new LoadTest(clients, algorithms, headerSets, concurrency, warmup, duration, output).run();
+	}
+
+	private static List<String> split(String value) {
+		return Arrays.stream(value.split(",")).map(String::trim).filter(s -> !s.isEmpty()).collect(Collectors.toList());
+	}
+
+	private void run() throws Exception {
+		List<ScenarioResult> results = new ArrayList<>();
+		ExecutorService workers = Executors.newFixedThreadPool(this.concurrency);
+		try (SignedServer server = SignedServer.start()) {
+			System.out.println(ScenarioResult.HEADER);
+			for (String clientName : this.clients) {
+				for (Algorithm algorithm : this.algorithms) {
+					for (HeaderSet headerSet : this.headerSets) {
+						ScenarioResult result = run(workers, server.uri(), clientName, algorithm, headerSet);
+						System.out.println(result.toLine());
+						results.add(result);
+					}
+				}
+			}
+		} finally {
+			workers.shutdownNow();
+		}
+		write(results);
+		System.out.println("Results written to " + this.output.toAbsolutePath());
+	}
+
+	private ScenarioResult run(ExecutorService workers, URI uri, String clientName, Algorithm algorithm, HeaderSet headerSet) throws Exception {
+		HttpMessageSigner signer = headerSet.addHeadersToSign(HttpMessageSigner.builder()
+				.algorithm(algorithm)
+				.keyMap(HashKeyMap.INSTANCE)
+				.keyId("key-id"))
+				.build();
+		try (LoadClient client = LoadClient.create(clientName, signer, uri, this.concurrency)) {
+			runWorkers(workers, client, this.warmup.toNanos());
+			AllocationSnapshot start = AllocationSnapshot.take();
+			long startNanos = System.nanoTime();
+			List<Worker> measured = runWorkers(workers, client, this.duration.toNanos());
+			long durationNanos = System.nanoTime() - startNanos;
+			AllocationSnapshot end = AllocationSnapshot.take();
+			LatencyHistogram latencies = new LatencyHistogram();
+			long errors = 0;
+			for (Worker worker : measured) {
+				latencies.add(worker.latencies);
+				errors += worker.errors;
+			}
+			return new ScenarioResult(clientName, algorithm.name(), headerSet.label(), this.concurrency, durationNanos, latencies, errors, start, end);
+		}
+	}
+
+	private List<Worker> runWorkers(ExecutorService workers, LoadClient client, long durationNanos) throws Exception {
+		long deadline = System.nanoTime() + durationNanos;
+		List<Worker> ret = new ArrayList<>(this.concurrency);
+		List<Future<?>> futures = new ArrayList<>(this.concurrency);
+		for (int i = 0; i < this.concurrency; i++) {
+			Worker worker = new Worker(client, deadline);
+			ret.add(worker);
+			futures.add(workers.submit(worker));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		return ret;
+	}
+
+	private void write(List<ScenarioResult> results) throws IOException {
+		StringBuilder json = new StringBuilder("{\"timestamp\":\"").append(Instant.now())
+				.append("\",\"javaVersion\":\"").append(System.getProperty("java.version"))
+				.append("\",\"javaVmName\":\"").append(System.getProperty("java.vm.name"))
+				.append("\",\"availableProcessors\":").append(Runtime.getRuntime().availableProcessors())
+				.append(",\"concurrency\":").append(this.concurrency)
+				.append(",\"warmupSeconds\":").append(ScenarioResult.number(this.warmup.toNanos() / 1e9))
+				.append(",\"results\":[");
+		for (int i = 0; i < results.size(); i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("\n");
+			results.get(i).appendJson(json);
+		}
+		json.append("\n]}\n");
+		Path parent = this.output.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		Files.write(this.output, json.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Sends requests back to back until the deadline, recording their latency. Failed requests are counted as errors,
+	 * and their latency is not recorded.
+	 */
+	private static final class Worker implements Runnable {
+		private final LoadClient client;
+		private final long deadline;
+		final LatencyHistogram latencies = new LatencyHistogram();
+		long errors;
+
+		Worker(LoadClient client, long deadline) {
+			this.client = client;
+			this.deadline = deadline;
+		}
+
+		@Override
+		public void run() {
+			long now = System.nanoTime();
+			while (now - this.deadline < 0) {
+				int status;
+				try {
+					status = this.client.send();
+				} catch (IOException e) {
+					status = -1;
+				}
+				long end = System.nanoTime();
+				if (status == 200) {
+					this.latencies.record(end - now);
+				} else {
+					this.errors++;
+				}
+				now = end;
+			}
+		}
+	}
+}
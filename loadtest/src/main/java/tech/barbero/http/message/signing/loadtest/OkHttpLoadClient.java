@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import tech.barbero.http.message.signing.DateHeaderProvider;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.okhttp3.SignerInterceptor;
+
+/**
+ * Sends requests with OkHttp 3.x, signed by the {@link SignerInterceptor}. The interceptor is a network interceptor,
+ * so that it can sign the {@code Host} and {@code Content-Length} headers added by the client.
+ */
+final class OkHttpLoadClient implements LoadClient {
+
+	static final String NAME = "okhttp3";
+
+	private static final MediaType JSON = MediaType.parse("application/json");
+
+	private final OkHttpClient client;
+	private final Request request;
+
+	OkHttpLoadClient(HttpMessageSigner signer, URI uri, int concurrency) {
+		this.client = new OkHttpClient.Builder()
+				.addNetworkInterceptor(new SignerInterceptor(signer, DateHeaderProvider.systemUTC()))
+				.connectionPool(new ConnectionPool(concurrency, 1, TimeUnit.MINUTES))
+				.retryOnConnectionFailure(false)
+				.build();
+		this.client.dispatcher().setMaxRequestsPerHost(concurrency);
+		// requests are immutable, the signed copy is created by the interceptor
+		this.request = new Request.Builder()
+				.url(uri.toString())
+				.header("Digest", DIGEST)
+				.post(RequestBody.create(JSON, BODY))
+				.build();
+	}
+
+	@Override
+	public int send() throws IOException {
+		Response response = this.client.newCall(this.request).execute();
+		try (ResponseBody body = response.body()) {
+			body.bytes();
+		}
+		return response.code();
+	}
+
+	@Override
+	public String name() {
+		return NAME;
+	}
+
+	@Override
+	public void close() {
+		this.client.dispatcher().executorService().shutdown();
+		this.client.connectionPool().evictAll();
+	}
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.loadtest;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The measures of a run of a client, algorithm and header set.
+ */
+final class ScenarioResult {
+
+	/**
+	 * The header of the human readable report.
+	 */
+	static final String HEADER = String.format(Locale.ROOT, "%-8s %-12s %-5s %11s %9s %9s %9s %9s %12s %10s %7s",
+			"client", "algorithm", "hdrs", "req/s", "p50 us", "p99 us", "p999 us", "max us", "alloc MB/s", "B/req", "errors");
+
+	private final String client;
+	private final String algorithm;
+	private final String headers;
+	private final int concurrency;
+	private final long durationNanos;
+	private final LatencyHistogram latencies;
+	private final long errors;
+	private final long allocatedBytes;
+	private final long gcCount;
+	private final long gcTimeMillis;
+
+	ScenarioResult(String client, String algorithm, String headers, int concurrency, long durationNanos, LatencyHistogram latencies, long errors,
+			AllocationSnapshot start, AllocationSnapshot end) {
+		this.client = client;
+		this.algorithm = algorithm;
+		this.headers = headers;
+		this.concurrency = concurrency;
+		this.durationNanos = durationNanos;
+		this.latencies = latencies;
+		this.errors = errors;
+		this.allocatedBytes = end.allocatedBytesSince(start);
+		this.gcCount = end.gcCountSince(start);
+		this.gcTimeMillis = end.gcTimeMillisSince(start);
+	}
+
+	long requests() {
+		return this.latencies.totalCount() + this.errors;
+	}
+
+	double throughput() {
+		return this.latencies.totalCount() * (double) TimeUnit.SECONDS.toNanos(1) / this.durationNanos;
+	}
+
+	double allocationRate() {
+		return this.allocatedBytes < 0 ? Double.NaN : this.allocatedBytes * (double) TimeUnit.SECONDS.toNanos(1) / this.durationNanos;
+	}
+
+	double allocatedBytesPerRequest() {
+		return this.allocatedBytes < 0 || requests() == 0 ? Double.NaN : (double) this.allocatedBytes / requests();
+	}
+
+	/**
+	 * Returns a line of the human readable report, aligned with {@link #HEADER}.
+	 */
+	String toLine() {
+		return String.format(Locale.ROOT, "%-8s %-12s %-5s %11.0f %9.1f %9.1f %9.1f %9.1f %12.1f %10.0f %7d",
+				this.client, this.algorithm, this.headers, throughput(), micros(this.latencies.percentile(50)), micros(this.latencies.percentile(99)),
+				micros(this.latencies.percentile(99.9)), micros(this.latencies.max()), allocationRate() / (1024 * 1024), allocatedBytesPerRequest(),
+				this.errors);
+	}
+
+	/**
+	 * Appends this result as a JSON object.
+	 */
+	void appendJson(StringBuilder json) {
+		json.append("{\"client\":\"").append(this.client)
+				.append("\",\"algorithm\":\"").append(this.algorithm)
+				.append("\",\"headers\":\"").append(this.headers)
+				.append("\",\"concurrency\":").append(this.concurrency)
+				.append(",\"durationSeconds\":").append(number(this.durationNanos / 1e9))
+				.append(",\"requests\":").append(requests())
+				.append(",\"errors\":").append(this.errors)
+				.append(",\"throughput\":").append(number(throughput()))
+				.append(",\"latencyMicros\":{\"mean\":").append(number(this.latencies.mean() / 1e3))
+				.append(",\"p50\":").append(number(micros(this.latencies.percentile(50))))
+				.append(",\"p99\":").append(number(micros(this.latencies.percentile(99))))
+				.append(",\"p999\":").append(number(micros(this.latencies.percentile(99.9))))
+				.append(",\"max\":").append(number(micros(this.latencies.max())))
+				.append("},\"allocationBytesPerSecond\":").append(number(allocationRate()))
+				.append(",\"allocationBytesPerRequest\":").append(number(allocatedBytesPerRequest()))
+				.append(",\"gcCount\":").append(this.gcCount)
+				.append(",\"gcTimeMillis\":").append(this.gcTimeMillis)
+				.append('}');
+	}
+
+	private static double micros(long nanos) {
+		return nanos / 1e3;
+	}
+
+	/**
+	 * Formats a number for JSON, where NaN is not allowed.
+	 */
+	static String number(double value) {
+		return Double.isNaN(value) || Double.isInfinite(value) ? "null" : String.format(Locale.ROOT, "%.3f", value);
+	}
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+
+import tech.barbero.http.message.signing.HashKeyMap;
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+import tech.barbero.http.message.signing.servlet.SignatureHeaderVerifierServletFilter;
+
+/**
+ * An embedded Jetty server on the loopback interface, verifying the signature of all requests with the
+ * {@link SignatureHeaderVerifierServletFilter} before answering them with a small body.
+ */
+final class SignedServer implements AutoCloseable {
+
+	private static final byte[] BODY = "ok".getBytes(StandardCharsets.US_ASCII);
+
+	private final Server server;
+	private final URI uri;
+
+	private SignedServer(Server server, URI uri) {
+		this.server = server;
+		this.uri = uri;
+	}
+
+	static SignedServer start() throws Exception {
+		Server server = new Server();
+		ServerConnector connector = new ServerConnector(server);
+		connector.setHost("127.0.0.1");
+		server.addConnector(connector);
+		SignatureHeaderVerifier verifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+		ServletContextHandler context = new ServletContextHandler();
+		context.addFilter(new FilterHolder(new SignatureHeaderVerifierServletFilter(verifier)), "/*", EnumSet.of(DispatcherType.REQUEST));
+		context.addServlet(new ServletHolder(new OkServlet()), "/*");
+		server.setHandler(context);
+		server.start();
+		return new SignedServer(server, URI.create("http://127.0.0.1:" + connector.getLocalPort() + "/resource?param=value&pet=dog"));
+	}
+
+	/**
+	 * Returns the URI of the protected resource.
+	 */
+	URI uri() {
+		return this.uri;
+	}
+
+	@Override
+	public void close() throws Exception {
+		this.server.stop();
+	}
+
+	/**
+	 * Reads the whole request body and answers with a small body.
+	 */
+	static final class OkServlet extends HttpServlet {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+			byte[] buffer = new byte[256];
+			try (InputStream in = request.getInputStream()) {
+				while (in.read(buffer) >= 0) {
+					// discard
+				}
+			}
+			response.setStatus(HttpServletResponse.SC_OK);
+			response.setContentLength(BODY.length);
+			response.getOutputStream().write(BODY);
+		}
+	}
+}
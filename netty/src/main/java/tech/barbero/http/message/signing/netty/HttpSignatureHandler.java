@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.netty;
+
+import java.security.GeneralSecurityException;
+import java.security.SignatureException;
+import java.util.Objects;
+import java.util.Optional;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMessage;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+import tech.barbero.http.message.signing.netty.MessageWrapper.Request;
+import tech.barbero.http.message.signing.netty.MessageWrapper.Response;
+
+/**
+ * A channel handler signing the outbound {@link HttpRequest requests} and {@link HttpResponse responses} and verifying
+ * the signature of the inbound ones. Headers are read and written in place in the {@link io.netty.handler.codec.http.HttpHeaders}
+ * of the messages.
+ * <p>
+ * An inbound request whose signature is not verified is answered with an HTTP 401 unauthorized status code, and is not
+ * propagated, nor is its content. An inbound response whose signature is not verified is not propagated either; a
+ * {@link SignatureException} is fired through the pipeline instead. Errors while verifying or signing are fired through
+ * the pipeline or fail the write promise, respectively.
+ * <p>
+ * Signing and verifying messages are CPU intensive operations. To keep them off the event loops, add this handler to
+ * the pipeline with an {@link io.netty.util.concurrent.EventExecutorGroup}, e.g.
+ *
+ * <pre>
+ * pipeline.addLast(signatureExecutorGroup, "signature", HttpSignatureHandler.verifying(verifier));
+ * </pre>
+ *
+ * As a handler is always invoked from the same executor of the group, the order of the messages of a channel is
+ * preserved.
+ * <p>
+ * This handler keeps per-channel state and must not be shared between channels.
+ */
+public class HttpSignatureHandler extends ChannelDuplexHandler {
+
+	private final Optional<HttpMessageSigner> messageSigner;
+	private final Optional<SignatureHeaderVerifier> signatureVerifier;
+	private boolean discardingContent;
+
+	/**
+	 * Creates a new handler signing outbound messages and verifying inbound ones.
+	 *
+	 * @param messageSigner
+	 *          the message signer to be used to create the signature header of outbound messages.
+	 * @param signatureVerifier
+	 *          the signature verifier which will check the signature of inbound messages.
+	 */
+	public HttpSignatureHandler(HttpMessageSigner messageSigner, SignatureHeaderVerifier signatureVerifier) {
+		this(Optional.of(messageSigner), Optional.of(signatureVerifier));
+	}
+
+	private HttpSignatureHandler(Optional<HttpMessageSigner> messageSigner, Optional<SignatureHeaderVerifier> signatureVerifier) {
+		this.messageSigner = messageSigner;
+		this.signatureVerifier = signatureVerifier;
+	}
+
+	/**
+	 * Creates a new handler signing outbound messages. Inbound messages are passed through.
+	 *
+	 * @param messageSigner
+	 *          the message signer to be used to create the signature header of outbound messages.
+	 * @return a new signing handler.
+	 */
+	public static HttpSignatureHandler signing(HttpMessageSigner messageSigner) {
+		return new HttpSignatureHandler(Optional.of(messageSigner), Optional.empty());
+	}
+
+	/**
+	 * Creates a new handler verifying inbound messages. Outbound messages are passed through.
+	 *
+	 * @param signatureVerifier
+	 *          the signature verifier which will check the signature of inbound messages.
+	 * @return a new verifying handler.
+	 */
+	public static HttpSignatureHandler verifying(SignatureHeaderVerifier signatureVerifier) {
+		return new HttpSignatureHandler(Optional.empty(), Optional.of(signatureVerifier));
+	}
+
+	@Override
+	@SuppressWarnings("FutureReturnValueIgnored") // the outcome of the write is reported to the given promise
+	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+		if (this.messageSigner.isPresent() && msg instanceof HttpMessage) {
+			try {
+				this.messageSigner.get().sign(wrap((HttpMessage) msg));
+			} catch (GeneralSecurityException e) {
+				ReferenceCountUtil.release(msg);
+				promise.setFailure(e);
+				return;
+			}
+		}
+		ctx.write(msg, promise);
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (!this.signatureVerifier.isPresent()) {
+			ctx.fireChannelRead(msg);
+		} else if (msg instanceof HttpMessage) {
+			verify(ctx, (HttpMessage) msg);
+		} else if (this.discardingContent && msg instanceof HttpContent) {
+			this.discardingContent = !(msg instanceof LastHttpContent);
+			ReferenceCountUtil.release(msg);
+		} else {
+			ctx.fireChannelRead(msg);
+		}
+	}
+
+	@SuppressWarnings("FutureReturnValueIgnored") // the outcome of writing the 401 response is irrelevant
+	private void verify(ChannelHandlerContext ctx, HttpMessage message) {
+		final boolean verified;
+		try {
+			verified = this.signatureVerifier.get().verify(wrap(message));
+		} catch (GeneralSecurityException e) {
+			discard(message);
+			ctx.fireExceptionCaught(e);
+			return;
+		}
+
+		if (verified) {
+			this.discardingContent = false;
+			ctx.fireChannelRead(message);
+		} else if (message instanceof HttpRequest) {
+			boolean keepAlive = HttpUtil.isKeepAlive(message);
+			discard(message);
+			FullHttpResponse response = new DefaultFullHttpResponse(message.protocolVersion(), HttpResponseStatus.UNAUTHORIZED);
+			response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+			if (keepAlive) {
+				ctx.writeAndFlush(response);
+			} else {
+				ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+			}
+		} else {
+			discard(message);
+			ctx.fireExceptionCaught(new SignatureException("Unable to verify the signature of HTTP message '" + message + "'"));
+		}
+	}
+
+	private void discard(HttpMessage message) {
+		this.discardingContent = !(message instanceof LastHttpContent);
+		ReferenceCountUtil.release(message);
+	}
+
+	private static tech.barbero.http.message.signing.HttpMessage wrap(HttpMessage message) {
+		if (message instanceof HttpRequest) {
+			return new Request((HttpRequest) message);
+		} else if (message instanceof HttpResponse) {
+			return new Response((HttpResponse) message);
+		}
+		throw new IllegalArgumentException("Unsupported HTTP message type '" + Objects.requireNonNull(message).getClass() + "'");
+	}
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.netty;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+
+import tech.barbero.http.message.signing.HttpMessage;
+import tech.barbero.http.message.signing.HttpRequest;
+import tech.barbero.http.message.signing.HttpResponse;
+
+/**
+ * Views of Netty HTTP messages reading and writing their {@link io.netty.handler.codec.http.HttpHeaders} in place.
+ */
+abstract class MessageWrapper<M extends io.netty.handler.codec.http.HttpMessage> implements HttpMessage {
+
+	private final M delegate;
+
+	MessageWrapper(M delegate) {
+		this.delegate = delegate;
+	}
+
+	// doesn't need to be more visible than package-private as the
+	// delegate will get modified in place.
+	M delegate() {
+		return this.delegate;
+	}
+
+	@Override
+	public List<String> headerValues(String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Argument 'name' must not be null of empty");
+		}
+		return delegate().headers().getAll(name);
+	}
+
+	@Override
+	public void addHeader(String name, String value) {
+		delegate().headers().add(name, value);
+	}
+
+	static class Request extends MessageWrapper<io.netty.handler.codec.http.HttpRequest> implements HttpRequest {
+
+		Request(io.netty.handler.codec.http.HttpRequest request) {
+			super(request);
+		}
+
+		@Override
+		public String method() {
+			return delegate().method().name();
+		}
+
+		@Override
+		public URI uri() {
+			try {
+				return new URI(delegate().uri());
+			} catch (URISyntaxException e) {
+				throw new IllegalArgumentException(e);
+			}
+		}
+	}
+
+	static class Response extends MessageWrapper<io.netty.handler.codec.http.HttpResponse> implements HttpResponse {
+
+		Response(io.netty.handler.codec.http.HttpResponse delegate) {
+			super(delegate);
+		}
+
+		@Override
+		public int statusCode() {
+			return delegate().status().code();
+		}
+	}
+}
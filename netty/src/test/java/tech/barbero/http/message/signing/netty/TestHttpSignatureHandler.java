@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.netty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
+import tech.barbero.http.message.signing.HashKeyMap;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+import tech.barbero.http.message.signing.KeyMap;
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+import tech.barbero.http.message.signing.netty.MessageWrapper.Request;
+import tech.barbero.http.message.signing.netty.MessageWrapper.Response;
+
+public class TestHttpSignatureHandler {
+
+	private static final HttpMessageSigner SIGNER = HttpMessageSigner.builder()
+			.algorithm(Algorithm.HMAC_SHA256)
+			.keyMap(HashKeyMap.INSTANCE)
+			.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+			.addHeaderToSign("Date")
+			.keyId("user1").build();
+
+	private static final HttpMessageSigner RESPONSE_SIGNER = HttpMessageSigner.builder()
+			.algorithm(Algorithm.HMAC_SHA256)
+			.keyMap(HashKeyMap.INSTANCE)
+			.keyId("user1").build();
+
+	private static final SignatureHeaderVerifier VERIFIER = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+
+	@Test
+	public void signOutboundRequest() throws GeneralSecurityException {
+		EmbeddedChannel channel = new EmbeddedChannel(HttpSignatureHandler.signing(SIGNER));
+		FullHttpRequest request = createRequest();
+		assertTrue(channel.writeOutbound(request));
+
+		FullHttpRequest written = channel.readOutbound();
+		assertSame(request, written);
+		assertNotNull(written.headers().get(HttpMessageSigner.HEADER_SIGNATURE));
+		assertTrue(VERIFIER.verify(new Request(written)));
+		written.release();
+		assertFalse(channel.finish());
+	}
+
+	@Test
+	public void signOutboundResponse() throws GeneralSecurityException {
+		EmbeddedChannel channel = new EmbeddedChannel(new HttpSignatureHandler(RESPONSE_SIGNER, VERIFIER));
+		FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+		response.headers().add("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		channel.writeOutbound(response);
+
+		FullHttpResponse written = channel.readOutbound();
+		assertTrue(VERIFIER.verify(new Response(written)));
+		written.release();
+	}
+
+	@Test
+	public void verifyInboundRequest() throws GeneralSecurityException {
+		EmbeddedChannel channel = new EmbeddedChannel(HttpSignatureHandler.verifying(VERIFIER));
+		FullHttpRequest request = createRequest();
+		SIGNER.sign(new Request(request));
+		assertTrue(channel.writeInbound(request));
+		assertSame(request, channel.readInbound());
+		assertNull(channel.readOutbound());
+		request.release();
+	}
+
+	@Test
+	public void rejectUnsignedRequest() {
+		EmbeddedChannel channel = new EmbeddedChannel(HttpSignatureHandler.verifying(VERIFIER));
+		DefaultHttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/foo");
+		request.headers().add("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		HttpContent content = new DefaultHttpContent(Unpooled.copiedBuffer("Hello", StandardCharsets.US_ASCII));
+		HttpContent lastContent = new DefaultLastHttpContent(Unpooled.copiedBuffer(" World!", StandardCharsets.US_ASCII));
+		assertThrows(GeneralSecurityException.class, () -> channel.writeInbound(request, content, lastContent));
+		assertNull(channel.readInbound());
+		assertEquals(0, content.refCnt());
+		assertEquals(0, lastContent.refCnt());
+		assertTrue(channel.isOpen());
+	}
+
+	@Test
+	public void rejectBadlySignedRequest() throws GeneralSecurityException {
+		EmbeddedChannel channel = new EmbeddedChannel(HttpSignatureHandler.verifying(VERIFIER));
+		FullHttpRequest request = createRequest();
+		SIGNER.sign(new Request(request));
+		request.setUri("/bar");
+		assertFalse(channel.writeInbound(request));
+		assertNull(channel.readInbound());
+		assertEquals(0, request.refCnt());
+
+		FullHttpResponse response = channel.readOutbound();
+		assertEquals(HttpResponseStatus.UNAUTHORIZED, response.status());
+		assertEquals("0", response.headers().get("Content-Length"));
+		response.release();
+
+		// next request is verified again
+		FullHttpRequest nextRequest = createRequest();
+		SIGNER.sign(new Request(nextRequest));
+		assertTrue(channel.writeInbound(nextRequest));
+		assertSame(nextRequest, channel.readInbound());
+		nextRequest.release();
+	}
+
+	@Test
+	public void rejectBadlySignedResponse() throws GeneralSecurityException {
+		EmbeddedChannel channel = new EmbeddedChannel(HttpSignatureHandler.verifying(VERIFIER));
+		FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+		response.headers().add("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		RESPONSE_SIGNER.sign(new Response(response));
+		response.headers().set("Date", "Mon, 06 Jan 2014 21:31:40 GMT");
+		assertThrows(SignatureException.class, () -> channel.writeInbound(response));
+		assertNull(channel.readInbound());
+		assertEquals(0, response.refCnt());
+	}
+
+	@Test
+	public void verifyFromExecutorGroup() throws GeneralSecurityException, InterruptedException {
+		AtomicReference<Thread> verifyingThread = new AtomicReference<>();
+		KeyMap keyMap = new KeyMap() {
+			@Override
+			public SecretKey getSecretKey(String keyId) {
+				verifyingThread.set(Thread.currentThread());
+				return HashKeyMap.INSTANCE.getSecretKey(keyId);
+			}
+
+			@Override
+			public PublicKey getPublicKey(String keyId) {
+				return HashKeyMap.INSTANCE.getPublicKey(keyId);
+			}
+
+			@Override
+			public PrivateKey getPrivateKey(String keyId) {
+				return HashKeyMap.INSTANCE.getPrivateKey(keyId);
+			}
+		};
+		EventExecutorGroup group = new DefaultEventExecutorGroup(1);
+		try {
+			EmbeddedChannel channel = new EmbeddedChannel();
+			channel.pipeline().addLast(group, "signature", HttpSignatureHandler.verifying(SignatureHeaderVerifier.builder().keyMap(keyMap).build()));
+			FullHttpRequest request = createRequest();
+			SIGNER.sign(new Request(request));
+			channel.writeInbound(request);
+
+			Object read = null;
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (read == null && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+				channel.runPendingTasks();
+				read = channel.readInbound();
+			}
+			assertSame(request, read);
+			assertNotNull(verifyingThread.get());
+			assertFalse(verifyingThread.get() == Thread.currentThread());
+			request.release();
+		} finally {
+			assertTrue(group.shutdownGracefully(0, 1, TimeUnit.SECONDS).awaitUninterruptibly(10, TimeUnit.SECONDS));
+		}
+	}
+
+	private static FullHttpRequest createRequest() {
+		FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/foo?bar=baz");
+		request.headers().add("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		return request;
+	}
+}
@@ -9,9 +9,11 @@
 package tech.barbero.http.message.signing.okhttp3;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
+import okhttp3.Headers;
 import okhttp3.Request;
 import tech.barbero.http.message.signing.HttpRequest;
 
@@ -33,9 +35,34 @@ class RequestWrapper implements HttpRequest {
 
 	@Override
 	public List<String> headerValues(String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Argument 'name' must not be null of empty");
+		}
 		return this.delegate.headers(name);
 	}
 
+	@Override
+	public List<List<String>> headerValues(List<String> names) {
+		List<List<String>> ret = new ArrayList<>(names.size());
+		for (String name : names) {
+			if (name == null || name.isEmpty()) {
+				throw new IllegalArgumentException("Argument 'names' must not contain null or empty names");
+			}
+			ret.add(new ArrayList<>());
+		}
+		// a single pass over the headers, instead of one per name
+		Headers headers = this.delegate.headers();
+		for (int h = 0; h < headers.size(); h++) {
+			String headerName = headers.name(h);
+			for (int i = 0; i < names.size(); i++) {
+				if (names.get(i).equalsIgnoreCase(headerName)) {
+					ret.get(i).add(headers.value(h));
+				}
+			}
+		}
+		return ret;
+	}
+
 	@Override
 	public void addHeader(String name, String value) {
 		this.delegate = this.delegate.newBuilder().addHeader(name, value).build();
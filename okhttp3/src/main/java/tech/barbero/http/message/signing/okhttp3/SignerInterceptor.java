@@ -11,22 +11,42 @@ package tech.barbero.http.message.signing.okhttp3;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.util.Objects;
+import java.util.Optional;
 
 import okhttp3.Interceptor;
 import okhttp3.Response;
+import tech.barbero.http.message.signing.DateHeaderProvider;
 import tech.barbero.http.message.signing.HttpMessageSigner;
 
 public class SignerInterceptor implements Interceptor {
 
 	private final HttpMessageSigner messageSigner;
+	private final Optional<DateHeaderProvider> dateHeaderProvider;
 
 	public SignerInterceptor(HttpMessageSigner messageSigner) {
 		this.messageSigner = Objects.requireNonNull(messageSigner);
+		this.dateHeaderProvider = Optional.empty();
+	}
+
+	/**
+	 * Creates an interceptor which adds a {@code Date} header to the requests which do not have one before signing them.
+	 *
+	 * @param messageSigner
+	 *          the message signer to be used to create the signature header.
+	 * @param dateHeaderProvider
+	 *          the provider of the value of the {@code Date} header to be added.
+	 */
+	public SignerInterceptor(HttpMessageSigner messageSigner, DateHeaderProvider dateHeaderProvider) {
+		this.messageSigner = Objects.requireNonNull(messageSigner);
+		this.dateHeaderProvider = Optional.of(Objects.requireNonNull(dateHeaderProvider));
 	}
 
 	@Override
 	public Response intercept(Chain chain) throws IOException {
 		RequestWrapper request = RequestWrapper.from(chain.request());
+		if (this.dateHeaderProvider.isPresent()) {
+			this.dateHeaderProvider.get().addDateHeaderIfMissing(request);
+		}
 		try {
 			this.messageSigner.sign(request);
 			return chain.proceed(request.delegate());
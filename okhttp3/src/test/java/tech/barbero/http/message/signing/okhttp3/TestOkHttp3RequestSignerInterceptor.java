@@ -13,6 +13,10 @@ import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -25,6 +29,7 @@ import okhttp3.MediaType;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import tech.barbero.http.message.signing.DateHeaderProvider;
 import tech.barbero.http.message.signing.HashKeyMap;
 import tech.barbero.http.message.signing.SignatureHeaderVerifier;
 import tech.barbero.http.message.signing.HttpMessageSigner;
@@ -49,73 +54,100 @@ public class TestOkHttp3RequestSignerInterceptor {
 				.addHeader("digest", "ab4509qsdhabf236G3==")
 				.build();
 		SignerInterceptor interceptor = new SignerInterceptor(httpSignature);
-		AtomicBoolean pass = new AtomicBoolean(false);
-		interceptor.intercept(new Chain() {
-			@Override
-			public Request request() {
-				return request;
-			}
+		VerifyingChain chain = new VerifyingChain(request, SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build());
+		interceptor.intercept(chain);
+		// if it fails, then #proceed have not been executed
+		assertTrue(chain.pass.get());
+	}
 
-			@Override
-			public Response proceed(Request request) throws IOException {
-				SignatureHeaderVerifier signatureVerifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build();
-				try {
-					assertTrue(signatureVerifier.verify(RequestWrapper.from(request)));
-					pass.set(true);
-				} catch (GeneralSecurityException e) {
-					fail(e);
-				}
-				return null;
-			}
+	@Test
+	public void testInterceptorAddsDate() throws IOException {
+		HttpMessageSigner httpSignature = HttpMessageSigner.builder()
+				.algorithm(Algorithm.HMAC_SHA256)
+				.keyMap(HashKeyMap.INSTANCE)
+				.keyId("user1").build();
+		DateHeaderProvider dateHeaderProvider = DateHeaderProvider.of(Clock.fixed(Instant.parse("2014-01-05T21:31:40Z"), ZoneOffset.UTC));
+		Request request = new Request.Builder().get().url("http://www.example.com/web/service?foo=bar").build();
+		SignerInterceptor interceptor = new SignerInterceptor(httpSignature, dateHeaderProvider);
+		VerifyingChain chain = new VerifyingChain(request, SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE)
+				.maxDateSkew(Duration.ofMinutes(1))
+				.dateHeaderProvider(dateHeaderProvider)
+				.build());
+		interceptor.intercept(chain);
+		assertTrue(chain.pass.get());
+	}
 
-			@Override
-			public Connection connection() {
-				return null;
-			}
+	private static final class VerifyingChain implements Chain {
+		private final Request request;
+		private final SignatureHeaderVerifier signatureVerifier;
+		final AtomicBoolean pass = new AtomicBoolean(false);
 
-			// @Override source-incompatible change in OkHttp 3.9.0
-			@SuppressWarnings("unused")
-			public Call call() {
-				return null;
-			}
+		VerifyingChain(Request request, SignatureHeaderVerifier signatureVerifier) {
+			this.request = request;
+			this.signatureVerifier = signatureVerifier;
+		}
 
-			// @Override source-incompatible change in OkHttp 3.9.0
-			@SuppressWarnings("unused")
-			public int connectTimeoutMillis() {
-				return 0;
-			}
+		@Override
+		public Request request() {
+			return this.request;
+		}
 
-			// @Override source-incompatible change in OkHttp 3.9.0
-			@SuppressWarnings("unused")
-			public Chain withConnectTimeout(int timeout, TimeUnit unit) {
-				return null;
+		@Override
+		public Response proceed(Request request) throws IOException {
+			try {
+				assertTrue(this.signatureVerifier.verify(RequestWrapper.from(request)));
+				this.pass.set(true);
+			} catch (GeneralSecurityException e) {
+				fail(e);
 			}
+			return null;
+		}
 
-			// @Override source-incompatible change in OkHttp 3.9.0
-			@SuppressWarnings("unused")
-			public int readTimeoutMillis() {
-				return 0;
-			}
+		@Override
+		public Connection connection() {
+			return null;
+		}
 
-			// @Override source-incompatible change in OkHttp 3.9.0
-			@SuppressWarnings("unused")
-			public Chain withReadTimeout(int timeout, TimeUnit unit) {
-				return null;
-			}
+		// @Override source-incompatible change in OkHttp 3.9.0
+		@SuppressWarnings("unused")
+		public Call call() {
+			return null;
+		}
 
-			// @Override source-incompatible change in OkHttp 3.9.0
-			@SuppressWarnings("unused")
-			public int writeTimeoutMillis() {
-				return 0;
-			}
+		// @Override source-incompatible change in OkHttp 3.9.0
+		@SuppressWarnings("unused")
+		public int connectTimeoutMillis() {
+			return 0;
+		}
 
-			// @Override source-incompatible change in OkHttp 3.9.0
-			@SuppressWarnings("unused")
-			public Chain withWriteTimeout(int timeout, TimeUnit unit) {
-				return null;
-			}
-		});
-		// if it fails, then #proceed have not been executed
-		assertTrue(pass.get());
+		// @Override source-incompatible change in OkHttp 3.9.0
+		@SuppressWarnings("unused")
+		public Chain withConnectTimeout(int timeout, TimeUnit unit) {
+			return null;
+		}
+
+		// @Override source-incompatible change in OkHttp 3.9.0
+		@SuppressWarnings("unused")
+		public int readTimeoutMillis() {
+			return 0;
+		}
+
+		// @Override source-incompatible change in OkHttp 3.9.0
+		@SuppressWarnings("unused")
+		public Chain withReadTimeout(int timeout, TimeUnit unit) {
+			return null;
+		}
+
+		// @Override source-incompatible change in OkHttp 3.9.0
+		@SuppressWarnings("unused")
+		public int writeTimeoutMillis() {
+			return 0;
+		}
+
+		// @Override source-incompatible change in OkHttp 3.9.0
+		@SuppressWarnings("unused")
+		public Chain withWriteTimeout(int timeout, TimeUnit unit) {
+			return null;
+		}
 	}
 }
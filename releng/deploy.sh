@@ -14,4 +14,4 @@ openssl aes-256-cbc -pass pass:${GPG_ENCRYPTION_PASSPHRASE} -d -a \
 	-out ${GPG_HOME}/private-keys-v1.d/F87B14B93BCEF6259480B139A63A13E97B306101.key
 
 MAVEN_REPO=${MAVEN_REPO:-${HOME}/.m2/repository}
-mvn -e -C -U -V -B -Dmaven.repo.local=${MAVEN_REPO} --settings ${SCRIPT_WD}/maven/settings.xml deploy -Pprepare-deploy -Pdeploy -f "${SCRIPT_WD}/../pom.xml"
+mvn -e -C -U -V -B -Dmaven.repo.local=${MAVEN_REPO} --settings ${SCRIPT_WD}/maven/settings.xml deploy -P!compile -Pprepare-deploy -Pdeploy -f "${SCRIPT_WD}/../pom.xml"
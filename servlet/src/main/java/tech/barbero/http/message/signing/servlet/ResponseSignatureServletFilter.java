@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.servlet;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import tech.barbero.http.message.signing.DateHeaderProvider;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+
+/**
+ * A servlet filter adding a {@code Signature} header to the responses. The content of the signature is defined by the
+ * injected {@link HttpMessageSigner} object, which may cover the {@code (response-status)}, {@code Date} and
+ * {@code Digest} headers.
+ * <p>
+ * When configured with a {@link Builder#digestAlgorithm(String) digest algorithm}, the digest of the body is computed as
+ * it is written, without retaining it. As the headers are sent before the body, the commit of the response is deferred
+ * until the body is complete, the body being buffered up to the {@link Builder#bufferSize(int) buffer size} (flushes
+ * are deferred as well). Bodies fitting in the buffer are sent with a {@code Content-Length} header and signed headers.
+ * Beyond the buffer size, the body is streamed with chunked encoding, and:
+ * <ul>
+ * <li>with a Servlet 4.0 or later container, when {@link Builder#trailers(boolean) enabled} and when the request
+ * supports them, the {@code Digest} and {@code Signature} are sent as trailer fields, announced in a {@code Trailer}
+ * header;</li>
+ * <li>otherwise the response is sent unsigned.</li>
+ * </ul>
+ * <p>
+ * Responses committed by {@link HttpServletResponse#sendError(int)} or {@link HttpServletResponse#sendRedirect(String)}
+ * are not signed. For asynchronous requests, the response is signed when its output stream or writer is closed, or
+ * when the asynchronous processing completes. The non-blocking I/O of Servlet 3.1 is not supported by the wrapped
+ * output stream.
+ */
+public final class ResponseSignatureServletFilter implements Filter {
+
+	static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	private final HttpMessageSigner messageSigner;
+	private final Optional<DateHeaderProvider> dateHeaderProvider;
+	private final Optional<String> digestAlgorithm;
+	private final int bufferSize;
+	private final boolean trailers;
+
+	private ResponseSignatureServletFilter(Builder builder) {
+		this.messageSigner = builder.messageSigner;
+		this.dateHeaderProvider = builder.dateHeaderProvider;
+		this.digestAlgorithm = builder.digestAlgorithm;
+		this.bufferSize = builder.bufferSize;
+		this.trailers = builder.trailers;
+	}
+
+	/**
+	 * Creates a new filter signing the responses with the given message signer.
+	 *
+	 * @param messageSigner
+	 *          the message signer to be used to create the signature header.
+	 * @return a new response signing filter.
+	 */
+	public static ResponseSignatureServletFilter of(HttpMessageSigner messageSigner) {
+		return builder().messageSigner(messageSigner).build();
+	}
+
+	/**
+	 * Returns a new builder of response signing filter.
+	 *
+	 * @return a new builder of response signing filter.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		// no configuration for this Filter.
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		if (request instanceof HttpServletRequest && response instanceof HttpServletResponse) {
+			doFilter((HttpServletRequest) request, (HttpServletResponse) response, chain);
+		} else {
+			throw new ServletException("ServletRequest and ServletResponse should be respectively instance of HttpServletRequest and HttpServletResponse");
+		}
+	}
+
+	private void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+		SigningServletResponse signingResponse = new SigningServletResponse(response, this);
+		chain.doFilter(request, signingResponse);
+		if (request.isAsyncStarted()) {
+			request.getAsyncContext().addListener(new FinishingListener(signingResponse));
+		} else {
+			signingResponse.finish();
+		}
+	}
+
+	@Override
+	public void destroy() {
+		// we don't hold any resource, no need to release/destroy anything.
+	}
+
+	HttpMessageSigner messageSigner() {
+		return this.messageSigner;
+	}
+
+	Optional<DateHeaderProvider> dateHeaderProvider() {
+		return this.dateHeaderProvider;
+	}
+
+	Optional<String> digestAlgorithm() {
+		return this.digestAlgorithm;
+	}
+
+	int bufferSize() {
+		return this.bufferSize;
+	}
+
+	boolean trailers() {
+		return this.trailers;
+	}
+
+	/**
+	 * Finishes the response of an asynchronous request when it completes, if its output stream or writer has not been
+	 * closed before.
+	 */
+	private static final class FinishingListener implements AsyncListener {
+		private final SigningServletResponse response;
+
+		FinishingListener(SigningServletResponse response) {
+			this.response = response;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) throws IOException {
+			this.response.finish();
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			// the response is completed by an error page, or by another listener which will complete the request
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			// same as timeouts
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			// listeners are removed when asynchronous processing is started again
+			event.getAsyncContext().addListener(this);
+		}
+	}
+
+	/**
+	 * A builder of {@link ResponseSignatureServletFilter}.
+	 */
+	public static final class Builder {
+		private HttpMessageSigner messageSigner;
+		private Optional<DateHeaderProvider> dateHeaderProvider = Optional.empty();
+		private Optional<String> digestAlgorithm = Optional.empty();
+		private int bufferSize = DEFAULT_BUFFER_SIZE;
+		private boolean trailers = true;
+
+		Builder() {
+		}
+
+		/**
+		 * Sets the message signer to be used to create the signature header. Mandatory.
+		 *
+		 * @param messageSigner
+		 *          the message signer.
+		 * @return this builder for daisy chaining.
+		 */
+		public Builder messageSigner(HttpMessageSigner messageSigner) {
+			this.messageSigner = Objects.requireNonNull(messageSigner);
+			return this;
+		}
+
+		/**
+		 * Sets the provider of the {@code Date} header added to the responses which do not have one before they are
+		 * signed. By default, no {@code Date} header is added.
+		 *
+		 * @param dateHeaderProvider
+		 *          the provider of the {@code Date} header values.
+		 * @return this builder for daisy chaining.
+		 */
+		public Builder dateHeaderProvider(DateHeaderProvider dateHeaderProvider) {
+			this.dateHeaderProvider = Optional.of(dateHeaderProvider);
+			return this;
+		}
+
+		/**
+		 * Sets the algorithm of the digest of the body of the responses, to be sent in a {@code Digest} header (RFC 3230).
+		 * The header is only added to the responses which do not have one. By default, no {@code Digest} header is added.
+		 *
+		 * @param algorithm
+		 *          the name of the algorithm, as registered both for {@link MessageDigest} and in the IANA HTTP Digest
+		 *          Algorithm Values registry, e.g. {@code SHA-256}.
+		 * @return this builder for daisy chaining.
+		 * @throws IllegalArgumentException
+		 *           if the algorithm is not supported.
+		 */
+		public Builder digestAlgorithm(String algorithm) {
+			try {
+				MessageDigest.getInstance(algorithm);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalArgumentException("Unsupported digest algorithm '" + algorithm + "'", e);
+			}
+			this.digestAlgorithm = Optional.of(algorithm);
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of bytes of the body buffered before committing the response. Bodies up to this size
+		 * are sent with signed headers. Defaults to {@value ResponseSignatureServletFilter#DEFAULT_BUFFER_SIZE}.
+		 *
+		 * @param bufferSize
+		 *          the maximum number of buffered bytes, per response.
+		 * @return this builder for daisy chaining.
+		 * @throws IllegalArgumentException
+		 *           if the size is negative.
+		 */
+		public Builder bufferSize(int bufferSize) {
+			if (bufferSize < 0) {
+				throw new IllegalArgumentException("Buffer size must be positive or zero: " + bufferSize);
+			}
+			this.bufferSize = bufferSize;
+			return this;
+		}
+
+		/**
+		 * Sets whether the {@code Digest} and {@code Signature} of the bodies larger than the buffer size are sent as
+		 * trailer fields, when supported by the container and the request. Enabled by default. Note that trailer fields
+		 * are often dropped by intermediaries and ignored by clients.
+		 *
+		 * @param trailers
+		 *          true to send signatures of large bodies as trailer fields, false to send such responses unsigned.
+		 * @return this builder for daisy chaining.
+		 */
+		public Builder trailers(boolean trailers) {
+			this.trailers = trailers;
+			return this;
+		}
+
+		/**
+		 * Returns a newly configured {@code ResponseSignatureServletFilter}.
+		 *
+		 * @return a newly configured {@code ResponseSignatureServletFilter}.
+		 */
+		public ResponseSignatureServletFilter build() {
+			if (this.messageSigner == null) {
+				throw new IllegalStateException("Missing required property: messageSigner");
+			}
+			return new ResponseSignatureServletFilter(this);
+		}
+	}
+}
@@ -9,7 +9,9 @@
 package tech.barbero.http.message.signing.servlet;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Enumeration;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
@@ -34,9 +36,38 @@ class ServletSignedRequest extends HttpServletRequestWrapper implements HttpRequ
 
 	@Override
 	public List<String> headerValues(String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Argument 'name' must not be null of empty");
+		}
 		return Collections.list(getRequest().getHeaders(name));
 	}
 
+	@Override
+	public List<List<String>> headerValues(List<String> names) {
+		List<List<String>> ret = new ArrayList<>(names.size());
+		for (String name : names) {
+			if (name == null || name.isEmpty()) {
+				throw new IllegalArgumentException("Argument 'names' must not contain null or empty names");
+			}
+			ret.add(new ArrayList<>());
+		}
+		// a single pass over the header names, only fetching the values of the requested ones
+		Enumeration<String> headerNames = getRequest().getHeaderNames();
+		while (headerNames != null && headerNames.hasMoreElements()) {
+			String headerName = headerNames.nextElement();
+			List<String> values = null;
+			for (int i = 0; i < names.size(); i++) {
+				if (names.get(i).equalsIgnoreCase(headerName)) {
+					if (values == null) {
+						values = Collections.list(getRequest().getHeaders(headerName));
+					}
+					ret.get(i).addAll(values);
+				}
+			}
+		}
+		return ret;
+	}
+
 	@Override
 	public void addHeader(String name, String value) {
 		throw new UnsupportedOperationException();
@@ -49,6 +80,7 @@ class ServletSignedRequest extends HttpServletRequestWrapper implements HttpRequ
 
 	@Override
 	public URI uri() {
-		return URI.create(getRequest().getRequestURI());
+		String queryString = getRequest().getQueryString();
+		return URI.create(queryString != null ? getRequest().getRequestURI() + '?' + queryString : getRequest().getRequestURI());
 	}
 }
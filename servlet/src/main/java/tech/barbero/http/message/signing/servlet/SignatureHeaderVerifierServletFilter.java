@@ -10,6 +10,7 @@ package tech.barbero.http.message.signing.servlet;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.Optional;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -21,13 +22,20 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+import tech.barbero.http.message.signing.SignatureHeaderVerifier.Outcome;
+import tech.barbero.http.message.signing.VerificationRateLimiter;
 
 /**
- * A simple servlet filter that send an HTTP 401 unauthorized status code if the signature is not recognized.
+ * A simple servlet filter that send an HTTP 401 unauthorized status code if the signature is not recognized, and an
+ * HTTP 429 too many requests status code if the client exceeds the limits of its {@link VerificationRateLimiter}, or
+ * of the one of the {@link SignatureHeaderVerifier}, if any.
  */
 public class SignatureHeaderVerifierServletFilter implements Filter {
 
+	static final int SC_TOO_MANY_REQUESTS = 429;
+
 	private final SignatureHeaderVerifier signatureVerifier;
+	private final Optional<VerificationRateLimiter> rateLimiter;
 
 	/**
 	 * Creates a new {@code SignatureHeaderVerifierServletFilter} which will check HTTP request signatures with the given
@@ -38,6 +46,24 @@ public class SignatureHeaderVerifierServletFilter implements Filter {
 	 */
 	public SignatureHeaderVerifierServletFilter(SignatureHeaderVerifier signatureVerifier) {
 		this.signatureVerifier = signatureVerifier;
+		this.rateLimiter = Optional.empty();
+	}
+
+	/**
+	 * Creates a new {@code SignatureHeaderVerifierServletFilter} which will check HTTP request signatures with the given
+	 * {@link SignatureHeaderVerifier signatureVerifier}, once admitted by the given rate limiter by the remote address of
+	 * the client. Requests which are not admitted are not verified and get an HTTP 429 too many requests status code.
+	 * Requests whose signature is not verified are penalized.
+	 *
+	 * @param signatureVerifier
+	 *          The signature verifier which will check HTTP request signature.
+	 * @param rateLimiter
+	 *          The rate limiter admitting the verification of requests by remote address, with an
+	 *          {@link VerificationRateLimiter.Builder#addressLimit(double, int) address limit}.
+	 */
+	public SignatureHeaderVerifierServletFilter(SignatureHeaderVerifier signatureVerifier, VerificationRateLimiter rateLimiter) {
+		this.signatureVerifier = signatureVerifier;
+		this.rateLimiter = Optional.of(rateLimiter);
 	}
 
 	@Override
@@ -55,14 +81,27 @@ public class SignatureHeaderVerifierServletFilter implements Filter {
 	}
 
 	private void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+		if (this.rateLimiter.isPresent() && !this.rateLimiter.get().admitAddress(request.getRemoteAddr())) {
+			response.sendError(SC_TOO_MANY_REQUESTS);
+			return;
+		}
+		Outcome outcome = null;
 		try {
-			if (this.signatureVerifier.verify(ServletSignedRequest.from(request))) {
-				chain.doFilter(request, response);
-			} else {
-				response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
-			}
+			outcome = this.signatureVerifier.check(ServletSignedRequest.from(request));
 		} catch (GeneralSecurityException e) {
 			throw new ServletException(e);
+		} finally {
+			// verifications not admitted by the keyId limit are not failures of this address
+			if (outcome != Outcome.VERIFIED && outcome != Outcome.NOT_ADMITTED && this.rateLimiter.isPresent()) {
+				this.rateLimiter.get().penalizeAddress(request.getRemoteAddr());
+			}
+		}
+		if (outcome == Outcome.VERIFIED) {
+			chain.doFilter(request, response);
+		} else if (outcome == Outcome.NOT_ADMITTED) {
+			response.sendError(SC_TOO_MANY_REQUESTS);
+		} else {
+			response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
 		}
 	}
 
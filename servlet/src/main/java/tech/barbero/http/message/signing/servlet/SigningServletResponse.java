@@ -0,0 +1,373 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.servlet;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.HttpResponse;
+
+/**
+ * A response whose body is digested as it is written, and whose commit is deferred until it is signed or its buffer
+ * overflows. See {@link ResponseSignatureServletFilter} for the behavior.
+ */
+final class SigningServletResponse extends HttpServletResponseWrapper implements HttpResponse {
+
+	static final String HEADER_DIGEST = "Digest";
+	private static final String HEADER_TRAILER = "Trailer";
+
+	/**
+	 * {@code HttpServletResponse.setTrailerFields(Supplier)}, which only exists since Servlet 4.0.
+	 */
+	private static final Optional<Method> SET_TRAILER_FIELDS = setTrailerFields();
+
+	private enum State {
+		BUFFERING, STREAMING, FINISHED, DISCARDED
+	}
+
+	private final ResponseSignatureServletFilter filter;
+	private final Optional<MessageDigest> messageDigest;
+
+	private State state = State.BUFFERING;
+	private SigningOutputStream outputStream;
+	private PrintWriter writer;
+
+	/**
+	 * The trailer fields, not null once they have been registered to the container.
+	 */
+	private Map<String, List<String>> trailerFields;
+
+	/**
+	 * Whether headers added with {@link #addHeader(String, String)} go to the trailer fields.
+	 */
+	private boolean signingTrailers;
+
+	SigningServletResponse(HttpServletResponse response, ResponseSignatureServletFilter filter) {
+		super(response);
+		this.filter = filter;
+		try {
+			this.messageDigest = filter.digestAlgorithm().isPresent() ? Optional.of(MessageDigest.getInstance(filter.digestAlgorithm().get())) : Optional.empty();
+		} catch (NoSuchAlgorithmException e) {
+			// checked when building the filter
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Optional<Method> setTrailerFields() {
+		try {
+			return Optional.of(HttpServletResponse.class.getMethod("setTrailerFields", Supplier.class));
+		} catch (@SuppressWarnings("unused") NoSuchMethodException e) {
+			return Optional.empty();
+		}
+	}
+
+	@Override
+	public HttpServletResponse getResponse() {
+		return (HttpServletResponse) super.getResponse();
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		if (this.writer != null) {
+			throw new IllegalStateException("getWriter() has already been called on this response");
+		}
+		return outputStream();
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		if (this.writer == null) {
+			if (this.outputStream != null) {
+				throw new IllegalStateException("getOutputStream() has already been called on this response");
+			}
+			this.writer = new PrintWriter(new OutputStreamWriter(outputStream(), getCharacterEncoding()));
+		}
+		return this.writer;
+	}
+
+	private SigningOutputStream outputStream() {
+		if (this.outputStream == null) {
+			this.outputStream = new SigningOutputStream();
+		}
+		return this.outputStream;
+	}
+
+	@Override
+	public void flushBuffer() throws IOException {
+		if (this.writer != null) {
+			this.writer.flush();
+		}
+		if (this.state != State.BUFFERING) {
+			super.flushBuffer();
+		}
+	}
+
+	@Override
+	public void resetBuffer() {
+		if (this.state == State.BUFFERING && this.outputStream != null) {
+			this.outputStream.reset();
+		}
+		super.resetBuffer();
+	}
+
+	@Override
+	public void reset() {
+		resetBuffer();
+		super.reset();
+	}
+
+	@Override
+	public void sendError(int sc, String msg) throws IOException {
+		discard();
+		super.sendError(sc, msg);
+	}
+
+	@Override
+	public void sendError(int sc) throws IOException {
+		discard();
+		super.sendError(sc);
+	}
+
+	@Override
+	public void sendRedirect(String location) throws IOException {
+		discard();
+		super.sendRedirect(location);
+	}
+
+	private void discard() {
+		if (this.state == State.BUFFERING && this.outputStream != null) {
+			this.outputStream.reset();
+		}
+		this.state = State.DISCARDED;
+	}
+
+	@Override
+	public List<String> headerValues(String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Argument 'name' must not be null of empty");
+		}
+		List<String> ret = new ArrayList<>(getHeaders(name));
+		if (this.trailerFields != null) {
+			List<String> trailerValues = this.trailerFields.get(name.toLowerCase(Locale.ROOT));
+			if (trailerValues != null) {
+				ret.addAll(trailerValues);
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public void addHeader(String name, String value) {
+		if (this.signingTrailers) {
+			this.trailerFields.computeIfAbsent(name.toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(value);
+		} else {
+			super.addHeader(name, value);
+		}
+	}
+
+	@Override
+	public int statusCode() {
+		return getStatus();
+	}
+
+	/**
+	 * Signs the response and sends the buffered body, if any, or completes the trailer fields. The buffered body of a
+	 * response committed by someone else is sent unsigned. Does nothing if the response has already been finished or
+	 * discarded.
+	 *
+	 * @throws IOException
+	 *           if the buffered body cannot be sent or the response cannot be signed.
+	 */
+	void finish() throws IOException {
+		if (this.writer != null) {
+			this.writer.flush();
+		}
+		switch (this.state) {
+			case BUFFERING:
+				this.state = State.FINISHED;
+				if (!isCommitted()) {
+					sign(getHeaders(HEADER_DIGEST).isEmpty());
+				}
+				// else committed by the container or another wrapper, the headers are already sent but not the body
+				if (this.outputStream != null) {
+					this.outputStream.sendBuffer();
+				}
+				return;
+			case STREAMING:
+				this.state = State.FINISHED;
+				if (this.trailerFields != null) {
+					this.signingTrailers = true;
+					sign(getHeaders(HEADER_DIGEST).isEmpty());
+				}
+				return;
+			default:
+				return;
+		}
+	}
+
+	private void sign(boolean addDigest) throws IOException {
+		if (addDigest && this.messageDigest.isPresent()) {
+			addHeader(HEADER_DIGEST, this.filter.digestAlgorithm().get() + "=" + Base64.getEncoder().encodeToString(this.messageDigest.get().digest()));
+		}
+		if (this.filter.dateHeaderProvider().isPresent()) {
+			this.filter.dateHeaderProvider().get().addDateHeaderIfMissing(this);
+		}
+		try {
+			this.filter.messageSigner().sign(this);
+		} catch (GeneralSecurityException e) {
+			throw new IOException("Can't sign HTTP response '" + getResponse() + "'", e);
+		}
+	}
+
+	/**
+	 * Switches from buffering to streaming the body, registering the trailer fields if possible.
+	 */
+	private void startStreaming() throws IOException {
+		this.state = State.STREAMING;
+		if (this.filter.trailers() && SET_TRAILER_FIELDS.isPresent() && !isCommitted()) {
+			Map<String, List<String>> fields = new LinkedHashMap<>();
+			Supplier<Map<String, String>> supplier = () -> trailerFields(fields);
+			try {
+				SET_TRAILER_FIELDS.get().invoke(getResponse(), supplier);
+				this.trailerFields = fields;
+				boolean addDigest = this.messageDigest.isPresent() && getHeaders(HEADER_DIGEST).isEmpty();
+				setHeader(HEADER_TRAILER, addDigest ? HEADER_DIGEST + ", " + HttpMessageSigner.HEADER_SIGNATURE : HttpMessageSigner.HEADER_SIGNATURE);
+				if (this.filter.dateHeaderProvider().isPresent()) {
+					this.filter.dateHeaderProvider().get().addDateHeaderIfMissing(this);
+				}
+			} catch (@SuppressWarnings("unused") InvocationTargetException e) {
+				// IllegalStateException, trailer fields are not supported for this request (e.g. HTTP/1.0)
+			} catch (IllegalAccessException e) {
+				throw new IOException(e);
+			}
+		}
+	}
+
+	private static Map<String, String> trailerFields(Map<String, List<String>> fields) {
+		Map<String, String> ret = new LinkedHashMap<>();
+		fields.forEach((name, values) -> ret.put(name, String.join(", ", values)));
+		return ret;
+	}
+
+	private final class SigningOutputStream extends ServletOutputStream {
+		private final byte[] singleByte = new byte[1];
+		private byte[] buffer = new byte[0];
+		private int count;
+		private ServletOutputStream delegate;
+		private boolean closed;
+
+		SigningOutputStream() {
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			this.singleByte[0] = (byte) b;
+			write(this.singleByte, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (this.closed) {
+				throw new IOException("Stream closed");
+			}
+			if (len == 0 || SigningServletResponse.this.state == State.DISCARDED) {
+				return;
+			}
+			if (SigningServletResponse.this.messageDigest.isPresent()) {
+				SigningServletResponse.this.messageDigest.get().update(b, off, len);
+			}
+			if (this.delegate == null && SigningServletResponse.this.state == State.BUFFERING) {
+				int bufferSize = SigningServletResponse.this.filter.bufferSize();
+				if (this.count + len <= bufferSize) {
+					if (this.count + len > this.buffer.length) {
+						// grows up to the buffer size, small bodies do not allocate the whole buffer
+						this.buffer = Arrays.copyOf(this.buffer, Math.min(Math.max(this.buffer.length * 2, this.count + len), bufferSize));
+					}
+					System.arraycopy(b, off, this.buffer, this.count, len);
+					this.count += len;
+					return;
+				}
+				startStreaming();
+				writeBuffer();
+			}
+			delegate().write(b, off, len);
+		}
+
+		private ServletOutputStream delegate() throws IOException {
+			if (this.delegate == null) {
+				this.delegate = getResponse().getOutputStream();
+			}
+			return this.delegate;
+		}
+
+		private void writeBuffer() throws IOException {
+			if (this.count > 0) {
+				delegate().write(this.buffer, 0, this.count);
+			}
+			this.buffer = null;
+			this.count = 0;
+		}
+
+		void reset() {
+			this.count = 0;
+			if (SigningServletResponse.this.messageDigest.isPresent()) {
+				SigningServletResponse.this.messageDigest.get().reset();
+			}
+		}
+
+		/**
+		 * Sends the buffered body, once the headers are signed.
+		 */
+		void sendBuffer() throws IOException {
+			if (this.buffer != null) {
+				setContentLength(this.count);
+				writeBuffer();
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			// deferred while buffering
+			if (this.delegate != null) {
+				this.delegate.flush();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!this.closed) {
+				finish();
+				this.closed = true;
+				if (this.delegate != null || SigningServletResponse.this.state != State.DISCARDED) {
+					delegate().close();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.servlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Minimal servlet container objects, implementing only what the bridge uses. Other methods throw
+ * {@link UnsupportedOperationException}.
+ */
+final class ServletMocks {
+
+	private ServletMocks() {
+	}
+
+	/**
+	 * Returns a request with the given method, path, query string (may be null) and headers, given as name, value, name,
+	 * value... Header names are matched case insensitively, and enumerated with the case of their first occurrence.
+	 */
+	static HttpServletRequest request(String method, String requestUri, String queryString, String... headers) {
+		return request(null, method, requestUri, queryString, headers);
+	}
+
+	/**
+	 * Returns a request like {@link #request(String, String, String, String...)}, whose asynchronous processing has been
+	 * started with the given context.
+	 */
+	static HttpServletRequest asyncRequest(Async async, String method, String requestUri, String queryString, String... headers) {
+		return request(async, method, requestUri, queryString, headers);
+	}
+
+	private static HttpServletRequest request(Async async, String method, String requestUri, String queryString, String... headers) {
+		Map<String, List<String>> headerMap = new LinkedHashMap<>();
+		for (int i = 0; i < headers.length; i += 2) {
+			String name = headers[i];
+			String key = headerMap.keySet().stream().filter(name::equalsIgnoreCase).findFirst().orElse(name);
+			headerMap.computeIfAbsent(key, k -> new ArrayList<>()).add(headers[i + 1]);
+		}
+		return (HttpServletRequest) Proxy.newProxyInstance(ServletMocks.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class },
+				(proxy, m, args) -> {
+					switch (m.getName()) {
+						case "getMethod":
+							return method;
+						case "getRequestURI":
+							return requestUri;
+						case "getQueryString":
+							return queryString;
+						case "getHeaderNames":
+							return Collections.enumeration(headerMap.keySet());
+						case "getHeaders":
+							return Collections.enumeration(headerMap.entrySet().stream()
+									.filter(e -> e.getKey().equalsIgnoreCase((String) args[0]))
+									.findFirst().map(Map.Entry::getValue).orElse(Collections.emptyList()));
+						case "getHeader":
+							return headerMap.entrySet().stream()
+									.filter(e -> e.getKey().equalsIgnoreCase((String) args[0]))
+									.findFirst().map(e -> e.getValue().get(0)).orElse(null);
+						case "getRemoteAddr":
+							return "192.0.2.1";
+						case "isAsyncStarted":
+							return Boolean.valueOf(async != null && !async.completed);
+						case "getAsyncContext":
+							if (async == null) {
+								throw new IllegalStateException("Asynchronous processing not started");
+							}
+							return async.context;
+						case "toString":
+							return method + " " + requestUri + (queryString != null ? "?" + queryString : "");
+						default:
+							throw new UnsupportedOperationException(m.getName());
+					}
+				});
+	}
+
+	/**
+	 * An asynchronous context notifying its listeners when {@link #complete() completed}.
+	 */
+	static final class Async implements InvocationHandler {
+		final AsyncContext context = (AsyncContext) Proxy.newProxyInstance(ServletMocks.class.getClassLoader(), new Class<?>[] { AsyncContext.class }, this);
+		private final List<AsyncListener> listeners = new ArrayList<>();
+		boolean completed;
+
+		void complete() throws IOException {
+			this.completed = true;
+			for (AsyncListener listener : this.listeners) {
+				listener.onComplete(new AsyncEvent(this.context));
+			}
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method m, Object[] args) throws IOException {
+			switch (m.getName()) {
+				case "addListener":
+					this.listeners.add((AsyncListener) args[0]);
+					return null;
+				case "complete":
+					complete();
+					return null;
+				default:
+					throw new UnsupportedOperationException(m.getName());
+			}
+		}
+	}
+
+	/**
+	 * A response recording its status, headers and body. It is committed by the first byte written to its output stream,
+	 * after which header changes are ignored, as containers do.
+	 */
+	static final class Response implements InvocationHandler {
+		final HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(ServletMocks.class.getClassLoader(),
+				new Class<?>[] { HttpServletResponse.class }, this);
+		final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		int status = HttpServletResponse.SC_OK;
+		boolean committed;
+
+		private final ServletOutputStream outputStream = new ServletOutputStream() {
+			@Override
+			public void write(int b) {
+				Response.this.committed = true;
+				Response.this.body.write(b);
+			}
+		};
+
+		List<String> header(String name) {
+			return this.headers.getOrDefault(name, Collections.emptyList());
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method m, Object[] args) {
+			switch (m.getName()) {
+				case "getStatus":
+					return Integer.valueOf(this.status);
+				case "setStatus":
+					if (!this.committed) {
+						this.status = ((Integer) args[0]).intValue();
+					}
+					return null;
+				case "sendError":
+					checkNotCommitted();
+					this.body.reset();
+					this.status = ((Integer) args[0]).intValue();
+					this.committed = true;
+					return null;
+				case "getHeaders":
+					return new ArrayList<>(header((String) args[0]));
+				case "getHeader":
+					return header((String) args[0]).stream().findFirst().orElse(null);
+				case "containsHeader":
+					return Boolean.valueOf(this.headers.containsKey(args[0]));
+				case "addHeader":
+					if (!this.committed) {
+						this.headers.computeIfAbsent((String) args[0], k -> new ArrayList<>()).add((String) args[1]);
+					}
+					return null;
+				case "setHeader":
+					if (!this.committed) {
+						this.headers.put((String) args[0], new ArrayList<>(Collections.singletonList((String) args[1])));
+					}
+					return null;
+				case "setContentLength":
+					if (!this.committed) {
+						this.headers.put("Content-Length", new ArrayList<>(Collections.singletonList(String.valueOf(args[0]))));
+					}
+					return null;
+				case "getCharacterEncoding":
+					return "UTF-8";
+				case "isCommitted":
+					return Boolean.valueOf(this.committed);
+				case "getOutputStream":
+					return this.outputStream;
+				case "flushBuffer":
+					this.committed = true;
+					return null;
+				case "resetBuffer":
+					checkNotCommitted();
+					this.body.reset();
+					return null;
+				case "reset":
+					checkNotCommitted();
+					this.body.reset();
+					this.headers.clear();
+					this.status = HttpServletResponse.SC_OK;
+					return null;
+				case "toString":
+					return "HTTP " + this.status;
+				default:
+					throw new UnsupportedOperationException(m.getName());
+			}
+		}
+
+		private void checkNotCommitted() {
+			if (this.committed) {
+				throw new IllegalStateException("Response already committed");
+			}
+		}
+	}
+}
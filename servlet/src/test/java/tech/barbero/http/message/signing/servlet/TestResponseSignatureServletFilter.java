@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.servlet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+
+import tech.barbero.http.message.signing.DateHeaderProvider;
+import tech.barbero.http.message.signing.HashKeyMap;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+import tech.barbero.http.message.signing.HttpResponse;
+import tech.barbero.http.message.signing.MessageFactory;
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+
+public class TestResponseSignatureServletFilter {
+
+	private static final HttpMessageSigner SIGNER = HttpMessageSigner.builder()
+			.algorithm(Algorithm.HMAC_SHA256)
+			.keyMap(HashKeyMap.INSTANCE)
+			.addHeaderToSign(HttpMessageSigner.RESPONSE_STATUS)
+			.addHeaderToSign("Date")
+			.addHeaderToSign("Digest")
+			.keyId("user1").build();
+
+	private final ResponseSignatureServletFilter filter = ResponseSignatureServletFilter.builder()
+			.messageSigner(SIGNER)
+			.dateHeaderProvider(DateHeaderProvider.systemUTC())
+			.digestAlgorithm("SHA-256")
+			.bufferSize(16)
+			.build();
+
+	@Test
+	public void signBufferedBody() throws Exception {
+		ServletMocks.Response response = doFilter((request, r) -> r.getOutputStream().write(bytes("Hello world")));
+		assertEquals("Hello world", body(response));
+		assertEquals(Collections.singletonList("11"), response.header("Content-Length"));
+		assertEquals(Collections.singletonList(digest("Hello world")), response.header("Digest"));
+		assertTrue(verify(response));
+	}
+
+	@Test
+	public void streamUnsignedBeyondBufferSize() throws Exception {
+		ServletMocks.Response response = doFilter((request, r) -> {
+			r.getOutputStream().write(bytes("Hello world, "));
+			r.getOutputStream().write(bytes("from a body larger than the buffer"));
+		});
+		assertEquals("Hello world, from a body larger than the buffer", body(response));
+		assertTrue(response.header(HttpMessageSigner.HEADER_SIGNATURE).isEmpty());
+		assertTrue(response.header("Content-Length").isEmpty());
+	}
+
+	@Test
+	public void signAfterReset() throws Exception {
+		ServletMocks.Response response = doFilter((request, r) -> {
+			r.getOutputStream().write(bytes("Bye"));
+			r.setStatus(HttpServletResponse.SC_CREATED);
+			r.reset();
+			r.getOutputStream().write(bytes("Hello"));
+		});
+		assertEquals(HttpServletResponse.SC_OK, response.status);
+		assertEquals("Hello", body(response));
+		assertEquals(Collections.singletonList(digest("Hello")), response.header("Digest"));
+		assertTrue(verify(response));
+	}
+
+	@Test
+	public void errorIsNotSigned() throws Exception {
+		ServletMocks.Response response = doFilter((request, r) -> {
+			r.getOutputStream().write(bytes("Hello"));
+			r.sendError(HttpServletResponse.SC_NOT_FOUND);
+		});
+		assertEquals(HttpServletResponse.SC_NOT_FOUND, response.status);
+		assertEquals("", body(response));
+		assertTrue(response.header(HttpMessageSigner.HEADER_SIGNATURE).isEmpty());
+	}
+
+	@Test
+	public void sendBodyOfResponseCommittedElsewhere() throws Exception {
+		ServletMocks.Response response = new ServletMocks.Response();
+		FilterChain chain = (request, r) -> {
+			r.getOutputStream().write(bytes("Hello"));
+			// e.g. by the container or another wrapper
+			response.committed = true;
+		};
+		this.filter.doFilter(ServletMocks.request("GET", "/foo", null), response.response, chain);
+		assertEquals("Hello", body(response));
+		assertTrue(response.header(HttpMessageSigner.HEADER_SIGNATURE).isEmpty());
+	}
+
+	@Test
+	public void signWriterBody() throws Exception {
+		ServletMocks.Response response = doFilter((request, r) -> {
+			r.getWriter().print("Hello");
+			assertThrows(IllegalStateException.class, r::getOutputStream);
+		});
+		assertEquals("Hello", body(response));
+		assertEquals(Collections.singletonList(digest("Hello")), response.header("Digest"));
+		assertTrue(verify(response));
+	}
+
+	@Test
+	public void signAsyncBodyOnComplete() throws Exception {
+		ServletMocks.Async async = new ServletMocks.Async();
+		ServletMocks.Response response = new ServletMocks.Response();
+		FilterChain chain = (request, r) -> r.getOutputStream().write(bytes("Hello"));
+		this.filter.doFilter(ServletMocks.asyncRequest(async, "GET", "/foo", null), response.response, chain);
+		assertFalse(response.committed);
+
+		async.complete();
+		assertEquals("Hello", body(response));
+		assertTrue(verify(response));
+	}
+
+	@FunctionalInterface
+	private interface Handler {
+		void handle(HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException;
+	}
+
+	private ServletMocks.Response doFilter(Handler handler) throws IOException, ServletException {
+		ServletMocks.Response response = new ServletMocks.Response();
+		FilterChain chain = (request, r) -> handler.handle((HttpServletRequest) request, (HttpServletResponse) r);
+		this.filter.doFilter(ServletMocks.request("GET", "/foo", null), response.response, chain);
+		return response;
+	}
+
+	private static boolean verify(ServletMocks.Response response) throws GeneralSecurityException {
+		HttpResponse message = new MessageFactory.MockImpl().createResponse(response.status);
+		for (Map.Entry<String, List<String>> header : response.headers.entrySet()) {
+			header.getValue().forEach(value -> message.addHeader(header.getKey(), value));
+		}
+		return SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build().verify(message);
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String body(ServletMocks.Response response) {
+		return new String(response.body.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static String digest(String body) throws GeneralSecurityException {
+		return "SHA-256=" + Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(bytes(body)));
+	}
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.servlet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import tech.barbero.http.message.signing.HashKeyMap;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+import tech.barbero.http.message.signing.HttpRequest;
+import tech.barbero.http.message.signing.MessageFactory;
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+
+public class TestServletSignedRequest {
+
+	@Test
+	public void uriWithQueryString() {
+		HttpRequest request = ServletSignedRequest.from(ServletMocks.request("GET", "/foo", "param=value&pet=dog"));
+		assertEquals(URI.create("/foo?param=value&pet=dog"), request.uri());
+	}
+
+	@Test
+	public void uriWithoutQueryString() {
+		HttpRequest request = ServletSignedRequest.from(ServletMocks.request("GET", "/foo", null));
+		assertEquals(URI.create("/foo"), request.uri());
+	}
+
+	@Test
+	public void headerValuesOfSeveralNames() {
+		HttpRequest request = ServletSignedRequest.from(ServletMocks.request("GET", "/foo", null,
+				"x-repeated", "first", "X-Single", "single", "X-REPEATED", "second"));
+		List<String> names = Arrays.asList("X-Repeated", "missing", "x-single", "x-repeated");
+		List<List<String>> values = request.headerValues(names);
+		assertEquals(Arrays.asList(
+				Arrays.asList("first", "second"),
+				Collections.emptyList(),
+				Arrays.asList("single"),
+				Arrays.asList("first", "second")), values);
+		for (int i = 0; i < names.size(); i++) {
+			assertEquals(request.headerValues(names.get(i)), values.get(i));
+		}
+	}
+
+	@Test
+	public void headerValuesOfInvalidNames() {
+		HttpRequest request = ServletSignedRequest.from(ServletMocks.request("GET", "/foo", null, "Date", "Sun, 05 Jan 2014 21:31:40 GMT"));
+		assertThrows(IllegalArgumentException.class, () -> request.headerValues(""));
+		assertThrows(IllegalArgumentException.class, () -> request.headerValues(Arrays.asList("date", "")));
+		assertThrows(IllegalArgumentException.class, () -> request.headerValues(Arrays.asList("date", null)));
+	}
+
+	@Test
+	public void verifyRequestTargetWithQueryString() throws GeneralSecurityException {
+		HttpMessageSigner signer = HttpMessageSigner.builder().algorithm(Algorithm.HMAC_SHA256).keyMap(HashKeyMap.INSTANCE).keyId("user1")
+				.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+				.addHeaderToSign("Date")
+				.build();
+		HttpRequest signed = new MessageFactory.MockImpl().createRequest("GET", URI.create("/foo?param=value"));
+		signed.addHeader("Date", "Sun, 05 Jan 2014 21:31:40 GMT");
+		signer.sign(signed);
+		HttpRequest request = ServletSignedRequest.from(ServletMocks.request("GET", "/foo", "param=value",
+				"Date", "Sun, 05 Jan 2014 21:31:40 GMT",
+				HttpMessageSigner.HEADER_SIGNATURE, String.join(",", signed.headerValues(HttpMessageSigner.HEADER_SIGNATURE))));
+		assertTrue(SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build().verify(request));
+	}
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.servlet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+
+import tech.barbero.http.message.signing.HashKeyMap;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+import tech.barbero.http.message.signing.HttpRequest;
+import tech.barbero.http.message.signing.MessageFactory;
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+import tech.barbero.http.message.signing.VerificationRateLimiter;
+
+public class TestSignatureHeaderVerifierServletFilter {
+
+	private static final String DATE = "Sun, 05 Jan 2014 21:31:40 GMT";
+
+	@Test
+	public void keyIdRejectionDoesNotPenalizeAddress() throws Exception {
+		// one verification per keyId, three per address, for the duration of the test
+		VerificationRateLimiter rateLimiter = VerificationRateLimiter.builder().keyIdLimit(1e-3, 1).addressLimit(1e-3, 3).build();
+		SignatureHeaderVerifier verifier = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).rateLimiter(rateLimiter).build();
+		SignatureHeaderVerifierServletFilter filter = new SignatureHeaderVerifierServletFilter(verifier, rateLimiter);
+
+		assertEquals(HttpServletResponse.SC_OK, doFilter(filter, Algorithm.HMAC_SHA256, "user1"));
+		assertEquals(SignatureHeaderVerifierServletFilter.SC_TOO_MANY_REQUESTS, doFilter(filter, Algorithm.HMAC_SHA256, "user1"));
+		// the address has not been penalized by the rejection of the keyId
+		assertEquals(HttpServletResponse.SC_OK, doFilter(filter, Algorithm.RSA_SHA256, "key-id"));
+	}
+
+	private static int doFilter(SignatureHeaderVerifierServletFilter filter, Algorithm algorithm, String keyId)
+			throws GeneralSecurityException, IOException, ServletException {
+		HttpMessageSigner signer = HttpMessageSigner.builder().algorithm(algorithm).keyMap(HashKeyMap.INSTANCE).keyId(keyId)
+				.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+				.addHeaderToSign("Date")
+				.build();
+		HttpRequest signed = new MessageFactory.MockImpl().createRequest("GET", URI.create("/foo"));
+		signed.addHeader("Date", DATE);
+		signer.sign(signed);
+		ServletMocks.Response response = new ServletMocks.Response();
+		filter.doFilter(ServletMocks.request("GET", "/foo", null,
+				"Date", DATE,
+				HttpMessageSigner.HEADER_SIGNATURE, String.join(",", signed.headerValues(HttpMessageSigner.HEADER_SIGNATURE))),
+				response.response, (request, r) -> ((HttpServletResponse) r).setStatus(HttpServletResponse.SC_OK));
+		return response.status;
+	}
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.undertow;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.HttpString;
+
+import tech.barbero.http.message.signing.HttpRequest;
+
+/**
+ * A view of the request of an Undertow exchange reading and writing its {@link io.undertow.util.HeaderMap} in place.
+ * The returned {@link HeaderValues} are not copied.
+ */
+final class RequestWrapper implements HttpRequest {
+
+	private final HttpServerExchange exchange;
+
+	RequestWrapper(HttpServerExchange exchange) {
+		this.exchange = exchange;
+	}
+
+	@Override
+	public List<String> headerValues(String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Argument 'name' must not be null of empty");
+		}
+		HeaderValues values = this.exchange.getRequestHeaders().get(name);
+		return values != null ? values : Collections.emptyList();
+	}
+
+	@Override
+	public void addHeader(String name, String value) {
+		this.exchange.getRequestHeaders().add(new HttpString(name), value);
+	}
+
+	@Override
+	public String method() {
+		return this.exchange.getRequestMethod().toString();
+	}
+
+	@Override
+	public URI uri() {
+		String query = this.exchange.getQueryString();
+		return URI.create(query == null || query.isEmpty() ? this.exchange.getRequestURI() : this.exchange.getRequestURI() + '?' + query);
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.undertow;
+
+import java.util.Objects;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.StatusCodes;
+
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+
+/**
+ * An Undertow handler ending the exchange with an HTTP 401 unauthorized status code if the signature of the request is
+ * not recognized, and passing the exchange to the next handler otherwise. Headers are read directly from the
+ * {@link io.undertow.util.HeaderMap} of the request.
+ * <p>
+ * Undertow calls the first handlers from its I/O threads, which must not be blocked. By default, exchanges received on
+ * an I/O thread are dispatched to a worker thread before verifying their signature, and the next handler is then
+ * called from this worker thread. Exchanges already on a worker thread (e.g. behind a
+ * {@link io.undertow.server.handlers.BlockingHandler}) are verified without dispatch. When verification is known to be
+ * cheap and non-blocking, e.g. with secret keys held in memory or with a
+ * {@link SignatureHeaderVerifier.Builder#verificationCache(int, java.time.Duration) verification cache}, signatures can
+ * be verified on the I/O threads, saving the dispatch.
+ * <p>
+ * Errors while verifying the signature are thrown to Undertow, which ends the exchange with an HTTP 500 status code.
+ */
+public final class SignatureHeaderVerifierHandler implements HttpHandler {
+
+	private final SignatureHeaderVerifier signatureVerifier;
+	private final HttpHandler next;
+	private final boolean verifyInIoThread;
+
+	/**
+	 * Creates a new {@code SignatureHeaderVerifierHandler} which will check HTTP request signatures with the given
+	 * {@link SignatureHeaderVerifier signatureVerifier} on worker threads.
+	 *
+	 * @param signatureVerifier
+	 *          The signature verifier which will check HTTP request signature.
+	 * @param next
+	 *          The handler of the exchanges whose signature is verified.
+	 */
+	public SignatureHeaderVerifierHandler(SignatureHeaderVerifier signatureVerifier, HttpHandler next) {
+		this(signatureVerifier, next, false);
+	}
+
+	/**
+	 * Creates a new {@code SignatureHeaderVerifierHandler} which will check HTTP request signatures with the given
+	 * {@link SignatureHeaderVerifier signatureVerifier}.
+	 *
+	 * @param signatureVerifier
+	 *          The signature verifier which will check HTTP request signature.
+	 * @param next
+	 *          The handler of the exchanges whose signature is verified.
+	 * @param verifyInIoThread
+	 *          true to verify the signatures of exchanges received on I/O threads without dispatching them to a worker
+	 *          thread, false to dispatch them first.
+	 */
+	public SignatureHeaderVerifierHandler(SignatureHeaderVerifier signatureVerifier, HttpHandler next, boolean verifyInIoThread) {
+		this.signatureVerifier = Objects.requireNonNull(signatureVerifier);
+		this.next = Objects.requireNonNull(next);
+		this.verifyInIoThread = verifyInIoThread;
+	}
+
+	@Override
+	public void handleRequest(HttpServerExchange exchange) throws Exception {
+		if (exchange.isInIoThread() && !this.verifyInIoThread) {
+			exchange.dispatch(this);
+			return;
+		}
+		if (this.signatureVerifier.verify(new RequestWrapper(exchange))) {
+			this.next.handleRequest(exchange);
+		} else {
+			exchange.setStatusCode(StatusCodes.UNAUTHORIZED);
+			exchange.endExchange();
+		}
+	}
+}
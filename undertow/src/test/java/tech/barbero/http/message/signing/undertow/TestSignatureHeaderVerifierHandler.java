@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.undertow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.util.StatusCodes;
+import tech.barbero.http.message.signing.HashKeyMap;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+import tech.barbero.http.message.signing.HttpRequest;
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+
+public class TestSignatureHeaderVerifierHandler {
+
+	private static final HttpMessageSigner SIGNER = HttpMessageSigner.builder()
+			.algorithm(Algorithm.HMAC_SHA256)
+			.keyMap(HashKeyMap.INSTANCE)
+			.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+			.addHeaderToSign("Date")
+			.keyId("user1").build();
+
+	private static final SignatureHeaderVerifier VERIFIER = SignatureHeaderVerifier.builder().keyMap(HashKeyMap.INSTANCE).build();
+
+	private static final String DATE = "Sun, 05 Jan 2014 21:31:40 GMT";
+
+	private final AtomicReference<Boolean> nextInIoThread = new AtomicReference<>();
+	private Undertow server;
+	private int port;
+
+	private final HttpHandler next = exchange -> {
+		this.nextInIoThread.set(exchange.isInIoThread());
+		exchange.getResponseSender().send("Hello " + exchange.getQueryString());
+	};
+
+	private void startServer(boolean verifyInIoThread) {
+		this.server = Undertow.builder()
+				.addHttpListener(0, "127.0.0.1")
+				.setHandler(new SignatureHeaderVerifierHandler(VERIFIER, this.next, verifyInIoThread))
+				.build();
+		this.server.start();
+		this.port = ((InetSocketAddress) this.server.getListenerInfo().get(0).getAddress()).getPort();
+	}
+
+	@AfterEach
+	public void stopServer() {
+		if (this.server != null) {
+			this.server.stop();
+		}
+	}
+
+	@Test
+	public void acceptSignedRequestOnWorkerThread() throws Exception {
+		startServer(false);
+		HttpURLConnection connection = connection("/foo?name=world", sign("/foo?name=world"));
+		assertEquals(StatusCodes.OK, connection.getResponseCode());
+		assertEquals("Hello name=world", read(connection.getInputStream()));
+		assertFalse(this.nextInIoThread.get());
+	}
+
+	@Test
+	public void acceptSignedRequestOnIoThread() throws Exception {
+		startServer(true);
+		HttpURLConnection connection = connection("/foo?name=world", sign("/foo?name=world"));
+		assertEquals(StatusCodes.OK, connection.getResponseCode());
+		assertEquals("Hello name=world", read(connection.getInputStream()));
+		assertTrue(this.nextInIoThread.get());
+	}
+
+	@Test
+	public void rejectTamperedRequest() throws Exception {
+		startServer(false);
+		HttpURLConnection connection = connection("/foo?name=undertow", sign("/foo?name=world"));
+		assertEquals(StatusCodes.UNAUTHORIZED, connection.getResponseCode());
+		assertNull(this.nextInIoThread.get());
+	}
+
+	@Test
+	public void rejectUnsignedRequest() throws Exception {
+		startServer(false);
+		HttpURLConnection connection = connection("/foo", null);
+		// as with the servlet filter, a missing signature is an error
+		assertEquals(StatusCodes.INTERNAL_SERVER_ERROR, connection.getResponseCode());
+		assertNull(this.nextInIoThread.get());
+	}
+
+	@Test
+	public void headerValuesAreNotCopied() {
+		HttpRequest request = new UndertowMessageFactory().createRequest("get", URI.create("/foo"));
+		request.addHeader("X-Multi", "a");
+		request.addHeader("x-multi", "b");
+		assertEquals(2, request.headerValues("X-MULTI").size());
+		assertTrue(request.headerValues("X-Multi") == request.headerValues("x-multi"));
+		assertTrue(request.headerValues("X-Other").isEmpty());
+	}
+
+	private static String sign(String pathQuery) throws GeneralSecurityException {
+		HttpRequest request = new UndertowMessageFactory().createRequest("get", URI.create(pathQuery));
+		request.addHeader("Date", DATE);
+		return String.join(",", SIGNER.sign(request).headerValues(HttpMessageSigner.HEADER_SIGNATURE));
+	}
+
+	private HttpURLConnection connection(String pathQuery, String signature) throws IOException {
+		HttpURLConnection ret = (HttpURLConnection) new URL("http", "127.0.0.1", this.port, pathQuery).openConnection();
+		ret.setRequestProperty("Date", DATE);
+		if (signature != null) {
+			ret.setRequestProperty(HttpMessageSigner.HEADER_SIGNATURE, signature);
+		}
+		return ret;
+	}
+
+	private static String read(InputStream in) throws IOException {
+		try (InputStream input = in) {
+			StringBuilder ret = new StringBuilder();
+			byte[] buffer = new byte[256];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				ret.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+			}
+			return ret.toString();
+		}
+	}
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.undertow;
+
+import java.net.URI;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HttpString;
+import tech.barbero.http.message.signing.HttpRequest;
+import tech.barbero.http.message.signing.HttpResponse;
+import tech.barbero.http.message.signing.MessageFactory;
+
+public class UndertowMessageFactory implements MessageFactory {
+
+	@Override
+	public HttpRequest createRequest(String method, URI uri) {
+		HttpServerExchange exchange = new HttpServerExchange(null);
+		exchange.setRequestMethod(new HttpString(method.toUpperCase()));
+		exchange.setRequestURI(uri.getRawPath());
+		exchange.setQueryString(uri.getRawQuery() == null ? "" : uri.getRawQuery());
+		return new RequestWrapper(exchange);
+	}
+
+	@Override
+	public HttpResponse createResponse(int statusCode) {
+		throw new UnsupportedOperationException();
+	}
+
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.webflux;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+/**
+ * The digest of a body (RFC 3230), updated with the {@link DataBuffer buffers} of the body as they are published. The
+ * readable bytes of the buffers are digested in place, without being copied nor consumed.
+ */
+final class BodyDigest {
+
+	static final String HEADER_DIGEST = "Digest";
+
+	private final String algorithm;
+	private final MessageDigest messageDigest;
+	private final Optional<byte[]> expected;
+
+	private BodyDigest(String algorithm, MessageDigest messageDigest, Optional<byte[]> expected) {
+		this.algorithm = algorithm;
+		this.messageDigest = messageDigest;
+		this.expected = expected;
+	}
+
+	/**
+	 * Creates a digest to be sent in a {@code Digest} header.
+	 *
+	 * @param algorithm
+	 *          the name of an algorithm already known to be supported.
+	 */
+	static BodyDigest create(String algorithm) {
+		try {
+			return new BodyDigest(algorithm, MessageDigest.getInstance(algorithm), Optional.empty());
+		} catch (NoSuchAlgorithmException e) {
+			// checked when building the configuration
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Creates a digest to be checked against the value of the given {@code Digest} header, using the first of its
+	 * instance digests whose algorithm is supported.
+	 *
+	 * @param headerValues
+	 *          the values of the {@code Digest} header, may be null.
+	 * @return the digest to be checked, or empty if there is no instance digest with a supported algorithm.
+	 */
+	static Optional<BodyDigest> expecting(List<String> headerValues) {
+		if (headerValues == null) {
+			return Optional.empty();
+		}
+		for (String headerValue : headerValues) {
+			for (String instanceDigest : headerValue.split(",")) {
+				int equals = instanceDigest.indexOf('=');
+				if (equals > 0) {
+					String algorithm = instanceDigest.substring(0, equals).trim();
+					try {
+						byte[] expected = Base64.getDecoder().decode(instanceDigest.substring(equals + 1).trim());
+						return Optional.of(new BodyDigest(algorithm, MessageDigest.getInstance(algorithm), Optional.of(expected)));
+					} catch (@SuppressWarnings("unused") NoSuchAlgorithmException | IllegalArgumentException e) {
+						// unsupported algorithm or malformed value, try the next one
+					}
+				}
+			}
+		}
+		return Optional.empty();
+	}
+
+	void update(DataBuffer buffer) {
+		this.messageDigest.update(buffer.asByteBuffer());
+	}
+
+	/**
+	 * Returns the value of the {@code Digest} header of the digested bytes, e.g.
+	 * {@code SHA-256=X48E9qOokqqrvdts8nOJRJN3OWDUoyWxBf7kbu9DBPE=}.
+	 */
+	String headerValue() {
+		return this.algorithm + "=" + Base64.getEncoder().encodeToString(this.messageDigest.digest());
+	}
+
+	/**
+	 * Returns whether the digest of the digested bytes is the expected one.
+	 */
+	boolean matches() {
+		return this.expected.isPresent() && MessageDigest.isEqual(this.messageDigest.digest(), this.expected.get());
+	}
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.webflux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * The body of an outbound message, buffered up to a limit before the headers are sent, so that they can be signed with
+ * the length and the {@link BodyDigest digest} of the body. Buffers are requested one at a time while buffering, and
+ * digested without being copied. Once the body is complete or exceeds the limit, {@link #body()} publishes the
+ * buffered buffers followed by the remaining ones, relaying its demand to the original body.
+ */
+final class BufferedBody extends BaseSubscriber<DataBuffer> {
+
+	private final int limit;
+	private final Optional<BodyDigest> digest;
+	private final List<DataBuffer> buffers = new ArrayList<>();
+	private long length;
+
+	/**
+	 * Whether the buffers are still buffered, only accessed by the signals of the original body.
+	 */
+	private boolean buffering = true;
+	private MonoSink<Boolean> buffered;
+
+	/**
+	 * The sink of the remaining buffers, once {@link #body()} is subscribed. Guarded by this, as well as the terminal
+	 * signal received before.
+	 */
+	private FluxSink<DataBuffer> remaining;
+	private boolean terminated;
+	private Throwable error;
+
+	BufferedBody(int limit, Optional<BodyDigest> digest) {
+		this.limit = limit;
+		this.digest = digest;
+	}
+
+	/**
+	 * Subscribes to the given body, and emits {@code true} once the whole body is buffered, or {@code false} once it
+	 * exceeds the limit.
+	 */
+	Mono<Boolean> buffer(Publisher<? extends DataBuffer> body) {
+		return Mono.create(sink -> {
+			this.buffered = sink;
+			sink.onCancel(() -> {
+				cancel();
+				release();
+			});
+			body.subscribe(this);
+		});
+	}
+
+	/**
+	 * Returns the number of buffered bytes.
+	 */
+	long length() {
+		return this.length;
+	}
+
+	Optional<BodyDigest> digest() {
+		return this.digest;
+	}
+
+	/**
+	 * Returns the whole body, to be subscribed once, after it has been {@link #buffer(Publisher) buffered}.
+	 */
+	Flux<DataBuffer> body() {
+		return Flux.fromIterable(this.buffers).concatWith(Flux.create(sink -> {
+			boolean complete;
+			Throwable failure;
+			synchronized (this) {
+				this.remaining = sink;
+				complete = this.terminated;
+				failure = this.error;
+			}
+			if (failure != null) {
+				sink.error(failure);
+			} else if (complete) {
+				sink.complete();
+			} else {
+				sink.onCancel(this::cancel);
+				sink.onRequest(this::request);
+			}
+		}));
+	}
+
+	/**
+	 * Cancels the original body and releases the buffered buffers, when the body is not to be written.
+	 */
+	void discard() {
+		cancel();
+		release();
+	}
+
+	/**
+	 * Releases the buffered buffers, when the body is not to be written.
+	 */
+	synchronized void release() {
+		this.buffers.forEach(DataBufferUtils::release);
+		this.buffers.clear();
+	}
+
+	@Override
+	protected void hookOnSubscribe(Subscription subscription) {
+		subscription.request(1);
+	}
+
+	@Override
+	protected void hookOnNext(DataBuffer buffer) {
+		if (!this.buffering) {
+			// only requested by the sink of the remaining buffers
+			remaining().next(buffer);
+			return;
+		}
+		if (this.digest.isPresent()) {
+			this.digest.get().update(buffer);
+		}
+		synchronized (this) {
+			this.buffers.add(buffer);
+		}
+		this.length += buffer.readableByteCount();
+		if (this.length <= this.limit) {
+			request(1);
+		} else {
+			this.buffering = false;
+			this.buffered.success(Boolean.FALSE);
+		}
+	}
+
+	@Override
+	protected void hookOnComplete() {
+		boolean complete = this.buffering;
+		this.buffering = false;
+		terminate(null);
+		if (complete) {
+			this.buffered.success(Boolean.TRUE);
+		}
+	}
+
+	@Override
+	protected void hookOnError(Throwable throwable) {
+		if (this.buffering) {
+			this.buffering = false;
+			release();
+			this.buffered.error(throwable);
+		} else {
+			terminate(throwable);
+		}
+	}
+
+	private synchronized FluxSink<DataBuffer> remaining() {
+		return this.remaining;
+	}
+
+	private void terminate(Throwable throwable) {
+		FluxSink<DataBuffer> sink;
+		synchronized (this) {
+			sink = this.remaining;
+			if (sink == null) {
+				// the remaining buffers are not subscribed yet
+				this.terminated = true;
+				this.error = throwable;
+				return;
+			}
+		}
+		if (throwable != null) {
+			sink.error(throwable);
+		} else {
+			sink.complete();
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.webflux;
+
+import java.security.SignatureException;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A request whose body is digested as it is consumed, and fails instead of completing if its digest does not match the
+ * {@code Digest} header. The body is not retained. Only requests with an instance digest of a supported algorithm are
+ * decorated.
+ */
+final class DigestVerifyingServerHttpRequest extends ServerHttpRequestDecorator {
+
+	DigestVerifyingServerHttpRequest(ServerHttpRequest delegate) {
+		super(delegate);
+	}
+
+	@Override
+	public Flux<DataBuffer> getBody() {
+		return Flux.defer(() -> {
+			// a new digest per subscription, the body may only be consumed once anyway
+			BodyDigest digest = BodyDigest.expecting(getHeaders().get(BodyDigest.HEADER_DIGEST)).get();
+			return super.getBody()
+					.doOnNext(digest::update)
+					.concatWith(Mono.defer(() -> digest.matches() ? Mono.empty() : Mono.error(mismatch())));
+		});
+	}
+
+	private SignatureException mismatch() {
+		return new SignatureException("Digest of the body of HTTP request '" + getURI() + "' does not match its Digest header");
+	}
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.webflux;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+
+import tech.barbero.http.message.signing.HttpMessage;
+import tech.barbero.http.message.signing.HttpRequest;
+import tech.barbero.http.message.signing.HttpResponse;
+
+/**
+ * Views of WebFlux HTTP messages reading and writing their {@link HttpHeaders} in place. Headers of inbound messages
+ * are read-only.
+ */
+abstract class MessageWrapper implements HttpMessage {
+
+	private final HttpHeaders headers;
+
+	MessageWrapper(HttpHeaders headers) {
+		this.headers = headers;
+	}
+
+	HttpHeaders headers() {
+		return this.headers;
+	}
+
+	@Override
+	public List<String> headerValues(String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Argument 'name' must not be null of empty");
+		}
+		List<String> values = this.headers.get(name);
+		return values != null ? values : Collections.emptyList();
+	}
+
+	@Override
+	public void addHeader(String name, String value) {
+		this.headers.add(name, value);
+	}
+
+	static class Request extends MessageWrapper implements HttpRequest {
+
+		private final String method;
+		private final URI uri;
+
+		Request(String method, URI uri, HttpHeaders headers) {
+			super(headers);
+			this.method = method;
+			this.uri = uri;
+		}
+
+		@Override
+		public String method() {
+			return this.method;
+		}
+
+		@Override
+		public URI uri() {
+			return this.uri;
+		}
+	}
+
+	static class Response extends MessageWrapper implements HttpResponse {
+
+		private final int statusCode;
+
+		Response(int statusCode, HttpHeaders headers) {
+			super(headers);
+			this.statusCode = statusCode;
+		}
+
+		@Override
+		public int statusCode() {
+			return this.statusCode;
+		}
+	}
+}
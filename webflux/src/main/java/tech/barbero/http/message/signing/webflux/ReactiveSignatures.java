@@ -0,0 +1,336 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.webflux;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SignatureException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.server.WebFilter;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import tech.barbero.http.message.signing.DateHeaderProvider;
+import tech.barbero.http.message.signing.HttpMessage;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+
+/**
+ * Signs and verifies the messages of Spring WebFlux servers and {@link org.springframework.web.reactive.function.client.WebClient
+ * clients}. The {@link #webFilter() web filter} verifies the signature of the requests and signs the responses, the
+ * {@link #exchangeFilterFunction() exchange filter function} signs the requests and verifies the signature of the
+ * responses, depending on whether a {@link Builder#messageSigner(HttpMessageSigner) message signer} and a
+ * {@link Builder#signatureVerifier(SignatureHeaderVerifier) signature verifier} are configured.
+ * <p>
+ * Signatures are never created nor verified on the thread of the caller, which is usually an event loop, but on a
+ * {@link Builder#scheduler(Scheduler) scheduler} bounded to the number of CPUs by default. Keys are retrieved from the
+ * {@link tech.barbero.http.message.signing.AsyncKeyMap} of the verifier, so that key lookups do not block either.
+ * <p>
+ * When configured with a {@link Builder#digestAlgorithm(String) digest algorithm} and a message signer covering the
+ * {@code Digest} header, a {@code Digest} header (RFC 3230) is added to the outbound messages which do not have one.
+ * The body is digested as its buffers are published, without copying them. As the headers are sent before the body,
+ * the buffers are retained until the whole body has been published, up to the {@link Builder#bufferSize(int) buffer
+ * size}, and a {@code Content-Length} header is added if missing, so that it can be signed. Responses whose body
+ * exceeds the buffer size are streamed and sent unsigned, while requests whose body exceeds it fail with a
+ * {@link SignatureException} rather than being sent unsigned. The bodies of the messages whose signature covers neither the {@code Digest}
+ * header nor a missing {@code Content-Length} header are streamed without being buffered.
+ * <p>
+ * The body of inbound messages with a verified signature and a {@code Digest} header is digested as it is consumed, and
+ * the body fails with a {@link java.security.SignatureException} instead of completing when its digest does not match.
+ * This is only done for the requests received by the web filter; the bodies of the responses received by the exchange
+ * filter function are not checked.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class ReactiveSignatures {
+
+	static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+	private final Optional<HttpMessageSigner> messageSigner;
+	private final Optional<SignatureHeaderVerifier> signatureVerifier;
+	private final Optional<DateHeaderProvider> dateHeaderProvider;
+	private final Optional<String> digestAlgorithm;
+	private final int bufferSize;
+	private final Scheduler scheduler;
+	private final Executor executor;
+
+	private ReactiveSignatures(Builder builder) {
+		this.messageSigner = builder.messageSigner;
+		this.signatureVerifier = builder.signatureVerifier;
+		this.dateHeaderProvider = builder.dateHeaderProvider;
+		this.digestAlgorithm = builder.digestAlgorithm;
+		this.bufferSize = builder.bufferSize;
+		this.scheduler = builder.scheduler;
+		this.executor = task -> this.scheduler.schedule(task);
+	}
+
+	/**
+	 * Returns a new builder of reactive signatures.
+	 *
+	 * @return a new builder of reactive signatures.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Returns a web filter verifying the signature of the requests, if configured with a signature verifier, and signing
+	 * the responses, if configured with a message signer.
+	 * <p>
+	 * Requests whose signature is not verified are answered with an HTTP 401 unauthorized status code. Errors while
+	 * verifying are propagated as the outcome of the filter. Responses are signed when their body is written or, for
+	 * the ones without body, when the filter chain completes. Responses written by error handlers are not signed.
+	 *
+	 * @return a web filter.
+	 */
+	public WebFilter webFilter() {
+		return new SignatureWebFilter(this);
+	}
+
+	/**
+	 * Returns an exchange filter function signing the requests, if configured with a message signer, and verifying the
+	 * signature of the responses, if configured with a signature verifier.
+	 * <p>
+	 * A response whose signature is not verified is drained and the exchange fails with a {@link SignatureException}, as
+	 * does the exchange of a request whose signature depends on a body exceeding the
+	 * {@link Builder#bufferSize(int) buffer size}. Note that the {@code Host} header is set by the underlying client after
+	 * the request has been signed; it can only be signed if set explicitly on the request.
+	 *
+	 * @return an exchange filter function.
+	 */
+	public ExchangeFilterFunction exchangeFilterFunction() {
+		return new SignatureExchangeFilterFunction(this);
+	}
+
+	boolean signing() {
+		return this.messageSigner.isPresent();
+	}
+
+	boolean verifying() {
+		return this.signatureVerifier.isPresent();
+	}
+
+	/**
+	 * Verifies the signature of the given message on the scheduler.
+	 */
+	Mono<Boolean> verify(HttpMessage message) {
+		SignatureHeaderVerifier verifier = this.signatureVerifier.get();
+		return Mono.defer(() -> Mono.fromCompletionStage(verifier.verifyAsync(message, this.executor))).subscribeOn(this.scheduler);
+	}
+
+	/**
+	 * Returns whether the signature of the given outbound message depends on its body, i.e. whether a signed
+	 * {@code Digest} or {@code Content-Length} header is to be added, so that the body is to be buffered before the
+	 * message is signed.
+	 */
+	boolean signsBody(MessageWrapper message) {
+		return addsDigest(message) || this.messageSigner.get().signs(HttpHeaders.CONTENT_LENGTH) && message.headers().getContentLength() < 0;
+	}
+
+	private boolean addsDigest(MessageWrapper message) {
+		return this.digestAlgorithm.isPresent() && this.messageSigner.get().signs(BodyDigest.HEADER_DIGEST)
+				&& message.headerValues(BodyDigest.HEADER_DIGEST).isEmpty();
+	}
+
+	/**
+	 * Signs the message on the scheduler and writes the given body with the given function. When the signature depends
+	 * on the body, the body is buffered and digested as it is published, and the message is signed once the body is
+	 * complete. Once the body exceeds the buffer size, the message is sent unsigned if {@code streamUnsigned}, otherwise
+	 * the body is cancelled and the returned {@code Mono} fails with a {@link SignatureException}.
+	 */
+	Mono<Void> signAndWrite(MessageWrapper message, Publisher<? extends DataBuffer> body, Function<Flux<DataBuffer>, Mono<Void>> write,
+			boolean streamUnsigned) {
+		return Mono.defer(() -> {
+			if (!signsBody(message)) {
+				return signAndComplete(message, () -> write.apply(Flux.from(body)));
+			}
+			BufferedBody buffered = new BufferedBody(this.bufferSize,
+					addsDigest(message) ? Optional.of(BodyDigest.create(this.digestAlgorithm.get())) : Optional.empty());
+			return buffered.buffer(body)
+					.publishOn(this.scheduler)
+					.flatMap(complete -> {
+						if (complete.booleanValue()) {
+							try {
+								if (message.headers().getContentLength() < 0) {
+									message.headers().setContentLength(buffered.length());
+								}
+								if (buffered.digest().isPresent()) {
+									message.addHeader(BodyDigest.HEADER_DIGEST, buffered.digest().get().headerValue());
+								}
+								sign(message);
+							} catch (GeneralSecurityException | RuntimeException e) {
+								buffered.release();
+								return Mono.error(e);
+							}
+						} else if (!streamUnsigned) {
+							buffered.discard();
+							return Mono.error(new SignatureException("The body exceeds the buffer size of " + this.bufferSize
+									+ " bytes, the message cannot be signed"));
+						}
+						// a body exceeding the buffer size is streamed, unsigned
+						return write.apply(buffered.body());
+					});
+		});
+	}
+
+	/**
+	 * Signs the given message without body on the scheduler, then completes it with the given supplier.
+	 */
+	Mono<Void> signAndComplete(MessageWrapper message, Supplier<Mono<Void>> complete) {
+		return Mono.defer(() -> {
+			try {
+				sign(message);
+			} catch (GeneralSecurityException e) {
+				return Mono.error(e);
+			}
+			return complete.get();
+		}).subscribeOn(this.scheduler);
+	}
+
+	private void sign(MessageWrapper message) throws GeneralSecurityException {
+		if (this.dateHeaderProvider.isPresent()) {
+			this.dateHeaderProvider.get().addDateHeaderIfMissing(message);
+		}
+		this.messageSigner.get().sign(message);
+	}
+
+	/**
+	 * A builder of {@link ReactiveSignatures}.
+	 */
+	public static final class Builder {
+
+		private Optional<HttpMessageSigner> messageSigner = Optional.empty();
+		private Optional<SignatureHeaderVerifier> signatureVerifier = Optional.empty();
+		private Optional<DateHeaderProvider> dateHeaderProvider = Optional.empty();
+		private Optional<String> digestAlgorithm = Optional.empty();
+		private int bufferSize = DEFAULT_BUFFER_SIZE;
+		private Scheduler scheduler = Schedulers.parallel();
+
+		Builder() {
+		}
+
+		/**
+		 * Sets the message signer to be used to create the signature header of outbound messages. Either a message signer
+		 * or a signature verifier is required.
+		 *
+		 * @param messageSigner
+		 *          the message signer.
+		 * @return this builder for daisy chaining.
+		 */
+		public Builder messageSigner(HttpMessageSigner messageSigner) {
+			this.messageSigner = Optional.of(messageSigner);
+			return this;
+		}
+
+		/**
+		 * Sets the signature verifier which will check the signature of inbound messages. Either a message signer or a
+		 * signature verifier is required.
+		 *
+		 * @param signatureVerifier
+		 *          the signature verifier.
+		 * @return this builder for daisy chaining.
+		 */
+		public Builder signatureVerifier(SignatureHeaderVerifier signatureVerifier) {
+			this.signatureVerifier = Optional.of(signatureVerifier);
+			return this;
+		}
+
+		/**
+		 * Sets the provider of the {@code Date} header added to the outbound messages which do not have one before they
+		 * are signed. By default, no {@code Date} header is added.
+		 *
+		 * @param dateHeaderProvider
+		 *          the provider of the {@code Date} header values.
+		 * @return this builder for daisy chaining.
+		 */
+		public Builder dateHeaderProvider(DateHeaderProvider dateHeaderProvider) {
+			this.dateHeaderProvider = Optional.of(dateHeaderProvider);
+			return this;
+		}
+
+		/**
+		 * Sets the algorithm of the digest of the body of the outbound messages, to be sent in a {@code Digest} header.
+		 * The header is only added to the messages with a body which do not have one, when the message signer covers it.
+		 * By default, no {@code Digest} header is added.
+		 *
+		 * @param algorithm
+		 *          the name of the algorithm, as registered both for {@link MessageDigest} and in the IANA HTTP Digest
+		 *          Algorithm Values registry, e.g. {@code SHA-256}.
+		 * @return this builder for daisy chaining.
+		 * @throws IllegalArgumentException
+		 *           if the algorithm is not supported.
+		 */
+		public Builder digestAlgorithm(String algorithm) {
+			try {
+				MessageDigest.getInstance(algorithm);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalArgumentException("Unsupported digest algorithm '" + algorithm + "'", e);
+			}
+			this.digestAlgorithm = Optional.of(algorithm);
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of bytes of the body of an outbound message buffered before sending its headers, when
+		 * its signature depends on the body. Messages with bodies up to this size are sent with signed headers. Responses
+		 * with larger bodies are streamed unsigned, requests with larger bodies fail with a {@link SignatureException}.
+		 * Defaults to {@value ReactiveSignatures#DEFAULT_BUFFER_SIZE}.
+		 *
+		 * @param bufferSize
+		 *          the maximum number of buffered bytes, per message.
+		 * @return this builder for daisy chaining.
+		 * @throws IllegalArgumentException
+		 *           if the size is negative.
+		 */
+		public Builder bufferSize(int bufferSize) {
+			if (bufferSize < 0) {
+				throw new IllegalArgumentException("Buffer size must be positive or zero: " + bufferSize);
+			}
+			this.bufferSize = bufferSize;
+			return this;
+		}
+
+		/**
+		 * Sets the scheduler signatures are created and verified on. Defaults to {@link Schedulers#parallel()}, whose
+		 * number of workers is bounded to the number of CPUs. Must not be a scheduler whose workers run event loops.
+		 *
+		 * @param scheduler
+		 *          the scheduler of the cryptographic operations.
+		 * @return this builder for daisy chaining.
+		 */
+		public Builder scheduler(Scheduler scheduler) {
+			this.scheduler = Objects.requireNonNull(scheduler);
+			return this;
+		}
+
+		/**
+		 * Returns a newly configured {@code ReactiveSignatures}.
+		 *
+		 * @return a newly configured {@code ReactiveSignatures}.
+		 */
+		public ReactiveSignatures build() {
+			if (!this.messageSigner.isPresent() && !this.signatureVerifier.isPresent()) {
+				throw new IllegalStateException("Missing required property: either messageSigner or signatureVerifier");
+			}
+			return new ReactiveSignatures(this);
+		}
+	}
+}
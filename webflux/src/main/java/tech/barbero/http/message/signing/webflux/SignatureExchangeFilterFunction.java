@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.webflux;
+
+import java.security.SignatureException;
+
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import reactor.core.publisher.Mono;
+import tech.barbero.http.message.signing.webflux.MessageWrapper.Response;
+
+/**
+ * An exchange filter function signing the requests and verifying the signature of the responses. See
+ * {@link ReactiveSignatures#exchangeFilterFunction()}.
+ */
+final class SignatureExchangeFilterFunction implements ExchangeFilterFunction {
+
+	private final ReactiveSignatures signatures;
+
+	SignatureExchangeFilterFunction(ReactiveSignatures signatures) {
+		this.signatures = signatures;
+	}
+
+	@Override
+	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+		ClientRequest filtered = request;
+		if (this.signatures.signing()) {
+			BodyInserter<?, ? super ClientHttpRequest> body = request.body();
+			filtered = ClientRequest.from(request)
+					.body((outputMessage, context) -> body.insert(new SigningClientHttpRequest(outputMessage, this.signatures), context))
+					.build();
+		}
+		Mono<ClientResponse> response = next.exchange(filtered);
+		if (this.signatures.verifying()) {
+			return response.flatMap(this::verify);
+		}
+		return response;
+	}
+
+	private Mono<ClientResponse> verify(ClientResponse response) {
+		Response message = new Response(response.statusCode().value(), response.headers().asHttpHeaders());
+		return this.signatures.verify(message).flatMap(verified -> {
+			if (verified.booleanValue()) {
+				return Mono.just(response);
+			}
+			// releases the connection
+			return response.bodyToMono(Void.class)
+					.then(Mono.error(new SignatureException("Unable to verify the signature of HTTP response '" + response.statusCode() + "'")));
+		});
+	}
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.webflux;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import reactor.core.publisher.Mono;
+import tech.barbero.http.message.signing.webflux.MessageWrapper.Request;
+
+/**
+ * A web filter verifying the signature of the requests and signing the responses. See
+ * {@link ReactiveSignatures#webFilter()}.
+ */
+final class SignatureWebFilter implements WebFilter {
+
+	private final ReactiveSignatures signatures;
+
+	SignatureWebFilter(ReactiveSignatures signatures) {
+		this.signatures = signatures;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		ServerWebExchange signingExchange = exchange;
+		if (this.signatures.signing()) {
+			signingExchange = exchange.mutate().response(new SigningServerHttpResponse(exchange.getResponse(), this.signatures)).build();
+		}
+		if (!this.signatures.verifying()) {
+			return filter(signingExchange, chain, signingExchange.getResponse());
+		}
+		ServerWebExchange verifyingExchange = signingExchange;
+		ServerHttpRequest request = exchange.getRequest();
+		return this.signatures.verify(new Request(request.getMethodValue(), request.getURI(), request.getHeaders())).flatMap(verified -> {
+			ServerHttpResponse response = verifyingExchange.getResponse();
+			if (!verified.booleanValue()) {
+				// false if the response has already been committed
+				return response.setStatusCode(HttpStatus.UNAUTHORIZED) ? response.setComplete() : Mono.empty();
+			}
+			if (BodyDigest.expecting(request.getHeaders().get(BodyDigest.HEADER_DIGEST)).isPresent()) {
+				return filter(verifyingExchange.mutate().request(new DigestVerifyingServerHttpRequest(request)).build(), chain, response);
+			}
+			return filter(verifyingExchange, chain, response);
+		});
+	}
+
+	/**
+	 * Filters the exchange with the chain, then completes the response, so that a response without body is signed before
+	 * it is committed by the server.
+	 */
+	private static Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain, ServerHttpResponse response) {
+		if (response instanceof SigningServerHttpResponse) {
+			return chain.filter(exchange).then(Mono.defer(response::setComplete));
+		}
+		return chain.filter(exchange);
+	}
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.webflux;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tech.barbero.http.message.signing.webflux.MessageWrapper.Request;
+
+/**
+ * A request signed before its body is written, or before it is sent when it has no body.
+ */
+final class SigningClientHttpRequest extends ClientHttpRequestDecorator {
+
+	private final ReactiveSignatures signatures;
+	private final AtomicBoolean signed = new AtomicBoolean();
+
+	SigningClientHttpRequest(ClientHttpRequest delegate, ReactiveSignatures signatures) {
+		super(delegate);
+		this.signatures = signatures;
+	}
+
+	@Override
+	public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+		if (!this.signed.compareAndSet(false, true)) {
+			return super.writeWith(body);
+		}
+		return this.signatures.signAndWrite(message(), body, super::writeWith, false);
+	}
+
+	@Override
+	public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+		if (!this.signed.compareAndSet(false, true)) {
+			return super.writeAndFlushWith(body);
+		}
+		Request message = message();
+		return Mono.defer(() -> {
+			if (this.signatures.signsBody(message)) {
+				// the body is buffered before the headers are sent, flushes are deferred as well
+				return this.signatures.signAndWrite(message, Flux.from(body).concatMap(Flux::from), super::writeWith, false);
+			}
+			return this.signatures.signAndComplete(message, () -> super.writeAndFlushWith(body));
+		});
+	}
+
+	@Override
+	public Mono<Void> setComplete() {
+		if (!this.signed.compareAndSet(false, true) || isCommitted()) {
+			return super.setComplete();
+		}
+		return this.signatures.signAndComplete(message(), super::setComplete);
+	}
+
+	private Request message() {
+		return new Request(getMethod().name(), getURI(), getHeaders());
+	}
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.webflux;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tech.barbero.http.message.signing.webflux.MessageWrapper.Response;
+
+/**
+ * A response signed before its body is written, or before it is completed when it has no body.
+ */
+final class SigningServerHttpResponse extends ServerHttpResponseDecorator {
+
+	private final ReactiveSignatures signatures;
+	private final AtomicBoolean signed = new AtomicBoolean();
+
+	SigningServerHttpResponse(ServerHttpResponse delegate, ReactiveSignatures signatures) {
+		super(delegate);
+		this.signatures = signatures;
+	}
+
+	@Override
+	public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+		if (!this.signed.compareAndSet(false, true)) {
+			return super.writeWith(body);
+		}
+		return this.signatures.signAndWrite(message(), body, super::writeWith, true);
+	}
+
+	@Override
+	public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+		if (!this.signed.compareAndSet(false, true)) {
+			return super.writeAndFlushWith(body);
+		}
+		Response message = message();
+		return Mono.defer(() -> {
+			if (this.signatures.signsBody(message)) {
+				// the body is buffered before the headers are sent, flushes are deferred as well
+				return this.signatures.signAndWrite(message, Flux.from(body).concatMap(Flux::from), super::writeWith, true);
+			}
+			return this.signatures.signAndComplete(message, () -> super.writeAndFlushWith(body));
+		});
+	}
+
+	@Override
+	public Mono<Void> setComplete() {
+		if (!this.signed.compareAndSet(false, true) || isCommitted()) {
+			return super.setComplete();
+		}
+		return this.signatures.signAndComplete(message(), super::setComplete);
+	}
+
+	private Response message() {
+		HttpStatus status = getStatusCode();
+		return new Response(status != null ? status.value() : HttpStatus.OK.value(), getHeaders());
+	}
+}
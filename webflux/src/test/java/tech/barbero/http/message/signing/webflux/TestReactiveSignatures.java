@@ -0,0 +1,318 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.webflux;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebHandler;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import tech.barbero.http.message.signing.DateHeaderProvider;
+import tech.barbero.http.message.signing.HashKeyMap;
+import tech.barbero.http.message.signing.HttpMessageSigner;
+import tech.barbero.http.message.signing.HttpMessageSigner.Algorithm;
+import tech.barbero.http.message.signing.KeyMap;
+import tech.barbero.http.message.signing.SignatureHeaderVerifier;
+import tech.barbero.http.message.signing.webflux.MessageWrapper.Request;
+import tech.barbero.http.message.signing.webflux.MessageWrapper.Response;
+
+public class TestReactiveSignatures {
+
+	private static final HttpMessageSigner REQUEST_SIGNER = HttpMessageSigner.builder()
+			.algorithm(Algorithm.HMAC_SHA256)
+			.keyMap(HashKeyMap.INSTANCE)
+			.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+			.addHeaderToSign("Date")
+			.addHeaderToSign("Digest")
+			.keyId("user1").build();
+
+	private static final HttpMessageSigner RESPONSE_SIGNER = HttpMessageSigner.builder()
+			.algorithm(Algorithm.RSA_SHA256)
+			.keyMap(HashKeyMap.INSTANCE)
+			.addHeaderToSign(HttpMessageSigner.RESPONSE_STATUS)
+			.addHeaderToSign("Date")
+			.keyId("key-id").build();
+
+	private static final HttpMessageSigner RESPONSE_DIGEST_SIGNER = HttpMessageSigner.builder()
+			.algorithm(Algorithm.RSA_SHA256)
+			.keyMap(HashKeyMap.INSTANCE)
+			.addHeaderToSign(HttpMessageSigner.RESPONSE_STATUS)
+			.addHeaderToSign("Date")
+			.addHeaderToSign("Digest")
+			.keyId("key-id").build();
+
+	private final Scheduler crypto = Schedulers.newParallel("crypto", 2);
+	private final Set<String> keyLookupThreads = ConcurrentHashMap.newKeySet();
+
+	private final KeyMap recordingKeyMap = new KeyMap() {
+		@Override
+		public SecretKey getSecretKey(String keyId) {
+			TestReactiveSignatures.this.keyLookupThreads.add(Thread.currentThread().getName());
+			return HashKeyMap.INSTANCE.getSecretKey(keyId);
+		}
+
+		@Override
+		public PublicKey getPublicKey(String keyId) {
+			TestReactiveSignatures.this.keyLookupThreads.add(Thread.currentThread().getName());
+			return HashKeyMap.INSTANCE.getPublicKey(keyId);
+		}
+
+		@Override
+		public PrivateKey getPrivateKey(String keyId) {
+			return HashKeyMap.INSTANCE.getPrivateKey(keyId);
+		}
+	};
+
+	private final SignatureHeaderVerifier verifier = SignatureHeaderVerifier.builder().keyMap(this.recordingKeyMap).build();
+
+	private final ReactiveSignatures server = ReactiveSignatures.builder()
+			.signatureVerifier(this.verifier)
+			.messageSigner(RESPONSE_SIGNER)
+			.dateHeaderProvider(DateHeaderProvider.systemUTC())
+			.digestAlgorithm("SHA-256")
+			.scheduler(this.crypto)
+			.build();
+
+	private final ReactiveSignatures client = ReactiveSignatures.builder()
+			.messageSigner(REQUEST_SIGNER)
+			.signatureVerifier(this.verifier)
+			.dateHeaderProvider(DateHeaderProvider.systemUTC())
+			.digestAlgorithm("SHA-256")
+			.scheduler(this.crypto)
+			.build();
+
+	private static final WebHandler HELLO = exchange -> exchange.getRequest().getBody()
+			.map(TestReactiveSignatures::toString)
+			.reduce("", String::concat)
+			.flatMap(name -> exchange.getResponse().writeWith(Mono.just(
+					exchange.getResponse().bufferFactory().wrap(("Hello " + name).getBytes(StandardCharsets.UTF_8)))));
+
+	@AfterEach
+	public void disposeScheduler() {
+		this.crypto.dispose();
+	}
+
+	@Test
+	public void signedRoundTrip() {
+		WebTestClient webClient = webClient(HELLO, this.server, this.client);
+		WebTestClient.ResponseSpec response = webClient.post().uri("/foo?param=value").syncBody("world").exchange();
+		response.expectStatus().isOk()
+				.expectBody(String.class).isEqualTo("Hello world");
+		assertFalse(this.keyLookupThreads.isEmpty());
+		this.keyLookupThreads.forEach(name -> assertTrue(name.startsWith("crypto"), name));
+	}
+
+	@Test
+	public void signResponseDigest() {
+		ReactiveSignatures digestServer = ReactiveSignatures.builder()
+				.messageSigner(RESPONSE_DIGEST_SIGNER)
+				.dateHeaderProvider(DateHeaderProvider.systemUTC())
+				.digestAlgorithm("SHA-256")
+				.scheduler(this.crypto)
+				.build();
+		WebTestClient webClient = webClient(HELLO, digestServer, this.client);
+		webClient.post().uri("/foo").syncBody("world").exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals("Digest", "SHA-256=ZOyIygCyaOW6GjVnihtTFtIS9PNmskdyMlNKiuyjfzw=")
+				.expectHeader().valueEquals("Content-Length", "11");
+	}
+
+	@Test
+	public void signResponseWithoutBody() {
+		WebHandler noContent = exchange -> {
+			exchange.getResponse().setStatusCode(HttpStatus.NO_CONTENT);
+			return Mono.empty();
+		};
+		WebTestClient webClient = webClient(noContent, this.server, this.client);
+		webClient.post().uri("/foo").syncBody("world").exchange()
+				.expectStatus().isNoContent()
+				.expectHeader().valueMatches(HttpMessageSigner.HEADER_SIGNATURE, ".*key-id.*");
+	}
+
+	@Test
+	public void rejectTamperedRequest() {
+		WebFilter tamper = (exchange, chain) -> chain.filter(exchange.mutate().request(r -> r.path("/bar")).build());
+		WebTestClient webClient = WebTestClient.bindToWebHandler(HELLO)
+				.webFilter(tamper, this.server.webFilter())
+				.configureClient()
+				.filter(this.client.exchangeFilterFunction())
+				.build();
+		webClient.post().uri("/foo").syncBody("world").exchange()
+				.expectStatus().isUnauthorized();
+	}
+
+	@Test
+	public void rejectBodyNotMatchingDigest() {
+		// error responses are not signed, the client does not verify them
+		ReactiveSignatures signingClient = ReactiveSignatures.builder()
+				.messageSigner(REQUEST_SIGNER)
+				.dateHeaderProvider(DateHeaderProvider.systemUTC())
+				.scheduler(this.crypto)
+				.build();
+		WebTestClient webClient = webClient(HELLO, this.server, signingClient);
+		webClient.post().uri("/foo")
+				.header("Digest", "SHA-256=X48E9qOokqqrvdts8nOJRJN3OWDUoyWxBf7kbu9DBPE=")
+				.syncBody("world").exchange()
+				.expectStatus().is5xxServerError();
+	}
+
+	@Test
+	public void failOnUnverifiedResponse() {
+		KeyMap otherKeys = new KeyMap() {
+			@Override
+			public SecretKey getSecretKey(String keyId) {
+				return HashKeyMap.INSTANCE.getSecretKey(keyId);
+			}
+
+			@Override
+			public PublicKey getPublicKey(String keyId) {
+				return HashKeyMap.INSTANCE.getPublicKey("myKeyId");
+			}
+
+			@Override
+			public PrivateKey getPrivateKey(String keyId) {
+				return HashKeyMap.INSTANCE.getPrivateKey(keyId);
+			}
+		};
+		ReactiveSignatures otherKeysClient = ReactiveSignatures.builder()
+				.messageSigner(REQUEST_SIGNER)
+				.signatureVerifier(SignatureHeaderVerifier.builder().keyMap(otherKeys).build())
+				.dateHeaderProvider(DateHeaderProvider.systemUTC())
+				.digestAlgorithm("SHA-256")
+				.scheduler(this.crypto)
+				.build();
+		WebTestClient webClient = webClient(HELLO, this.server, otherKeysClient);
+		Throwable failure = assertThrows(Throwable.class, () -> webClient.post().uri("/foo").syncBody("world").exchange());
+		assertNotNull(rootCause(failure, SignatureException.class), failure::toString);
+	}
+
+	@Test
+	public void streamUnsignedResponseBeyondBufferSize() {
+		ReactiveSignatures signatures = ReactiveSignatures.builder()
+				.messageSigner(RESPONSE_DIGEST_SIGNER)
+				.dateHeaderProvider(DateHeaderProvider.systemUTC())
+				.digestAlgorithm("SHA-256")
+				.bufferSize(16)
+				.scheduler(this.crypto)
+				.build();
+		Response response = new Response(HttpStatus.OK.value(), new HttpHeaders());
+		List<String> written = new ArrayList<>();
+		signatures.signAndWrite(response, endlessBody(), body -> body.take(4).map(TestReactiveSignatures::toString).doOnNext(written::add).then(), true)
+				.block(Duration.ofSeconds(10));
+		assertEquals(Arrays.asList("chunk", "chunk", "chunk", "chunk"), written);
+		assertTrue(response.headerValues(HttpMessageSigner.HEADER_SIGNATURE).isEmpty());
+		assertTrue(response.headerValues("Digest").isEmpty());
+	}
+
+	@Test
+	public void failRequestBeyondBufferSize() {
+		ReactiveSignatures signingClient = ReactiveSignatures.builder()
+				.messageSigner(REQUEST_SIGNER)
+				.dateHeaderProvider(DateHeaderProvider.systemUTC())
+				.digestAlgorithm("SHA-256")
+				.bufferSize(16)
+				.scheduler(this.crypto)
+				.build();
+		WebTestClient webClient = webClient(HELLO, this.server, signingClient);
+		Throwable failure = assertThrows(Throwable.class,
+				() -> webClient.post().uri("/foo").syncBody("a body larger than the buffer").exchange());
+		assertNotNull(rootCause(failure, SignatureException.class), failure::toString);
+	}
+
+	@Test
+	public void streamWithoutBufferingWhenBodyIsNotSigned() {
+		HttpMessageSigner signer = HttpMessageSigner.builder()
+				.algorithm(Algorithm.HMAC_SHA256)
+				.keyMap(HashKeyMap.INSTANCE)
+				.addHeaderToSign(HttpMessageSigner.REQUEST_TARGET)
+				.addHeaderToSign("Date")
+				.keyId("user1").build();
+		ReactiveSignatures signatures = ReactiveSignatures.builder()
+				.messageSigner(signer)
+				.dateHeaderProvider(DateHeaderProvider.systemUTC())
+				.digestAlgorithm("SHA-256")
+				.bufferSize(0)
+				.scheduler(this.crypto)
+				.build();
+		Request request = new Request("POST", URI.create("/foo"), new HttpHeaders());
+		List<String> written = new ArrayList<>();
+		signatures.signAndWrite(request, endlessBody(), body -> {
+			// the headers are sent before the body
+			assertFalse(request.headerValues(HttpMessageSigner.HEADER_SIGNATURE).isEmpty());
+			return body.take(4).map(TestReactiveSignatures::toString).doOnNext(written::add).then();
+		}, false).block(Duration.ofSeconds(10));
+		assertEquals(Arrays.asList("chunk", "chunk", "chunk", "chunk"), written);
+		assertTrue(request.headerValues("Digest").isEmpty());
+	}
+
+	@Test
+	public void missingSigner() {
+		assertThrows(IllegalStateException.class, () -> ReactiveSignatures.builder().build());
+		assertThrows(IllegalArgumentException.class, () -> ReactiveSignatures.builder().digestAlgorithm("NOPE"));
+		assertThrows(IllegalArgumentException.class, () -> ReactiveSignatures.builder().bufferSize(-1));
+	}
+
+	private static Flux<DataBuffer> endlessBody() {
+		DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+		return Flux.generate(sink -> sink.next(bufferFactory.wrap("chunk".getBytes(StandardCharsets.UTF_8))));
+	}
+
+	private static WebTestClient webClient(WebHandler handler, ReactiveSignatures server, ReactiveSignatures client) {
+		return WebTestClient.bindToWebHandler(handler)
+				.webFilter(server.webFilter())
+				.configureClient()
+				.filter(client.exchangeFilterFunction())
+				.build();
+	}
+
+	private static String toString(DataBuffer buffer) {
+		String ret = StandardCharsets.UTF_8.decode(buffer.asByteBuffer()).toString();
+		DataBufferUtils.release(buffer);
+		return ret;
+	}
+
+	private static Throwable rootCause(Throwable t, Class<? extends Throwable> type) {
+		for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+			if (type.isInstance(cause)) {
+				return cause;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eclipse Foundation and others
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package tech.barbero.http.message.signing.webflux;
+
+import java.net.URI;
+
+import org.springframework.http.HttpHeaders;
+
+import tech.barbero.http.message.signing.HttpRequest;
+import tech.barbero.http.message.signing.HttpResponse;
+import tech.barbero.http.message.signing.MessageFactory;
+import tech.barbero.http.message.signing.webflux.MessageWrapper.Request;
+import tech.barbero.http.message.signing.webflux.MessageWrapper.Response;
+
+public class WebFluxMessageFactory implements MessageFactory {
+
+	@Override
+	public HttpRequest createRequest(String method, URI uri) {
+		return new Request(method, uri, new HttpHeaders());
+	}
+
+	@Override
+	public HttpResponse createResponse(int statusCode) {
+		return new Response(statusCode, new HttpHeaders());
+	}
+}